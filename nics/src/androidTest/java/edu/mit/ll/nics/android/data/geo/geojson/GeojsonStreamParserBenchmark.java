@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.data.geo.geojson;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import edu.mit.ll.nics.android.utils.GeoUtils;
+
+/**
+ * Measures the throughput of the streaming GeoJson parser against the GeoUtils parser on the same
+ * large feature collection file.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GeojsonStreamParserBenchmark {
+
+    private static final String TAG = "GeojsonStreamParserBenchmark";
+    private static final int FEATURE_COUNT = 20000;
+
+    private File mFile;
+
+    @Before
+    public void writeFile() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mFile = File.createTempFile(TAG, ".json", context.getCacheDir());
+
+        StringBuilder builder = new StringBuilder("{ \"type\": \"FeatureCollection\", \"features\": [");
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            if (i > 0) builder.append(',');
+            double x = -120.0 + (i % 1000) * 0.01;
+            double y = 35.0 + (i / 1000) * 0.01;
+            builder.append("{ \"type\": \"Feature\", \"properties\": { \"name\": \"feature ").append(i)
+                    .append("\", \"value\": ").append(i).append(" }, \"geometry\": { \"type\": \"Polygon\", \"coordinates\": [[")
+                    .append('[').append(x).append(", ").append(y).append("],")
+                    .append('[').append(x + 0.01).append(", ").append(y).append("],")
+                    .append('[').append(x + 0.01).append(", ").append(y + 0.01).append("],")
+                    .append('[').append(x).append(", ").append(y).append("]]] } }");
+        }
+        builder.append("] }");
+
+        try (OutputStream out = new FileOutputStream(mFile)) {
+            out.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @After
+    public void deleteFile() {
+        mFile.delete();
+    }
+
+    @Test
+    public void parseLargeCollection() throws IOException {
+        long start = SystemClock.elapsedRealtimeNanos();
+        int legacy = GeoUtils.parseGeojson(GeoUtils.parseGeojsonFile(mFile)).size();
+        long legacyNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        int[] streamed = new int[1];
+        start = SystemClock.elapsedRealtimeNanos();
+        try (InputStream in = new FileInputStream(mFile)) {
+            GeojsonStreamParser.parseLayerFeatures(in, feature -> streamed[0]++);
+        }
+        long streamNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Assert.assertEquals(FEATURE_COUNT, legacy);
+        Assert.assertEquals(FEATURE_COUNT, streamed[0]);
+        Log.i(TAG, String.format("GeoUtils: %.0f features/s, GeojsonStreamParser: %.0f features/s.",
+                FEATURE_COUNT / (legacyNanos / 1e9), FEATURE_COUNT / (streamNanos / 1e9)));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.database;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.mit.ll.nics.android.database.dao.MapMarkupDao;
+import edu.mit.ll.nics.android.database.entities.Feature;
+import edu.mit.ll.nics.android.database.entities.HazardInfo;
+import edu.mit.ll.nics.android.database.entities.MarkupFeature;
+import edu.mit.ll.nics.android.database.entities.Vector2;
+import edu.mit.ll.nics.android.enums.SendStatus;
+
+/**
+ * Measures loading markup features through the DAO, which runs the {@link Converters} for the
+ * geometry and attribute columns of every row. The converter cost is also reported for the
+ * previous approach of creating a new Gson and TypeToken for every conversion, so that the two can
+ * be compared on the same device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConvertersBenchmark {
+
+    private static final String TAG = "ConvertersBenchmark";
+    private static final int FEATURE_COUNT = 10000;
+    private static final int VERTEX_COUNT = 20;
+    private static final long COLLABROOM_ID = 1L;
+
+    private static final int[] STATUSES = new int[]{SendStatus.RECEIVED.getId(), SendStatus.SAVED.getId()};
+
+    private AppDatabase mDatabase;
+    private MapMarkupDao mDao;
+
+    @Before
+    public void createDatabase() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mDatabase = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        mDao = mDatabase.mapMarkupDao();
+    }
+
+    @After
+    public void closeDatabase() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void loadMarkupFeatures() {
+        mDao.ingestMarkupFeatures(COLLABROOM_ID, new ArrayList<>(), createFeatures(), STATUSES, STATUSES);
+
+        // Warm up the class loading and the adapters before measuring.
+        mDao.getMarkupFeatures(COLLABROOM_ID, STATUSES);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        List<Feature> features = mDao.getMarkupFeatures(COLLABROOM_ID, STATUSES);
+        long load = SystemClock.elapsedRealtimeNanos() - start;
+
+        Assert.assertEquals(FEATURE_COUNT, features.size());
+        Assert.assertEquals(VERTEX_COUNT, features.get(0).getMarkupFeature().getGeometryVector2().size());
+
+        ArrayList<String> geometries = new ArrayList<>();
+        ArrayList<String> hazards = new ArrayList<>();
+        for (Feature feature : features) {
+            MarkupFeature markup = feature.getMarkupFeature();
+            geometries.add(Converters.fromVectorArrayList(markup.getGeometryVector2()));
+            hazards.add(Converters.fromHazardInfoArrayList(markup.getAttributes().getHazards()));
+        }
+
+        long shared = convert(geometries, hazards, false);
+        long legacy = convert(geometries, hazards, true);
+
+        Log.i(TAG, String.format("DAO load of %s features: %s ms.", FEATURE_COUNT, load / 1000000L));
+        Log.i(TAG, String.format("Column conversion of %s rows: %s ms before, %s ms after.", FEATURE_COUNT,
+                legacy / 1000000L, shared / 1000000L));
+    }
+
+    private long convert(List<String> geometries, List<String> hazards, boolean legacy) {
+        long start = SystemClock.elapsedRealtimeNanos();
+
+        for (int i = 0; i < geometries.size(); i++) {
+            ArrayList<Vector2> geometry;
+            ArrayList<HazardInfo> hazardInfos;
+
+            if (legacy) {
+                Type vectorType = new TypeToken<ArrayList<Vector2>>() {
+                }.getType();
+                geometry = new Gson().fromJson(geometries.get(i), vectorType);
+                Type hazardType = new TypeToken<ArrayList<HazardInfo>>() {
+                }.getType();
+                hazardInfos = new Gson().fromJson(hazards.get(i), hazardType);
+            } else {
+                geometry = Converters.fromStringToVectorArrayList(geometries.get(i));
+                hazardInfos = Converters.fromHazardInfoArrayString(hazards.get(i));
+            }
+
+            Assert.assertEquals(VERTEX_COUNT, geometry.size());
+            Assert.assertEquals(1, hazardInfos.size());
+        }
+
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private ArrayList<MarkupFeature> createFeatures() {
+        ArrayList<MarkupFeature> features = new ArrayList<>();
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            ArrayList<Vector2> geometry = new ArrayList<>();
+            for (int j = 0; j < VERTEX_COUNT; j++) {
+                geometry.add(new Vector2(-71.0 + i * 0.0001 + j * 0.00001, 42.0 + j * 0.00001));
+            }
+
+            ArrayList<HazardInfo> hazards = new ArrayList<>();
+            hazards.add(new HazardInfo("Hazard " + i, "fire", 100, "meter"));
+
+            MarkupFeature feature = new MarkupFeature();
+            feature.setFeatureId("feature-" + i);
+            feature.setCollabRoomId(COLLABROOM_ID);
+            feature.setSendStatus(SendStatus.RECEIVED);
+            feature.setType("sketch");
+            feature.setGeometryVector2(geometry);
+            feature.getAttributes().setHazards(hazards);
+            feature.setLastUpdate(i);
+            feature.setUserName("benchmark");
+            features.add(feature);
+        }
+        return features;
+    }
+}
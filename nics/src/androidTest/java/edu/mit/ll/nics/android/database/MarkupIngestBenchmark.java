@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.database;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import edu.mit.ll.nics.android.data.messages.MarkupMessage;
+import edu.mit.ll.nics.android.database.dao.MapMarkupDao;
+import edu.mit.ll.nics.android.database.entities.MarkupFeature;
+import edu.mit.ll.nics.android.enums.SendStatus;
+
+/**
+ * Measures the bulk markup ingest path that is used by the markup sync worker. Reports the wall
+ * time and the allocations of ingesting a large synthetic {@link MarkupMessage}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MarkupIngestBenchmark {
+
+    private static final String TAG = "MarkupIngestBenchmark";
+    private static final int FEATURE_COUNT = 10000;
+    private static final long COLLABROOM_ID = 1L;
+
+    private static final int[] DELETE_STATUSES = new int[]{SendStatus.RECEIVED.getId(), SendStatus.SAVED.getId()};
+    private static final int[] REPLACE_STATUSES = new int[]{SendStatus.RECEIVED.getId(), SendStatus.WAITING_TO_SEND.getId(),
+            SendStatus.SENT.getId(), SendStatus.UPDATING.getId(), SendStatus.UPDATE.getId(), SendStatus.SAVED.getId()};
+
+    private AppDatabase mDatabase;
+    private MapMarkupDao mDao;
+
+    @Before
+    public void createDatabase() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mDatabase = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        mDao = mDatabase.mapMarkupDao();
+    }
+
+    @After
+    public void closeDatabase() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void ingestMarkupMessage() {
+        // Initial sync inserts every feature.
+        ingest(createMessage(0L), "insert");
+        Assert.assertEquals(FEATURE_COUNT, mDao.getMarkupFeatureKeys(COLLABROOM_ID, REPLACE_STATUSES).size());
+
+        // A second sync of the same features must replace the existing rows instead of adding new ones.
+        ingest(createMessage(1L), "replace");
+        Assert.assertEquals(FEATURE_COUNT, mDao.getMarkupFeatureKeys(COLLABROOM_ID, REPLACE_STATUSES).size());
+    }
+
+    @SuppressWarnings("deprecation")
+    private void ingest(MarkupMessage message, String label) {
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+
+        mDao.ingestMarkupFeatures(COLLABROOM_ID, message.getDeletedFeatures(), message.getFeatures(),
+                DELETE_STATUSES, REPLACE_STATUSES);
+
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, String.format("%s of %s features: %s ms, %s allocations, %s bytes allocated.", label,
+                FEATURE_COUNT, elapsed / 1000000L, Debug.getThreadAllocCount(), Debug.getThreadAllocSize()));
+    }
+
+    private MarkupMessage createMessage(long revision) {
+        ArrayList<MarkupFeature> features = new ArrayList<>();
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            MarkupFeature feature = new MarkupFeature();
+            feature.setFeatureId("feature-" + i);
+            feature.setCollabRoomId(COLLABROOM_ID);
+            feature.setSendStatus(SendStatus.RECEIVED);
+            feature.setType("point");
+            feature.setGeometry("POINT(" + (-71.0 + i * 0.0001) + " " + (42.0 + revision * 0.0001) + ")");
+            feature.setLastUpdate(revision * FEATURE_COUNT + i);
+            feature.setUserName("benchmark");
+            features.add(feature);
+        }
+
+        MarkupMessage message = new MarkupMessage();
+        message.setFeatures(features);
+        message.setDeletedFeatures(new ArrayList<>());
+        return message;
+    }
+}
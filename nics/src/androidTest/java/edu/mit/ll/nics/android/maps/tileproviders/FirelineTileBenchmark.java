@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.tileproviders;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import edu.mit.ll.nics.android.maps.markup.FirelineType;
+import edu.mit.ll.nics.android.maps.markup.MarkupFireLine;
+import edu.mit.ll.nics.android.repository.PreferencesRepository;
+
+/**
+ * Measures the fireline tile renderer. Reports the tiles per second and the allocations per tile of
+ * rendering a grid of tiles cold, and of serving the same tiles again from the tile cache.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FirelineTileBenchmark {
+
+    private static final String TAG = "FirelineTileBenchmark";
+    private static final int FIRELINE_COUNT = 200;
+    private static final int ZOOM = 13;
+    private static final int GRID = 8;
+    private static final double LATITUDE = 34.0;
+    private static final double LONGITUDE = -118.0;
+
+    private FirelineTileProvider mProvider;
+    private int mOriginX;
+    private int mOriginY;
+
+    @Before
+    public void createProvider() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PreferencesRepository preferences = new PreferencesRepository(context.getSharedPreferences(TAG, Context.MODE_PRIVATE));
+
+        mProvider = new FirelineTileProvider(2f, 21f);
+
+        FirelineType[] types = FirelineType.values();
+        for (int i = 0; i < FIRELINE_COUNT; i++) {
+            MarkupFireLine fireLine = new MarkupFireLine(null, null, preferences, null);
+            fireLine.setDashStyle(types[i % types.length].getType());
+
+            ArrayList<LatLng> points = new ArrayList<>();
+            double latitude = LATITUDE - (i % 20) * 0.01;
+            double longitude = LONGITUDE + (i / 20) * 0.01;
+            for (int j = 0; j < 20; j++) {
+                points.add(new LatLng(latitude - j * 0.001, longitude + j * 0.002));
+            }
+            fireLine.setPoints(points);
+            mProvider.updateFireline(fireLine);
+        }
+
+        double n = 1 << ZOOM;
+        double latRadians = Math.toRadians(LATITUDE);
+        mOriginX = (int) Math.floor((LONGITUDE + 180.0) / 360.0 * n);
+        mOriginY = (int) Math.floor((1.0 - Math.log(Math.tan(latRadians) + 1.0 / Math.cos(latRadians)) / Math.PI) / 2.0 * n);
+    }
+
+    @Test
+    public void renderTiles() {
+        int drawn = render("cold");
+        Assert.assertTrue(drawn > 0);
+
+        Assert.assertEquals(drawn, render("cached"));
+
+        // A tile far away from every fireline is skipped without drawing.
+        Assert.assertSame(TileProvider.NO_TILE, mProvider.getTile(0, 0, ZOOM));
+    }
+
+    @SuppressWarnings("deprecation")
+    private int render(String label) {
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+
+        int drawn = 0;
+        for (int x = 0; x < GRID; x++) {
+            for (int y = 0; y < GRID; y++) {
+                Tile tile = mProvider.getTile(mOriginX + x, mOriginY + y, ZOOM);
+                if (tile != null && tile != TileProvider.NO_TILE) {
+                    drawn++;
+                }
+            }
+        }
+
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+
+        int tiles = GRID * GRID;
+        Log.i(TAG, String.format("%s: %s tiles (%s drawn) of %s firelines, %.1f tiles/s, %s bytes allocated per tile.",
+                label, tiles, drawn, FIRELINE_COUNT, tiles / (elapsed / 1e9), Debug.getThreadAllocSize() / tiles));
+        return drawn;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import edu.mit.ll.nics.android.database.entities.Hazard;
+
+import static com.google.maps.android.SphericalUtil.computeDistanceBetween;
+import static edu.mit.ll.nics.android.utils.GeoUtils.findNearestPoint;
+
+/**
+ * Measures the {@link HazardIndex} for 10k hazards. Reports the time to build the index, the time per containment and
+ * nearest hazard query, and the time per query of the brute force nearest hazard search that the index replaced.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HazardIndexBenchmark {
+
+    private static final String TAG = "HazardIndexBenchmark";
+    private static final int HAZARDS = 10000;
+    private static final int QUERIES = 1000;
+    private static final int BRUTE_FORCE_QUERIES = 10;
+
+    private final Random mRandom = new Random(42);
+    private final ArrayList<Hazard> mHazards = new ArrayList<>();
+
+    @Before
+    public void createHazards() {
+        for (int i = 0; i < HAZARDS; i++) {
+            LatLng center = randomLocation();
+            double size = 0.001 + mRandom.nextDouble() * 0.005;
+
+            ArrayList<LatLng> coordinates = new ArrayList<>();
+            coordinates.add(new LatLng(center.latitude - size, center.longitude - size));
+            coordinates.add(new LatLng(center.latitude + size, center.longitude - size));
+            coordinates.add(new LatLng(center.latitude + size, center.longitude + size));
+            coordinates.add(new LatLng(center.latitude - size, center.longitude + size));
+            coordinates.add(new LatLng(center.latitude - size, center.longitude - size));
+
+            Hazard hazard = new Hazard("hazard" + i, "Hazard " + i, "Fire", 100, "meter", null, 1L, coordinates);
+            hazard.setId(i);
+            mHazards.add(hazard);
+        }
+    }
+
+    @Test
+    public void queryHazards() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        HazardIndex index = new HazardIndex();
+        index.update(mHazards);
+        long build = SystemClock.elapsedRealtimeNanos() - start;
+        Assert.assertEquals(HAZARDS, index.size());
+
+        LatLng[] locations = new LatLng[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            locations[i] = randomLocation();
+        }
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (LatLng location : locations) {
+            index.getContainingHazards(location);
+        }
+        long contains = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (LatLng location : locations) {
+            index.getNearestHazards(location, 10);
+        }
+        long nearest = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < BRUTE_FORCE_QUERIES; i++) {
+            bruteForceNearestDistance(locations[i]);
+        }
+        long bruteForce = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(TAG, String.format("%s hazards: build %.1f ms, contains %.3f ms/query, 10 nearest %.3f ms/query, brute force nearest %.3f ms/query.",
+                HAZARDS, build / 1e6, contains / 1e6 / QUERIES, nearest / 1e6 / QUERIES, bruteForce / 1e6 / BRUTE_FORCE_QUERIES));
+    }
+
+    private double bruteForceNearestDistance(LatLng location) {
+        double distance = Double.MAX_VALUE;
+        for (Hazard hazard : mHazards) {
+            distance = Math.min(distance, computeDistanceBetween(location, findNearestPoint(location, hazard.getCoordinates())));
+        }
+        return distance;
+    }
+
+    private LatLng randomLocation() {
+        return new LatLng(39.0 + mRandom.nextDouble(), -105.0 + mRandom.nextDouble());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.CoordinateTransformFactory;
+import org.locationtech.proj4j.ProjCoordinate;
+
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_3857;
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_4326;
+
+/**
+ * Measures the throughput in points per second of creating a Proj4j transform for every coordinate, as GeoUtils used
+ * to, against the cached batch API of {@link CoordinateTransforms}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CoordinateTransformsBenchmark {
+
+    private static final String TAG = "CoordinateTransformsBenchmark";
+    private static final int POINTS = 20000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void transformPoints() {
+        double[] points = points();
+
+        for (int i = 0; i < WARMUP; i++) {
+            transformPerCall(points);
+            CoordinateTransforms.transform(EPSG_4326, EPSG_3857, points.clone());
+        }
+
+        long perCall = 0;
+        long cached = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            transformPerCall(points);
+            perCall += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            CoordinateTransforms.transform(EPSG_4326, EPSG_3857, points.clone());
+            cached += SystemClock.elapsedRealtimeNanos() - start;
+        }
+
+        Log.i(TAG, String.format("Per call: %.0f points/s, cached: %.0f points/s.",
+                POINTS * ITERATIONS / (perCall / 1e9), POINTS * ITERATIONS / (cached / 1e9)));
+    }
+
+    // Mirrors the previous GeoUtils behaviour of building a new transform for every coordinate projected.
+    private static void transformPerCall(double[] points) {
+        ProjCoordinate result = new ProjCoordinate();
+        for (int i = 0; i < points.length; i += 2) {
+            CRSFactory factory = new CRSFactory();
+            CoordinateReferenceSystem srcCrs = factory.createFromParameters(EPSG_4326.getName(), EPSG_4326.getParams());
+            CoordinateReferenceSystem dstCrs = factory.createFromParameters(EPSG_3857.getName(), EPSG_3857.getParams());
+            CoordinateTransform transform = new CoordinateTransformFactory().createTransform(srcCrs, dstCrs);
+            transform.transform(new ProjCoordinate(points[i], points[i + 1]), result);
+        }
+    }
+
+    private static double[] points() {
+        double[] points = new double[POINTS * 2];
+        for (int i = 0; i < POINTS; i++) {
+            points[i * 2] = -2.0 + (i % 200) * 0.01;
+            points[i * 2 + 1] = 51.0 + (i / 200) * 0.01;
+        }
+        return points;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.CoordinateTransformFactory;
+import org.locationtech.proj4j.ProjCoordinate;
+
+import java.util.ArrayList;
+
+import edu.mit.ll.nics.android.database.entities.Vector2;
+import edu.mit.ll.nics.android.enums.EPSG;
+
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_3857;
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_4326;
+
+/**
+ * Measures the hazards per second of buffering a hazard polygon with the {@link WebMercator} fast path and JTS, against
+ * the previous Proj4j and WKT based buffering.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WebMercatorBenchmark {
+
+    private static final String TAG = "WebMercatorBenchmark";
+    private static final int VERTICES = 64;
+    private static final int WARMUP = 50;
+    private static final int HAZARDS = 500;
+    private static final double BUFFER = 100.0;
+
+    @Test
+    public void bufferHazards() throws Exception {
+        ArrayList<LatLng> polygon = new ArrayList<>();
+        for (int i = 0; i < VERTICES; i++) {
+            double angle = 2 * Math.PI * i / VERTICES;
+            polygon.add(new LatLng(40.0 + 0.1 * Math.sin(angle), -105.0 + 0.1 * Math.cos(angle)));
+        }
+        polygon.add(polygon.get(0));
+
+        for (int i = 0; i < WARMUP; i++) {
+            legacyBuffer(polygon, "polygon", BUFFER);
+            GeoUtils.bufferGeometry(polygon, "polygon", BUFFER);
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < HAZARDS; i++) {
+            legacyBuffer(polygon, "polygon", BUFFER);
+        }
+        long legacy = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < HAZARDS; i++) {
+            GeoUtils.bufferGeometry(polygon, "polygon", BUFFER);
+        }
+        long direct = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(TAG, String.format("Proj4j + WKT: %.0f hazards/s, WebMercator + JTS: %.0f hazards/s.",
+                HAZARDS / (legacy / 1e9), HAZARDS / (direct / 1e9)));
+    }
+
+    // The buffering as it was done before the fast path, with new Proj4j transforms and a WKT round trip.
+    private static ArrayList<LatLng> legacyBuffer(ArrayList<LatLng> coordinates, String type, double buffer) throws Exception {
+        CoordinateTransform forward = create(EPSG_4326, EPSG_3857);
+        ArrayList<Vector2> points = new ArrayList<>();
+        for (LatLng coordinate : coordinates) {
+            ProjCoordinate result = forward.transform(new ProjCoordinate(coordinate.longitude, coordinate.latitude), new ProjCoordinate());
+            points.add(new Vector2(result.x, result.y));
+        }
+
+        Geometry geometry = new WKTReader().read(GeoUtils.convertPointsToGeometryString(points, type)).buffer(buffer);
+
+        CoordinateTransform inverse = create(EPSG_3857, EPSG_4326);
+        ArrayList<LatLng> buffered = new ArrayList<>();
+        for (Coordinate coordinate : geometry.getCoordinates()) {
+            ProjCoordinate result = inverse.transform(new ProjCoordinate(coordinate.x, coordinate.y), new ProjCoordinate());
+            buffered.add(new LatLng(result.y, result.x));
+        }
+        return buffered;
+    }
+
+    private static CoordinateTransform create(EPSG source, EPSG destination) {
+        CRSFactory factory = new CRSFactory();
+        CoordinateReferenceSystem srcCrs = factory.createFromParameters(source.getName(), source.getParams());
+        CoordinateReferenceSystem dstCrs = factory.createFromParameters(destination.getName(), destination.getParams());
+        return new CoordinateTransformFactory().createTransform(srcCrs, dstCrs);
+    }
+}
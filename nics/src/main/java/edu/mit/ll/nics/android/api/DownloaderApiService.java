@@ -32,6 +32,7 @@ package edu.mit.ll.nics.android.api;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Streaming;
 import retrofit2.http.Url;
 
@@ -40,4 +41,8 @@ public interface DownloaderApiService {
     @GET
     @Streaming
     Call<ResponseBody> download(@Url String url);
+
+    @GET
+    @Streaming
+    Call<ResponseBody> download(@Url String url, @Header("If-None-Match") String etag);
 }
@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.data.geo.geojson;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import edu.mit.ll.nics.android.database.entities.LayerFeature;
+import edu.mit.ll.nics.android.database.entities.OverlappingLayerFeature;
+import timber.log.Timber;
+
+import static edu.mit.ll.nics.android.utils.constants.Geometry.GEOJSON_FEATURES;
+import static edu.mit.ll.nics.android.utils.constants.Geometry.GEOJSON_GEOMETRIES;
+import static edu.mit.ll.nics.android.utils.constants.Geometry.LINESTRING;
+import static edu.mit.ll.nics.android.utils.constants.Geometry.MULTI_LINESTRING;
+import static edu.mit.ll.nics.android.utils.constants.Geometry.MULTI_POINT;
+import static edu.mit.ll.nics.android.utils.constants.Geometry.MULTI_POLYGON;
+import static edu.mit.ll.nics.android.utils.constants.Geometry.POINT;
+import static edu.mit.ll.nics.android.utils.constants.Geometry.POLYGON;
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+
+/**
+ * Single pass GeoJson parser that reads the features or geometries of a GeoJson document straight
+ * from a {@link JsonReader} and emits a feature for each parsed geometry as soon as it has been read.
+ *
+ * Coordinates are read into packed primitive arrays and properties are read as strings (the same
+ * way Google's GeoJsonParser exposes them), so no intermediate json trees are built for a feature.
+ * Multi geometries are emitted as one feature per part.
+ */
+public class GeojsonStreamParser {
+
+    private static final String TYPE = "type";
+    private static final String GEOMETRY = "geometry";
+    private static final String PROPERTIES = "properties";
+    private static final String COORDINATES = "coordinates";
+
+    /**
+     * Creates a feature from a parsed geometry.
+     *
+     * @param <T> The type of feature to create.
+     */
+    public interface FeatureFactory<T> {
+        /**
+         * @param type The markup type of the feature ("marker", "sketch" or "polygon").
+         * @param coordinates The coordinates of the feature.
+         * @param properties The properties of the GeoJson feature.
+         * @param part The index of the part of a multi geometry, or -1 if it's not a multi geometry.
+         * @return The created feature.
+         */
+        T create(String type, ArrayList<LatLng> coordinates, HashMap<String, Object> properties, int part);
+    }
+
+    /**
+     * Receives each feature as soon as it has been parsed.
+     *
+     * @param <T> The type of feature that is parsed.
+     */
+    public interface FeatureCallback<T> {
+        void onFeature(T feature);
+    }
+
+    public static ArrayList<LayerFeature> parseLayerFeatures(InputStream stream) throws IOException {
+        ArrayList<LayerFeature> features = new ArrayList<>();
+        parseLayerFeatures(stream, features::add);
+        return features;
+    }
+
+    public static void parseLayerFeatures(InputStream stream, FeatureCallback<LayerFeature> callback) throws IOException {
+        parse(new InputStreamReader(stream, StandardCharsets.UTF_8), (type, coordinates, properties, part) -> {
+            String id = LayerFeature.hash(coordinates, properties);
+            return new LayerFeature(part < 0 ? id : id + "_" + part, coordinates, properties, type);
+        }, callback);
+    }
+
+    public static ArrayList<OverlappingLayerFeature> parseOverlappingFeatures(InputStream stream, long collabroomId) throws IOException {
+        ArrayList<OverlappingLayerFeature> features = new ArrayList<>();
+        parseOverlappingFeatures(stream, collabroomId, features::add);
+        return features;
+    }
+
+    public static void parseOverlappingFeatures(InputStream stream, long collabroomId, FeatureCallback<OverlappingLayerFeature> callback) throws IOException {
+        parse(new InputStreamReader(stream, StandardCharsets.UTF_8), (type, coordinates, properties, part) ->
+                new OverlappingLayerFeature(collabroomId, OverlappingLayerFeature.hash(collabroomId, coordinates, properties),
+                        coordinates, properties, type), callback);
+    }
+
+    /**
+     * Parses the features (or geometries) of a GeoJson document and passes each of them to the
+     * callback as soon as it has been read, so that the document never has to be held in memory.
+     *
+     * @param in The reader of the GeoJson document. It is closed when parsing finishes.
+     * @param factory The factory that creates the features.
+     * @param callback The callback that receives the features.
+     * @throws IOException If the document can't be read.
+     */
+    public static <T> void parse(Reader in, FeatureFactory<T> factory, FeatureCallback<T> callback) throws IOException {
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.setLenient(true);
+            reader.beginObject();
+
+            // Extract the features and geometries out of the geojson.
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+
+                if ((GEOJSON_FEATURES.equals(key) || GEOJSON_GEOMETRIES.equals(key)) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readFeature(reader, factory, callback);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+    }
+
+    private static <T> void readFeature(JsonReader reader, FeatureFactory<T> factory, FeatureCallback<T> callback) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        String type = null;
+        Geometry geometry = null;
+        Object coordinates = null;
+        HashMap<String, Object> properties = new HashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case TYPE:
+                    type = readString(reader);
+                    break;
+                case GEOMETRY:
+                    geometry = readGeometry(reader);
+                    break;
+                case PROPERTIES:
+                    readProperties(reader, properties);
+                    break;
+                case COORDINATES:
+                    // A bare geometry in a geometry collection.
+                    coordinates = readCoordinates(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (geometry == null && type != null && coordinates != null) {
+            geometry = new Geometry(type, coordinates);
+        }
+
+        if (geometry != null) {
+            try {
+                emit(geometry, properties, factory, callback);
+            } catch (RuntimeException e) {
+                Timber.tag(DEBUG).e(e, "Failed to parse GeoJson feature.");
+            }
+        }
+    }
+
+    private static Geometry readGeometry(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String type = null;
+        Object coordinates = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (TYPE.equals(key)) {
+                type = readString(reader);
+            } else if (COORDINATES.equals(key)) {
+                coordinates = readCoordinates(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return type != null && coordinates != null ? new Geometry(type, coordinates) : null;
+    }
+
+    private static void readProperties(JsonReader reader, HashMap<String, Object> properties) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+
+            switch (reader.peek()) {
+                case NULL:
+                    reader.nextNull();
+                    properties.put(key, null);
+                    break;
+                case BOOLEAN:
+                    properties.put(key, String.valueOf(reader.nextBoolean()));
+                    break;
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    properties.put(key, JsonParser.parseReader(reader).toString());
+                    break;
+                default:
+                    // Strings and numbers are kept as their literal text.
+                    properties.put(key, reader.nextString());
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * Reads a GeoJson coordinates value. A position is read as a {@code double[]} of length 2, an
+     * array of positions as a packed {@code double[]} of x, y pairs and any deeper nesting as a
+     * {@link List} of the nested values. The geometry type decides how the result is interpreted.
+     */
+    private static Object readCoordinates(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+
+        reader.beginArray();
+        return readArrayBody(reader);
+    }
+
+    private static Object readArrayBody(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            double[] position = new double[2];
+            readPosition(reader, position, 0);
+            return position;
+        }
+
+        double[] packed = null;
+        int size = 0;
+        List<Object> children = null;
+
+        while (reader.hasNext()) {
+            reader.beginArray();
+
+            if (reader.peek() == JsonToken.NUMBER) {
+                if (packed == null) {
+                    packed = new double[16];
+                } else if (size + 2 > packed.length) {
+                    packed = Arrays.copyOf(packed, packed.length * 2);
+                }
+
+                readPosition(reader, packed, size);
+                size += 2;
+            } else {
+                if (children == null) {
+                    children = new ArrayList<>();
+                }
+                children.add(readArrayBody(reader));
+            }
+        }
+        reader.endArray();
+
+        if (packed != null) {
+            return size == packed.length ? packed : Arrays.copyOf(packed, size);
+        }
+
+        return children != null ? children : new ArrayList<>();
+    }
+
+    /**
+     * Reads the x and y of a position whose opening bracket has already been consumed. Any other
+     * ordinates (altitude, measure) are skipped.
+     */
+    private static void readPosition(JsonReader reader, double[] target, int offset) throws IOException {
+        target[offset] = reader.nextDouble();
+        target[offset + 1] = reader.nextDouble();
+
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void emit(Geometry geometry, HashMap<String, Object> properties,
+                                 FeatureFactory<T> factory, FeatureCallback<T> callback) {
+        Object coordinates = geometry.coordinates;
+
+        switch (geometry.type) {
+            case POINT:
+                callback.onFeature(factory.create("marker", toLatLng((double[]) coordinates), properties, -1));
+                break;
+            case LINESTRING:
+                callback.onFeature(factory.create("sketch", toLatLng((double[]) coordinates), properties, -1));
+                break;
+            case POLYGON:
+                List<Object> rings = (List<Object>) coordinates;
+                if (!rings.isEmpty()) {
+                    callback.onFeature(factory.create("polygon", toLatLng((double[]) rings.get(0)), properties, -1));
+                }
+                break;
+            case MULTI_POINT:
+                double[] points = (double[]) coordinates;
+                for (int i = 0; i < points.length / 2; i++) {
+                    ArrayList<LatLng> point = new ArrayList<>(1);
+                    point.add(new LatLng(points[i * 2 + 1], points[i * 2]));
+                    callback.onFeature(factory.create("marker", point, properties, i));
+                }
+                break;
+            case MULTI_LINESTRING:
+                List<Object> lines = (List<Object>) coordinates;
+                for (int i = 0; i < lines.size(); i++) {
+                    callback.onFeature(factory.create("sketch", toLatLng((double[]) lines.get(i)), properties, i));
+                }
+                break;
+            case MULTI_POLYGON:
+                List<Object> polygons = (List<Object>) coordinates;
+                for (int i = 0; i < polygons.size(); i++) {
+                    List<Object> polygon = (List<Object>) polygons.get(i);
+                    if (!polygon.isEmpty()) {
+                        callback.onFeature(factory.create("polygon", toLatLng((double[]) polygon.get(0)), properties, i));
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static ArrayList<LatLng> toLatLng(double[] packed) {
+        ArrayList<LatLng> coordinates = new ArrayList<>(packed.length / 2);
+        for (int i = 0; i + 1 < packed.length; i += 2) {
+            coordinates.add(new LatLng(packed[i + 1], packed[i]));
+        }
+        return coordinates;
+    }
+
+    private static final class Geometry {
+
+        private final String type;
+        private final Object coordinates;
+
+        private Geometry(String type, Object coordinates) {
+            this.type = type;
+            this.coordinates = coordinates;
+        }
+    }
+}
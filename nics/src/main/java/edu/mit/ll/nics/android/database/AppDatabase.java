@@ -135,6 +135,7 @@ public abstract class AppDatabase extends RoomDatabase {
                 if (sInstance == null) {
                     sInstance = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME)
                             .allowMainThreadQueries()
+                            .addMigrations(Migrations.ALL)
                             .fallbackToDestructiveMigration()
                             .openHelperFactory(getFactory(context))
                             .addCallback(getCallback(executor))
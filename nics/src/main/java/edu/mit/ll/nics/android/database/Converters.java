@@ -53,9 +53,39 @@ import edu.mit.ll.nics.android.database.entities.SymbologyGroup;
 import edu.mit.ll.nics.android.database.entities.Uxo;
 import edu.mit.ll.nics.android.database.entities.Vector2;
 import edu.mit.ll.nics.android.enums.SendStatus;
+import edu.mit.ll.nics.android.utils.gson.AttributesTypeAdapter;
+import edu.mit.ll.nics.android.utils.gson.LatLngTypeAdapter;
+import edu.mit.ll.nics.android.utils.gson.Vector2TypeAdapter;
 
+/**
+ * Room type converters. Every conversion shares the same Gson instances and type constants, since
+ * they are used for every row that is read or written. Gson is thread safe once it is created.
+ */
 public class Converters {
 
+    private static final Type LONG_ARRAY_TYPE = new TypeToken<long[]>() {}.getType();
+    private static final Type STRING_OBJECT_HASH_MAP_TYPE = new TypeToken<HashMap<String, Object>>() {}.getType();
+    private static final Type STRING_OBJECT_MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+    private static final Type STRING_MAP_TYPE = new TypeToken<Map<String, String>>() {}.getType();
+    private static final Type STRING_LIST_TYPE = new TypeToken<ArrayList<String>>() {}.getType();
+    private static final Type VECTOR_LIST_TYPE = new TypeToken<ArrayList<Vector2>>() {}.getType();
+    private static final Type UXO_LIST_TYPE = new TypeToken<ArrayList<Uxo>>() {}.getType();
+    private static final Type MARKUP_FEATURE_LIST_TYPE = new TypeToken<ArrayList<MarkupFeature>>() {}.getType();
+    private static final Type LAT_LNG_LIST_TYPE = new TypeToken<ArrayList<LatLng>>() {}.getType();
+    private static final Type HAZARD_INFO_LIST_TYPE = new TypeToken<ArrayList<HazardInfo>>() {}.getType();
+    private static final Type USER_ORG_LIST_TYPE = new TypeToken<ArrayList<UserOrg>>() {}.getType();
+    private static final Type INTEGER_LIST_TYPE = new TypeToken<ArrayList<Integer>>() {}.getType();
+    private static final Type SYMBOLOGY_LIST_TYPE = new TypeToken<List<SymbologyGroup.Symbology>>() {}.getType();
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(LatLng.class, new LatLngTypeAdapter())
+            .registerTypeAdapter(Vector2.class, new Vector2TypeAdapter())
+            .registerTypeAdapterFactory(AttributesTypeAdapter.FACTORY)
+            .create();
+
+    // Used where null values need to be kept when writing, such as the attribute maps.
+    private static final Gson GSON_SERIALIZE_NULLS = GSON.newBuilder().serializeNulls().create();
+
     @TypeConverter
     public static Date toDate(Long dateLong){
         return dateLong == null ? null: new Date(dateLong);
@@ -82,106 +112,82 @@ public class Converters {
 
     @TypeConverter
     public static long[] fromLongArrayString(String value) {
-        Type mapType = new TypeToken<long[]>() {
-        }.getType();
-        return new GsonBuilder().serializeNulls().create().fromJson(value, mapType);
+        return GSON.fromJson(value, LONG_ARRAY_TYPE);
     }
 
     @TypeConverter
     public static String fromLongArray(long[] array) {
-        Gson gson = new Gson();
-        return gson.toJson(array);
+        return GSON.toJson(array, LONG_ARRAY_TYPE);
     }
 
     @TypeConverter
     public static HashMap<String, Object> fromStringObjectKeyHashMap(String value) {
-        Type mapType = new TypeToken<HashMap<String, Object>>() {
-        }.getType();
-        return new GsonBuilder().serializeNulls().create().fromJson(value, mapType);
+        return GSON.fromJson(value, STRING_OBJECT_HASH_MAP_TYPE);
     }
 
     @TypeConverter
     public static String fromStringObjectHashMap(HashMap<String, Object> map) {
-        Gson gson = new GsonBuilder().serializeNulls().create();
-        return gson.toJson(map);
+        return GSON_SERIALIZE_NULLS.toJson(map, STRING_OBJECT_HASH_MAP_TYPE);
     }
 
     @TypeConverter
     public static Map<String, Object> fromStringObjectKey(String value) {
-        Type mapType = new TypeToken<Map<String, Object>>() {
-        }.getType();
-        return new GsonBuilder().serializeNulls().create().fromJson(value, mapType);
+        return GSON.fromJson(value, STRING_OBJECT_MAP_TYPE);
     }
 
     @TypeConverter
     public static String fromStringObjectMap(Map<String, Object> map) {
-        Gson gson = new GsonBuilder().serializeNulls().create();
-        return gson.toJson(map);
+        return GSON_SERIALIZE_NULLS.toJson(map, STRING_OBJECT_MAP_TYPE);
     }
 
     @TypeConverter
     public static Map<String, String> fromStringKey(String value) {
-        Type mapType = new TypeToken<Map<String, String>>() {
-        }.getType();
-        return new Gson().fromJson(value, mapType);
+        return GSON.fromJson(value, STRING_MAP_TYPE);
     }
 
     @TypeConverter
     public static String fromStringMap(Map<String, String> map) {
-        Gson gson = new Gson();
-        return gson.toJson(map);
+        return GSON.toJson(map, STRING_MAP_TYPE);
     }
 
     @TypeConverter
     public static ArrayList<String> fromStringToArrayList(String value) {
-        Type listType = new TypeToken<ArrayList<String>>() {
-        }.getType();
-        return new Gson().fromJson(value, listType);
+        return GSON.fromJson(value, STRING_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromStringArrayList(ArrayList<String> list) {
-        Gson gson = new Gson();
-        return gson.toJson(list);
+        return GSON.toJson(list, STRING_LIST_TYPE);
     }
 
     @TypeConverter
     public static ArrayList<Vector2> fromStringToVectorArrayList(String value) {
-        Type listType = new TypeToken<ArrayList<Vector2>>() {
-        }.getType();
-        return new Gson().fromJson(value, listType);
+        return GSON.fromJson(value, VECTOR_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromVectorArrayList(ArrayList<Vector2> list) {
-        Gson gson = new Gson();
-        return gson.toJson(list);
+        return GSON.toJson(list, VECTOR_LIST_TYPE);
     }
 
     @TypeConverter
     public static ArrayList<Uxo> fromUXOString(String value) {
-        Type listType = new TypeToken<ArrayList<Uxo>>() {
-        }.getType();
-        return new Gson().fromJson(value, listType);
+        return GSON.fromJson(value, UXO_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromUXOArrayList(ArrayList<Uxo> list) {
-        Gson gson = new Gson();
-        return gson.toJson(list);
+        return GSON.toJson(list, UXO_LIST_TYPE);
     }
 
     @TypeConverter
     public static ArrayList<MarkupFeature> fromMarkupFeatureString(String value) {
-        Type listType = new TypeToken<ArrayList<MarkupFeature>>() {
-        }.getType();
-        return new Gson().fromJson(value, listType);
+        return GSON.fromJson(value, MARKUP_FEATURE_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromMarkupFeatureArrayList(ArrayList<MarkupFeature> list) {
-        Gson gson = new Gson();
-        return gson.toJson(list);
+        return GSON.toJson(list, MARKUP_FEATURE_LIST_TYPE);
     }
 
     @TypeConverter
@@ -209,7 +215,7 @@ public class Converters {
     @TypeConverter
     public static String fromLatLng(LatLng latLng) {
         if (latLng != null) {
-            return new Gson().toJson(latLng);
+            return GSON.toJson(latLng, LatLng.class);
         } else {
             return null;
         }
@@ -217,69 +223,56 @@ public class Converters {
 
     @TypeConverter
     public static LatLng toLatLng(String json) {
-        return new Gson().fromJson(json, LatLng.class);
+        return GSON.fromJson(json, LatLng.class);
     }
 
     @TypeConverter
     public static ArrayList<LatLng> fromLatLngArrayString(String value) {
-        Type listType = new TypeToken<ArrayList<LatLng>>() {
-        }.getType();
-        return new Gson().fromJson(value, listType);
+        return GSON.fromJson(value, LAT_LNG_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromLatLngArrayList(ArrayList<LatLng> list) {
-        return new Gson().toJson(list);
+        return GSON.toJson(list, LAT_LNG_LIST_TYPE);
     }
 
     @TypeConverter
     public static ArrayList<HazardInfo> fromHazardInfoArrayString(String value) {
-        Type listType = new TypeToken<ArrayList<HazardInfo>>() {
-        }.getType();
-        return new Gson().fromJson(value, listType);
+        return GSON.fromJson(value, HAZARD_INFO_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromHazardInfoArrayList(ArrayList<HazardInfo> list) {
-        return new Gson().toJson(list);
+        return GSON.toJson(list, HAZARD_INFO_LIST_TYPE);
     }
 
     @TypeConverter
     public static ArrayList<UserOrg> fromUserOrgsString(String value) {
-        Type listType = new TypeToken<ArrayList<UserOrg>>() {
-        }.getType();
-        return new Gson().fromJson(value, listType);
+        return GSON.fromJson(value, USER_ORG_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromUserOrgsArrayList(ArrayList<UserOrg> list) {
-        Gson gson = new Gson();
-        return gson.toJson(list);
+        return GSON.toJson(list, USER_ORG_LIST_TYPE);
     }
 
     @TypeConverter
     public static ArrayList<Integer> fromIntegersString(String value) {
-        Type listType = new TypeToken<ArrayList<Integer>>() {
-        }.getType();
-        return new GsonBuilder().serializeNulls().create().fromJson(value, listType);
+        return GSON.fromJson(value, INTEGER_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromIntegersList(ArrayList<Integer> list) {
-        Gson gson = new Gson();
-        return gson.toJson(list);
+        return GSON.toJson(list, INTEGER_LIST_TYPE);
     }
 
     @TypeConverter
     public static List<SymbologyGroup.Symbology> fromSymbologyString(String value) {
-        Type listType = new TypeToken<List<SymbologyGroup.Symbology>>() {}.getType();
-        return new GsonBuilder().serializeNulls().create().fromJson(value, listType);
+        return GSON.fromJson(value, SYMBOLOGY_LIST_TYPE);
     }
 
     @TypeConverter
     public static String fromSymbologyList(List<SymbologyGroup.Symbology> list) {
-        Gson gson = new Gson();
-        Type listType = new TypeToken<List<SymbologyGroup.Symbology>>() {}.getType();
-        return gson.toJson(list, listType);
+        return GSON.toJson(list, SYMBOLOGY_LIST_TYPE);
     }
 }
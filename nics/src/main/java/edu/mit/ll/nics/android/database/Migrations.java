@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import edu.mit.ll.nics.android.database.entities.PackedGeometry;
+
+import static edu.mit.ll.nics.android.utils.constants.Database.COLLABROOM_LAYERS_TABLE;
+import static edu.mit.ll.nics.android.utils.constants.Database.HAZARD_TABLE;
+import static edu.mit.ll.nics.android.utils.constants.Database.LAYER_FEATURE_TABLE;
+import static edu.mit.ll.nics.android.utils.constants.Database.MAP_MARKUP_TABLE;
+import static edu.mit.ll.nics.android.utils.constants.Database.OVERLAPPING_LAYER_FEATURE_TABLE;
+import static edu.mit.ll.nics.android.utils.constants.Database.OVERLAPPING_ROOM_LAYERS_TABLE;
+
+/**
+ * Migrations between database versions. Versions without a migration still fall back to
+ * recreating the database.
+ */
+public class Migrations {
+
+    private static final String GEOMETRY_PREFIX = "geom_";
+
+    /**
+     * Adds the packed geometry and envelope columns to the markup, hazard and layer feature tables
+     * and fills them from the existing text geometries.
+     */
+    public static final Migration MIGRATION_72_73 = new Migration(72, 73) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            addGeometryColumns(db, MAP_MARKUP_TABLE);
+            addGeometryColumns(db, HAZARD_TABLE);
+            addGeometryColumns(db, LAYER_FEATURE_TABLE);
+            addGeometryColumns(db, OVERLAPPING_LAYER_FEATURE_TABLE);
+
+            backfillFromWkt(db, MAP_MARKUP_TABLE, null);
+            backfillFromWkt(db, HAZARD_TABLE, null);
+            backfillFromCoordinates(db, LAYER_FEATURE_TABLE);
+            backfillFromCoordinates(db, OVERLAPPING_LAYER_FEATURE_TABLE);
+        }
+    };
+
+    /**
+     * Adds the content hash column to the collabroom and overlapping room layer tables. Existing
+     * layers have no hash, so they are rewritten once on their next download.
+     */
+    public static final Migration MIGRATION_73_74 = new Migration(73, 74) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `" + COLLABROOM_LAYERS_TABLE + "` ADD COLUMN `contentHash` TEXT");
+            db.execSQL("ALTER TABLE `" + OVERLAPPING_ROOM_LAYERS_TABLE + "` ADD COLUMN `contentHash` TEXT");
+        }
+    };
+
+    /**
+     * Packs the envelope of the multi geometries that 72 to 73 left empty, and repacks the polygons,
+     * which may have holes that were dropped, as {@link PackedGeometry#ENVELOPE}.
+     */
+    public static final Migration MIGRATION_74_75 = new Migration(74, 75) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            String unpacked = GEOMETRY_PREFIX + "type IS NULL OR " + GEOMETRY_PREFIX + "type=" + PackedGeometry.POLYGON;
+            backfillFromWkt(db, MAP_MARKUP_TABLE, unpacked);
+            backfillFromWkt(db, HAZARD_TABLE, unpacked);
+        }
+    };
+
+    /**
+     * Adds the version column to the hazard table. Existing hazards start at 0 and get the version
+     * of their feature or layer the next time they are downloaded.
+     */
+    public static final Migration MIGRATION_75_76 = new Migration(75, 76) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `" + HAZARD_TABLE + "` ADD COLUMN `version` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    public static final Migration[] ALL = {MIGRATION_72_73, MIGRATION_73_74, MIGRATION_74_75, MIGRATION_75_76};
+
+    private static void addGeometryColumns(SupportSQLiteDatabase db, String table) {
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `geom_type` INTEGER");
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `geom_coordinates` BLOB");
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `geom_minX` REAL");
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `geom_minY` REAL");
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `geom_maxX` REAL");
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `geom_maxY` REAL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_" + table + "_geom_minX_geom_maxX_geom_minY_geom_maxY` ON `"
+                + table + "` (`geom_minX`, `geom_maxX`, `geom_minY`, `geom_maxY`)");
+    }
+
+    private static void backfillFromWkt(SupportSQLiteDatabase db, String table, String where) {
+        String selection = "geometry IS NOT NULL" + (where != null ? " AND (" + where + ")" : "");
+        try (Cursor cursor = db.query("SELECT id, geometry FROM `" + table + "` WHERE " + selection)) {
+            while (cursor.moveToNext()) {
+                update(db, table, cursor.getLong(0), PackedGeometry.fromWkt(cursor.getString(1)));
+            }
+        }
+    }
+
+    private static void backfillFromCoordinates(SupportSQLiteDatabase db, String table) {
+        try (Cursor cursor = db.query("SELECT id, coordinates FROM `" + table + "` WHERE coordinates IS NOT NULL")) {
+            while (cursor.moveToNext()) {
+                update(db, table, cursor.getLong(0), PackedGeometry.fromLatLngs(Converters.fromLatLngArrayString(cursor.getString(1))));
+            }
+        }
+    }
+
+    private static void update(SupportSQLiteDatabase db, String table, long id, PackedGeometry geometry) {
+        if (geometry == null) {
+            return;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(GEOMETRY_PREFIX + "type", geometry.getType());
+        values.put(GEOMETRY_PREFIX + "coordinates", geometry.getCoordinates());
+        values.put(GEOMETRY_PREFIX + "minX", geometry.getMinX());
+        values.put(GEOMETRY_PREFIX + "minY", geometry.getMinY());
+        values.put(GEOMETRY_PREFIX + "maxX", geometry.getMaxX());
+        values.put(GEOMETRY_PREFIX + "maxY", geometry.getMaxY());
+        db.update(table, SQLiteDatabase.CONFLICT_NONE, values, "id=?", new Object[]{id});
+    }
+}
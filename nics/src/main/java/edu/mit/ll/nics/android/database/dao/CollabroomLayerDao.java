@@ -42,100 +42,88 @@ import java.util.List;
 import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
 import edu.mit.ll.nics.android.database.entities.Datalayer;
 import edu.mit.ll.nics.android.database.entities.Hazard;
-import edu.mit.ll.nics.android.database.entities.LayerFeatureWithHazards;
 import edu.mit.ll.nics.android.database.entities.EmbeddedCollabroomDatalayer;
 import edu.mit.ll.nics.android.database.entities.LayerFeature;
 
 @Dao
 public interface CollabroomLayerDao extends BaseDao<CollabroomDataLayer> {
 
-    @Insert(onConflict = OnConflictStrategy.IGNORE)
-    void insertLayerFeatures(List<LayerFeature> layerFeatures);
-
-    @Insert(onConflict = OnConflictStrategy.IGNORE)
-    void insertHazard(Hazard hazard);
-
-    @Insert(onConflict = OnConflictStrategy.IGNORE)
-    void insertEmbeddedCollabroomDataLayers(List<EmbeddedCollabroomDatalayer> embeddedCollabroomDatalayers);
+    /**
+     * Maximum number of features to write per statement while streaming a layer into the database.
+     */
+    int MAX_BATCH_SIZE = 500;
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void replaceLayerFeatures(List<LayerFeature> layerFeatures);
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void replaceHazard(Hazard hazard);
+    void replaceHazards(List<Hazard> hazards);
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void replaceEmbeddedCollabroomDataLayers(List<EmbeddedCollabroomDatalayer> embeddedCollabroomDatalayers);
 
+    /**
+     * Writes the layer and its already parsed features and hazards into the database in batches of
+     * {@link #MAX_BATCH_SIZE}, all inside one transaction. A layer whose content hash matches the
+     * stored copy is left alone, since rewriting it causes the map to flash and the hazard
+     * notifications to trigger.
+     *
+     * @param layer The layer to write.
+     * @param features The layer's features, or null if it has none.
+     * @return Whether the layer was written.
+     */
     @Transaction
-    default long insertCollabroomDatalayer(CollabroomDataLayer layer) {
-        int retValue = (int) insert(layer);
-
-        // If there was a conflict, check to see if the datalayer has changed at all before updating.
-        // We want to only update them when they change. Otherwise it will cause the map to flash and the hazard notifications to trigger.
-        if (retValue == -1) {
-            for (Datalayer datalayer : getCollabroomLayers(layer.getCollabroomId(), layer.getDatalayerId())) {
-                CollabroomDataLayer collabroomDataLayer = datalayer.getCollabroomDataLayer();
-
-                List<LayerFeatureWithHazards> layerFeatureWithHazards = datalayer.getLayerFeatures();
-                if (layerFeatureWithHazards != null) {
-                    ArrayList<LayerFeature> features = new ArrayList<>();
-                    for (LayerFeatureWithHazards l : layerFeatureWithHazards) {
-                        LayerFeature feature = l.getLayerFeature();
-                        feature.setHazard(l.getHazards());
-                        features.add(feature);
-                    }
+    default boolean ingestCollabroomDatalayer(CollabroomDataLayer layer, List<LayerFeature> features) {
+        CollabroomDataLayer stored = getCollabroomLayer(layer.getDatalayerId());
 
-                    collabroomDataLayer.setFeatures(features);
-                }
+        if (stored != null) {
+            if (layer.getContentHash() != null && layer.getContentHash().equals(stored.getContentHash())) {
+                return false;
+            }
 
-                if (datalayer.getEmbeddedLayers() != null) {
-                    collabroomDataLayer.setCollabroomDatalayers(datalayer.getEmbeddedLayers());
-                }
+            if (stored.isActive()) {
+                layer.setActive(true);
+            }
 
-                // If the new layer is different, then update the layer. It should CASCADE the update.
-                if (!layer.equals(collabroomDataLayer)) {
-                    if (collabroomDataLayer.isActive()) {
-                        layer.setActive(true);
-                    }
-                    retValue = (int) replace(layer);
+            // Replacing the layer cascades the delete to its old features, hazards and embedded layers.
+            replace(layer);
+        } else {
+            insert(layer);
+        }
 
-                    if (layer.getCollabroomDatalayers() != null && layer.getCollabroomDatalayers().size() > 0) {
-                        replaceEmbeddedCollabroomDataLayers(layer.getCollabroomDatalayers());
-                    }
+        if (layer.getCollabroomDatalayers() != null && layer.getCollabroomDatalayers().size() > 0) {
+            replaceEmbeddedCollabroomDataLayers(layer.getCollabroomDatalayers());
+        }
+
+        if (features != null) {
+            List<Hazard> hazards = new ArrayList<>();
 
-                    if (layer.getFeatures() != null) {
-                        replaceLayerFeatures(layer.getFeatures());
+            for (int start = 0; start < features.size(); start += MAX_BATCH_SIZE) {
+                List<LayerFeature> batch = features.subList(start, Math.min(start + MAX_BATCH_SIZE, features.size()));
+                replaceLayerFeatures(batch);
 
-                        for (LayerFeature feature : layer.getFeatures()) {
-                            Hazard hazard = feature.getHazard();
-                            if (hazard != null) {
-                                replaceHazard(hazard);
-                            }
-                        }
+                for (LayerFeature feature : batch) {
+                    if (feature.getHazard() != null) {
+                        hazards.add(feature.getHazard());
                     }
                 }
-            }
-        } else {
-            if (layer.getCollabroomDatalayers() != null && layer.getCollabroomDatalayers().size() > 0) {
-                insertEmbeddedCollabroomDataLayers(layer.getCollabroomDatalayers());
-            }
-
-            if (layer.getFeatures() != null) {
-                insertLayerFeatures(layer.getFeatures());
 
-                for (LayerFeature feature : layer.getFeatures()) {
-                    Hazard hazard = feature.getHazard();
-                    if (hazard != null) {
-                        insertHazard(hazard);
-                    }
+                if (!hazards.isEmpty()) {
+                    replaceHazards(hazards);
+                    hazards.clear();
                 }
             }
         }
 
-        return retValue;
+        return true;
     }
 
+    @Query("SELECT * FROM collabroomLayersTable WHERE datalayerId=:datalayerId")
+    CollabroomDataLayer getCollabroomLayer(String datalayerId);
+
+    @Query("SELECT contentHash FROM collabroomLayersTable WHERE datalayerId=:datalayerId")
+    String getContentHash(String datalayerId);
+
     @Transaction
     @Query("SELECT * FROM collabroomLayersTable WHERE collabroomId=:collabroomId ORDER BY created DESC")
     LiveData<List<Datalayer>> getCollabroomLayersLiveData(long collabroomId);
@@ -148,6 +136,9 @@ public interface CollabroomLayerDao extends BaseDao<CollabroomDataLayer> {
     @Query("SELECT * FROM collabroomLayersTable WHERE collabroomId=:collabroomId ORDER BY created DESC")
     List<Datalayer> getCollabroomLayers(long collabroomId);
 
+    @Query("SELECT * FROM collabroomLayersTable WHERE collabroomId=:collabroomId ORDER BY created DESC")
+    List<CollabroomDataLayer> getCollabroomLayerSources(long collabroomId);
+
     @Transaction
     @Query("UPDATE collabroomLayersTable SET active=:isActive WHERE datalayerId=:datalayerId")
     int updateCollabroomLayerIsActive(String datalayerId, boolean isActive);
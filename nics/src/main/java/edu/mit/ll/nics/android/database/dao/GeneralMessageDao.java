@@ -57,6 +57,32 @@ public interface GeneralMessageDao extends BaseDao<GeneralMessage> {
     @Query("SELECT * FROM generalMessageTable WHERE id=:id")
     GeneralMessage getGeneralMessageById(long id);
 
+    @Query("SELECT id FROM generalMessageTable WHERE formId=:formId")
+    Long getIdByFormId(long formId);
+
+    /**
+     * Applies a general message sync in a single transaction, so that the paging source and the
+     * full text search table are only invalidated once per poll instead of once per report.
+     *
+     * @param reports The received reports to insert or replace.
+     */
+    @Transaction
+    default void ingestGeneralMessages(List<GeneralMessage> reports) {
+        if (reports == null || reports.isEmpty()) {
+            return;
+        }
+
+        // If the report already exists locally, reuse its row id so that it is replaced in place.
+        for (GeneralMessage report : reports) {
+            Long id = getIdByFormId(report.getFormId());
+            if (id != null) {
+                report.setId(id);
+            }
+        }
+
+        replace(reports);
+    }
+
     @Query("SELECT * FROM generalMessageTable WHERE incidentId=:incidentId AND collabroomId=:collabroomId AND user!=:userName AND isNew = 1")
     LiveData<List<GeneralMessage>> getNewGeneralMessages(long incidentId, long collabroomId, String userName);
 
@@ -32,7 +32,6 @@ package edu.mit.ll.nics.android.database.dao;
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Query;
-import androidx.room.SkipQueryVerification;
 
 import java.util.List;
 
@@ -56,9 +55,12 @@ public interface HazardDao extends BaseDao<Hazard> {
     @Query("SELECT * FROM hazardTable WHERE collabRoomId=:collabroomId")
     LiveData<List<Hazard>> getHazardsLiveData(long collabroomId);
 
-    @Query("SELECT * FROM hazardTable WHERE collabroomId=:collabroomId AND ST_INTERSECTS(GeomFromText(:userLocation), GeomFromText(geometry))")
-    @SkipQueryVerification
-    List<Hazard> getIntersectingHazards(long collabroomId, String userLocation);
+    /**
+     * Get the hazards whose envelope intersects the provided envelope. This is an indexed range scan
+     * of the envelope columns, the geometries still need to be checked for an exact intersection.
+     */
+    @Query("SELECT * FROM hazardTable WHERE collabroomId=:collabroomId AND geom_minX<=:maxX AND geom_maxX>=:minX AND geom_minY<=:maxY AND geom_maxY>=:minY")
+    List<Hazard> getHazardsInEnvelope(long collabroomId, double minX, double minY, double maxX, double maxY);
 
     @Query("SELECT geometry FROM hazardTable WHERE collabRoomId=:collabroomId")
     List<String> getGeometry(long collabroomId);
@@ -38,15 +38,22 @@ import androidx.room.Transaction;
 import androidx.room.Update;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import edu.mit.ll.nics.android.database.entities.Feature;
 import edu.mit.ll.nics.android.database.entities.Hazard;
 import edu.mit.ll.nics.android.database.entities.MarkupFeature;
+import edu.mit.ll.nics.android.database.entities.MarkupFeatureKey;
 
 @Dao
 public interface MapMarkupDao extends BaseDao<MarkupFeature> {
 
+    /**
+     * Maximum number of bind arguments to use per statement when deleting by a list of feature ids.
+     */
+    int MAX_BATCH_SIZE = 500;
+
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     List<Long> insertHazards(List<Hazard> hazards);
 
@@ -77,6 +84,55 @@ public interface MapMarkupDao extends BaseDao<MarkupFeature> {
         }
     }
 
+    /**
+     * Applies a full markup sync for a collabroom in a single transaction, so that observers of the
+     * markup table are only invalidated once per poll.
+     *
+     * @param collabroomId The collabroom that the features belong to.
+     * @param deletedFeatureIds The feature ids that have been deleted on the server.
+     * @param features The features (with their hazards) to insert or replace.
+     * @param deleteStatuses The send statuses of the local rows that can be deleted by the sync.
+     * @param replaceStatuses The send statuses of the local rows that can be replaced by the sync.
+     */
+    @Transaction
+    default void ingestMarkupFeatures(long collabroomId, List<String> deletedFeatureIds, List<MarkupFeature> features,
+                                      int[] deleteStatuses, int[] replaceStatuses) {
+        if (deletedFeatureIds != null) {
+            for (int i = 0; i < deletedFeatureIds.size(); i += MAX_BATCH_SIZE) {
+                List<String> batch = deletedFeatureIds.subList(i, Math.min(i + MAX_BATCH_SIZE, deletedFeatureIds.size()));
+                deleteDataByCollabroomByFeatureIds(collabroomId, batch, deleteStatuses);
+            }
+        }
+
+        if (features == null || features.isEmpty()) {
+            return;
+        }
+
+        // Resolve the existing row ids once, so that existing features are replaced in place.
+        HashMap<String, Long> ids = new HashMap<>();
+        for (MarkupFeatureKey key : getMarkupFeatureKeys(collabroomId, replaceStatuses)) {
+            ids.put(key.getFeatureId(), key.getId());
+        }
+
+        List<Hazard> hazards = new ArrayList<>();
+        for (MarkupFeature feature : features) {
+            Long id = ids.get(feature.getFeatureId());
+            if (id != null) {
+                feature.setId(id);
+            }
+
+            if (feature.getHazards() != null) {
+                hazards.addAll(feature.getHazards());
+            }
+        }
+
+        replace(features);
+
+        if (!hazards.isEmpty()) {
+            replaceHazards(hazards);
+        }
+    }
+
     @Transaction
     @Query("DELETE FROM mapMarkupTable WHERE id=:id AND sendStatus=:status")
     int deleteById(long id, int status);
@@ -125,6 +181,12 @@ public interface MapMarkupDao extends BaseDao<MarkupFeature> {
     @Query("DELETE FROM mapMarkupTable WHERE collabRoomId=:collabroomId AND featureId=:featureId AND sendStatus IN (:status)")
     int deleteDataByCollabroomByFeatureId(long collabroomId, String featureId, int[] status);
 
+    @Query("DELETE FROM mapMarkupTable WHERE collabRoomId=:collabroomId AND featureId IN (:featureIds) AND sendStatus IN (:status)")
+    int deleteDataByCollabroomByFeatureIds(long collabroomId, List<String> featureIds, int[] status);
+
+    @Query("SELECT id, featureId FROM mapMarkupTable WHERE collabRoomId=:collabroomId AND sendStatus IN (:status)")
+    List<MarkupFeatureKey> getMarkupFeatureKeys(long collabroomId, int[] status);
+
     @Transaction
     @Query("SELECT * FROM mapMarkupTable WHERE collabRoomId=:collabroomId AND featureId=:featureId AND sendStatus=:status")
     Feature getMarkupFeatureByFeatureIdAndStatus(long collabroomId, String featureId, int status);
@@ -29,6 +29,7 @@
  */
 package edu.mit.ll.nics.android.database.dao;
 
+import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Query;
 
@@ -47,4 +48,16 @@ public interface MobileDeviceTrackingDao extends BaseDao<MobileDeviceTracking> {
 
     @Query("SELECT * FROM mobileDeviceTrackingTable ORDER BY :orderBy")
     List<MobileDeviceTracking> getMDTs(String orderBy);
+
+    @Query("SELECT * FROM mobileDeviceTrackingTable WHERE id>:afterId ORDER BY id ASC LIMIT :limit")
+    List<MobileDeviceTracking> getMDTsAfter(long afterId, int limit);
+
+    @Query("DELETE FROM mobileDeviceTrackingTable WHERE id<=:id")
+    int deleteThrough(long id);
+
+    @Query("SELECT COUNT(*) FROM mobileDeviceTrackingTable")
+    int getCount();
+
+    @Query("SELECT COUNT(*) FROM mobileDeviceTrackingTable")
+    LiveData<Integer> getCountLiveData();
 }
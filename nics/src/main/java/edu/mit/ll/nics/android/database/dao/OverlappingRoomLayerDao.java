@@ -47,6 +47,11 @@ import edu.mit.ll.nics.android.database.entities.OverlappingRoomLayer;
 @Dao
 public interface OverlappingRoomLayerDao extends BaseDao<OverlappingRoomLayer> {
 
+    /**
+     * Maximum number of features to write per statement while streaming a layer into the database.
+     */
+    int MAX_BATCH_SIZE = 500;
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void replaceLayerFeatures(List<OverlappingLayerFeature> layerFeatures);
 
@@ -68,38 +73,50 @@ public interface OverlappingRoomLayerDao extends BaseDao<OverlappingRoomLayer> {
         if (!updateList.isEmpty()) updateLayerFeatures(updateList);
     }
 
+    /**
+     * Writes the layer and its already parsed features into the database in batches of
+     * {@link #MAX_BATCH_SIZE}, all inside one transaction. A layer whose content hash matches the
+     * stored copy is left alone, since rewriting it causes the map to flash.
+     *
+     * @param layer The layer to write.
+     * @param features The layer's features, or null if it has none.
+     * @return Whether the layer was written.
+     */
     @Transaction
-    default int insertOverlappingLayer(OverlappingRoomLayer layer) {
-        int retValue = (int) insert(layer);
-
-        // If there was a conflict, check to see if the datalayer has changed at all before updating.
-        // We want to only update them when they change. Otherwise it will cause the map to flash.
-        if (retValue == -1) {
-            for (OverlappingDatalayer datalayer : getOverlappingLayers(layer.getIncidentId(), layer.getCollabroomId())) {
-                OverlappingRoomLayer roomLayer = datalayer.getOverlappingRoomLayer();
-                roomLayer.setFeatures(datalayer.getLayerFeatures());
-
-                // If the new layer is different, then update the layer. It should CASCADE the update.
-                if (!layer.equals(roomLayer)) {
-                    if (roomLayer.isActive()) {
-                        layer.setActive(true);
-                    }
-                    retValue = (int) replace(layer);
-
-                    if (layer.getFeatures() != null) {
-                        upsertLayerFeatures(layer.getFeatures());
-                    }
-                }
+    default boolean ingestOverlappingLayer(OverlappingRoomLayer layer, List<OverlappingLayerFeature> features) {
+        OverlappingRoomLayer stored = getOverlappingLayer(layer.getCollabroomId());
+
+        if (stored != null) {
+            if (layer.getContentHash() != null && layer.getContentHash().equals(stored.getContentHash())) {
+                return false;
             }
+
+            if (stored.isActive()) {
+                layer.setActive(true);
+            }
+
+            // Replacing the layer cascades the delete to its old features.
+            layer.setId(stored.getId());
+            replace(layer);
         } else {
-            if (layer.getFeatures() != null) {
-                insertLayerFeatures(layer.getFeatures());
+            insert(layer);
+        }
+
+        if (features != null) {
+            for (int start = 0; start < features.size(); start += MAX_BATCH_SIZE) {
+                replaceLayerFeatures(features.subList(start, Math.min(start + MAX_BATCH_SIZE, features.size())));
             }
         }
 
-        return retValue;
+        return true;
     }
 
+    @Query("SELECT * FROM overlappingRoomLayersTable WHERE collabroomId=:collabroomId")
+    OverlappingRoomLayer getOverlappingLayer(long collabroomId);
+
+    @Query("SELECT contentHash FROM overlappingRoomLayersTable WHERE collabroomId=:collabroomId")
+    String getContentHash(long collabroomId);
+
     @Transaction
     @Query("SELECT * FROM overlappingRoomLayersTable WHERE incidentId=:incidentId AND collabroomId!=:collabroomId ORDER BY incidentId DESC")
     LiveData<List<OverlappingDatalayer>> getOverlappingLayersLiveData(long incidentId, long collabroomId);
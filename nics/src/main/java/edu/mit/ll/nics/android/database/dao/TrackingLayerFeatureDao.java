@@ -32,7 +32,10 @@ package edu.mit.ll.nics.android.database.dao;
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import edu.mit.ll.nics.android.database.entities.TrackingLayerFeature;
@@ -40,6 +43,55 @@ import edu.mit.ll.nics.android.database.entities.TrackingLayerFeature;
 @Dao
 public interface TrackingLayerFeatureDao extends BaseDao<TrackingLayerFeature> {
 
+    /**
+     * Maximum number of bind arguments to use per statement when deleting by a list of feature ids.
+     */
+    int MAX_BATCH_SIZE = 500;
+
     @Query("SELECT * FROM trackingLayerFeatureTable WHERE layerName=:layerName")
     LiveData<List<TrackingLayerFeature>> getTrackingFeaturesByName(String layerName);
+
+    @Query("DELETE FROM trackingLayerFeatureTable WHERE layerName=:layerName")
+    int deleteByLayerName(String layerName);
+
+    @Query("SELECT featureId FROM trackingLayerFeatureTable WHERE layerName=:layerName")
+    List<String> getFeatureIds(String layerName);
+
+    @Query("DELETE FROM trackingLayerFeatureTable WHERE layerName=:layerName AND featureId IN (:featureIds)")
+    int deleteByFeatureIds(String layerName, List<String> featureIds);
+
+    /**
+     * Replaces the features of a tracking layer with the latest pull in a single transaction. Features
+     * of the layer that are not in the latest pull are removed, so observers of the layer only receive
+     * one update per poll.
+     *
+     * @param layerName The name of the tracking layer.
+     * @param features The features from the latest pull of the tracking layer.
+     */
+    @Transaction
+    default void replaceAll(String layerName, List<TrackingLayerFeature> features) {
+        if (features.isEmpty()) {
+            deleteByLayerName(layerName);
+            return;
+        }
+
+        HashSet<String> featureIds = new HashSet<>();
+        for (TrackingLayerFeature feature : features) {
+            featureIds.add(feature.getFeatureId());
+        }
+
+        // Resolve the stale ids here, so the deletes stay under SQLite's bind argument limit for large layers.
+        List<String> stale = new ArrayList<>();
+        for (String featureId : getFeatureIds(layerName)) {
+            if (!featureIds.contains(featureId)) {
+                stale.add(featureId);
+            }
+        }
+
+        for (int i = 0; i < stale.size(); i += MAX_BATCH_SIZE) {
+            deleteByFeatureIds(layerName, stale.subList(i, Math.min(i + MAX_BATCH_SIZE, stale.size())));
+        }
+
+        replace(features);
+    }
 }
@@ -35,6 +35,7 @@ import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.google.common.hash.HashCode;
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
@@ -79,6 +80,12 @@ public class CollabroomDataLayer {
 
     private boolean active = false;
 
+    /**
+     * Hash of the layer's metadata and features when it was downloaded, used to skip rewriting a
+     * layer that hasn't changed.
+     */
+    private String contentHash;
+
     public long getId() {
         return id;
     }
@@ -99,6 +106,22 @@ public class CollabroomDataLayer {
         this.active = !active;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return A version stamp for the layer's content, taken from the content hash stored when it
+     * was downloaded, or 0 if it has none.
+     */
+    public long getVersion() {
+        return contentHash != null ? HashCode.fromString(contentHash).asLong() : 0L;
+    }
+
     public String getDatalayerId() {
         return datalayerId;
     }
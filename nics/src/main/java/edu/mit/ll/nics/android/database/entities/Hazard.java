@@ -29,6 +29,8 @@
  */
 package edu.mit.ll.nics.android.database.entities;
 
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
 import androidx.room.Ignore;
@@ -43,6 +45,7 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.util.ArrayList;
+import java.util.Objects;
 
 import static edu.mit.ll.nics.android.utils.constants.Database.HAZARD_TABLE;
 
@@ -66,7 +69,8 @@ import static edu.mit.ll.nics.android.utils.constants.Database.HAZARD_TABLE;
         indices = {
                 @Index(value = {"hazardId"}, unique = true),
                 @Index(value = {"hazardFeatureId"}, unique = true),
-                @Index(value = {"hazardLayerId"}, unique = true)
+                @Index(value = {"hazardLayerId"}, unique = true),
+                @Index(value = {"geom_minX", "geom_maxX", "geom_minY", "geom_maxY"})
         }
 )
 public class Hazard {
@@ -81,6 +85,11 @@ public class Hazard {
     private double radius;
     private String metric;
     private String geometry;
+
+    // Declared after the geometry, so that Room restores it after the geometry has been set.
+    @Embedded(prefix = "geom_")
+    private transient PackedGeometry packedGeometry;
+
     private long collabroomId;
 
     private ArrayList<LatLng> coordinates;
@@ -88,6 +97,10 @@ public class Hazard {
     private String hazardFeatureId;
     private String hazardLayerId;
 
+    // The version of the feature or layer that the hazard was buffered from, used to tell that the hazard has changed.
+    @ColumnInfo(defaultValue = "0")
+    private long version;
+
     @Ignore
     private Double distanceFromUser;
 
@@ -195,6 +208,14 @@ public class Hazard {
         this.hazardLayerId = hazardLayerId;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getHazardType() {
         return hazardType;
     }
@@ -248,9 +269,28 @@ public class Hazard {
     }
 
     public void setGeometry(String geometry) {
+        if (!Objects.equals(this.geometry, geometry)) {
+            packedGeometry = null;
+        }
         this.geometry = geometry;
     }
 
+    /**
+     * Get the binary copy of the geometry, packing the geometry string if it hasn't been yet.
+     *
+     * @return The packed geometry, or null if there is no valid geometry.
+     */
+    public PackedGeometry getPackedGeometry() {
+        if (packedGeometry == null) {
+            packedGeometry = PackedGeometry.fromWkt(geometry);
+        }
+        return packedGeometry;
+    }
+
+    public void setPackedGeometry(PackedGeometry packedGeometry) {
+        this.packedGeometry = packedGeometry;
+    }
+
     public Double getDistanceFromUser() {
         return distanceFromUser;
     }
@@ -30,6 +30,7 @@
 package edu.mit.ll.nics.android.database.entities;
 
 import androidx.core.math.MathUtils;
+import androidx.room.Embedded;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
 import androidx.room.Ignore;
@@ -60,7 +61,7 @@ import static edu.mit.ll.nics.android.utils.constants.Database.LAYER_FEATURE_TAB
                         onDelete = ForeignKey.CASCADE,
                         onUpdate = ForeignKey.CASCADE
                 )},
-        indices = {@Index(value = {"datalayerid"}), @Index(value = {"layerFeatureId"}, unique = true)})
+        indices = {@Index(value = {"datalayerid"}), @Index(value = {"layerFeatureId"}, unique = true), @Index(value = {"geom_minX", "geom_maxX", "geom_minY", "geom_maxY"})})
 public class LayerFeature {
 
     @PrimaryKey(autoGenerate = true)
@@ -81,6 +82,10 @@ public class LayerFeature {
     private ArrayList<LatLng> coordinates;
     private Map<String, Object> properties;
 
+    // Declared after the coordinates, so that Room restores it after they have been set.
+    @Embedded(prefix = "geom_")
+    private transient PackedGeometry packedGeometry;
+
     @Ignore
     private Hazard hazard;
 
@@ -125,9 +130,28 @@ public class LayerFeature {
     }
 
     public void setCoordinates(ArrayList<LatLng> coordinates) {
+        if (this.coordinates != coordinates) {
+            packedGeometry = null;
+        }
         this.coordinates = coordinates;
     }
 
+    /**
+     * Get the binary copy of the coordinates, packing them if they haven't been yet.
+     *
+     * @return The packed geometry, or null if there are no coordinates.
+     */
+    public PackedGeometry getPackedGeometry() {
+        if (packedGeometry == null) {
+            packedGeometry = PackedGeometry.fromLatLngs(coordinates);
+        }
+        return packedGeometry;
+    }
+
+    public void setPackedGeometry(PackedGeometry packedGeometry) {
+        this.packedGeometry = packedGeometry;
+    }
+
     public Map<String, Object> getProperties() {
         return properties;
     }
@@ -45,8 +45,11 @@ import com.google.gson.annotations.SerializedName;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
 
 import java.util.ArrayList;
+import java.util.Objects;
 
 import edu.mit.ll.nics.android.enums.SendStatus;
 import edu.mit.ll.nics.android.utils.UnitConverter;
@@ -55,10 +58,11 @@ import timber.log.Timber;
 
 import static edu.mit.ll.nics.android.utils.GeoUtils.bufferGeometry;
 import static edu.mit.ll.nics.android.utils.GeoUtils.convertCoordinatesToGeometryString;
+import static edu.mit.ll.nics.android.utils.GeoUtils.geometryStringToGeometry;
 import static edu.mit.ll.nics.android.utils.constants.Database.MAP_MARKUP_TABLE;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 
-@Entity(tableName = MAP_MARKUP_TABLE, indices = {@Index(value = {"featureId"}, unique = true)})
+@Entity(tableName = MAP_MARKUP_TABLE, indices = {@Index(value = {"featureId"}, unique = true), @Index(value = {"geom_minX", "geom_maxX", "geom_minY", "geom_maxY"})})
 public class MarkupFeature {
 
     @PrimaryKey(autoGenerate = true)
@@ -133,6 +137,19 @@ public class MarkupFeature {
     @SerializedName("geometry")
     private String geometry;
 
+    // Declared after the geometry, so that Room restores it after the geometry has been set.
+    @Embedded(prefix = "geom_")
+    private transient PackedGeometry packedGeometry;
+
+    @Ignore
+    private transient double[] decodedGeometry;
+
+    @Ignore
+    private transient Geometry jtsGeometry;
+
+    @Ignore
+    private transient boolean vector2Decoded;
+
     @Expose
     @SerializedName("pointRadius")
     private Double pointRadius;
@@ -155,67 +172,27 @@ public class MarkupFeature {
 
     private boolean failedToSend;
 
+    /**
+     * Features are identified by their row and feature ids and compared by their version stamp, so
+     * comparing two features doesn't walk all of their fields.
+     */
     @Override
     public boolean equals(Object o) {
         if (o == this) return true;
         if (!(o instanceof MarkupFeature)) return false;
 
         MarkupFeature feature = (MarkupFeature) o;
-
-        return new EqualsBuilder()
-                .append(getId(), feature.getId())
-                .append(getFeatureId(), feature.getFeatureId())
-                .append(getUserSessionId(), feature.getUserSessionId())
-                .append(getStrokeColor(), feature.getStrokeColor())
-                .append(getStrokeWidth(), feature.getStrokeWidth())
-                .append(getFillColor(), feature.getFillColor())
-                .append(getDashStyle(), feature.getDashStyle())
-                .append(getOpacity(), feature.getOpacity())
-                .append(getRotation(), feature.getRotation())
-                .append(getGraphic(), feature.getGraphic())
-                .append(getLabelSize(), feature.getLabelSize())
-                .append(getLabelText(), feature.getLabelText())
-                .append(getUserName(), feature.getUserName())
-                .append(getTopic(), feature.getTopic())
-                .append(getIp(), feature.getIp())
-                .append(getSeqTime(), feature.getSeqTime())
-                .append(getLastUpdate(), feature.getLastUpdate())
-                .append(getType(), feature.getType())
-                .append(getGeometry(), feature.getGeometry())
-                .append(getPointRadius(), feature.getPointRadius())
-                .append(getCollabRoomId(), feature.getCollabRoomId())
-                .append(getSendStatus(), feature.getSendStatus())
-                .append(getAttributes(), feature.getAttributes())
-                .isEquals();
+        return id == feature.id
+                && Objects.equals(featureId, feature.featureId)
+                && getVersion() == feature.getVersion();
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(getId())
-                .append(getFeatureId())
-                .append(getUserSessionId())
-                .append(getStrokeColor())
-                .append(getStrokeWidth())
-                .append(getFillColor())
-                .append(getDashStyle())
-                .append(getOpacity())
-                .append(getRotation())
-                .append(getGraphic())
-                .append(getLabelSize())
-                .append(getLabelText())
-                .append(getUserName())
-                .append(getTopic())
-                .append(getIp())
-                .append(getSeqTime())
-                .append(getLastUpdate())
-                .append(getType())
-                .append(getGeometry())
-                .append(getPointRadius())
-                .append(getCollabRoomId())
-                .append(getSendStatus())
-                .append(getAttributes())
-                .toHashCode();
+        long version = getVersion();
+        int result = (int) (id ^ (id >>> 32));
+        result = 31 * result + Objects.hashCode(featureId);
+        return 31 * result + (int) (version ^ (version >>> 32));
     }
 
     public void setId(long id) {
@@ -242,14 +219,56 @@ public class MarkupFeature {
         this.lastUpdate = lastUpdate;
     }
 
+    /**
+     * Cheap version stamp for diffing emissions of features. Received features use the server's
+     * last update time, features that are still being edited or sent locally fall back to a hash of
+     * their content.
+     */
+    public long getVersion() {
+        if (sendStatus == SendStatus.RECEIVED && lastUpdate != 0) {
+            return lastUpdate;
+        }
+
+        long status = sendStatus != null ? sendStatus.getId() + 1 : 0;
+        return (status << 32) | (getContentHash() & 0xFFFFFFFFL);
+    }
+
+    private int getContentHash() {
+        return Objects.hash(userSessionId, strokeColor, strokeWidth, fillColor, dashStyle, getOpacity(), rotation,
+                graphic, labelSize, labelText, userName, topic, ip, seqTime, lastUpdate, type, geometry, pointRadius,
+                collabRoomId, getAttributes());
+    }
+
     public String getGeometry() {
         return geometry;
     }
 
     public void setGeometry(String geometry) {
+        if (!Objects.equals(this.geometry, geometry)) {
+            packedGeometry = null;
+            decodedGeometry = null;
+            jtsGeometry = null;
+            vector2Decoded = false;
+        }
         this.geometry = geometry;
     }
 
+    /**
+     * Get the binary copy of the geometry, packing the geometry string if it hasn't been yet.
+     *
+     * @return The packed geometry, or null if there is no valid geometry.
+     */
+    public PackedGeometry getPackedGeometry() {
+        if (packedGeometry == null) {
+            packedGeometry = PackedGeometry.fromWkt(geometry);
+        }
+        return packedGeometry;
+    }
+
+    public void setPackedGeometry(PackedGeometry packedGeometry) {
+        this.packedGeometry = packedGeometry;
+    }
+
     public Double getPointRadius() {
         return pointRadius;
     }
@@ -389,13 +408,69 @@ public class MarkupFeature {
         this.opacity = opacity;
     }
 
+    /**
+     * Get the points of the geometry with the latitude as x and the longitude as y. The list is
+     * decoded once and shared until the geometry changes, so it must not be modified.
+     *
+     * @return The points of the geometry.
+     */
     public ArrayList<Vector2> getGeometryVector2() {
-        buildVector2Point(true);
+        if (!vector2Decoded || geometryVector2 == null) {
+            buildVector2Point(true);
+        }
         return geometryVector2;
     }
 
     public void setGeometryVector2(ArrayList<Vector2> geometryVector2) {
         this.geometryVector2 = geometryVector2;
+        vector2Decoded = false;
+    }
+
+    /**
+     * Get the coordinates of the geometry without parsing the geometry string again.
+     *
+     * @return A new list with the coordinates of the geometry.
+     */
+    public ArrayList<LatLng> getLatLngs() {
+        double[] xy = getDecodedGeometry();
+        ArrayList<LatLng> coordinates = new ArrayList<>(xy.length / 2);
+        for (int i = 0; i < xy.length; i += 2) {
+            coordinates.add(new LatLng(xy[i + 1], xy[i]));
+        }
+        return coordinates;
+    }
+
+    /**
+     * Get the geometry as a JTS {@link Geometry}, built once from the packed coordinates, or from
+     * the geometry string if only the envelope is packed.
+     *
+     * @return The geometry, or null if the geometry string isn't valid.
+     */
+    public Geometry getJtsGeometry() {
+        if (jtsGeometry == null) {
+            PackedGeometry packed = getPackedGeometry();
+            jtsGeometry = packed != null ? packed.toGeometry() : null;
+
+            if (jtsGeometry == null && packed != null) {
+                try {
+                    jtsGeometry = geometryStringToGeometry(geometry);
+                } catch (ParseException e) {
+                    Timber.tag(DEBUG).w(e, "Failed to parse the geometry string of the markup feature.");
+                }
+            }
+        }
+        return jtsGeometry;
+    }
+
+    // Longitude/latitude pairs of the geometry, decoded once until the geometry changes.
+    private double[] getDecodedGeometry() {
+        double[] xy = decodedGeometry;
+        if (xy == null) {
+            PackedGeometry packed = getPackedGeometry();
+            xy = packed != null && packed.hasCoordinates() ? packed.getXY() : parseGeometryString(geometry);
+            decodedGeometry = xy;
+        }
+        return xy;
     }
 
     public double getRadius() {
@@ -445,6 +520,22 @@ public class MarkupFeature {
     }
 
     public void buildVector2Point(boolean isFromNicsWeb) {
+        double[] xy = getDecodedGeometry();
+        ArrayList<Vector2> points = new ArrayList<>(xy.length / 2);
+        for (int i = 0; i < xy.length; i += 2) {
+            points.add(isFromNicsWeb ? new Vector2(xy[i + 1], xy[i]) : new Vector2(xy[i], xy[i + 1]));
+        }
+
+        setGeometryVector2(points);
+        vector2Decoded = isFromNicsWeb;
+    }
+
+    // Fallback for geometry strings whose coordinates aren't packed, such as multi geometries.
+    private static double[] parseGeometryString(String geometry) {
+        if (geometry == null) {
+            return new double[0];
+        }
+
         String geomTemp = geometry;
 
         geomTemp = geomTemp.replace("(", "");
@@ -456,26 +547,13 @@ public class MarkupFeature {
 
         String[] separatedCommas = geomTemp.split(",");
 
-        ArrayList<Vector2> fullySeperated = new ArrayList<>();
-        for (String separatedComma : separatedCommas) {
-
-            String[] seperateSpaces = separatedComma.split(" ");
-
-            if (isFromNicsWeb) {
-                fullySeperated.add(new Vector2(
-                        Double.parseDouble(seperateSpaces[1]),
-                        Double.parseDouble(seperateSpaces[0])
-                ));
-            } else {
-                fullySeperated.add(new Vector2(
-                        Double.parseDouble(seperateSpaces[0]),
-                        Double.parseDouble(seperateSpaces[1])
-                ));
-            }
-
+        double[] xy = new double[separatedCommas.length * 2];
+        for (int i = 0; i < separatedCommas.length; i++) {
+            String[] seperateSpaces = separatedCommas[i].split(" ");
+            xy[i * 2] = Double.parseDouble(seperateSpaces[0]);
+            xy[i * 2 + 1] = Double.parseDouble(seperateSpaces[1]);
         }
-
-        setGeometryVector2(fullySeperated);
+        return xy;
     }
 
     public boolean isFailedToSend() {
@@ -528,7 +606,7 @@ public class MarkupFeature {
                 }
                 try {
                     // Buffer the geometry of the markup feature to use as a geofence.
-                    ArrayList<LatLng> coordinates = bufferGeometry(getGeometry(), getType(), radius);
+                    ArrayList<LatLng> coordinates = bufferGeometry(getLatLngs(), getType(), radius);
                     hazard.setCoordinates(coordinates);
                     hazard.setGeometry(convertCoordinatesToGeometryString(coordinates, "polygon"));
                 } catch (Exception e) {
@@ -30,6 +30,7 @@
 package edu.mit.ll.nics.android.database.entities;
 
 import androidx.core.math.MathUtils;
+import androidx.room.Embedded;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
 import androidx.room.Ignore;
@@ -61,7 +62,7 @@ import static edu.mit.ll.nics.android.utils.constants.Database.OVERLAPPING_LAYER
                         onDelete = ForeignKey.CASCADE,
                         onUpdate = ForeignKey.CASCADE
                 )},
-        indices = {@Index(value = {"layerFeatureId"}, unique = true), @Index(value = {"collabroomId"})})
+        indices = {@Index(value = {"layerFeatureId"}, unique = true), @Index(value = {"collabroomId"}), @Index(value = {"geom_minX", "geom_maxX", "geom_minY", "geom_maxY"})})
 public class OverlappingLayerFeature {
 
     @PrimaryKey(autoGenerate = true)
@@ -83,6 +84,10 @@ public class OverlappingLayerFeature {
     private ArrayList<LatLng> coordinates;
     private Map<String, Object> properties;
 
+    // Declared after the coordinates, so that Room restores it after they have been set.
+    @Embedded(prefix = "geom_")
+    private transient PackedGeometry packedGeometry;
+
     public OverlappingLayerFeature() {
     }
 
@@ -125,9 +130,28 @@ public class OverlappingLayerFeature {
     }
 
     public void setCoordinates(ArrayList<LatLng> coordinates) {
+        if (this.coordinates != coordinates) {
+            packedGeometry = null;
+        }
         this.coordinates = coordinates;
     }
 
+    /**
+     * Get the binary copy of the coordinates, packing them if they haven't been yet.
+     *
+     * @return The packed geometry, or null if there are no coordinates.
+     */
+    public PackedGeometry getPackedGeometry() {
+        if (packedGeometry == null) {
+            packedGeometry = PackedGeometry.fromLatLngs(coordinates);
+        }
+        return packedGeometry;
+    }
+
+    public void setPackedGeometry(PackedGeometry packedGeometry) {
+        this.packedGeometry = packedGeometry;
+    }
+
     public Map<String, Object> getProperties() {
         return properties;
     }
@@ -34,6 +34,7 @@ import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.google.common.hash.HashCode;
 import com.google.gson.GsonBuilder;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -58,6 +59,12 @@ public class OverlappingRoomLayer {
     private String created;
     private boolean isActive = false;
 
+    /**
+     * Hash of the layer's metadata and features when it was downloaded, used to skip rewriting a
+     * layer that hasn't changed.
+     */
+    private String contentHash;
+
     @Ignore
     private List<OverlappingLayerFeature> features;
 
@@ -154,6 +161,22 @@ public class OverlappingRoomLayer {
         this.features = features;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return A version stamp for the layer's content, taken from the content hash stored when it
+     * was downloaded, or 0 if it has none.
+     */
+    public long getVersion() {
+        return contentHash != null ? HashCode.fromString(contentHash).asLong() : 0L;
+    }
+
     public boolean isActive() {
         return isActive;
     }
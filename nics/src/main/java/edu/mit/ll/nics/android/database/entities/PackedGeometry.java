@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.database.entities;
+
+import androidx.room.Ignore;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary copy of the geometry of a feature, stored next to the text geometry so that it doesn't
+ * need to be parsed again when it is read from the database.
+ *
+ * The coordinates are packed as little-endian longitude/latitude double pairs. Multi geometries,
+ * collections and polygons with holes only keep their envelope, see {@link #ENVELOPE}. The envelope
+ * is stored in separate columns for every geometry, so that bounding box queries can use an index
+ * instead of parsing the geometry of every row.
+ */
+public class PackedGeometry {
+
+    /**
+     * Only the envelope is packed, the exact geometry has to be read from the text geometry.
+     */
+    public static final int ENVELOPE = 0;
+    public static final int POINT = 1;
+    public static final int LINE_STRING = 2;
+    public static final int POLYGON = 3;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private Integer type;
+    private byte[] coordinates;
+    private Double minX;
+    private Double minY;
+    private Double maxX;
+    private Double maxY;
+
+    public PackedGeometry() {
+    }
+
+    @Ignore
+    public PackedGeometry(int type, double[] xy) {
+        this.type = type;
+        this.coordinates = pack(xy);
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xy.length; i += 2) {
+            minX = Math.min(minX, xy[i]);
+            maxX = Math.max(maxX, xy[i]);
+            minY = Math.min(minY, xy[i + 1]);
+            maxY = Math.max(maxY, xy[i + 1]);
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Pack the provided geometry string.
+     *
+     * @param wkt The geometry string to pack.
+     * @return The packed geometry, or null if the geometry string is empty or can't be parsed.
+     */
+    public static PackedGeometry fromWkt(String wkt) {
+        if (wkt == null || wkt.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return fromGeometry(new WKTReader(GEOMETRY_FACTORY).read(wkt));
+        } catch (ParseException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Pack the provided coordinates. A single coordinate is packed as a point, a closed ring as a
+     * polygon and anything else as a line string.
+     *
+     * @param points The coordinates to pack.
+     * @return The packed geometry, or null if there are no coordinates.
+     */
+    public static PackedGeometry fromLatLngs(List<LatLng> points) {
+        if (points == null || points.isEmpty()) {
+            return null;
+        }
+
+        int size = points.size();
+        double[] xy = new double[size * 2];
+        for (int i = 0; i < size; i++) {
+            LatLng point = points.get(i);
+            xy[i * 2] = point.longitude;
+            xy[i * 2 + 1] = point.latitude;
+        }
+
+        int type;
+        if (size == 1) {
+            type = POINT;
+        } else if (size > 3 && points.get(0).equals(points.get(size - 1))) {
+            type = POLYGON;
+        } else {
+            type = LINE_STRING;
+        }
+
+        return new PackedGeometry(type, xy);
+    }
+
+    private static PackedGeometry fromGeometry(Geometry geometry) {
+        if (geometry.isEmpty()) {
+            return null;
+        }
+
+        int type;
+        Coordinate[] coordinates;
+        if (geometry instanceof Point) {
+            type = POINT;
+            coordinates = geometry.getCoordinates();
+        } else if (geometry instanceof Polygon && ((Polygon) geometry).getNumInteriorRing() == 0) {
+            type = POLYGON;
+            coordinates = ((Polygon) geometry).getExteriorRing().getCoordinates();
+        } else if (geometry instanceof LineString) {
+            type = LINE_STRING;
+            coordinates = geometry.getCoordinates();
+        } else {
+            // Multi geometries, collections and polygons with holes can't be rebuilt from one
+            // coordinate list, but their envelope is still needed for the bounding box queries.
+            Envelope envelope = geometry.getEnvelopeInternal();
+            PackedGeometry packed = new PackedGeometry();
+            packed.type = ENVELOPE;
+            packed.minX = envelope.getMinX();
+            packed.minY = envelope.getMinY();
+            packed.maxX = envelope.getMaxX();
+            packed.maxY = envelope.getMaxY();
+            return packed;
+        }
+
+        double[] xy = new double[coordinates.length * 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            xy[i * 2] = coordinates[i].x;
+            xy[i * 2 + 1] = coordinates[i].y;
+        }
+        return new PackedGeometry(type, xy);
+    }
+
+    private static byte[] pack(double[] xy) {
+        ByteBuffer buffer = ByteBuffer.allocate(xy.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asDoubleBuffer().put(xy);
+        return buffer.array();
+    }
+
+    /**
+     * @return Whether the coordinates of the geometry are packed, or only its envelope.
+     */
+    public boolean hasCoordinates() {
+        return type != null && type != ENVELOPE && coordinates != null;
+    }
+
+    /**
+     * Get the packed coordinates as longitude/latitude pairs.
+     *
+     * @return A new array with the x and y values of every coordinate.
+     */
+    public double[] getXY() {
+        if (coordinates == null) {
+            return new double[0];
+        }
+
+        double[] xy = new double[coordinates.length / 8];
+        ByteBuffer.wrap(coordinates).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(xy);
+        return xy;
+    }
+
+    public ArrayList<LatLng> toLatLngs() {
+        double[] xy = getXY();
+        ArrayList<LatLng> points = new ArrayList<>(xy.length / 2);
+        for (int i = 0; i < xy.length; i += 2) {
+            points.add(new LatLng(xy[i + 1], xy[i]));
+        }
+        return points;
+    }
+
+    public ArrayList<Vector2> toVectors() {
+        double[] xy = getXY();
+        ArrayList<Vector2> points = new ArrayList<>(xy.length / 2);
+        for (int i = 0; i < xy.length; i += 2) {
+            points.add(new Vector2(xy[i], xy[i + 1]));
+        }
+        return points;
+    }
+
+    /**
+     * Build a JTS geometry from the packed coordinates without parsing any text.
+     *
+     * @return The geometry, or null if there are no coordinates or only the envelope is packed.
+     */
+    public Geometry toGeometry() {
+        double[] xy = getXY();
+        if (xy.length == 0 || !hasCoordinates()) {
+            return null;
+        }
+
+        Coordinate[] coordinates = new Coordinate[xy.length / 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = new Coordinate(xy[i * 2], xy[i * 2 + 1]);
+        }
+
+        switch (type) {
+            case POINT:
+                return GEOMETRY_FACTORY.createPoint(coordinates[0]);
+            case POLYGON:
+                return GEOMETRY_FACTORY.createPolygon(coordinates);
+            default:
+                return coordinates.length > 1
+                        ? GEOMETRY_FACTORY.createLineString(coordinates)
+                        : GEOMETRY_FACTORY.createPoint(coordinates[0]);
+        }
+    }
+
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        return this.minX != null && this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+    }
+
+    public Integer getType() {
+        return type;
+    }
+
+    public void setType(Integer type) {
+        this.type = type;
+    }
+
+    public byte[] getCoordinates() {
+        return coordinates;
+    }
+
+    public void setCoordinates(byte[] coordinates) {
+        this.coordinates = coordinates;
+    }
+
+    public Double getMinX() {
+        return minX;
+    }
+
+    public void setMinX(Double minX) {
+        this.minX = minX;
+    }
+
+    public Double getMinY() {
+        return minY;
+    }
+
+    public void setMinY(Double minY) {
+        this.minY = minY;
+    }
+
+    public Double getMaxX() {
+        return maxX;
+    }
+
+    public void setMaxX(Double maxX) {
+        this.maxX = maxX;
+    }
+
+    public Double getMaxY() {
+        return maxY;
+    }
+
+    public void setMaxY(Double maxY) {
+        this.maxY = maxY;
+    }
+}
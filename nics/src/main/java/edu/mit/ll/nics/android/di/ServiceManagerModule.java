@@ -29,7 +29,9 @@
  */
 package edu.mit.ll.nics.android.di;
 
+import android.app.AlarmManager;
 import android.content.Context;
+import android.os.Handler;
 
 import javax.inject.Singleton;
 
@@ -38,7 +40,9 @@ import dagger.Provides;
 import dagger.hilt.InstallIn;
 import dagger.hilt.android.qualifiers.ApplicationContext;
 import dagger.hilt.components.SingletonComponent;
+import edu.mit.ll.nics.android.di.Qualifiers.MainHandler;
 import edu.mit.ll.nics.android.services.ServiceManager;
+import edu.mit.ll.nics.android.services.SyncScheduler;
 
 @Module
 @InstallIn(SingletonComponent.class)
@@ -49,4 +53,12 @@ public class ServiceManagerModule {
     public static ServiceManager provideServiceManager(@ApplicationContext Context context) {
         return new ServiceManager(context);
     }
+
+    @Provides
+    @Singleton
+    public static SyncScheduler provideSyncScheduler(@ApplicationContext Context context,
+                                                     AlarmManager alarmManager,
+                                                     @MainHandler Handler handler) {
+        return new SyncScheduler(context, alarmManager, handler);
+    }
 }
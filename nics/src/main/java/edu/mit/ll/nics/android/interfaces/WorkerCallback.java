@@ -38,4 +38,10 @@ public interface WorkerCallback {
     void onFailure(@NonNull WorkInfo workInfo);
 
     void onWorking();
+
+    /**
+     * Called with the latest progress published by the worker while it is running.
+     */
+    default void onProgress(@NonNull WorkInfo workInfo) {
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+
+/**
+ * Collects map shape mutations from any thread and applies them on the main thread in order, in
+ * chunks that are bounded by a per frame time budget. A large sync is spread out over as many
+ * frames as it needs instead of flooding the main looper with one message per shape.
+ */
+public class MapMutationScheduler implements Choreographer.FrameCallback {
+
+    public static final long DEFAULT_FRAME_BUDGET = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private final Executor mMainThread;
+    private final long mFrameBudget;
+    private final ConcurrentLinkedQueue<Runnable> mQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+
+    private volatile long mMaxFrameApplyTime = 0L;
+
+    /**
+     * @param mainThread Executor that runs on the main thread, such as the post method of a main
+     *                   thread handler.
+     */
+    public MapMutationScheduler(Executor mainThread) {
+        this(mainThread, DEFAULT_FRAME_BUDGET);
+    }
+
+    public MapMutationScheduler(Executor mainThread, long frameBudget) {
+        mMainThread = mainThread;
+        mFrameBudget = frameBudget;
+    }
+
+    /**
+     * Queues a mutation to run on the main thread. Mutations run in the order they were posted.
+     */
+    public void post(Runnable mutation) {
+        mQueue.add(mutation);
+        mQueueDepth.incrementAndGet();
+        schedule();
+    }
+
+    /**
+     * Drops all of the mutations that have not been applied yet.
+     */
+    public void clear() {
+        while (mQueue.poll() != null) {
+            mQueueDepth.decrementAndGet();
+        }
+    }
+
+    public int getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    /**
+     * @return The longest time in nanoseconds spent applying mutations in a single frame.
+     */
+    public long getMaxFrameApplyTime() {
+        return mMaxFrameApplyTime;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        drain(mFrameBudget);
+
+        mScheduled.set(false);
+        if (!mQueue.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Applies queued mutations until the queue is empty or the budget is used up. At least one
+     * mutation is applied per call so that a slow mutation can not stall the queue.
+     *
+     * @return The number of mutations applied.
+     */
+    int drain(long budget) {
+        long start = System.nanoTime();
+        int count = 0;
+
+        Runnable mutation;
+        while ((mutation = mQueue.poll()) != null) {
+            mQueueDepth.decrementAndGet();
+            try {
+                mutation.run();
+            } catch (RuntimeException e) {
+                Timber.tag(DEBUG).e(e, "Failed to apply map mutation.");
+            }
+            count++;
+
+            if (System.nanoTime() - start >= budget) {
+                break;
+            }
+        }
+
+        if (count > 0) {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed > mMaxFrameApplyTime) {
+                mMaxFrameApplyTime = elapsed;
+            }
+        }
+        return count;
+    }
+
+    private void schedule() {
+        if (mScheduled.compareAndSet(false, true)) {
+            // The choreographer is per thread, so it has to be used from the main thread.
+            mMainThread.execute(() -> Choreographer.getInstance().postFrameCallback(this));
+        }
+    }
+}
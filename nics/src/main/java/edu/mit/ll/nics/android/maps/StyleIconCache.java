@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import edu.mit.ll.nics.android.api.DownloaderApiService;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import timber.log.Timber;
+
+import static edu.mit.ll.nics.android.utils.BitmapUtils.generateBitmap;
+import static edu.mit.ll.nics.android.utils.BitmapUtils.generateBitmapFromBytes;
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_ICON_CACHE_FOLDER;
+
+/**
+ * Process wide cache of the style icons that are used by the tracking layers. Icons are kept in a
+ * size bounded LRU memory cache keyed by the icon url, and the downloaded bytes are persisted to
+ * disk so that they survive restarts. Each icon on disk records the time it was downloaded, and is
+ * downloaded again once it is older than {@link #MAX_DISK_AGE_MS}, falling back to the stale copy if
+ * the server can't be reached. The last modified time of an icon file is its last use, so the disk
+ * cache also evicts the least recently used icons first. Concurrent requests for the same url share
+ * a single download.
+ *
+ * The methods that can download or read from disk are blocking and must not be called from the
+ * main thread.
+ */
+@Singleton
+public class StyleIconCache {
+
+    private static final int MAX_MEMORY_BYTES = 4 * 1024 * 1024;
+    private static final long MAX_DISK_BYTES = 10 * 1024 * 1024;
+    private static final long MAX_DISK_AGE_MS = 24 * 60 * 60 * 1000L;
+    private static final long FAILURE_RETRY_MS = 60000L;
+    private static final int MAGIC = 0x4e494331;
+
+    private final File mDirectory;
+    private final DownloaderApiService mDownloader;
+    private final ConcurrentHashMap<String, FutureTask<byte[]>> mDownloads = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> mFailures = new ConcurrentHashMap<>();
+    private final LruCache<String, Icon> mIcons = new LruCache<String, Icon>(MAX_MEMORY_BYTES) {
+        @Override
+        protected int sizeOf(String key, Icon icon) {
+            return icon.bitmap.getByteCount();
+        }
+    };
+
+    @Inject
+    public StyleIconCache(@ApplicationContext Context context, DownloaderApiService downloader) {
+        mDirectory = new File(context.getCacheDir() + NICS_ICON_CACHE_FOLDER);
+        mDownloader = downloader;
+    }
+
+    /**
+     * Get the icon for the provided url. The same {@link BitmapDescriptor} instance is returned for
+     * every request of the same url while it is in the memory cache.
+     *
+     * @param url The full url of the style icon.
+     * @return The icon, or null if the icon couldn't be downloaded or decoded.
+     */
+    @Nullable
+    public BitmapDescriptor getIcon(String url) {
+        Icon icon = mIcons.get(url);
+        if (icon != null) {
+            return icon.descriptor;
+        }
+
+        Bitmap bitmap = decode(url);
+        if (bitmap == null) {
+            return null;
+        }
+
+        icon = new Icon(bitmap);
+        mIcons.put(url, icon);
+        return icon.descriptor;
+    }
+
+    /**
+     * Get the icon for a drawable resource, so that the same {@link BitmapDescriptor} can be shared
+     * by every feature and layer that uses it.
+     *
+     * @param resources The resources to decode the drawable from.
+     * @param resourceId The resource id of the drawable.
+     * @return The icon, or null if the resource couldn't be decoded.
+     */
+    @Nullable
+    public BitmapDescriptor getResourceIcon(Resources resources, int resourceId) {
+        String key = "resource:" + resourceId;
+
+        Icon icon = mIcons.get(key);
+        if (icon == null) {
+            Bitmap bitmap = generateBitmap(resources, resourceId);
+            if (bitmap == null) {
+                return null;
+            }
+
+            icon = new Icon(bitmap);
+            mIcons.put(key, icon);
+        }
+
+        return icon.descriptor;
+    }
+
+    /**
+     * Clears the in memory icons. The icons that are persisted to disk are kept.
+     */
+    public void clearMemory() {
+        mIcons.evictAll();
+        mFailures.clear();
+    }
+
+    @Nullable
+    private Bitmap decode(String url) {
+        byte[] bytes = getBytes(url);
+
+        if (bytes != null) {
+            try {
+                return generateBitmapFromBytes(bytes);
+            } catch (IllegalArgumentException e) {
+                Timber.tag(DEBUG).e(e, "Failed to decode style icon %s", url);
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private byte[] getBytes(String url) {
+        File file = getFile(url);
+        byte[] cached = null;
+        if (file.exists()) {
+            try {
+                CachedIcon icon = read(file);
+                cached = icon.bytes;
+
+                // Touch the icon, so that the least recently used icons are trimmed first.
+                long now = System.currentTimeMillis();
+                file.setLastModified(now);
+                if (now - icon.downloaded < MAX_DISK_AGE_MS) {
+                    return cached;
+                }
+            } catch (IOException e) {
+                Timber.tag(DEBUG).w(e, "Failed to read cached style icon %s", url);
+                file.delete();
+            }
+        }
+
+        Long failure = mFailures.get(url);
+        if (failure != null && System.currentTimeMillis() - failure < FAILURE_RETRY_MS) {
+            return cached;
+        }
+
+        // Coalesce concurrent requests for the same url into one download.
+        FutureTask<byte[]> task = new FutureTask<>(() -> download(url, file));
+        FutureTask<byte[]> existing = mDownloads.putIfAbsent(url, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                mDownloads.remove(url, task);
+            }
+        } else {
+            task = existing;
+        }
+
+        try {
+            byte[] bytes = task.get();
+            return bytes != null ? bytes : cached;
+        } catch (ExecutionException | InterruptedException e) {
+            Timber.tag(DEBUG).e(e, "Failed to download style icon %s", url);
+            return cached;
+        }
+    }
+
+    @Nullable
+    private byte[] download(String url, File file) {
+        byte[] bytes = null;
+
+        try {
+            Response<ResponseBody> response = mDownloader.download(url).execute();
+            try (ResponseBody body = response.body()) {
+                if (response.isSuccessful() && body != null) {
+                    bytes = body.bytes();
+                }
+            }
+        } catch (IOException e) {
+            Timber.tag(DEBUG).e(e, "Failed to execute style icon download call.");
+        }
+
+        if (bytes == null) {
+            mFailures.put(url, System.currentTimeMillis());
+            return null;
+        }
+
+        mFailures.remove(url);
+
+        if (write(file, bytes)) {
+            trimDisk();
+        }
+
+        return bytes;
+    }
+
+    private static CachedIcon read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Unknown style icon format.");
+            }
+
+            long downloaded = in.readLong();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new CachedIcon(bytes, downloaded);
+        }
+    }
+
+    /**
+     * Writes the icon to a temporary file first and moves it into place, so that a crash can never
+     * leave a truncated icon in the cache.
+     */
+    private boolean write(File file, byte[] bytes) {
+        File temp = new File(mDirectory, file.getName() + ".tmp");
+
+        try {
+            if (!(mDirectory.exists() || mDirectory.mkdirs())) {
+                throw new IOException("Failed to create style icon directory.");
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            if (!temp.renameTo(file)) {
+                throw new IOException("Failed to move style icon into place.");
+            }
+            return true;
+        } catch (IOException e) {
+            Timber.tag(DEBUG).w(e, "Failed to persist style icon %s", file.getName());
+            temp.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Removes the least recently used icons from disk until the disk cache is within its bound.
+     */
+    private synchronized void trimDisk() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+
+        if (size > MAX_DISK_BYTES) {
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (File file : files) {
+                if (size <= MAX_DISK_BYTES) {
+                    break;
+                }
+
+                long length = file.length();
+                if (file.delete()) {
+                    size -= length;
+                }
+            }
+        }
+    }
+
+    private File getFile(String url) {
+        return new File(mDirectory, Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString());
+    }
+
+    private static final class CachedIcon {
+
+        private final byte[] bytes;
+        private final long downloaded;
+
+        private CachedIcon(byte[] bytes, long downloaded) {
+            this.bytes = bytes;
+            this.downloaded = downloaded;
+        }
+    }
+
+    private static final class Icon {
+
+        private final Bitmap bitmap;
+        private final BitmapDescriptor descriptor;
+
+        private Icon(Bitmap bitmap) {
+            this.bitmap = bitmap;
+            this.descriptor = BitmapDescriptorFactory.fromBitmap(bitmap);
+        }
+    }
+}
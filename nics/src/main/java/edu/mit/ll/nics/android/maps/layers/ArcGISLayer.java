@@ -34,21 +34,21 @@ import android.app.Activity;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.TileProvider;
 
-import edu.mit.ll.nics.android.api.DownloaderApiService;
 import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
 import edu.mit.ll.nics.android.maps.tileproviders.TileProviderFactory;
+import edu.mit.ll.nics.android.maps.tileproviders.TileStore;
 
 public class ArcGISLayer extends TiledLayer {
 
     public ArcGISLayer(Activity activity,
                        CollabroomDataLayer layer,
                        GoogleMap map,
-                       DownloaderApiService downloader) {
-        super(activity, layer, map, downloader, ArcGISLayer.class.getSimpleName());
+                       TileStore tileStore) {
+        super(activity, layer, map, tileStore, ArcGISLayer.class.getSimpleName());
     }
 
     @Override
     public TileProvider buildTileProvider() {
-        return TileProviderFactory.buildArcGISTileProvider(mLayer.getInternalUrl(), new TileProviderFactory.ArcGISOptions(), mDownloader);
+        return TileProviderFactory.buildArcGISTileProvider(mLayer.getInternalUrl(), new TileProviderFactory.ArcGISOptions(), mTileStore);
     }
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.layers;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import edu.mit.ll.nics.android.maps.markup.MarkupBaseShape;
+
+/**
+ * In memory spatial index of the features of a data layer, used by the {@link ViewportRenderer} to
+ * find the features that are inside the visible region of the map.
+ *
+ * Features are bulk loaded into an {@link STRtree} by their longitude/latitude envelope. Below
+ * {@link #CLUSTER_MAX_ZOOM}, the point features that fall into the same screen sized grid cell are
+ * merged into a single {@link Cluster}.
+ */
+public class FeatureIndex<F> {
+
+    // Points are clustered below this zoom level.
+    static final float CLUSTER_MAX_ZOOM = 14;
+
+    // Size of a cluster grid cell in screen pixels.
+    private static final int CLUSTER_CELL_PIXELS = 96;
+
+    // Fraction of the visible width and height that is added on each side of the visible region.
+    private static final double MARGIN = 0.5;
+
+    private static final int TILE_SIZE = 256;
+    private static final double MAX_LATITUDE = 85.0511287798;
+
+    private final STRtree mTree = new STRtree();
+    private final int mSize;
+
+    public FeatureIndex(List<F> features,
+                        Function<F, List<LatLng>> coordinates,
+                        Predicate<F> isPoint) {
+        int size = 0;
+
+        if (features != null) {
+            for (F feature : features) {
+                List<LatLng> points = coordinates.apply(feature);
+                if (points == null || points.isEmpty()) {
+                    continue;
+                }
+
+                Envelope envelope = new Envelope();
+                for (LatLng point : points) {
+                    envelope.expandToInclude(point.longitude, point.latitude);
+                }
+
+                mTree.insert(envelope, new Item<>(feature, envelope, isPoint.test(feature)));
+                size++;
+            }
+        }
+
+        mTree.build();
+        mSize = size;
+    }
+
+    /**
+     * Get the number of features in the index.
+     *
+     * @return The number of indexed features.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Find the features that should be shown for the visible region, expanded by a margin so that
+     * small camera moves don't need an update.
+     *
+     * @param south The southern latitude of the visible region.
+     * @param west The western longitude of the visible region.
+     * @param north The northern latitude of the visible region.
+     * @param east The eastern longitude of the visible region.
+     * @param zoom The zoom level of the camera.
+     * @return The features to show individually and the clusters of points.
+     */
+    @SuppressWarnings("unchecked")
+    public Plan<F> plan(double south, double west, double north, double east, float zoom) {
+        double width = west <= east ? east - west : 360;
+        double height = north - south;
+
+        Envelope query = west <= east
+                ? new Envelope(west - width * MARGIN, east + width * MARGIN, south - height * MARGIN, north + height * MARGIN)
+                : new Envelope(-180, 180, south - height * MARGIN, north + height * MARGIN);
+
+        // The tree is built in the constructor, so concurrent queries are safe.
+        List<Item<F>> candidates = mTree.query(query);
+
+        Plan<F> plan = new Plan<>();
+        if (zoom >= CLUSTER_MAX_ZOOM) {
+            plan.items.addAll(candidates);
+            return plan;
+        }
+
+        double cell = CLUSTER_CELL_PIXELS / (TILE_SIZE * Math.pow(2, Math.floor(zoom)));
+        HashMap<Long, Bucket<F>> buckets = new HashMap<>();
+
+        for (Item<F> item : candidates) {
+            if (!item.point) {
+                plan.items.add(item);
+                continue;
+            }
+
+            double latitude = item.envelope.getMinY();
+            double longitude = item.envelope.getMinX();
+            long column = (long) Math.floor(getWorldX(longitude) / cell);
+            long row = (long) Math.floor(getWorldY(latitude) / cell);
+
+            Long key = (column << 32) | (row & 0xffffffffL);
+            Bucket<F> bucket = buckets.get(key);
+            if (bucket == null) {
+                buckets.put(key, new Bucket<>(item));
+            } else {
+                bucket.add(item);
+            }
+        }
+
+        for (Bucket<F> bucket : buckets.values()) {
+            if (bucket.count == 1) {
+                plan.items.add(bucket.first);
+            } else {
+                plan.clusters.add(new Cluster(new LatLng(bucket.latitude / bucket.count, bucket.longitude / bucket.count), bucket.count));
+            }
+        }
+
+        return plan;
+    }
+
+    // Longitude as a fraction of the width of the world map.
+    private static double getWorldX(double longitude) {
+        return longitude / 360.0 + 0.5;
+    }
+
+    // Latitude as a fraction of the height of the Web Mercator world map.
+    private static double getWorldY(double latitude) {
+        double phi = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        return 0.5 - Math.log(Math.tan(Math.PI / 4 + phi / 2)) / (2 * Math.PI);
+    }
+
+    /**
+     * An indexed feature. The shape fields are owned by the {@link ViewportRenderer} and, apart from
+     * {@link #shape}, are only accessed on the main thread.
+     */
+    static final class Item<F> {
+
+        final F feature;
+        final Envelope envelope;
+        final boolean point;
+
+        volatile MarkupBaseShape shape;
+        boolean onMap;
+        long wanted;
+
+        Item(F feature, Envelope envelope, boolean point) {
+            this.feature = feature;
+            this.envelope = envelope;
+            this.point = point;
+        }
+    }
+
+    public static final class Cluster {
+
+        public final LatLng position;
+        public final int count;
+
+        Cluster(LatLng position, int count) {
+            this.position = position;
+            this.count = count;
+        }
+    }
+
+    public static final class Plan<F> {
+
+        final List<Item<F>> items = new ArrayList<>();
+        final List<Cluster> clusters = new ArrayList<>();
+
+        public int getItemCount() {
+            return items.size();
+        }
+
+        public List<Cluster> getClusters() {
+            return clusters;
+        }
+    }
+
+    private static final class Bucket<F> {
+
+        private final Item<F> first;
+        private int count = 1;
+        private double latitude;
+        private double longitude;
+
+        private Bucket(Item<F> item) {
+            first = item;
+            latitude = item.envelope.getMinY();
+            longitude = item.envelope.getMinX();
+        }
+
+        private void add(Item<F> item) {
+            count++;
+            latitude += item.envelope.getMinY();
+            longitude += item.envelope.getMinX();
+        }
+    }
+}
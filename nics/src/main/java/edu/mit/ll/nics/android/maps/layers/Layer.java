@@ -33,6 +33,7 @@ import android.app.Activity;
 import android.content.Context;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLngBounds;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -45,6 +46,9 @@ public abstract class Layer implements DataLayerInterface {
     protected final GoogleMap mMap;
     protected final Context mContext;
     protected final Activity mActivity;
+
+    // Not thread safe, only modify on the main thread. Layers that build their shapes in the
+    // background should use a ViewportRenderer instead.
     protected final ArrayList<MarkupBaseShape> mFeatures = new ArrayList<>();
 
     public Layer(Activity activity, GoogleMap map, String name) {
@@ -59,4 +63,19 @@ public abstract class Layer implements DataLayerInterface {
     public List<MarkupBaseShape> getFeatures() {
         return mFeatures;
     }
+
+    public void setClickable(boolean clickable) {
+        for (MarkupBaseShape shape : getFeatures()) {
+            shape.setClickable(clickable);
+        }
+    }
+
+    /**
+     * Called on the main thread when the camera of the map has stopped moving.
+     *
+     * @param bounds The visible region of the map.
+     * @param zoom The zoom level of the camera.
+     */
+    public void onCameraIdle(LatLngBounds bounds, float zoom) {
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.layers;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import timber.log.Timber;
+
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+
+/**
+ * Builds the shapes of a data layer in parallel on one of the shared app executors.
+ *
+ * The inputs are split into contiguous partitions. At most {@link #PARALLELISM} tasks claim
+ * partitions from a shared counter, and the calling thread claims partitions as well, so the build
+ * always completes even if the executor is busy. Every result is written to the index of its input,
+ * so the order of the returned list doesn't depend on the scheduling of the tasks.
+ */
+public final class ShapeAssembler {
+
+    // Number of concurrent tasks, including the calling thread.
+    static final int PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    // Smallest number of inputs per partition, so that small layers are built on the calling thread.
+    static final int MIN_PARTITION_SIZE = 64;
+
+    private ShapeAssembler() {
+    }
+
+    /**
+     * Build a result for every input. Inputs whose builder throws get a null result. Must not be
+     * called on the main thread, since it blocks until every partition has been built.
+     *
+     * @param executor The executor to run the partitions on.
+     * @param inputs The inputs to build.
+     * @param builder The builder to run for every input.
+     * @return The results in the order of the inputs.
+     */
+    public static <T, R> List<R> assemble(Executor executor, List<T> inputs, Function<T, R> builder) {
+        return assemble(executor, inputs, builder, PARALLELISM);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T, R> List<R> assemble(Executor executor, List<T> inputs, Function<T, R> builder, int parallelism) {
+        int size = inputs.size();
+        if (size == 0) {
+            return new ArrayList<>();
+        }
+
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, (size + parallelism - 1) / parallelism);
+        int partitions = (size + partitionSize - 1) / partitionSize;
+
+        Object[] results = new Object[size];
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(partitions);
+
+        Runnable worker = () -> {
+            int partition;
+            while ((partition = next.getAndIncrement()) < partitions) {
+                int start = partition * partitionSize;
+                int end = Math.min(size, start + partitionSize);
+                for (int i = start; i < end; i++) {
+                    results[i] = build(inputs.get(i), builder);
+                }
+                done.countDown();
+            }
+        };
+
+        // The calling thread is one of the workers.
+        for (int i = 1; i < Math.min(parallelism, partitions); i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+
+        Uninterruptibles.awaitUninterruptibly(done);
+        return (List<R>) Arrays.asList(results);
+    }
+
+    private static <T, R> R build(T input, Function<T, R> builder) {
+        try {
+            return builder.apply(input);
+        } catch (RuntimeException e) {
+            Timber.tag(DEBUG).w(e, "Failed to build shape.");
+            return null;
+        }
+    }
+}
@@ -36,8 +36,8 @@ import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileOverlayOptions;
 import com.google.android.gms.maps.model.TileProvider;
 
-import edu.mit.ll.nics.android.api.DownloaderApiService;
 import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
+import edu.mit.ll.nics.android.maps.tileproviders.TileStore;
 import timber.log.Timber;
 
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
@@ -49,18 +49,18 @@ public abstract class TiledLayer extends Layer {
     protected TileOverlay mTileOverlay;
     protected final TileProvider mTileProvider;
     protected final CollabroomDataLayer mLayer;
-    protected final DownloaderApiService mDownloader;
+    protected final TileStore mTileStore;
 
     public TiledLayer(Activity activity,
                       CollabroomDataLayer layer,
                       GoogleMap map,
-                      DownloaderApiService downloader,
+                      TileStore tileStore,
                       String type) {
         super(activity, map, layer.getDisplayName());
 
         mType = type;
         mLayer = layer;
-        mDownloader = downloader;
+        mTileStore = tileStore;
         mOpacity = 1 - (float) layer.getOpacity();
         mTileProvider = buildTileProvider();
         Timber.tag(DEBUG).i("%s constructor.", mType);
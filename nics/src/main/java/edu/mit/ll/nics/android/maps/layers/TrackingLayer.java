@@ -30,16 +30,8 @@
 package edu.mit.ll.nics.android.maps.layers;
 
 import android.app.Activity;
-import android.app.AlarmManager;
-import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
 import android.os.Handler;
-import android.os.PowerManager;
 import android.os.SystemClock;
 
 import androidx.lifecycle.LifecycleOwner;
@@ -47,50 +39,50 @@ import androidx.lifecycle.LiveData;
 import androidx.work.WorkManager;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.gson.JsonObject;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.mit.ll.nics.android.R;
-import edu.mit.ll.nics.android.api.DownloaderApiService;
 import edu.mit.ll.nics.android.database.entities.Tracking;
 import edu.mit.ll.nics.android.database.entities.TrackingLayerFeature;
+import edu.mit.ll.nics.android.enums.Polling;
+import edu.mit.ll.nics.android.maps.StyleIconCache;
 import edu.mit.ll.nics.android.maps.markup.MarkupBaseShape;
 import edu.mit.ll.nics.android.maps.markup.MarkupSymbol;
 import edu.mit.ll.nics.android.repository.NetworkRepository;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
 import edu.mit.ll.nics.android.repository.SettingsRepository;
 import edu.mit.ll.nics.android.repository.TrackingLayerRepository;
-import edu.mit.ll.nics.android.utils.constants.Intents;
-import edu.mit.ll.nics.android.workers.ThreadCallback;
-import edu.mit.ll.nics.android.workers.ThreadResult;
+import edu.mit.ll.nics.android.services.SyncScheduler;
 import edu.mit.ll.nics.android.workers.Workers;
-import okhttp3.ResponseBody;
-import retrofit2.Call;
-import retrofit2.Response;
 import timber.log.Timber;
 
-import static edu.mit.ll.nics.android.utils.BitmapUtils.generateBitmapFromBytes;
-import static edu.mit.ll.nics.android.utils.BitmapUtils.generateRotatedBitmap;
 import static edu.mit.ll.nics.android.utils.Utils.emptyCheck;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
-import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_WAKE_LOCK;
-import static edu.mit.ll.nics.android.utils.constants.NICS.TEN_MINUTES;
 
 public class TrackingLayer extends Layer {
 
-    private final AlarmManager mAlarmManager;
     private final Tracking mTracking;
     private long mLastFeatureTimestamp;
-    private boolean mReceiverRegistered = false;
     private final LifecycleOwner mLifecycleOwner;
 
-    private PendingIntent mPendingTrackingLayerIntent;
+    private final SyncScheduler mSyncScheduler;
+    private final String mSyncKey;
+    // Time that the last fetch was requested at, until its result is reported to the scheduler. The fetch runs on a worker,
+    // so a fetch that fails and never updates the database is dropped after one sync interval.
+    private final AtomicLong mAwaitingSync = new AtomicLong();
     private final TrackingLayerRepository mRepository;
     private final PreferencesRepository mPreferences;
     private final WorkManager mWorkManager;
@@ -98,9 +90,19 @@ public class TrackingLayer extends Layer {
     private final NetworkRepository mNetworkRepository;
     private final Handler mMainHandler;
     private final ExecutorService mExecutor;
-    private final DownloaderApiService mDownloader;
+    private final StyleIconCache mIconCache;
     private LiveData<List<TrackingLayerFeature>> mDatabaseObserver;
 
+    // Markers on the map keyed by feature id. Only accessed from the main thread.
+    private final HashMap<String, MarkupSymbol> mSymbols = new HashMap<>();
+    private final HashMap<String, TrackingLayerFeature> mRenderedFeatures = new HashMap<>();
+    private final HashSet<String> mDirectionalFeatures = new HashSet<>();
+    private long mRefreshGeneration;
+    private long mAppliedGeneration;
+    private int mMarkersAdded;
+    private int mMarkersMoved;
+    private int mMarkersRemoved;
+
     public TrackingLayer(Activity activity,
                          GoogleMap map,
                          Tracking tracking,
@@ -112,12 +114,12 @@ public class TrackingLayer extends Layer {
                          TrackingLayerRepository trackingLayerRepository,
                          Handler handler,
                          ExecutorService service,
-                         DownloaderApiService downloader) {
+                         StyleIconCache iconCache,
+                         SyncScheduler syncScheduler) {
         super(activity, map, tracking.getDisplayName());
 
         mTracking = tracking;
         mLifecycleOwner = lifecycleOwner;
-        mAlarmManager = (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
         mWorkManager = workManager;
         mSettings = settings;
         mNetworkRepository = networkRepository;
@@ -125,7 +127,9 @@ public class TrackingLayer extends Layer {
         mPreferences = preferences;
         mMainHandler = handler;
         mExecutor = service;
-        mDownloader = downloader;
+        mIconCache = iconCache;
+        mSyncScheduler = syncScheduler;
+        mSyncKey = Polling.TRACKING_LAYERS + ":" + tracking.getLayerName();
 
         startPolling();
         subscribeToUpdates();
@@ -135,42 +139,120 @@ public class TrackingLayer extends Layer {
         mSettings.getWFSDataRateLiveData().observe(mLifecycleOwner, rate -> refreshPolling());
 
         mDatabaseObserver = mRepository.getTrackingFeaturesByName(mTracking.getLayerName());
-
-        final ThreadCallback<List<MarkupBaseShape>> callback = result -> mMainHandler.post(() -> {
-            if (result instanceof ThreadResult.Success) {
-                List<MarkupBaseShape> shapes = ((ThreadResult.Success<List<MarkupBaseShape>>) result).data;
-                removeFromMap();
-                for (MarkupBaseShape shape : shapes) {
-                    addToMap(shape);
-                }
-            }
-        });
         mDatabaseObserver.observe(mLifecycleOwner, trackingLayerFeatures -> {
             if (trackingLayerFeatures != null) {
-                // Parse the features in the background and then display them using the main thread.
-                mExecutor.execute(() -> {
-                    CountDownLatch latch = new CountDownLatch(trackingLayerFeatures.size());
-
-                    List<MarkupBaseShape> shapes = new ArrayList<>(trackingLayerFeatures.size());
-                    for (TrackingLayerFeature feature : trackingLayerFeatures) {
-                        MarkupBaseShape shape = parseFeature(feature, latch);
-                        shapes.add(shape);
-                    }
-
-                    try {
-                        //await all features complete
-                        latch.await();
-                    } catch (InterruptedException e) {
-                        Timber.tag(DEBUG).e("Refresh access token interrupted.");
-                    }
-
-                    ThreadResult<List<MarkupBaseShape>> result = new ThreadResult.Success<>(shapes);
-                    callback.onComplete(result);
-                });
+                refresh(trackingLayerFeatures);
+            }
+        });
+    }
+
+    /**
+     * Reconciles the markers on the map with the latest tracking layer features, keyed by feature id.
+     * Only features that are new or have changed since the last refresh are parsed in the background,
+     * existing markers are moved in place and markers are only removed for units that have vanished.
+     *
+     * @param features The latest tracking layer features from the database.
+     */
+    private void refresh(List<TrackingLayerFeature> features) {
+        long generation = ++mRefreshGeneration;
+
+        HashSet<String> featureIds = new HashSet<>();
+        List<SymbolUpdate> updates = new ArrayList<>();
+        for (TrackingLayerFeature feature : features) {
+            featureIds.add(feature.getFeatureId());
+
+            TrackingLayerFeature previous = mRenderedFeatures.get(feature.getFeatureId());
+            if (!feature.equals(previous)) {
+                updates.add(new SymbolUpdate(feature, previous, mDirectionalFeatures.contains(feature.getFeatureId())));
             }
+        }
+
+        // Parse the changed features in the background and then apply them using the main thread.
+        mExecutor.execute(() -> {
+            for (SymbolUpdate update : updates) {
+                parseFeature(update);
+            }
+
+            mMainHandler.post(() -> applyUpdates(generation, featureIds, updates));
         });
     }
 
+    private void applyUpdates(long generation, Set<String> featureIds, List<SymbolUpdate> updates) {
+        // Drop the results of a refresh that finished after a newer refresh was applied.
+        if (generation < mAppliedGeneration) {
+            return;
+        }
+        mAppliedGeneration = generation;
+
+        int added = 0;
+        int moved = 0;
+        int removed = 0;
+
+        Iterator<Map.Entry<String, MarkupSymbol>> iterator = mSymbols.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, MarkupSymbol> entry = iterator.next();
+            if (!featureIds.contains(entry.getKey())) {
+                MarkupSymbol symbol = entry.getValue();
+                symbol.removeFromMap();
+                mFeatures.remove(symbol);
+                mRenderedFeatures.remove(entry.getKey());
+                mDirectionalFeatures.remove(entry.getKey());
+                iterator.remove();
+                removed++;
+            }
+        }
+
+        for (SymbolUpdate update : updates) {
+            TrackingLayerFeature feature = update.feature;
+            MarkupSymbol symbol = mSymbols.get(feature.getFeatureId());
+
+            if (symbol == null) {
+                symbol = new MarkupSymbol(mMap,
+                        mPreferences,
+                        mActivity,
+                        update.title,
+                        feature.getCoordinate(),
+                        null,
+                        null,
+                        false,
+                        new int[] {255, 255, 255, 255});
+                symbol.setFeatureId(feature.getFeatureId());
+                symbol.setIcon(update.icon);
+                symbol.setRotation(update.rotation);
+                mSymbols.put(feature.getFeatureId(), symbol);
+                addToMap(symbol);
+                added++;
+            } else {
+                if (update.icon != null) {
+                    symbol.setIcon(update.icon);
+                }
+
+                symbol.setPoint(feature.getCoordinate());
+                symbol.setRotation(update.rotation);
+                symbol.setTitle(update.title);
+                moved++;
+            }
+
+            mRenderedFeatures.put(feature.getFeatureId(), feature);
+            if (update.directional) {
+                mDirectionalFeatures.add(feature.getFeatureId());
+            } else {
+                mDirectionalFeatures.remove(feature.getFeatureId());
+            }
+        }
+
+        // Let the sync back off while the units on this layer aren't changing.
+        long requested = mAwaitingSync.getAndSet(0L);
+        if (requested > 0L && SystemClock.elapsedRealtime() - requested < mSettings.getWFSDataRate() * 1000L) {
+            mSyncScheduler.onResult(mSyncKey, added + moved + removed > 0);
+        }
+
+        mMarkersAdded = added;
+        mMarkersMoved = moved;
+        mMarkersRemoved = removed;
+        Timber.tag(DEBUG).d("Refreshed %s: %s added, %s moved, %s removed.", mTracking.getDisplayName(), added, moved, removed);
+    }
+
     private void unsubscribeFromUpdates() {
         if (mDatabaseObserver != null) {
             mDatabaseObserver.removeObservers(mLifecycleOwner);
@@ -178,18 +260,15 @@ public class TrackingLayer extends Layer {
     }
 
     private void startPolling() {
-        Intent intent = new Intent(Intents.NICS_POLLING_TRACKING_LAYER + mTracking.getLayerName());
-
-        mContext.registerReceiver(receiver, new IntentFilter(Intents.NICS_POLLING_TRACKING_LAYER + mTracking.getLayerName()));
-        mReceiverRegistered = true;
-
-        mPendingTrackingLayerIntent = PendingIntent.getBroadcast(mContext, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, SystemClock.elapsedRealtime() + 200, (mSettings.getWFSDataRate() * 1000), mPendingTrackingLayerIntent);
-        receiver.onReceive(mContext, intent);
+        mSyncScheduler.schedule(mSyncKey, mSettings.getWFSDataRate(), true, () -> {
+            Timber.tag(DEBUG).i("Attempting to pull tracking layer %s", mTracking.getDisplayName());
+            mAwaitingSync.set(SystemClock.elapsedRealtime());
+            mNetworkRepository.getTrackingLayerWfsData(mTracking.getLayerName());
+        });
     }
 
     private void stopPolling() {
-        if (mPendingTrackingLayerIntent != null) mAlarmManager.cancel(mPendingTrackingLayerIntent);
+        mSyncScheduler.cancel(mSyncKey);
     }
 
     private void refreshPolling() {
@@ -197,34 +276,6 @@ public class TrackingLayer extends Layer {
         startPolling();
     }
 
-    private final BroadcastReceiver receiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            try {
-                PowerManager pm = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
-                PowerManager.WakeLock wakeLock = null;
-                if (pm != null) {
-                    wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, NICS_WAKE_LOCK);
-                }
-
-                //Acquire the lock
-                if (wakeLock != null) {
-                    wakeLock.acquire(TEN_MINUTES);
-                }
-
-                Timber.tag(DEBUG).i("Attempting to pull tracking layer %s", mTracking.getDisplayName());
-                mNetworkRepository.getTrackingLayerWfsData(mTracking.getLayerName());
-
-                //Release the lock
-                if (wakeLock != null) {
-                    wakeLock.release();
-                }
-            } catch (Exception e) {
-                Timber.tag(DEBUG).e(e, "Failed to receive tracking layer wfs data. ");
-            }
-        }
-    };
-
     private long getLastFeatureTimestamp() {
         return mLastFeatureTimestamp;
     }
@@ -233,42 +284,35 @@ public class TrackingLayer extends Layer {
         mLastFeatureTimestamp = timestamp;
     }
 
-    private MarkupBaseShape parseFeature(TrackingLayerFeature feature, CountDownLatch latch) {
-        Bitmap symbolBitmap;
-        Bitmap tempBitmap = null;
+    private void parseFeature(SymbolUpdate update) {
+        TrackingLayerFeature feature = update.feature;
+        TrackingLayerFeature previous = update.previous;
         Resources resources = mContext.getResources();
         String age = feature.getAge();
         float course = feature.getCourse();
         String description = feature.getDescription();
+        String styleIcon = feature.getStyleIcon();
+
+        // Only look up the icon for new features or when the style icon of a feature has changed.
+        if (previous == null || !Objects.equals(previous.getStyleIcon(), styleIcon)) {
+            BitmapDescriptor icon = null;
 
-        // Attempt to download the style icon if it exists.
-        try {
-            String styleIcon = feature.getStyleIcon();
             if (!emptyCheck(styleIcon)) {
-                Call<ResponseBody> call = mDownloader.download(mPreferences.getBaseServer() + styleIcon);
-                try {
-                    Response<ResponseBody> response = call.execute();
-                    if (response.body() != null) {
-                        try {
-                            tempBitmap = generateBitmapFromBytes(response.body().bytes());
-                        } catch (IOException e) {
-                            Timber.tag(DEBUG).e(e, "Failed to save and parse geojson response.");
-                        }
-                    }
-                } catch (IOException e) {
-                    Timber.tag(DEBUG).e(e, "Failed to execute wfs/geojson download call.");
-                }
+                icon = mIconCache.getIcon(mPreferences.getBaseServer() + styleIcon);
             }
-        } catch (NullPointerException e) {
-            Timber.tag(DEBUG).e(e, "Failed to general bitmap for tracking layer feature. ");
-        }
 
-        if (tempBitmap != null) {
-            symbolBitmap = tempBitmap;
-        } else {
-            symbolBitmap = generateRotatedBitmap(R.drawable.mdt_dot_directional, course, resources);
+            if (icon != null) {
+                update.icon = icon;
+                update.directional = false;
+            } else {
+                update.icon = mIconCache.getResourceIcon(resources, R.drawable.mdt_dot_directional);
+                update.directional = true;
+            }
         }
 
+        // The default icon is rotated by the marker so that it doesn't need to be rebuilt when the course changes.
+        update.rotation = update.directional ? course : 0f;
+
         Date mdtDate = null;
         // Get the date from one of the date properties if there is any.
         if (feature.getCreated() != null) {
@@ -307,21 +351,28 @@ public class TrackingLayer extends Layer {
             Timber.tag(DEBUG).e(e, "Failed to add properties to tracking layer title.");
         }
 
-        MarkupSymbol symbol = new MarkupSymbol(mMap,
-                mPreferences,
-                mActivity,
-                attr.toString(),
-                feature.getCoordinate(),
-                symbolBitmap,
-                null,
-                false,
-                new int[] {255, 255, 255, 255});
+        update.title = attr.toString();
+    }
 
-        symbol.setFeatureId(feature.getFeatureId());
+    /**
+     * @return The number of markers that were added to the map by the last refresh.
+     */
+    public int getMarkersAdded() {
+        return mMarkersAdded;
+    }
 
-        latch.countDown();
+    /**
+     * @return The number of markers that were moved in place by the last refresh.
+     */
+    public int getMarkersMoved() {
+        return mMarkersMoved;
+    }
 
-        return symbol;
+    /**
+     * @return The number of markers that were removed from the map by the last refresh.
+     */
+    public int getMarkersRemoved() {
+        return mMarkersRemoved;
     }
 
     @Override
@@ -337,11 +388,7 @@ public class TrackingLayer extends Layer {
     public void unregister() {
         mWorkManager.cancelUniqueWork(Workers.GET_TRACKING_LAYER_WFS_WORKER + mTracking.getLayerName());
 
-        mAlarmManager.cancel(mPendingTrackingLayerIntent);
-        if (mReceiverRegistered) {
-            mContext.unregisterReceiver(receiver);
-            mReceiverRegistered = false;
-        }
+        stopPolling();
 
         unsubscribeFromUpdates();
     }
@@ -354,6 +401,9 @@ public class TrackingLayer extends Layer {
             Timber.tag(DEBUG).d("Removed %s", shape.getTitle());
         }
         mFeatures.clear();
+        mSymbols.clear();
+        mRenderedFeatures.clear();
+        mDirectionalFeatures.clear();
     }
 
     @Override
@@ -365,4 +415,23 @@ public class TrackingLayer extends Layer {
         mFeatures.add(symbol);
         symbol.addToMap();
     }
+
+    /**
+     * The parsed state of a tracking layer feature that is new or has changed since the last refresh.
+     */
+    private static final class SymbolUpdate {
+
+        private final TrackingLayerFeature feature;
+        private final TrackingLayerFeature previous;
+        private String title;
+        private BitmapDescriptor icon;
+        private boolean directional;
+        private float rotation;
+
+        private SymbolUpdate(TrackingLayerFeature feature, TrackingLayerFeature previous, boolean directional) {
+            this.feature = feature;
+            this.previous = previous;
+            this.directional = directional;
+        }
+    }
 }
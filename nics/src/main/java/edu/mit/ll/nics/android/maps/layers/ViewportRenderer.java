@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.layers;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import edu.mit.ll.nics.android.maps.MapMutationScheduler;
+import edu.mit.ll.nics.android.maps.layers.FeatureIndex.Cluster;
+import edu.mit.ll.nics.android.maps.layers.FeatureIndex.Item;
+import edu.mit.ll.nics.android.maps.layers.FeatureIndex.Plan;
+import edu.mit.ll.nics.android.maps.markup.MarkupBaseShape;
+
+/**
+ * Renders the features of a data layer for the visible region of the map only. The features are
+ * kept in a {@link FeatureIndex}, and map objects are only created for the features inside the
+ * visible region plus a margin, or for the clusters of points at low zoom levels.
+ *
+ * Every update is planned on a background executor, the missing shapes are built in parallel by the
+ * {@link ShapeAssembler}, and the result is applied in one batch through the
+ * {@link MapMutationScheduler}. Shapes that leave the visible region are kept in a bounded pool, so
+ * that they don't need to be rebuilt when the camera moves back, and cluster markers are reused
+ * instead of being removed and added again.
+ *
+ * Apart from the constructor, the methods must be called on the main thread.
+ */
+public class ViewportRenderer<F> {
+
+    public interface ShapeFactory<F> {
+        MarkupBaseShape create(F feature);
+    }
+
+    // Number of shapes that are kept off the map for reuse.
+    private static final int MAX_RECYCLED = 500;
+
+    // Number of hidden cluster markers that are kept for reuse.
+    private static final int MAX_CLUSTER_POOL = 64;
+
+    private static final int[] CLUSTER_BUCKETS = {5000, 1000, 500, 250, 100, 50, 25, 10};
+
+    private final GoogleMap mMap;
+    private final FeatureIndex<F> mIndex;
+    private final ShapeFactory<F> mFactory;
+    private final Executor mExecutor;
+    private final MapMutationScheduler mScheduler;
+
+    private final HashSet<Item<F>> mShown = new HashSet<>();
+    private final ArrayList<Marker> mClusters = new ArrayList<>();
+    private final ArrayList<String> mClusterLabels = new ArrayList<>();
+    private final ArrayDeque<Marker> mClusterPool = new ArrayDeque<>();
+    private final HashMap<String, BitmapDescriptor> mClusterIcons = new HashMap<>();
+    private final LinkedHashMap<Item<F>, Boolean> mRecycled = new LinkedHashMap<Item<F>, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Item<F>, Boolean> eldest) {
+            if (size() > MAX_RECYCLED) {
+                eldest.getKey().shape = null;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private long mGeneration;
+    private boolean mClickable = true;
+    private volatile long mLastPlanTime;
+    private long mLastApplyTime;
+
+    public ViewportRenderer(GoogleMap map,
+                            MapMutationScheduler scheduler,
+                            Executor executor,
+                            List<F> features,
+                            Function<F, List<LatLng>> coordinates,
+                            Predicate<F> isPoint,
+                            ShapeFactory<F> factory) {
+        mMap = map;
+        mScheduler = scheduler;
+        mExecutor = executor;
+        mFactory = factory;
+        mIndex = new FeatureIndex<>(features, coordinates, isPoint);
+    }
+
+    /**
+     * Show the features for the provided visible region. Called when the layer is added to the map
+     * and whenever the camera becomes idle.
+     *
+     * @param bounds The visible region of the map.
+     * @param zoom The zoom level of the camera.
+     */
+    public void update(LatLngBounds bounds, float zoom) {
+        long generation = ++mGeneration;
+
+        mExecutor.execute(() -> {
+            long start = System.nanoTime();
+            Plan<F> plan = mIndex.plan(bounds.southwest.latitude, bounds.southwest.longitude,
+                    bounds.northeast.latitude, bounds.northeast.longitude, zoom);
+
+            // Build the shapes that aren't available yet off the main thread.
+            List<MarkupBaseShape> shapes = ShapeAssembler.assemble(mExecutor, plan.items, item -> {
+                MarkupBaseShape shape = item.shape;
+                return shape != null ? shape : mFactory.create(item.feature);
+            });
+
+            mLastPlanTime = System.nanoTime() - start;
+            mScheduler.post(() -> apply(generation, plan, shapes));
+        });
+    }
+
+    private void apply(long generation, Plan<F> plan, List<MarkupBaseShape> shapes) {
+        if (generation != mGeneration) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (Item<F> item : plan.items) {
+            item.wanted = generation;
+        }
+
+        Iterator<Item<F>> iterator = mShown.iterator();
+        while (iterator.hasNext()) {
+            Item<F> item = iterator.next();
+            if (item.wanted != generation) {
+                iterator.remove();
+                mScheduler.post(() -> hide(item));
+            }
+        }
+
+        for (int i = 0; i < shapes.size(); i++) {
+            Item<F> item = plan.items.get(i);
+            MarkupBaseShape shape = shapes.get(i);
+            if (shape == null) {
+                // The factory couldn't build a shape for the feature, so there is nothing to show.
+                if (!item.onMap) {
+                    mShown.remove(item);
+                }
+            } else if (mShown.add(item) || !item.onMap) {
+                // Post again for items that an earlier show skipped, so that they don't stay off the map.
+                mScheduler.post(() -> show(item, shape));
+            }
+        }
+
+        List<Cluster> clusters = plan.clusters;
+        for (int i = 0; i < clusters.size(); i++) {
+            int index = i;
+            mScheduler.post(() -> {
+                if (generation == mGeneration) {
+                    showCluster(index, clusters.get(index));
+                }
+            });
+        }
+        mScheduler.post(() -> {
+            if (generation == mGeneration) {
+                trimClusters(clusters.size());
+            }
+        });
+
+        mLastApplyTime = System.nanoTime() - start;
+    }
+
+    private void show(Item<F> item, MarkupBaseShape shape) {
+        // The item may no longer be wanted by a newer update, or the layer may have been cleared.
+        if (item.onMap || !mShown.contains(item)) {
+            return;
+        }
+
+        if (item.shape == null) {
+            item.shape = shape;
+        }
+
+        mRecycled.remove(item);
+        item.shape.addToMap();
+        item.shape.setClickable(mClickable);
+        item.onMap = true;
+    }
+
+    private void hide(Item<F> item) {
+        // The item may have been wanted again by a newer update before this ran.
+        if (!item.onMap || mShown.contains(item)) {
+            return;
+        }
+
+        item.shape.removeFromMap();
+        item.onMap = false;
+        mRecycled.put(item, Boolean.TRUE);
+    }
+
+    private void showCluster(int index, Cluster cluster) {
+        String label = getClusterLabel(cluster.count);
+
+        if (index < mClusters.size()) {
+            Marker marker = mClusters.get(index);
+            marker.setPosition(cluster.position);
+            if (!label.equals(mClusterLabels.get(index))) {
+                marker.setIcon(getClusterIcon(label));
+                mClusterLabels.set(index, label);
+            }
+            return;
+        }
+
+        Marker marker = mClusterPool.poll();
+        if (marker != null) {
+            marker.setPosition(cluster.position);
+            marker.setIcon(getClusterIcon(label));
+            marker.setVisible(true);
+        } else {
+            marker = mMap.addMarker(new MarkerOptions()
+                    .position(cluster.position)
+                    .icon(getClusterIcon(label))
+                    .anchor(0.5f, 0.5f));
+        }
+
+        if (marker != null) {
+            mClusters.add(marker);
+            mClusterLabels.add(label);
+        }
+    }
+
+    private void trimClusters(int count) {
+        while (mClusters.size() > count) {
+            int last = mClusters.size() - 1;
+            Marker marker = mClusters.remove(last);
+            mClusterLabels.remove(last);
+
+            if (mClusterPool.size() < MAX_CLUSTER_POOL) {
+                marker.setVisible(false);
+                mClusterPool.add(marker);
+            } else {
+                marker.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes every shape and cluster of the layer from the map and releases them.
+     */
+    public void clear() {
+        mGeneration++;
+
+        for (Item<F> item : mShown) {
+            if (item.onMap) {
+                item.shape.removeFromMap();
+                item.onMap = false;
+            }
+            item.shape = null;
+        }
+        mShown.clear();
+
+        for (Item<F> item : mRecycled.keySet()) {
+            item.shape = null;
+        }
+        mRecycled.clear();
+
+        for (Marker marker : mClusters) {
+            marker.remove();
+        }
+        for (Marker marker : mClusterPool) {
+            marker.remove();
+        }
+        mClusters.clear();
+        mClusterLabels.clear();
+        mClusterPool.clear();
+    }
+
+    public void setClickable(boolean clickable) {
+        mClickable = clickable;
+
+        for (Item<F> item : mShown) {
+            if (item.onMap) {
+                item.shape.setClickable(clickable);
+            }
+        }
+    }
+
+    /**
+     * @return The shapes that are currently on the map.
+     */
+    public List<MarkupBaseShape> getShownShapes() {
+        ArrayList<MarkupBaseShape> shapes = new ArrayList<>();
+        for (Item<F> item : mShown) {
+            if (item.onMap) {
+                shapes.add(item.shape);
+            }
+        }
+        return shapes;
+    }
+
+    public int getFeatureCount() {
+        return mIndex.size();
+    }
+
+    /**
+     * @return The number of features that are shown individually, including the ones that are
+     * still waiting to be added to the map.
+     */
+    public int getShownCount() {
+        return mShown.size();
+    }
+
+    public int getClusterCount() {
+        return mClusters.size();
+    }
+
+    /**
+     * @return The number of shapes that are kept off the map for reuse.
+     */
+    public int getRecycledCount() {
+        return mRecycled.size();
+    }
+
+    /**
+     * @return The time in nanoseconds that the last update spent on the background executor,
+     * querying the index, clustering and building shapes.
+     */
+    public long getLastPlanTime() {
+        return mLastPlanTime;
+    }
+
+    /**
+     * @return The time in nanoseconds that the last update spent on the main thread diffing the
+     * shown features. The time spent adding the shapes is reported by the
+     * {@link MapMutationScheduler}.
+     */
+    public long getLastApplyTime() {
+        return mLastApplyTime;
+    }
+
+    private BitmapDescriptor getClusterIcon(String label) {
+        BitmapDescriptor icon = mClusterIcons.get(label);
+        if (icon == null) {
+            icon = BitmapDescriptorFactory.fromBitmap(createClusterBitmap(label));
+            mClusterIcons.put(label, icon);
+        }
+        return icon;
+    }
+
+    static String getClusterLabel(int count) {
+        for (int bucket : CLUSTER_BUCKETS) {
+            if (count >= bucket) {
+                return bucket + "+";
+            }
+        }
+        return String.valueOf(count);
+    }
+
+    private static Bitmap createClusterBitmap(String label) {
+        float density = Resources.getSystem().getDisplayMetrics().density;
+        int size = (int) (40 * density);
+        float radius = size / 2f;
+
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.argb(220, 255, 140, 0));
+        canvas.drawCircle(radius, radius, radius, paint);
+
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(2 * density);
+        paint.setColor(Color.WHITE);
+        canvas.drawCircle(radius, radius, radius - density, paint);
+
+        paint.setStyle(Paint.Style.FILL);
+        paint.setTextSize(13 * density);
+        paint.setTypeface(Typeface.DEFAULT_BOLD);
+        paint.setTextAlign(Paint.Align.CENTER);
+        canvas.drawText(label, radius, radius - (paint.descent() + paint.ascent()) / 2, paint);
+
+        return bitmap;
+    }
+}
@@ -34,13 +34,15 @@ import android.graphics.Bitmap;
 import android.graphics.Typeface;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLngBounds;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
 import edu.mit.ll.nics.android.database.entities.LayerFeature;
+import edu.mit.ll.nics.android.maps.MapMutationScheduler;
+import edu.mit.ll.nics.android.maps.markup.FirelineOverlay;
 import edu.mit.ll.nics.android.maps.markup.MarkupBaseShape;
 import edu.mit.ll.nics.android.maps.markup.MarkupFireLine;
 import edu.mit.ll.nics.android.maps.markup.MarkupPolygon;
@@ -58,80 +60,51 @@ public class WfsLayer extends Layer {
 
     private final CollabroomDataLayer mLayer;
     private final PreferencesRepository mPreferences;
+    private final FirelineOverlay mFirelineOverlay;
+    private final ViewportRenderer<LayerFeature> mRenderer;
 
     public WfsLayer(Activity activity,
                     GoogleMap map,
                     CollabroomDataLayer layer,
-                    PreferencesRepository preferences) {
+                    PreferencesRepository preferences,
+                    FirelineOverlay firelineOverlay,
+                    MapMutationScheduler scheduler,
+                    Executor executor) {
         super(activity, map, layer.getDisplayName());
 
         mLayer = layer;
         mPreferences = preferences;
+        mFirelineOverlay = firelineOverlay;
+        mRenderer = new ViewportRenderer<>(map, scheduler, executor, layer.getFeatures(),
+                LayerFeature::getCoordinates, feature -> MarkupType.marker.name().equals(feature.getType()), this::createShape);
     }
 
-    private void addFeaturesToMap() {
-        if (mLayer.getFeatures() != null) {
-            ExecutorService service = Executors.newCachedThreadPool();
-
-            for (LayerFeature feature : mLayer.getFeatures()) {
-                service.execute(() -> addFeature(feature));
-            }
-
-            service.shutdown();
-
-            try {
-                service.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                service.shutdown();
-            }
+    private MarkupBaseShape createShape(LayerFeature feature) {
+        MarkupType type;
+        try {
+            type = MarkupType.valueOf(feature.getType());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Timber.tag(DEBUG).w("Unsupported feature type %s.", feature.getType());
+            return null;
         }
-    }
-
-    private void addFeature(LayerFeature feature) {
-        MarkupType type = MarkupType.valueOf(feature.getType());
 
         switch (type) {
             case marker:
-                addMarker(feature);
-                break;
+                return new MarkupSymbol(mMap, mPreferences, mActivity, feature);
             case polygon:
-                addPolygon(feature);
-                break;
+                return new MarkupPolygon(mMap, mPreferences, mActivity, feature);
             case sketch:
                 String dashStyle = feature.getDashStyle();
                 if (dashStyle == null || dashStyle.isEmpty() || dashStyle.equals("solid")) {
-                    addPolyline(feature);
+                    return new MarkupSegment(mMap, mPreferences, mActivity, feature);
                 } else {
-                    addFireline(feature);
+                    return new MarkupFireLine(mMap, mFirelineOverlay, mPreferences, mActivity, feature);
                 }
-                break;
+            default:
+                return null;
         }
     }
 
-    private void addMarker(LayerFeature feature) {
-        MarkupSymbol symbol = new MarkupSymbol(mMap, mPreferences, mActivity, feature);
-        mFeatures.add(symbol);
-        mActivity.runOnUiThread(symbol::addToMap);
-    }
-
-    private void addPolygon(LayerFeature feature) {
-        MarkupPolygon polygon = new MarkupPolygon(mMap, mPreferences, mActivity, feature);
-        mFeatures.add(polygon);
-        mActivity.runOnUiThread(polygon::addToMap);
-    }
-
-    private void addPolyline(LayerFeature feature) {
-        MarkupSegment polyline = new MarkupSegment(mMap, mPreferences, mActivity, feature);
-        mFeatures.add(polyline);
-        mActivity.runOnUiThread(polyline::addToMap);
-    }
-
-    private void addFireline(LayerFeature feature) {
-        MarkupFireLine fireLine = new MarkupFireLine(mMap, mPreferences, mActivity, feature);
-        mFeatures.add(fireLine);
-        mActivity.runOnUiThread(fireLine::addToMap);
-    }
-
     private Bitmap getMarkerIcon(LayerFeature feature) {
         // Check to see if the label text is set and create a text label bitmap from it.
         if (!feature.getLabelText().isEmpty()) {
@@ -148,15 +121,31 @@ public class WfsLayer extends Layer {
     @Override
     public void removeFromMap() {
         Timber.tag(DEBUG).i("clearFromMap");
-        for (MarkupBaseShape feature : mFeatures) {
-            feature.removeFromMap();
-        }
-        mFeatures.clear();
+        mRenderer.clear();
     }
 
     @Override
     public void addToMap() {
-        addFeaturesToMap();
+        mRenderer.update(mMap.getProjection().getVisibleRegion().latLngBounds, mMap.getCameraPosition().zoom);
+    }
+
+    @Override
+    public void onCameraIdle(LatLngBounds bounds, float zoom) {
+        mRenderer.update(bounds, zoom);
+    }
+
+    @Override
+    public List<MarkupBaseShape> getFeatures() {
+        return mRenderer.getShownShapes();
+    }
+
+    @Override
+    public void setClickable(boolean clickable) {
+        mRenderer.setClickable(clickable);
+    }
+
+    public ViewportRenderer<LayerFeature> getRenderer() {
+        return mRenderer;
     }
 
     @Override
@@ -36,22 +36,22 @@ import com.google.android.gms.maps.model.TileProvider;
 
 import java.util.Map;
 
-import edu.mit.ll.nics.android.api.DownloaderApiService;
 import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
 import edu.mit.ll.nics.android.maps.tileproviders.TileProviderFactory;
+import edu.mit.ll.nics.android.maps.tileproviders.TileStore;
 
 public class WmsLayer extends TiledLayer {
 
     public WmsLayer(Activity activity,
                     CollabroomDataLayer layer,
                     GoogleMap map,
-                    DownloaderApiService downloader) {
-        super(activity, layer, map, downloader, WmsLayer.class.getSimpleName());
+                    TileStore tileStore) {
+        super(activity, layer, map, tileStore, WmsLayer.class.getSimpleName());
     }
 
     @Override
     public TileProvider buildTileProvider() {
         Map<String, String> attributes = mLayer.getDatalayerSource().getAttributes();
-        return TileProviderFactory.buildWmsTileProvider(mLayer.getInternalUrl(), mLayer.getLayername(), new TileProviderFactory.WmsOptions().attributes(attributes), mDownloader);
+        return TileProviderFactory.buildWmsTileProvider(mLayer.getInternalUrl(), mLayer.getLayername(), new TileProviderFactory.WmsOptions().attributes(attributes), mTileStore);
     }
 }
\ No newline at end of file
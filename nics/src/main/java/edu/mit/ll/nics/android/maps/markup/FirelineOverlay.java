@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.markup;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import edu.mit.ll.nics.android.maps.tileproviders.FirelineTileProvider;
+
+/**
+ * The single tile overlay that draws all of the firelines of a map. Firelines add, update and
+ * remove themselves here instead of each adding a tile overlay of their own. The overlay is owned
+ * by the map's {@link edu.mit.ll.nics.android.ui.adapters.MapAdapter} and destroyed with the map.
+ */
+public class FirelineOverlay {
+
+    private final GoogleMap mMap;
+    private final FirelineTileProvider mTileProvider;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mClearPending = new AtomicBoolean(false);
+    private TileOverlay mTileOverlay;
+    private boolean mDestroyed = false;
+
+    public FirelineOverlay(GoogleMap map) {
+        mMap = map;
+        mTileProvider = new FirelineTileProvider(map.getMinZoomLevel(), map.getMaxZoomLevel());
+    }
+
+    /**
+     * Adds the fireline to the overlay, adding the overlay to the map if needed. Must be called on
+     * the main thread.
+     */
+    public void add(MarkupFireLine fireLine) {
+        if (mDestroyed) {
+            return;
+        }
+
+        mTileProvider.updateFireline(fireLine);
+        if (mTileOverlay == null) {
+            mTileOverlay = mMap.addTileOverlay(new TileOverlayOptions().tileProvider(mTileProvider));
+        } else {
+            clearTileCache();
+        }
+    }
+
+    public void update(MarkupFireLine fireLine) {
+        mTileProvider.updateFireline(fireLine);
+    }
+
+    public void remove(MarkupFireLine fireLine) {
+        mTileProvider.removeFireline(fireLine);
+        clearTileCache();
+    }
+
+    /**
+     * Asks the map to request the overlay's tiles again. Requests are coalesced so that a batch of
+     * fireline changes only clears the overlay once. Tiles whose firelines did not change are
+     * served from the tile provider without being drawn again.
+     */
+    public void clearTileCache() {
+        if (mTileOverlay != null && mClearPending.compareAndSet(false, true)) {
+            mMainHandler.post(() -> {
+                mClearPending.set(false);
+                if (mTileOverlay != null) {
+                    mTileOverlay.clearTileCache();
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the overlay from the map and drops every fireline, so nothing keeps the firelines or
+     * the map alive after the map is torn down. Must be called on the main thread.
+     */
+    public void destroy() {
+        mDestroyed = true;
+        mMainHandler.removeCallbacksAndMessages(null);
+        mClearPending.set(false);
+        if (mTileOverlay != null) {
+            mTileOverlay.remove();
+            mTileOverlay = null;
+        }
+        mTileProvider.clear();
+    }
+
+    public int size() {
+        return mTileProvider.size();
+    }
+}
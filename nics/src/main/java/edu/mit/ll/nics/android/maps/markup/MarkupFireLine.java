@@ -37,8 +37,6 @@ import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.GroundOverlayOptions;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
-import com.google.android.gms.maps.model.TileOverlay;
-import com.google.android.gms.maps.model.TileOverlayOptions;
 
 import java.util.ArrayList;
 
@@ -46,24 +44,24 @@ import edu.mit.ll.nics.android.database.entities.LayerFeature;
 import edu.mit.ll.nics.android.database.entities.MarkupFeature;
 import edu.mit.ll.nics.android.database.entities.OverlappingLayerFeature;
 import edu.mit.ll.nics.android.maps.tags.FeatureTag;
-import edu.mit.ll.nics.android.maps.tileproviders.FirelineTileProvider;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
 import edu.mit.ll.nics.android.utils.TouchUtils;
 
 import static edu.mit.ll.nics.android.utils.ColorUtils.BLACK;
 import static edu.mit.ll.nics.android.utils.ColorUtils.colorStringToIntArray;
 import static edu.mit.ll.nics.android.utils.ColorUtils.colorToIntArray;
-import static edu.mit.ll.nics.android.utils.GeoUtils.convertPointsToLatLng;
 
 public class MarkupFireLine extends MarkupBaseShape {
 
-    private TileOverlay mTileOverlay;
-    private FirelineTileProvider mFirelineTileProvider;
+    private final FirelineOverlay mOverlay;
+    private boolean mOnMap;
 
     public MarkupFireLine(GoogleMap map,
+                          FirelineOverlay overlay,
                           PreferencesRepository preferences,
                           Activity activity) {
         super(map, preferences, activity);
+        mOverlay = overlay;
 
         setFeatureId(String.valueOf(getTime()));
         setType(MarkupType.sketch);
@@ -74,10 +72,12 @@ public class MarkupFireLine extends MarkupBaseShape {
     }
 
     public MarkupFireLine(GoogleMap map,
+                          FirelineOverlay overlay,
                           PreferencesRepository preferences,
                           Activity activity,
                           LayerFeature feature) {
         super(map, preferences, activity);
+        mOverlay = overlay;
 
         setDashStyle(feature.getDashStyle());
         setStrokeColor(colorToIntArray(feature.getStrokeColor()));
@@ -86,10 +86,12 @@ public class MarkupFireLine extends MarkupBaseShape {
     }
 
     public MarkupFireLine(GoogleMap map,
+                          FirelineOverlay overlay,
                           PreferencesRepository preferences,
                           Activity activity,
                           OverlappingLayerFeature feature) {
         super(map, preferences, activity);
+        mOverlay = overlay;
 
         setDashStyle(feature.getDashStyle());
         setStrokeColor(colorToIntArray(feature.getStrokeColor()));
@@ -98,10 +100,12 @@ public class MarkupFireLine extends MarkupBaseShape {
     }
 
     public MarkupFireLine(GoogleMap map,
+                          FirelineOverlay overlay,
                           PreferencesRepository preferences,
                           Activity activity,
                           MarkupFeature feature) {
         super(map, preferences, activity);
+        mOverlay = overlay;
 
         setFeature(feature);
         setId(feature.getId());
@@ -115,7 +119,7 @@ public class MarkupFireLine extends MarkupBaseShape {
         setFeatureId(feature.getFeatureId());
         setHazards(feature.getHazards());
         setDashStyle(feature.getDashStyle());
-        setPoints(convertPointsToLatLng(feature.getGeometryVector2()));
+        setPoints(feature.getLatLngs());
         setTag(new FeatureTag(feature));
     }
 
@@ -205,31 +209,27 @@ public class MarkupFireLine extends MarkupBaseShape {
 
     @Override
     public void removeFromMap() {
-        if (mTileOverlay != null) {
-            mTileOverlay.remove();
-            mTileOverlay = null;
+        if (mOnMap) {
+            mOnMap = false;
+            mOverlay.remove(this);
         }
     }
 
     public boolean isOnMap() {
-        return mTileOverlay != null;
+        return mOnMap;
     }
 
     @Override
     public void addToMap() {
-        if (mTileOverlay == null) {
-            mActivity.runOnUiThread(() -> {
-                if (mFirelineTileProvider == null) {
-                    mFirelineTileProvider = new FirelineTileProvider(mMap.getMinZoomLevel(), mMap.getMaxZoomLevel(), this);
-                }
-                mTileOverlay = mMap.addTileOverlay(new TileOverlayOptions().tileProvider(mFirelineTileProvider));
-            });
+        if (!mOnMap) {
+            mOnMap = true;
+            mActivity.runOnUiThread(() -> mOverlay.add(this));
         }
     }
 
     public void refreshTileProvider() {
-        if (mFirelineTileProvider != null) {
-            mFirelineTileProvider.updateFireline(this);
+        if (mOnMap) {
+            mOverlay.update(this);
         }
     }
 
@@ -247,8 +247,8 @@ public class MarkupFireLine extends MarkupBaseShape {
     }
 
     public void clearTileCache() {
-        if (mTileOverlay != null) {
-            mTileOverlay.clearTileCache();
+        if (mOnMap) {
+            mOverlay.clearTileCache();
         }
     }
 
@@ -57,7 +57,6 @@ import static edu.mit.ll.nics.android.utils.ColorUtils.BLACK;
 import static edu.mit.ll.nics.android.utils.ColorUtils.colorArrayToInt;
 import static edu.mit.ll.nics.android.utils.ColorUtils.colorToIntArray;
 import static edu.mit.ll.nics.android.utils.ColorUtils.parseRGBAColorArray;
-import static edu.mit.ll.nics.android.utils.GeoUtils.convertPointsToLatLng;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 
 public class MarkupPolygon extends MarkupBaseShape {
@@ -126,7 +125,7 @@ public class MarkupPolygon extends MarkupBaseShape {
         setVisibility(true);
         setClickable(true);
         setId(feature.getId());
-        setPoints(convertPointsToLatLng(feature.getGeometryVector2()));
+        setPoints(feature.getLatLngs());
         setTitle(feature.getLabelText());
         setType(MarkupType.valueOf(feature.getType()));
         setTime(feature.getSeqTime());
@@ -56,7 +56,6 @@ import static edu.mit.ll.nics.android.utils.ColorUtils.BLACK;
 import static edu.mit.ll.nics.android.utils.ColorUtils.colorArrayToInt;
 import static edu.mit.ll.nics.android.utils.ColorUtils.colorToIntArray;
 import static edu.mit.ll.nics.android.utils.ColorUtils.parseRGBAColorArray;
-import static edu.mit.ll.nics.android.utils.GeoUtils.convertPointsToLatLng;
 
 public class MarkupSegment extends MarkupBaseShape {
 
@@ -114,7 +113,7 @@ public class MarkupSegment extends MarkupBaseShape {
         setClickable(true);
         setVisibility(true);
         setId(feature.getId());
-        setPoints(convertPointsToLatLng(feature.getGeometryVector2()));
+        setPoints(feature.getLatLngs());
         setTitle(feature.getLabelText());
         setType(MarkupType.sketch);
         setTime(feature.getSeqTime());
@@ -41,6 +41,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.target.CustomTarget;
 import com.bumptech.glide.request.transition.Transition;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Marker;
@@ -341,6 +342,14 @@ public class MarkupSymbol extends MarkupBaseShape {
 
     }
 
+    public void setIcon(BitmapDescriptor descriptor) {
+        mMarkerOptions.icon(descriptor);
+
+        if (mMarker != null) {
+            mMarker.setIcon(descriptor);
+        }
+    }
+
     public void showInfoWindow() {
         if (mMarker != null) {
             mMarker.showInfoWindow();
@@ -31,14 +31,12 @@ package edu.mit.ll.nics.android.maps.tileproviders;
 
 import java.util.Locale;
 
-import edu.mit.ll.nics.android.api.DownloaderApiService;
-
 class ArcGISTileProvider extends LayerTileProvider {
 
     // Construct with tile size in pixels, normally 256, see parent class.
     ArcGISTileProvider(String baseUrl, int width, int height,
-                       DownloaderApiService downloader) {
-        super(baseUrl, width, height, downloader);
+                       TileStore tileStore) {
+        super(baseUrl, width, height, tileStore);
     }
 
     @Override
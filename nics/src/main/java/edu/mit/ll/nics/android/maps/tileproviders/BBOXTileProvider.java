@@ -29,6 +29,9 @@
  */
 package edu.mit.ll.nics.android.maps.tileproviders;
 
+import static edu.mit.ll.nics.android.utils.WebMercator.projectX;
+import static edu.mit.ll.nics.android.utils.WebMercator.projectY;
+
 class BBOXTileProvider {
 
     // array indexes for array to hold bounding boxes.
@@ -47,6 +50,9 @@ class BBOXTileProvider {
     // Size of square world map in meters, using WebMerc projection.
     private static final double MAP_SIZE = 20037508.34789244 * 2;
 
+    // Latitude at which the square Web Mercator world map ends.
+    private static final double MAX_LATITUDE = 85.0511287798;
+
     // Return a web Mercator bounding box given tile x/y indexes and a zoom level.
     double[] getBoundingBox(int x, int y, int zoom) {
         double tileSize = MAP_SIZE / Math.pow(2, zoom);
@@ -63,4 +69,21 @@ class BBOXTileProvider {
 
         return bbox;
     }
+
+    // Return the x index of the tile that contains a longitude at a zoom level.
+    static int getTileX(double longitude, int zoom) {
+        int tiles = 1 << zoom;
+        double tileSize = MAP_SIZE / tiles;
+        int x = (int) Math.floor((projectX(longitude) - TILE_ORIGIN[ORIG_X]) / tileSize);
+        return Math.max(0, Math.min(tiles - 1, x));
+    }
+
+    // Return the y index of the tile that contains a latitude at a zoom level.
+    static int getTileY(double latitude, int zoom) {
+        int tiles = 1 << zoom;
+        double tileSize = MAP_SIZE / tiles;
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        int y = (int) Math.floor((TILE_ORIGIN[ORIG_Y] - projectY(clamped)) / tileSize);
+        return Math.max(0, Math.min(tiles - 1, y));
+    }
 }
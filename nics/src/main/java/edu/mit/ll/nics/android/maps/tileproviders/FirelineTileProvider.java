@@ -38,77 +38,183 @@ import android.graphics.Paint.Style;
 import android.graphics.Path;
 import android.graphics.Path.Direction;
 import android.graphics.PathDashPathEffect;
+import android.graphics.PathEffect;
 
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.quadtree.Quadtree;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import edu.mit.ll.nics.android.maps.markup.FirelineType;
 import edu.mit.ll.nics.android.maps.markup.MarkupFireLine;
 import edu.mit.ll.nics.android.maps.tileproviders.MarkupTileProjection.DoublePoint;
 
+/**
+ * Renders every fireline of a map into a single tile overlay. The firelines are kept in a
+ * quadtree by their bounds, so each tile only draws the lines that intersect it.
+ *
+ * Every fireline carries a version that is bumped when it changes. The content version of a tile
+ * is derived from the lines that intersect it, so rendered tiles are reused until one of their own
+ * lines changes, even though Google Maps can only clear the whole overlay at once.
+ */
 public class FirelineTileProvider extends MarkupCanvasTileProvider {
 
-    //TODO need to work out the alpha value for the stroke color. May not need to change the paint color from here since we set it in the fireline object.
-    private int mCurrentZoom;
-    private float mZoomMin;
-    private float mZoomMax;
-    private MarkupFireLine mFireline;
+    private static final PathEffect DASH = new DashPathEffect(new float[]{20, 10}, 0);
 
-    private final Paint mRedPaint;
-    private final Paint mBlackPaint;
-    private final Paint mOrangePaint;
+    private final float mZoomMin;
+    private final float mZoomMax;
 
-    public FirelineTileProvider(float minZoomLevel, float maxZoomLevel, MarkupFireLine fireLine) {
-        mFireline = fireLine;
+    private Quadtree mIndex = new Quadtree();
+    private final Map<MarkupFireLine, Entry> mEntries = new IdentityHashMap<>();
+    private final PathEffect[][] mStamps;
+    private long mNextId = 0;
+
+    private final ThreadLocal<Paints> mPaints = new ThreadLocal<Paints>() {
+        @Override
+        protected Paints initialValue() {
+            return new Paints();
+        }
+    };
+
+    public FirelineTileProvider(float minZoomLevel, float maxZoomLevel) {
         mZoomMin = minZoomLevel;
         mZoomMax = maxZoomLevel;
 
-        mRedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mRedPaint.setStyle(Style.STROKE);
-        mRedPaint.setStrokeWidth(5);
-        mRedPaint.setARGB(255, 255, 0, 0);
+        // The dash stamps only depend on the type and the zoom, so build them once per zoom level.
+        int zoomLevels = (int) Math.ceil(maxZoomLevel) + 1;
+        FirelineType[] types = FirelineType.values();
+        mStamps = new PathEffect[types.length][zoomLevels];
+        for (FirelineType type : types) {
+            for (int zoom = 0; zoom < zoomLevels; zoom++) {
+                mStamps[type.ordinal()][zoom] = createStamp(type, zoom);
+            }
+        }
+    }
+
+    /**
+     * Adds the fireline to the index, or re-indexes it if it has changed since it was added.
+     */
+    public synchronized void updateFireline(MarkupFireLine fireLine) {
+        Entry entry = mEntries.get(fireLine);
+        if (entry == null) {
+            entry = new Entry(mNextId++);
+            mEntries.put(fireLine, entry);
+        } else if (entry.mEnvelope != null) {
+            mIndex.remove(entry.mEnvelope, fireLine);
+        }
+
+        entry.mVersion++;
+        entry.mEnvelope = getEnvelope(fireLine);
+        if (entry.mEnvelope != null) {
+            mIndex.insert(entry.mEnvelope, fireLine);
+        }
+    }
+
+    public synchronized void removeFireline(MarkupFireLine fireLine) {
+        Entry entry = mEntries.remove(fireLine);
+        if (entry != null && entry.mEnvelope != null) {
+            mIndex.remove(entry.mEnvelope, fireLine);
+        }
+    }
 
-        mBlackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mBlackPaint.setStyle(Style.STROKE);
-        mBlackPaint.setStrokeWidth(5);
-        mBlackPaint.setARGB(255, 0, 0, 0);
+    /**
+     * Removes every fireline and drops the rendered tiles.
+     */
+    public synchronized void clear() {
+        mIndex = new Quadtree();
+        mEntries.clear();
+        clearCache();
+    }
 
-        mOrangePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mOrangePaint.setStyle(Style.STROKE);
-        mOrangePaint.setStrokeWidth(5);
-        mOrangePaint.setARGB(255, 247, 148, 30);
+    public synchronized int size() {
+        return mEntries.size();
     }
 
     @Override
-    boolean onDraw(Canvas canvas, MarkupTileProjection projection) {
-       return drawFirelines(canvas, projection);
+    synchronized long getContentVersion(MarkupTileProjection projection) {
+        return getTileVersion(projection.getTileBounds());
     }
 
-    public void updateFireline(MarkupFireLine fireLine) {
-        mFireline = fireLine;
+    @Override
+    boolean onDraw(Canvas canvas, MarkupTileProjection projection) {
+        LatLngBounds bounds = projection.getTileBounds();
+
+        boolean drawn = false;
+        for (MarkupFireLine fireLine : getFirelines(bounds)) {
+            ArrayList<LatLng> coordinates = new ArrayList<>(fireLine.getPoints());
+            if (coordinates.size() > 0 && intersects(bounds, fireLine.getFirelineBounds())) {
+                FirelinePath fp = createPath(coordinates, projection);
+                canvas.drawPath(fp.getPath(), createPaint(canvas, fireLine, fp, projection.getZoom()));
+                drawn = true;
+            }
+        }
+        return drawn;
     }
 
-    private boolean drawFirelines(Canvas canvas, MarkupTileProjection projection) {
-        if (mFireline.getPoints().size() > 0 &&
-                intersects(projection.getTileBounds(), mFireline.getFirelineBounds())) {
-            FirelinePath fp = createPath(mFireline, projection);
-            canvas.drawPath(fp.getPath(), createPaint(canvas, mFireline, fp));
-            return true;
+    private synchronized List<MarkupFireLine> getFirelines(LatLngBounds bounds) {
+        Envelope envelope = toEnvelope(bounds);
+
+        List<MarkupFireLine> firelines = new ArrayList<>();
+        for (Object item : mIndex.query(envelope)) {
+            MarkupFireLine fireLine = (MarkupFireLine) item;
+            Entry entry = mEntries.get(fireLine);
+            if (entry != null && entry.mEnvelope != null && entry.mEnvelope.intersects(envelope)) {
+                firelines.add(fireLine);
+            }
         }
-        return false;
+        return firelines;
     }
 
     /**
-     * Creates a path to draw on the canvas from the LatLng coordinates of the given fireline.
+     * Combines the ids and versions of the firelines that intersect the tile. Returns
+     * {@link #EMPTY_TILE} if no fireline intersects the tile.
      */
-    private FirelinePath createPath(MarkupFireLine feature, MarkupTileProjection projection) {
-        mCurrentZoom = projection.getZoom();
+    private long getTileVersion(LatLngBounds bounds) {
+        Envelope envelope = toEnvelope(bounds);
+
+        long version = EMPTY_TILE;
+        boolean found = false;
+        for (Object item : mIndex.query(envelope)) {
+            Entry entry = mEntries.get(item);
+            if (entry != null && entry.mEnvelope != null && entry.mEnvelope.intersects(envelope)) {
+                long hash = (entry.mId + 1) * 0x9E3779B97F4A7C15L + entry.mVersion;
+                version += hash ^ (hash >>> 29);
+                found = true;
+            }
+        }
+        return found && version == EMPTY_TILE ? 1L : version;
+    }
+
+    private static Envelope getEnvelope(MarkupFireLine fireLine) {
+        ArrayList<LatLng> coordinates = new ArrayList<>(fireLine.getPoints());
+        if (coordinates.size() == 0) {
+            return null;
+        }
 
-        ArrayList<LatLng> coordinates = new ArrayList<>(feature.getPoints());
+        Envelope envelope = new Envelope();
+        for (LatLng coordinate : coordinates) {
+            envelope.expandToInclude(coordinate.longitude, coordinate.latitude);
+        }
+        return envelope;
+    }
+
+    private static Envelope toEnvelope(LatLngBounds bounds) {
+        return new Envelope(bounds.southwest.longitude, bounds.northeast.longitude,
+                bounds.southwest.latitude, bounds.northeast.latitude);
+    }
 
+    /**
+     * Creates a path to draw on the canvas from the LatLng coordinates of the given fireline.
+     */
+    private FirelinePath createPath(ArrayList<LatLng> coordinates, MarkupTileProjection projection) {
         Path path = new Path();
-        float[] points = new float[feature.getPoints().size() * 2];
+        float[] points = new float[coordinates.size() * 2];
         DoublePoint pt = new DoublePoint(0, 0);
 
         for (int i = 0; i < coordinates.size(); i++) {
@@ -130,54 +236,82 @@ public class FirelineTileProvider extends MarkupCanvasTileProvider {
     /**
      * Creates the paint to use when drawing the path on the canvas. The path effect/style is dependant upon the type of fireline.
      */
-    private Paint createPaint(Canvas canvas, MarkupFireLine feature, FirelinePath fp) {
+    private Paint createPaint(Canvas canvas, MarkupFireLine feature, FirelinePath fp, int zoom) {
         Path path = fp.getPath();
         float[] points = fp.getPoints();
 
+        // Tiles are rendered on several threads, so each thread styles its own paints.
+        Paints paints = mPaints.get();
+        Paint blackPaint = paints.mBlackPaint;
+        Paint redPaint = paints.mRedPaint;
+        Paint orangePaint = paints.mOrangePaint;
+
         FirelineType type = FirelineType.lookUp(feature.getDashStyle());
+        PathEffect stamp = getStamp(type, zoom);
         switch (type) {
             case PRIMARY_FIRELINE:
-                mBlackPaint.setPathEffect(new PathDashPathEffect(makeRectangle(scaleBasedOnZoom(6, 10), Math.round(scaleBasedOnZoom(6, 10))),
-                        scaleBasedOnZoom(15, 30), 0, PathDashPathEffect.Style.ROTATE));
-                return mBlackPaint;
             case SECONDARY_FIRELINE:
-                mBlackPaint.setPathEffect(new PathDashPathEffect(makeCircle(scaleBasedOnZoom(2, 4)), scaleBasedOnZoom(15, 30), 0, PathDashPathEffect.Style.ROTATE));
-                return mBlackPaint;
             case COMPLETED_DOZER_LINE:
-                mBlackPaint.setPathEffect(new PathDashPathEffect(makeCross(scaleBasedOnZoom(1.3f, 2), Math.round(scaleBasedOnZoom(4, 5))),
-                        scaleBasedOnZoom(11, 15), 0, PathDashPathEffect.Style.ROTATE));
-                return mBlackPaint;
             case PROPOSED_DOZER_LINE:
-                mBlackPaint.setPathEffect(new PathDashPathEffect(makeCrossWithCircle(scaleBasedOnZoom(1.3f, 2), Math.round(scaleBasedOnZoom(4, 5))),
-                        scaleBasedOnZoom(26, 30), 0, PathDashPathEffect.Style.ROTATE));
-                return mBlackPaint;
+                blackPaint.setPathEffect(stamp);
+                return blackPaint;
             case FIRE_EDGE_LINE:
-                mRedPaint.setPathEffect(null);
-                canvas.drawPath(path, mRedPaint);
-                mRedPaint.setPathEffect(new PathDashPathEffect(makeDash(scaleBasedOnZoom(15, 25)), scaleBasedOnZoom(8, 12), 0, PathDashPathEffect.Style.ROTATE));
-                return mRedPaint;
+                redPaint.setPathEffect(null);
+                canvas.drawPath(path, redPaint);
+                redPaint.setPathEffect(stamp);
+                return redPaint;
             case MANAGEMENT_ACTION_POINT:
-                mOrangePaint.setPathEffect(null);
+                orangePaint.setPathEffect(null);
                 path.addCircle(points[0], points[1] + 2, 4, Direction.CCW);
                 path.addCircle(points[points.length - 2], points[points.length - 1] - 2, 4, Direction.CCW);
-                canvas.drawPath(path, mOrangePaint);
-                return mOrangePaint;
+                canvas.drawPath(path, orangePaint);
+                return orangePaint;
             case FIRE_SPREAD_PREDICTION:
-                mOrangePaint.setPathEffect(new DashPathEffect(new float[]{20, 10}, 0));
-                return mOrangePaint;
+                orangePaint.setPathEffect(stamp);
+                return orangePaint;
+            default:
+                blackPaint.setPathEffect(stamp);
+                return blackPaint;
+        }
+    }
+
+    private PathEffect getStamp(FirelineType type, int zoom) {
+        PathEffect[] stamps = mStamps[type.ordinal()];
+        return stamps[Math.max(0, Math.min(zoom, stamps.length - 1))];
+    }
+
+    /**
+     * Creates the path effect that stamps the pattern of the fireline type along its path.
+     */
+    private PathEffect createStamp(FirelineType type, int zoom) {
+        switch (type) {
+            case PRIMARY_FIRELINE:
+                return new PathDashPathEffect(makeRectangle(scaleBasedOnZoom(zoom, 6, 10), Math.round(scaleBasedOnZoom(zoom, 6, 10))),
+                        scaleBasedOnZoom(zoom, 15, 30), 0, PathDashPathEffect.Style.ROTATE);
+            case SECONDARY_FIRELINE:
+                return new PathDashPathEffect(makeCircle(scaleBasedOnZoom(zoom, 2, 4)), scaleBasedOnZoom(zoom, 15, 30), 0, PathDashPathEffect.Style.ROTATE);
+            case COMPLETED_DOZER_LINE:
+                return new PathDashPathEffect(makeCross(scaleBasedOnZoom(zoom, 1.3f, 2), Math.round(scaleBasedOnZoom(zoom, 4, 5))),
+                        scaleBasedOnZoom(zoom, 11, 15), 0, PathDashPathEffect.Style.ROTATE);
+            case PROPOSED_DOZER_LINE:
+                return new PathDashPathEffect(makeCrossWithCircle(zoom, scaleBasedOnZoom(zoom, 1.3f, 2), Math.round(scaleBasedOnZoom(zoom, 4, 5))),
+                        scaleBasedOnZoom(zoom, 26, 30), 0, PathDashPathEffect.Style.ROTATE);
+            case FIRE_EDGE_LINE:
+                return new PathDashPathEffect(makeDash(scaleBasedOnZoom(zoom, 15, 25)), scaleBasedOnZoom(zoom, 8, 12), 0, PathDashPathEffect.Style.ROTATE);
+            case MANAGEMENT_ACTION_POINT:
+                return null;
             default:
-                mBlackPaint.setPathEffect(new DashPathEffect(new float[]{20, 10}, 0));
-                return mBlackPaint;
+                return DASH;
         }
     }
 
     /**
      * Scales a range of values to match the range of zoom values depending on the current zoom.
      */
-    private float scaleBasedOnZoom(float min, float max) {
+    private float scaleBasedOnZoom(int zoom, float min, float max) {
         float zoomRange = mZoomMax - mZoomMin;
         float newRange = max - min;
-        return ((mCurrentZoom - mZoomMin) * (newRange)) / (zoomRange) + min;
+        return ((zoom - mZoomMin) * (newRange)) / (zoomRange) + min;
     }
 
     private Path makeCircle(float radius) {
@@ -213,7 +347,7 @@ public class FirelineTileProvider extends MarkupCanvasTileProvider {
         return p;
     }
 
-    private Path makeCrossWithCircle(float thickness, int size) {
+    private Path makeCrossWithCircle(int zoom, float thickness, int size) {
         Path p = new Path();
         int i = -size;
         p.moveTo(5, 5);
@@ -223,7 +357,7 @@ public class FirelineTileProvider extends MarkupCanvasTileProvider {
             i++;
         }
 
-        p.addCircle(scaleBasedOnZoom(13, 15), 0, thickness * 2, Direction.CCW);
+        p.addCircle(scaleBasedOnZoom(zoom, 13, 15), 0, thickness * 2, Direction.CCW);
         return p;
     }
 
@@ -253,4 +387,30 @@ public class FirelineTileProvider extends MarkupCanvasTileProvider {
             this.points = points;
         }
     }
+
+    private static class Entry {
+
+        private final long mId;
+        private long mVersion = 0L;
+        private Envelope mEnvelope;
+
+        Entry(long id) {
+            mId = id;
+        }
+    }
+
+    private static class Paints {
+
+        private final Paint mRedPaint = createPaint(255, 0, 0);
+        private final Paint mBlackPaint = createPaint(0, 0, 0);
+        private final Paint mOrangePaint = createPaint(247, 148, 30);
+
+        private static Paint createPaint(int red, int green, int blue) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Style.STROKE);
+            paint.setStrokeWidth(5);
+            paint.setARGB(255, red, green, blue);
+            return paint;
+        }
+    }
 }
@@ -31,30 +31,28 @@ package edu.mit.ll.nics.android.maps.tileproviders;
 
 import com.google.android.gms.maps.model.Tile;
 import com.google.android.gms.maps.model.TileProvider;
+import com.google.common.hash.Hashing;
 
-import edu.mit.ll.nics.android.api.DownloaderApiService;
-import okhttp3.ResponseBody;
-import retrofit2.Call;
-import retrofit2.Response;
-import timber.log.Timber;
+import java.nio.charset.StandardCharsets;
 
 import static edu.mit.ll.nics.android.utils.StringUtils.httpToHttps;
-import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 
 public abstract class LayerTileProvider extends BBOXTileProvider implements TileProvider {
 
     protected final int mWidth;
     protected final int mHeight;
     protected final String mBaseUrl;
-    protected final DownloaderApiService mDownloader;
+    protected final String mLayerKey;
+    protected final TileStore mTileStore;
 
     // Construct with tile size in pixels, normally 256, see parent class.
     LayerTileProvider(String baseUrl, int width, int height,
-                      DownloaderApiService downloader) {
+                      TileStore tileStore) {
         mWidth = width;
         mHeight = height;
         mBaseUrl = baseUrl;
-        mDownloader = downloader;
+        mLayerKey = Hashing.sha256().hashString(baseUrl, StandardCharsets.UTF_8).toString();
+        mTileStore = tileStore;
     }
 
     protected abstract String getTileUrl(int x, int y, int zoom);
@@ -63,24 +61,26 @@ public abstract class LayerTileProvider extends BBOXTileProvider implements Tile
     public Tile getTile(int x, int y, int zoom) {
         String url = getTileUrl(x, y, zoom);
         if (!url.isEmpty()) {
-            try {
-                url = httpToHttps(url);
-                Call<ResponseBody> call = mDownloader.download(url);
-                Response<ResponseBody> response = call.execute();
-                if (response.body() != null) {
-                    try {
-                        return new Tile(mWidth, mHeight, response.body().bytes());
-                    } catch (Exception e) {
-                        Timber.tag(DEBUG).w(e, "Failed to get tile byte data.");
-                    }
-                } else {
-                    Timber.tag(DEBUG).w("Empty tile data response for tile.");
-                }
-            } catch (Exception e) {
-                Timber.tag(DEBUG).w(e, "getTile Failed.");
+            byte[] data = mTileStore.getTile(mLayerKey, httpToHttps(url), x, y, zoom);
+            if (data != null) {
+                return new Tile(mWidth, mHeight, data);
             }
         }
 
         return NO_TILE;
     }
+
+    /**
+     * Downloads a tile of this layer into the offline tiles of the {@link TileStore}.
+     *
+     * @return False if the tile couldn't be downloaded and should be retried later.
+     */
+    public boolean seed(int x, int y, int zoom) {
+        String url = getTileUrl(x, y, zoom);
+        return url.isEmpty() || mTileStore.seed(mLayerKey, httpToHttps(url), x, y, zoom);
+    }
+
+    public void clearOffline() {
+        mTileStore.clearOffline(mLayerKey);
+    }
 }
\ No newline at end of file
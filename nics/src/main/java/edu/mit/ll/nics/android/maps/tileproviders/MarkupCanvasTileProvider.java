@@ -37,6 +37,8 @@ import android.graphics.Color;
 import com.google.android.gms.maps.model.Tile;
 import com.google.android.gms.maps.model.TileProvider;
 
+import java.io.ByteArrayOutputStream;
+
 import timber.log.Timber;
 
 import static edu.mit.ll.nics.android.utils.BitmapUtils.bitmapToByteArray;
@@ -44,11 +46,21 @@ import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 
 abstract class MarkupCanvasTileProvider implements TileProvider {
 
-    private static final int TILE_SIZE = 512;
-    private final BitmapThreadLocal bitmapThreadLocal;
+    static final int TILE_SIZE = 512;
+
+    /**
+     * Content version of a tile that has nothing to draw.
+     */
+    static final long EMPTY_TILE = 0L;
+
+    private static final long MAX_CACHE_BYTES = 8L * 1024 * 1024;
+    private static final int ENCODE_BUFFER_SIZE = 64 * 1024;
+
+    private final RenderTargetThreadLocal renderTargetThreadLocal;
+    private final TileCache mCache = new TileCache(MAX_CACHE_BYTES);
 
     MarkupCanvasTileProvider() {
-        bitmapThreadLocal = new BitmapThreadLocal();
+        renderTargetThreadLocal = new RenderTargetThreadLocal();
     }
 
     @Override
@@ -57,12 +69,25 @@ abstract class MarkupCanvasTileProvider implements TileProvider {
         try {
             MarkupTileProjection projection = new MarkupTileProjection(TILE_SIZE, x, y, zoom);
 
-            byte[] data;
-            Bitmap image = getNewBitmap();
-            Canvas canvas = new Canvas(image);
-            if (onDraw(canvas, projection)) {
-                data = bitmapToByteArray(image);
+            // Skip tiles that have nothing on them without drawing or encoding anything.
+            long version = getContentVersion(projection);
+            if (version == EMPTY_TILE) {
+                return NO_TILE;
+            }
+
+            tile = mCache.get(x, y, zoom, version);
+            if (tile != null) {
+                return tile;
+            }
+
+            RenderTarget target = getRenderTarget();
+            if (onDraw(target.mCanvas, projection)) {
+                target.mStream.reset();
+                byte[] data = bitmapToByteArray(target.mBitmap, target.mStream);
                 tile = new Tile(TILE_SIZE, TILE_SIZE, data);
+                mCache.put(x, y, zoom, version, tile);
+            } else {
+                tile = NO_TILE;
             }
         } catch (Exception e) {
             Timber.tag(DEBUG).w(e, "Failed to load tile.");
@@ -77,24 +102,46 @@ abstract class MarkupCanvasTileProvider implements TileProvider {
     abstract boolean onDraw(Canvas canvas, MarkupTileProjection projection);
 
     /**
-     * Get an empty bitmap, which may however be reused from a previous call in
-     * the same thread.
+     * Gets a version of the content of the tile, which must change whenever anything drawn on the
+     * tile changes. Rendered tiles are cached and reused for as long as their version is the same.
      *
-     * @return Bitmap
+     * @return The content version, or {@link #EMPTY_TILE} if there is nothing to draw on the tile.
      */
-    private Bitmap getNewBitmap() {
-        Bitmap bitmap = bitmapThreadLocal.get();
+    abstract long getContentVersion(MarkupTileProjection projection);
+
+    /**
+     * Drops all of the rendered tiles.
+     */
+    void clearCache() {
+        mCache.clear();
+    }
+
+    /**
+     * Get a cleared render target, which may however be reused from a previous call in the same
+     * thread.
+     *
+     * @return RenderTarget
+     */
+    private RenderTarget getRenderTarget() {
+        RenderTarget target = renderTargetThreadLocal.get();
         // Clear the previous bitmap
-        if (bitmap != null) {
-            bitmap.eraseColor(Color.TRANSPARENT);
+        if (target != null) {
+            target.mBitmap.eraseColor(Color.TRANSPARENT);
         }
-        return bitmap;
+        return target;
+    }
+
+    private static class RenderTarget {
+
+        private final Bitmap mBitmap = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Config.ARGB_8888);
+        private final Canvas mCanvas = new Canvas(mBitmap);
+        private final ByteArrayOutputStream mStream = new ByteArrayOutputStream(ENCODE_BUFFER_SIZE);
     }
 
-    static class BitmapThreadLocal extends ThreadLocal<Bitmap> {
+    static class RenderTargetThreadLocal extends ThreadLocal<RenderTarget> {
         @Override
-        protected Bitmap initialValue() {
-            return Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Config.ARGB_8888);
+        protected RenderTarget initialValue() {
+            return new RenderTarget();
         }
     }
 }
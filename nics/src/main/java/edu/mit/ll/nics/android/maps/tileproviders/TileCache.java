@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.tileproviders;
+
+import com.google.android.gms.maps.model.Tile;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of encoded tiles that is bounded by the size of the tile data. Each
+ * tile is stored with the content version it was rendered for, and is only served for a request
+ * of that same version.
+ */
+class TileCache {
+
+    private final long mMaxBytes;
+    private final LinkedHashMap<Long, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mBytes = 0L;
+    private long mHits = 0L;
+    private long mMisses = 0L;
+
+    TileCache(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    synchronized Tile get(int x, int y, int zoom, long version) {
+        Entry entry = mEntries.get(key(x, y, zoom));
+        if (entry != null && entry.mVersion == version) {
+            mHits++;
+            return entry.mTile;
+        }
+
+        mMisses++;
+        return null;
+    }
+
+    synchronized void put(int x, int y, int zoom, long version, Tile tile) {
+        Entry previous = mEntries.put(key(x, y, zoom), new Entry(version, tile));
+        if (previous != null) {
+            mBytes -= size(previous.mTile);
+        }
+        mBytes += size(tile);
+
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            mBytes -= size(iterator.next().mTile);
+            iterator.remove();
+        }
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+        mBytes = 0L;
+    }
+
+    synchronized long getBytes() {
+        return mBytes;
+    }
+
+    synchronized long getHitCount() {
+        return mHits;
+    }
+
+    synchronized long getMissCount() {
+        return mMisses;
+    }
+
+    private static long key(int x, int y, int zoom) {
+        // Zoom levels stop well short of 2^26 tiles a side, so the coordinates fit in 27 bits each.
+        return ((long) zoom << 54) | ((long) x << 27) | y;
+    }
+
+    private static int size(Tile tile) {
+        return tile.data != null ? tile.data.length : 0;
+    }
+
+    private static class Entry {
+
+        private final long mVersion;
+        private final Tile mTile;
+
+        Entry(long version, Tile tile) {
+            mVersion = version;
+            mTile = tile;
+        }
+    }
+}
@@ -31,20 +31,45 @@ package edu.mit.ll.nics.android.maps.tileproviders;
 
 import android.net.Uri;
 
-import com.google.android.gms.maps.model.TileProvider;
-
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 
-import edu.mit.ll.nics.android.api.DownloaderApiService;
+import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
+import edu.mit.ll.nics.android.maps.layers.LayerType;
 
 public class TileProviderFactory {
 
-    public static TileProvider buildWmsTileProvider(String baseUrl, String layerNames,
-                                                    WmsOptions options, DownloaderApiService downloader) {
+    /**
+     * Build the tile provider for a collabroom layer that is drawn from raster tiles.
+     *
+     * @return The tile provider, or null if the layer isn't a WMS or ArcGIS layer.
+     */
+    public static LayerTileProvider buildLayerTileProvider(CollabroomDataLayer layer, TileStore tileStore) {
+        LayerType type = LayerType.lookUp(layer.getTypeName());
+
+        if (LayerType.WMS.equals(type)) {
+            Map<String, String> attributes = layer.getDatalayerSource().getAttributes();
+            return buildWmsTileProvider(layer.getInternalUrl(), layer.getLayername(), new WmsOptions().attributes(attributes), tileStore);
+        } else if (LayerType.ARCGIS_REST.equals(type)) {
+            return buildArcGISTileProvider(layer.getInternalUrl(), new ArcGISOptions(), tileStore);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return Whether the layer is drawn from raster tiles, i.e. whether it has a tile provider.
+     */
+    public static boolean isTiled(CollabroomDataLayer layer) {
+        LayerType type = LayerType.lookUp(layer.getTypeName());
+        return LayerType.WMS.equals(type) || LayerType.ARCGIS_REST.equals(type);
+    }
+
+    public static LayerTileProvider buildWmsTileProvider(String baseUrl, String layerNames,
+                                                         WmsOptions options, TileStore tileStore) {
         String layers = Uri.encode(layerNames);
 
         StringBuilder url = new StringBuilder(baseUrl +
@@ -72,17 +97,17 @@ public class TileProviderFactory {
             }
         }
 
-        return new WMSTileProvider(url.toString(), options.width, options.height, downloader);
+        return new WMSTileProvider(url.toString(), options.width, options.height, tileStore);
     }
 
-    public static TileProvider buildArcGISTileProvider(String baseUrl, ArcGISOptions options,
-                                                       DownloaderApiService downloader) {
+    public static LayerTileProvider buildArcGISTileProvider(String baseUrl, ArcGISOptions options,
+                                                            TileStore tileStore) {
         String url = baseUrl +
                 "/export?F=" + options.format +
                 "&FORMAT=" + options.formatDesc +
                 "&TRANSPARENT=" + options.transparent +
                 "&LAYERS=show%3A0";
-        return new ArcGISTileProvider(url, options.width, options.height, downloader);
+        return new ArcGISTileProvider(url, options.width, options.height, tileStore);
     }
 
     public static class ArcGISOptions {
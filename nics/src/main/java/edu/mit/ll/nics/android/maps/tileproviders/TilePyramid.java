@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.tileproviders;
+
+import static edu.mit.ll.nics.android.maps.tileproviders.BBOXTileProvider.getTileX;
+import static edu.mit.ll.nics.android.maps.tileproviders.BBOXTileProvider.getTileY;
+
+/**
+ * The Web Mercator tiles that cover an area over a range of zoom levels. The tiles are visited in
+ * a fixed order, from the lowest zoom level up, so that the coarse tiles of an area are available
+ * first if the visit is interrupted. An area whose west edge is east of its east edge crosses the
+ * antimeridian, and is split into the columns on either side of it.
+ */
+public class TilePyramid {
+
+    public interface Visitor {
+
+        /**
+         * @return False to stop visiting the remaining tiles.
+         */
+        boolean visit(int x, int y, int zoom);
+    }
+
+    private final double mSouth;
+    private final double mWest;
+    private final double mNorth;
+    private final double mEast;
+    private final int mMinZoom;
+    private final int mMaxZoom;
+
+    public TilePyramid(double south, double west, double north, double east, int minZoom, int maxZoom) {
+        mSouth = Math.min(south, north);
+        mNorth = Math.max(south, north);
+        mWest = west;
+        mEast = east;
+        mMinZoom = Math.max(0, Math.min(minZoom, maxZoom));
+        mMaxZoom = Math.max(minZoom, maxZoom);
+    }
+
+    public int getMinZoom() {
+        return mMinZoom;
+    }
+
+    public int getMaxZoom() {
+        return mMaxZoom;
+    }
+
+    public long getTileCount() {
+        long count = 0;
+        for (int zoom = mMinZoom; zoom <= mMaxZoom; zoom++) {
+            count += getTileCount(zoom);
+        }
+        return count;
+    }
+
+    public long getTileCount(int zoom) {
+        int[] columns = getColumns(zoom);
+        long rows = getTileY(mSouth, zoom) - getTileY(mNorth, zoom) + 1;
+
+        long count = 0;
+        for (int i = 0; i < columns.length; i += 2) {
+            count += (columns[i + 1] - columns[i] + 1) * rows;
+        }
+        return count;
+    }
+
+    /**
+     * Visits every tile of the pyramid.
+     *
+     * @param visitor The visitor to call with each tile.
+     * @return False if the visitor stopped the visit early.
+     */
+    public boolean forEach(Visitor visitor) {
+        for (int zoom = mMinZoom; zoom <= mMaxZoom; zoom++) {
+            int[] columns = getColumns(zoom);
+            int minY = getTileY(mNorth, zoom);
+            int maxY = getTileY(mSouth, zoom);
+
+            for (int i = 0; i < columns.length; i += 2) {
+                for (int x = columns[i]; x <= columns[i + 1]; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        if (!visitor.visit(x, y, zoom)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the inclusive ranges of tile columns that the area covers at a zoom level, as pairs of
+     * the first and last column. An area that crosses the antimeridian has a range on each side.
+     */
+    private int[] getColumns(int zoom) {
+        int minX = getTileX(mWest, zoom);
+        int maxX = getTileX(mEast, zoom);
+        if (mWest <= mEast) {
+            return new int[]{minX, maxX};
+        }
+
+        int lastX = (1 << zoom) - 1;
+        if (maxX >= minX) {
+            // Both sides share a column, so together they wrap around the whole world.
+            return new int[]{0, lastX};
+        }
+        return new int[]{minX, lastX, 0, maxX};
+    }
+}
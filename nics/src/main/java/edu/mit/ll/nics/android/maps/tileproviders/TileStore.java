@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.tileproviders;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import edu.mit.ll.nics.android.api.DownloaderApiService;
+import edu.mit.ll.nics.android.di.Qualifiers.NetworkExecutor;
+import okhttp3.CacheControl;
+import okhttp3.Headers;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import timber.log.Timber;
+
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_OFFLINE_TILE_FOLDER;
+import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_TILE_CACHE_FOLDER;
+
+/**
+ * Process wide disk cache of the tiles that are downloaded by the WMS and ArcGIS tile providers.
+ * Tiles are stored in a file tree keyed by layer and z/x/y, together with the ETag and expiration
+ * time that the server returned for them. The total size on disk is bounded, and the least recently
+ * used tiles are evicted first.
+ *
+ * A cached tile is always served immediately. If it has expired, it is revalidated in the
+ * background with a conditional request, so that the next request for the tile gets the fresh copy.
+ *
+ * Tiles can also be seeded ahead of time for offline use. Seeded tiles are kept in a separate
+ * directory that is neither size bounded nor cleared by the system, and they are served whenever
+ * the tile isn't in the cache.
+ *
+ * The methods that can download or read from disk are blocking and must not be called from the
+ * main thread.
+ */
+@Singleton
+public class TileStore {
+
+    private static final long MAX_DISK_BYTES = 100 * 1024 * 1024;
+    private static final long DEFAULT_MAX_AGE_MS = 60 * 60 * 1000L;
+    private static final long DEFAULT_TILE_BYTES = 32 * 1024;
+    private static final long NO_STORE = Long.MIN_VALUE;
+    private static final int MAGIC = 0x4e544c31;
+    private static final int NOT_MODIFIED = 304;
+
+    private final File mDirectory;
+    private final File mOfflineDirectory;
+    private final long mMaxBytes;
+    private final DownloaderApiService mDownloader;
+    private final Executor mExecutor;
+    private final ConcurrentHashMap<String, Boolean> mRevalidating = new ConcurrentHashMap<>();
+
+    // Relative path of every tile on disk to its size, in least recently used order.
+    private final LinkedHashMap<String, Long> mIndex = new LinkedHashMap<>(256, 0.75f, true);
+    private long mBytes;
+    private boolean mLoaded;
+
+    @Inject
+    public TileStore(@ApplicationContext Context context,
+                     DownloaderApiService downloader,
+                     @NetworkExecutor ExecutorService executor) {
+        this(new File(context.getCacheDir() + NICS_TILE_CACHE_FOLDER),
+                new File(context.getFilesDir() + NICS_OFFLINE_TILE_FOLDER),
+                MAX_DISK_BYTES, downloader, executor);
+    }
+
+    TileStore(File directory, File offlineDirectory, long maxBytes,
+              DownloaderApiService downloader, Executor executor) {
+        mDirectory = directory;
+        mOfflineDirectory = offlineDirectory;
+        mMaxBytes = maxBytes;
+        mDownloader = downloader;
+        mExecutor = executor;
+    }
+
+    /**
+     * Get the tile data for the provided tile of a layer. The tile is downloaded from the url if it
+     * isn't on disk yet, and revalidated in the background if the copy on disk has expired.
+     *
+     * @param layer A key that identifies the layer, must be usable as a file name.
+     * @param url The url to download the tile from.
+     * @param x The x coordinate of the tile.
+     * @param y The y coordinate of the tile.
+     * @param zoom The zoom level of the tile.
+     * @return The tile data, or null if the tile couldn't be downloaded.
+     */
+    @Nullable
+    public byte[] getTile(String layer, String url, int x, int y, int zoom) {
+        String key = getKey(layer, x, y, zoom);
+
+        boolean offline = false;
+        Entry cached = get(key);
+        if (cached == null) {
+            cached = getOffline(key);
+            offline = cached != null;
+        }
+
+        if (cached != null) {
+            if (cached.expires <= System.currentTimeMillis()) {
+                revalidate(key, url, cached, offline);
+            }
+            return cached.data;
+        }
+
+        Entry entry = download(url, null);
+        if (entry == null) {
+            return null;
+        }
+
+        put(key, entry);
+        return entry.data;
+    }
+
+    /**
+     * Downloads the provided tile of a layer into the offline tiles. A tile that is already seeded
+     * and hasn't expired is skipped, so that an interrupted seed can be resumed cheaply.
+     *
+     * @param layer A key that identifies the layer, must be usable as a file name.
+     * @param url The url to download the tile from.
+     * @param x The x coordinate of the tile.
+     * @param y The y coordinate of the tile.
+     * @param zoom The zoom level of the tile.
+     * @return False if the tile couldn't be downloaded and should be retried later.
+     */
+    public boolean seed(String layer, String url, int x, int y, int zoom) {
+        String key = getKey(layer, x, y, zoom);
+
+        Entry seeded = getOffline(key);
+        if (seeded != null && seeded.expires > System.currentTimeMillis()) {
+            return true;
+        }
+
+        Entry entry = download(url, seeded);
+        if (entry == null) {
+            return false;
+        }
+
+        putOffline(key, entry);
+        return true;
+    }
+
+    /**
+     * Estimates the disk space that the provided number of tiles will take up, based upon the
+     * average size of the tiles that are already cached.
+     *
+     * @param tiles The number of tiles.
+     * @return The estimated size in bytes.
+     */
+    public synchronized long estimateBytes(long tiles) {
+        load();
+        return tiles * (mIndex.isEmpty() ? DEFAULT_TILE_BYTES : mBytes / mIndex.size());
+    }
+
+    /**
+     * Removes every seeded tile of the provided layer from disk.
+     *
+     * @param layer The key of the layer.
+     */
+    public void clearOffline(String layer) {
+        File directory = new File(mOfflineDirectory, layer);
+        File[] tiles = directory.listFiles();
+        if (tiles != null) {
+            for (File tile : tiles) {
+                tile.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Removes every tile of the provided layer from disk.
+     *
+     * @param layer The key of the layer.
+     */
+    public synchronized void clear(String layer) {
+        load();
+
+        String prefix = layer + File.separator;
+        Iterator<Map.Entry<String, Long>> iterator = mIndex.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> tile = iterator.next();
+            if (tile.getKey().startsWith(prefix)) {
+                new File(mDirectory, tile.getKey()).delete();
+                mBytes -= tile.getValue();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized long getBytes() {
+        load();
+        return mBytes;
+    }
+
+    @Nullable
+    Entry get(String key) {
+        synchronized (this) {
+            load();
+            if (mIndex.get(key) == null) {
+                return null;
+            }
+        }
+
+        File file = new File(mDirectory, key);
+        try {
+            Entry entry = read(file);
+            file.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException e) {
+            Timber.tag(DEBUG).w(e, "Failed to read cached tile %s", key);
+            remove(key);
+            return null;
+        }
+    }
+
+    @Nullable
+    Entry getOffline(String key) {
+        File file = new File(mOfflineDirectory, key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            return read(file);
+        } catch (IOException e) {
+            Timber.tag(DEBUG).w(e, "Failed to read offline tile %s", key);
+            file.delete();
+            return null;
+        }
+    }
+
+    void put(String key, Entry entry) {
+        File file = new File(mDirectory, key);
+        if (entry.expires == NO_STORE || !write(file, entry)) {
+            return;
+        }
+
+        synchronized (this) {
+            load();
+            Long previous = mIndex.put(key, file.length());
+            mBytes += file.length() - (previous != null ? previous : 0);
+            trim();
+        }
+    }
+
+    void putOffline(String key, Entry entry) {
+        if (entry.expires != NO_STORE) {
+            write(new File(mOfflineDirectory, key), entry);
+        }
+    }
+
+    private void revalidate(String key, String url, Entry stale, boolean offline) {
+        if (mRevalidating.putIfAbsent(key, Boolean.TRUE) == null) {
+            mExecutor.execute(() -> {
+                try {
+                    Entry entry = download(url, stale);
+                    if (entry != null && offline) {
+                        putOffline(key, entry);
+                    } else if (entry != null) {
+                        put(key, entry);
+                    }
+                } finally {
+                    mRevalidating.remove(key);
+                }
+            });
+        }
+    }
+
+    @Nullable
+    private Entry download(String url, @Nullable Entry stale) {
+        try {
+            Response<ResponseBody> response = mDownloader.download(url, stale != null ? stale.etag : null).execute();
+            Headers headers = response.headers();
+
+            if (response.code() == NOT_MODIFIED && stale != null) {
+                String etag = headers.get("ETag");
+                return new Entry(stale.data, etag != null ? etag : stale.etag, getExpires(headers));
+            }
+
+            try (ResponseBody body = response.body()) {
+                if (response.isSuccessful() && body != null) {
+                    return new Entry(body.bytes(), headers.get("ETag"), getExpires(headers));
+                }
+            }
+
+            if (response.errorBody() != null) {
+                response.errorBody().close();
+            }
+            Timber.tag(DEBUG).w("Empty tile data response for tile.");
+        } catch (Exception e) {
+            Timber.tag(DEBUG).w(e, "Failed to download tile.");
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the least recently used tiles from disk until the cache is within its bound.
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> iterator = mIndex.entrySet().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> tile = iterator.next();
+            new File(mDirectory, tile.getKey()).delete();
+            mBytes -= tile.getValue();
+            iterator.remove();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Long size = mIndex.remove(key);
+        if (size != null) {
+            mBytes -= size;
+        }
+        new File(mDirectory, key).delete();
+    }
+
+    /**
+     * Builds the index of the tiles on disk the first time the store is used, ordered by their last
+     * access, so that the eviction order survives restarts.
+     */
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+
+        List<File> files = new ArrayList<>();
+        File[] layers = mDirectory.listFiles();
+        if (layers != null) {
+            for (File layer : layers) {
+                File[] tiles = layer.listFiles();
+                if (tiles != null) {
+                    for (File tile : tiles) {
+                        if (tile.getName().endsWith(".tmp")) {
+                            tile.delete();
+                        } else {
+                            files.add(tile);
+                        }
+                    }
+                }
+            }
+        }
+
+        Collections.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            long size = file.length();
+            mIndex.put(file.getParentFile().getName() + File.separator + file.getName(), size);
+            mBytes += size;
+        }
+
+        trim();
+    }
+
+    private static Entry read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Unknown tile format.");
+            }
+
+            long expires = in.readLong();
+            String etag = in.readUTF();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return new Entry(data, etag.isEmpty() ? null : etag, expires);
+        }
+    }
+
+    /**
+     * Writes the tile to a temporary file first and moves it into place, so that a concurrent read
+     * never sees a partially written tile.
+     */
+    private static boolean write(File file, Entry entry) {
+        File parent = file.getParentFile();
+        File temp = new File(parent, file.getName() + ".tmp");
+
+        try {
+            if (parent == null || !(parent.exists() || parent.mkdirs())) {
+                throw new IOException("Failed to create tile directory.");
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(entry.expires);
+                out.writeUTF(entry.etag != null ? entry.etag : "");
+                out.writeInt(entry.data.length);
+                out.write(entry.data);
+            }
+
+            if (!temp.renameTo(file)) {
+                throw new IOException("Failed to move tile into place.");
+            }
+            return true;
+        } catch (IOException e) {
+            Timber.tag(DEBUG).w(e, "Failed to persist tile %s", file.getName());
+            temp.delete();
+            return false;
+        }
+    }
+
+    private static long getExpires(Headers headers) {
+        CacheControl cacheControl = CacheControl.parse(headers);
+        long now = System.currentTimeMillis();
+
+        if (cacheControl.noStore()) {
+            return NO_STORE;
+        } else if (cacheControl.noCache()) {
+            return now;
+        } else if (cacheControl.maxAgeSeconds() >= 0) {
+            return now + cacheControl.maxAgeSeconds() * 1000L;
+        }
+
+        Date expires = headers.getDate("Expires");
+        return expires != null ? expires.getTime() : now + DEFAULT_MAX_AGE_MS;
+    }
+
+    static String getKey(String layer, int x, int y, int zoom) {
+        return layer + File.separator + zoom + "_" + x + "_" + y;
+    }
+
+    static final class Entry {
+
+        final byte[] data;
+        final String etag;
+        final long expires;
+
+        Entry(byte[] data, @Nullable String etag, long expires) {
+            this.data = data;
+            this.etag = etag;
+            this.expires = expires;
+        }
+    }
+}
@@ -102,6 +102,10 @@ public class ChatRepository {
         mExecutor.execute(() -> mDao.replace(chat));
     }
 
+    public void addChatsToDatabase(List<Chat> chats) {
+        mExecutor.execute(() -> mDao.replace(chats));
+    }
+
     public void addChatToDatabase(Chat chat, SimpleThreadCallback callback) {
         mExecutor.execute(() -> {
             mDao.replace(chat);
@@ -63,8 +63,21 @@ public class CollabroomLayerRepository {
         mExecutor.execute(mDao::deleteAllData);
     }
 
-    public void addCollabroomLayerToDatabase(CollabroomDataLayer collabroomDataLayer) {
-        mExecutor.execute(() -> mDao.insertCollabroomDatalayer(collabroomDataLayer));
+    /**
+     * Writes the layer and its parsed features on the calling thread.
+     *
+     * @return Whether the layer was written, false if it hasn't changed.
+     */
+    public boolean ingestCollabroomLayer(CollabroomDataLayer layer, List<LayerFeature> features) {
+        return mDao.ingestCollabroomDatalayer(layer, features);
+    }
+
+    /**
+     * @return Whether the content hash of the layer differs from the stored copy, or there is no
+     * stored copy, so that unchanged layers can be skipped before their hazards are built.
+     */
+    public boolean isCollabroomLayerChanged(CollabroomDataLayer layer) {
+        return layer.getContentHash() == null || !layer.getContentHash().equals(mDao.getContentHash(layer.getDatalayerId()));
     }
 
     public void updateCollabroomLayer(CollabroomDataLayer layer) {
@@ -131,6 +144,14 @@ public class CollabroomLayerRepository {
         return collabroomDataLayers;
     }
 
+    /**
+     * Get the layers of the collabroom without their features or embedded layers, for callers that
+     * only need each layer's source.
+     */
+    public List<CollabroomDataLayer> getCollabroomLayerSources(long collabroomId) {
+        return mDao.getCollabroomLayerSources(collabroomId);
+    }
+
     public void deleteCollabroomLayer(long collabroomId) {
         mExecutor.execute(() -> mDao.deleteCollabroomLayer(collabroomId));
     }
@@ -94,6 +94,10 @@ public class GeneralMessageRepository {
         mExecutor.execute(() -> mDao.replace(generalMessage));
     }
 
+    public void addGeneralMessagesToDatabase(List<GeneralMessage> generalMessages) {
+        mExecutor.execute(() -> mDao.ingestGeneralMessages(generalMessages));
+    }
+
     public void addGeneralMessageToDatabase(GeneralMessage generalMessage, SimpleThreadCallback callback) {
         mExecutor.execute(() -> {
             mDao.replace(generalMessage);
@@ -31,7 +31,9 @@ package edu.mit.ll.nics.android.repository;
 
 import androidx.lifecycle.LiveData;
 
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -42,6 +44,7 @@ import javax.inject.Singleton;
 
 import edu.mit.ll.nics.android.database.dao.HazardDao;
 import edu.mit.ll.nics.android.database.entities.Hazard;
+import edu.mit.ll.nics.android.database.entities.PackedGeometry;
 import edu.mit.ll.nics.android.di.Qualifiers.DiskExecutor;
 import timber.log.Timber;
 
@@ -88,15 +91,18 @@ public class HazardRepository {
     public ArrayList<Hazard> getIntersectingHazards(long collabroomId, String userLocation) {
         ArrayList<Hazard> retValue = new ArrayList<>();
 
-        ArrayList<Hazard> hazards = (ArrayList<Hazard>) mDao.getHazards(collabroomId);
-
         Geometry userGeometry;
         try {
             userGeometry = geometryStringToGeometry(userLocation);
+            Envelope envelope = userGeometry.getEnvelopeInternal();
+
+            // Only the hazards whose envelope intersects the user's location need an exact check.
+            List<Hazard> hazards = mDao.getHazardsInEnvelope(collabroomId, envelope.getMinX(), envelope.getMinY(),
+                    envelope.getMaxX(), envelope.getMaxY());
 
             for (Hazard hazard : hazards) {
-                Geometry hazardGeometry = geometryStringToGeometry(hazard.getGeometry());
-                if (intersects(hazardGeometry, userGeometry)) {
+                Geometry hazardGeometry = getHazardGeometry(hazard);
+                if (hazardGeometry != null && intersects(hazardGeometry, userGeometry)) {
                     retValue.add(hazard);
                 }
             }
@@ -106,4 +112,23 @@ public class HazardRepository {
 
         return retValue;
     }
+
+    /**
+     * Get the exact geometry of the hazard, from the packed coordinates when they are available and
+     * from the geometry string otherwise, e.g. for multi geometries or polygons with holes.
+     */
+    private Geometry getHazardGeometry(Hazard hazard) {
+        PackedGeometry packed = hazard.getPackedGeometry();
+        Geometry geometry = packed != null ? packed.toGeometry() : null;
+
+        if (geometry == null && hazard.getGeometry() != null) {
+            try {
+                geometry = geometryStringToGeometry(hazard.getGeometry());
+            } catch (ParseException e) {
+                Timber.tag(DEBUG).w(e, "Failed to parse the geometry string of hazard %s.", hazard.getHazardId());
+            }
+        }
+
+        return geometry;
+    }
 }
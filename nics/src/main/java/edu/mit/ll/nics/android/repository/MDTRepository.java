@@ -29,6 +29,9 @@
  */
 package edu.mit.ll.nics.android.repository;
 
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
@@ -49,6 +52,7 @@ public class MDTRepository {
 
     private final MobileDeviceTrackingDao mDao;
     private final ExecutorService mExecutor;
+    private final MutableLiveData<Double> mDrainRate = new MutableLiveData<>(0.0);
 
     /**
      * Injects the dependencies for the repository class.
@@ -74,6 +78,53 @@ public class MDTRepository {
         return mDao.getMDTs("createdUTC ASC");
     }
 
+    /**
+     * Returns the next chunk of queued {@link MobileDeviceTracking} entries, oldest first, after the provided id.
+     *
+     * @param afterId The id of the last entry that was already handled, or 0 to start from the head of the queue.
+     * @param limit The maximum number of entries to return.
+     * @return {@link List<MobileDeviceTracking>} Mobile device tracks to send to server.
+     */
+    public List<MobileDeviceTracking> getMDTs(long afterId, int limit) {
+        return mDao.getMDTsAfter(afterId, limit);
+    }
+
+    /**
+     * Deletes every queued {@link MobileDeviceTracking} entry up to and including the provided id.
+     *
+     * @param id The id of the last entry that the server acknowledged.
+     * @return The number of entries deleted.
+     */
+    public int deleteMDTsThrough(long id) {
+        return mDao.deleteThrough(id);
+    }
+
+    /**
+     * Returns the number of {@link MobileDeviceTracking} entries waiting to be sent.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return mDao.getCount();
+    }
+
+    public LiveData<Integer> getQueueDepthLiveData() {
+        return mDao.getCountLiveData();
+    }
+
+    /**
+     * Returns the rate, in entries per second, that the queue was drained at during the last upload.
+     *
+     * @return {@link LiveData} of the drain rate.
+     */
+    public LiveData<Double> getDrainRateLiveData() {
+        return mDrainRate;
+    }
+
+    public void setDrainRate(double rate) {
+        mDrainRate.postValue(rate);
+    }
+
     /**
      * Deletes the {@link MobileDeviceTracking} entry from the database provided the unique id.
      *
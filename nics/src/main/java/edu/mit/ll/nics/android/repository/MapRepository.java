@@ -84,6 +84,19 @@ public class MapRepository {
         });
     }
 
+    /**
+     * Writes the result of a markup sync for a collabroom in a single transaction. Deleted features
+     * are removed and received features are inserted or replaced along with their hazards.
+     *
+     * @param collabroomId The collabroom that the features belong to.
+     * @param deletedFeatureIds The feature ids that have been deleted on the server.
+     * @param features The features that were received from the server.
+     */
+    public void addMarkupFeaturesToDatabase(long collabroomId, List<String> deletedFeatureIds, List<MarkupFeature> features) {
+        mExecutor.submit(() -> mDao.ingestMarkupFeatures(collabroomId, deletedFeatureIds, features,
+                new int[]{SendStatus.RECEIVED.getId(), SendStatus.SAVED.getId()}, getActiveStatuses()));
+    }
+
     public MarkupFeature getMarkupFeatureById(long id) {
         Feature feature = mDao.getMarkupFeatureById(id);
 
@@ -175,9 +188,7 @@ public class MapRepository {
     }
 
     public List<MarkupFeature> getMarkupFeatures(long collabroomId) {
-        int[] statuses = new int[] {SendStatus.RECEIVED.getId(), SendStatus.WAITING_TO_SEND.getId(),
-                SendStatus.SENT.getId(), SendStatus.UPDATING.getId(), SendStatus.UPDATE.getId(),
-                SendStatus.SAVED.getId()};
+        int[] statuses = getActiveStatuses();
         List<Feature> features = mDao.getMarkupFeatures(collabroomId, statuses);
 
         ArrayList<MarkupFeature> temp = new ArrayList<>();
@@ -190,9 +201,7 @@ public class MapRepository {
     }
 
     public MutableLiveData<List<MarkupFeature>> getMarkupFeaturesLiveData(long collabroomId) {
-        int[] statuses = new int[] {SendStatus.RECEIVED.getId(), SendStatus.WAITING_TO_SEND.getId(),
-                SendStatus.SENT.getId(), SendStatus.UPDATING.getId(), SendStatus.UPDATE.getId(),
-                SendStatus.SAVED.getId()};
+        int[] statuses = getActiveStatuses();
         LiveData<List<Feature>> features = mDao.getMarkupFeaturesLiveData(collabroomId, statuses);
 
         return (MutableLiveData<List<MarkupFeature>>) Transformations.switchMap(features, featureList -> {
@@ -209,4 +218,10 @@ public class MapRepository {
             return featuresLiveData;
         });
     }
+
+    private int[] getActiveStatuses() {
+        return new int[] {SendStatus.RECEIVED.getId(), SendStatus.WAITING_TO_SEND.getId(),
+                SendStatus.SENT.getId(), SendStatus.UPDATING.getId(), SendStatus.UPDATE.getId(),
+                SendStatus.SAVED.getId()};
+    }
 }
@@ -33,12 +33,15 @@ import android.content.Context;
 import android.provider.Settings;
 
 import androidx.annotation.NonNull;
+import androidx.work.Constraints;
 import androidx.work.Data;
 import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.WorkManager;
 
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.loopj.android.http.AsyncHttpClient;
 import com.loopj.android.http.AsyncHttpResponseHandler;
 
@@ -60,6 +63,10 @@ import edu.mit.ll.nics.android.database.entities.MobileDeviceTracking;
 import edu.mit.ll.nics.android.database.entities.OverlappingRoomLayer;
 import edu.mit.ll.nics.android.database.entities.Tracking;
 import edu.mit.ll.nics.android.enums.PresenceStatus;
+import edu.mit.ll.nics.android.maps.tileproviders.LayerTileProvider;
+import edu.mit.ll.nics.android.maps.tileproviders.TileProviderFactory;
+import edu.mit.ll.nics.android.maps.tileproviders.TilePyramid;
+import edu.mit.ll.nics.android.maps.tileproviders.TileStore;
 import edu.mit.ll.nics.android.workers.AlertsWorker;
 import edu.mit.ll.nics.android.workers.ChatWorkers;
 import edu.mit.ll.nics.android.workers.CollabroomLayersWorker;
@@ -72,6 +79,7 @@ import edu.mit.ll.nics.android.workers.IncidentWorker;
 import edu.mit.ll.nics.android.workers.LoginWorkers;
 import edu.mit.ll.nics.android.workers.MDTWorkers;
 import edu.mit.ll.nics.android.workers.MapWorkers;
+import edu.mit.ll.nics.android.workers.OfflineTilesWorker;
 import edu.mit.ll.nics.android.workers.OpenElevationWorker;
 import edu.mit.ll.nics.android.workers.OrgWorkers;
 import edu.mit.ll.nics.android.workers.OverlappingRoomWorker;
@@ -83,6 +91,7 @@ import timber.log.Timber;
 import static edu.mit.ll.nics.android.utils.Utils.isCollabroomSelected;
 import static edu.mit.ll.nics.android.utils.Utils.isIncidentSelected;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+import static edu.mit.ll.nics.android.utils.constants.NICS.MDT_UPLOAD_BATCH_SIZE;
 import static edu.mit.ll.nics.android.workers.Workers.DELETE_MARKUP_FEATURES_WORKER;
 import static edu.mit.ll.nics.android.workers.Workers.DELETE_MOBILE_DEVICE_TRACKS_WORKER;
 import static edu.mit.ll.nics.android.workers.Workers.DOWNLOAD_IMAGE_WORKER;
@@ -116,6 +125,7 @@ import static edu.mit.ll.nics.android.workers.Workers.POST_EOD_REPORTS_WORKER;
 import static edu.mit.ll.nics.android.workers.Workers.POST_GENERAL_MESSAGES_WORKER;
 import static edu.mit.ll.nics.android.workers.Workers.POST_MARKUP_FEATURES_WORKER;
 import static edu.mit.ll.nics.android.workers.Workers.POST_MOBILE_DEVICE_TRACKS_WORKER;
+import static edu.mit.ll.nics.android.workers.Workers.SEED_OFFLINE_TILES_WORKER;
 import static edu.mit.ll.nics.android.workers.Workers.UPDATE_MARKUP_FEATURES_WORKER;
 
 @Singleton
@@ -132,6 +142,8 @@ public class NetworkRepository {
     private final ChatRepository mChatRepository;
     private final GeneralMessageRepository mGeneralMessageRepository;
     private final EODReportRepository mEODReportRepository;
+    private final CollabroomLayerRepository mCollabroomLayerRepository;
+    private final TileStore mTileStore;
 
     @Inject
     public NetworkRepository(WorkManager workManager,
@@ -140,13 +152,17 @@ public class NetworkRepository {
                              MapRepository mapRepository,
                              ChatRepository chatRepository,
                              GeneralMessageRepository generalMessageRepository,
-                             EODReportRepository eodReportRepository) {
+                             EODReportRepository eodReportRepository,
+                             CollabroomLayerRepository collabroomLayerRepository,
+                             TileStore tileStore) {
         mWorkManager = workManager;
         mAuthRepository = authRepository;
         mMapRepository = mapRepository;
         mChatRepository = chatRepository;
         mGeneralMessageRepository = generalMessageRepository;
         mEODReportRepository = eodReportRepository;
+        mCollabroomLayerRepository = collabroomLayerRepository;
+        mTileStore = tileStore;
         mPreferences = preferences;
     }
 
@@ -719,6 +735,7 @@ public class NetworkRepository {
 
         OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(MDTWorkers.Post.class)
                 .addTag(POST_MOBILE_DEVICE_TRACKS_WORKER)
+                .setInputData(new Data.Builder().putInt("batchSize", MDT_UPLOAD_BATCH_SIZE).build())
                 .build();
         mWorkManager.enqueueUniqueWork(POST_MOBILE_DEVICE_TRACKS_WORKER, ExistingWorkPolicy.KEEP, request);
     }
@@ -802,6 +819,98 @@ public class NetworkRepository {
         }
     }
 
+    /**
+     * Estimate the download that {@link #seedOfflineTiles(LatLngBounds, int, int)} would start for
+     * the same area, so that the user can confirm it first. This reads the database, so it must not
+     * be called on the main thread.
+     *
+     * @param bounds The area to download, e.g. the visible region of the map.
+     * @param minZoom The lowest zoom level to download.
+     * @param maxZoom The highest zoom level to download.
+     *
+     * @return The estimate with the keys of {@link OfflineTilesWorker#estimate}, or null if there
+     * isn't a collabroom selected.
+     */
+    public Data estimateOfflineTiles(LatLngBounds bounds, int minZoom, int maxZoom) {
+        if (!isCollabroomSelected(mPreferences.getSelectedCollabroom())) {
+            return null;
+        }
+
+        int layerCount = 0;
+        for (CollabroomDataLayer layer : mCollabroomLayerRepository.getCollabroomLayerSources(mPreferences.getSelectedCollabroomId())) {
+            if (TileProviderFactory.isTiled(layer)) {
+                layerCount++;
+            }
+        }
+
+        TilePyramid pyramid = new TilePyramid(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude, minZoom, maxZoom);
+        return OfflineTilesWorker.estimate(pyramid, layerCount, mTileStore);
+    }
+
+    /**
+     * Start a {@link OneTimeWorkRequest} to download the tiles of the selected collabroom's WMS and
+     * ArcGIS layers inside the bounds, so that they can be viewed offline. The worker publishes
+     * the estimated download size before it starts, and then the completion of each layer.
+     *
+     * @param bounds The area to download, e.g. the visible region of the map.
+     * @param minZoom The lowest zoom level to download.
+     * @param maxZoom The highest zoom level to download.
+     *
+     * @see #estimateOfflineTiles(LatLngBounds, int, int)
+     * @see OfflineTilesWorker
+     */
+    public OneTimeWorkRequest seedOfflineTiles(LatLngBounds bounds, int minZoom, int maxZoom) {
+        if (!isCollabroomSelected(mPreferences.getSelectedCollabroom())) {
+            return null;
+        }
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OfflineTilesWorker.class)
+                .addTag(SEED_OFFLINE_TILES_WORKER)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setInputData(new Data.Builder()
+                        .putLong(OfflineTilesWorker.COLLABROOM_ID, mPreferences.getSelectedCollabroomId())
+                        .putDouble(OfflineTilesWorker.SOUTH, bounds.southwest.latitude)
+                        .putDouble(OfflineTilesWorker.WEST, bounds.southwest.longitude)
+                        .putDouble(OfflineTilesWorker.NORTH, bounds.northeast.latitude)
+                        .putDouble(OfflineTilesWorker.EAST, bounds.northeast.longitude)
+                        .putInt(OfflineTilesWorker.MIN_ZOOM, minZoom)
+                        .putInt(OfflineTilesWorker.MAX_ZOOM, maxZoom)
+                        .build())
+                .build();
+        mWorkManager.enqueueUniqueWork(SEED_OFFLINE_TILES_WORKER, ExistingWorkPolicy.REPLACE, request);
+        return request;
+    }
+
+    /**
+     * Remove the offline tiles of the selected collabroom's WMS and ArcGIS layers from disk, and
+     * cancel a download of them that is still running. This reads the database, so it must not be
+     * called on the main thread.
+     *
+     * @return The number of layers that were cleared, or -1 if there isn't a collabroom selected.
+     *
+     * @see #seedOfflineTiles(LatLngBounds, int, int)
+     */
+    public int clearOfflineTiles() {
+        if (!isCollabroomSelected(mPreferences.getSelectedCollabroom())) {
+            return -1;
+        }
+
+        mWorkManager.cancelUniqueWork(SEED_OFFLINE_TILES_WORKER);
+
+        int layerCount = 0;
+        for (CollabroomDataLayer layer : mCollabroomLayerRepository.getCollabroomLayerSources(mPreferences.getSelectedCollabroomId())) {
+            LayerTileProvider provider = TileProviderFactory.buildLayerTileProvider(layer, mTileStore);
+            if (provider != null) {
+                provider.clearOffline();
+                layerCount++;
+            }
+        }
+        return layerCount;
+    }
+
     /**
      * Send all pending local content to the server.
      */
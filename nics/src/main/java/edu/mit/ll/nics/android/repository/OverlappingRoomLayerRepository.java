@@ -43,6 +43,7 @@ import javax.inject.Singleton;
 import edu.mit.ll.nics.android.database.AppDatabase;
 import edu.mit.ll.nics.android.database.dao.OverlappingRoomLayerDao;
 import edu.mit.ll.nics.android.database.entities.OverlappingDatalayer;
+import edu.mit.ll.nics.android.database.entities.OverlappingLayerFeature;
 import edu.mit.ll.nics.android.database.entities.OverlappingRoomLayer;
 import edu.mit.ll.nics.android.di.Qualifiers.DiskExecutor;
 
@@ -101,8 +102,21 @@ public class OverlappingRoomLayerRepository {
         return overlappingLayers;
     }
 
-    public void addOverlappingLayerToDatabase(OverlappingRoomLayer layer) {
-        mExecutor.execute(() -> mDao.insertOverlappingLayer(layer));
+    /**
+     * Writes the layer and its parsed features on the calling thread.
+     *
+     * @return Whether the layer was written, false if it hasn't changed.
+     */
+    public boolean ingestOverlappingLayer(OverlappingRoomLayer layer, List<OverlappingLayerFeature> features) {
+        return mDao.ingestOverlappingLayer(layer, features);
+    }
+
+    /**
+     * @return Whether the content hash of the layer differs from the stored copy, or there is no
+     * stored copy, so that unchanged layers can be skipped before they are written.
+     */
+    public boolean isOverlappingLayerChanged(OverlappingRoomLayer layer) {
+        return layer.getContentHash() == null || !layer.getContentHash().equals(mDao.getContentHash(layer.getCollabroomId()));
     }
 
     public void deleteOverlappingLayer(long incidentId, long collabroomId) {
@@ -121,11 +121,22 @@ import static edu.mit.ll.nics.android.utils.constants.Preferences.WEB_SERVER;
 public class PreferencesRepository {
 
     private final SharedPreferences mPreferences;
+    private final PreferencesSnapshot mSnapshot;
     private MyOrgCapabilities mMyOrgCapabilities;
 
     @Inject
     public PreferencesRepository(@SharedPrefs SharedPreferences sharedPreferences) {
         mPreferences = sharedPreferences;
+        mSnapshot = new PreferencesSnapshot(sharedPreferences);
+    }
+
+    /**
+     * Writes a single preference and drops its decoded value from the snapshot, so that the next
+     * read decodes the new value without waiting for the change listener.
+     */
+    private void commit(String key, SharedPreferences.Editor editor) {
+        editor.apply();
+        mSnapshot.invalidate(key);
     }
 
     /**
@@ -251,12 +262,11 @@ public class PreferencesRepository {
             collabroom.setCollabRoomId(-1);
             collabroom.setName(NO_SELECTION);
         }
-        mPreferences.edit().putString(SELECTED_COLLABROOM, collabroom.toJson()).apply();
+        commit(SELECTED_COLLABROOM, mPreferences.edit().putString(SELECTED_COLLABROOM, collabroom.toJson()));
     }
 
     public Collabroom getSelectedCollabroom() {
-        String json = mPreferences.getString(SELECTED_COLLABROOM, EMPTY);
-        return parseCollabroom(json);
+        return mSnapshot.get(SELECTED_COLLABROOM, preferences -> parseCollabroom(preferences.getString(SELECTED_COLLABROOM, EMPTY)));
     }
 
     private Collabroom parseCollabroom(String json) {
@@ -308,19 +318,19 @@ public class PreferencesRepository {
     }
 
     public long getUserId() {
-        return mPreferences.getLong(USER_ID, -1L);
+        return mSnapshot.get(USER_ID, preferences -> preferences.getLong(USER_ID, -1L));
     }
 
     public void setUserId(long userId) {
-        mPreferences.edit().putLong(USER_ID, userId).apply();
+        commit(USER_ID, mPreferences.edit().putLong(USER_ID, userId));
     }
 
     public long getUserOrgId() {
-        return mPreferences.getLong(USER_ORG_ID, -1L);
+        return mSnapshot.get(USER_ORG_ID, preferences -> preferences.getLong(USER_ORG_ID, -1L));
     }
 
     public void setUserOrgId(long id) {
-        mPreferences.edit().putLong(USER_ORG_ID, id).apply();
+        commit(USER_ORG_ID, mPreferences.edit().putLong(USER_ORG_ID, id));
     }
 
     public String getUserNickName() {
@@ -334,53 +344,43 @@ public class PreferencesRepository {
     }
 
     public String getUserNickName(String username) {
-        User userData = getUser(username);
-
-        if (userData != null) {
-            return userData.getFirstName() + " " + userData.getLastName();
-        } else {
-            return "Unknown User";
-        }
+        String nickName = getUserDirectory().getNickName(username);
+        return nickName != null ? nickName : "Unknown User";
     }
 
     public User getUser() {
-        return new Gson().fromJson(mPreferences.getString(USER_DATA, EMPTY), User.class);
+        return mSnapshot.get(USER_DATA, preferences -> new Gson().fromJson(preferences.getString(USER_DATA, EMPTY), User.class));
     }
 
     public User getUser(String username) {
-        UserMessage userMessage = null;
-        User user = null;
-
-        String userMessageString = mPreferences.getString(ALL_USER_DATA, null);
-
-        if (userMessageString != null) {
-            userMessage = new Gson().fromJson(userMessageString, UserMessage.class);
-        }
-
-        if (userMessage != null) {
-            ArrayList<User> allUsers = userMessage.getUsers();
+        return getUserDirectory().getUser(username);
+    }
 
-            for (User u : allUsers) {
-                if (u.getUserName().equals(username)) {
-                    user = u;
-                    break;
-                }
+    /**
+     * Gets the username index of the saved {@link UserMessage}. The index is built once when the
+     * user data changes instead of parsing and scanning the whole message on every lookup.
+     */
+    private UserDirectory getUserDirectory() {
+        return mSnapshot.get(ALL_USER_DATA, preferences -> {
+            String userMessageString = preferences.getString(ALL_USER_DATA, null);
+            UserMessage userMessage = null;
+            if (userMessageString != null) {
+                userMessage = new Gson().fromJson(userMessageString, UserMessage.class);
             }
-        }
-
-        return user;
+            return UserDirectory.from(userMessage);
+        });
     }
 
     public void setUserName(String userName) {
-        mPreferences.edit().putString(USER_NAME, userName).apply();
+        commit(USER_NAME, mPreferences.edit().putString(USER_NAME, userName));
     }
 
     public String getUserName() {
-        return mPreferences.getString(USER_NAME, NICS_NO_RESULTS);
+        return mSnapshot.get(USER_NAME, preferences -> preferences.getString(USER_NAME, NICS_NO_RESULTS));
     }
 
     public void setUserData(User user) {
-        mPreferences.edit().putString(USER_DATA, user.toJson()).apply();
+        commit(USER_DATA, mPreferences.edit().putString(USER_DATA, user.toJson()));
     }
 
     public String getUserData() {
@@ -392,28 +392,30 @@ public class PreferencesRepository {
     }
 
     public void setAllUserData(UserMessage userMessage) {
-        mPreferences.edit().putString(ALL_USER_DATA, userMessage.toJson()).apply();
+        commit(ALL_USER_DATA, mPreferences.edit().putString(ALL_USER_DATA, userMessage.toJson()));
     }
 
     public void setUserSessionId(long userSessionID) {
-        mPreferences.edit().putLong(USER_SESSION_ID, userSessionID).apply();
+        commit(USER_SESSION_ID, mPreferences.edit().putLong(USER_SESSION_ID, userSessionID));
     }
 
     public long getUserSessionId() {
-        return mPreferences.getLong(USER_SESSION_ID, -1L);
+        return mSnapshot.get(USER_SESSION_ID, preferences -> preferences.getLong(USER_SESSION_ID, -1L));
     }
 
     public WorkspaceMessage getWorkspaces() {
-        String savedWorkspaces = mPreferences.getString(SAVED_WORKSPACES, NICS_NO_RESULTS);
-        if (savedWorkspaces.equals(NICS_NO_RESULTS)) {
-            return null;
-        }
+        return mSnapshot.get(SAVED_WORKSPACES, preferences -> {
+            String savedWorkspaces = preferences.getString(SAVED_WORKSPACES, NICS_NO_RESULTS);
+            if (savedWorkspaces.equals(NICS_NO_RESULTS)) {
+                return null;
+            }
 
-        return new GsonBuilder().create().fromJson(savedWorkspaces, WorkspaceMessage.class);
+            return new GsonBuilder().create().fromJson(savedWorkspaces, WorkspaceMessage.class);
+        });
     }
 
     public void setWorkspaces(WorkspaceMessage workspaces) {
-        mPreferences.edit().putString(SAVED_WORKSPACES, workspaces.toJson()).apply();
+        commit(SAVED_WORKSPACES, mPreferences.edit().putString(SAVED_WORKSPACES, workspaces.toJson()));
     }
 
     public LiveData<List<Workspace>> getWorkspacesLiveData() {
@@ -450,15 +452,14 @@ public class PreferencesRepository {
     }
 
     public Workspace getSelectedWorkspace() {
-        String json = mPreferences.getString(SELECTED_WORKSPACE, EMPTY);
-        return parseWorkspace(json);
+        return mSnapshot.get(SELECTED_WORKSPACE, preferences -> parseWorkspace(preferences.getString(SELECTED_WORKSPACE, EMPTY)));
     }
 
     public void setSelectedWorkspace(@Nullable Workspace workspace) {
         if (workspace == null) {
             workspace = new Workspace();
         }
-        mPreferences.edit().putString(SELECTED_WORKSPACE, workspace.toJson()).apply();
+        commit(SELECTED_WORKSPACE, mPreferences.edit().putString(SELECTED_WORKSPACE, workspace.toJson()));
     }
 
     private Workspace parseWorkspace(String json) {
@@ -485,7 +486,7 @@ public class PreferencesRepository {
     }
 
     public void setIncidents(IncidentMessage message) {
-        mPreferences.edit().putString(SAVED_INCIDENTS, message.toJson()).apply();
+        commit(SAVED_INCIDENTS, mPreferences.edit().putString(SAVED_INCIDENTS, message.toJson()));
     }
 
     public void setSelectedIncident(Incident incident) {
@@ -494,12 +495,11 @@ public class PreferencesRepository {
             incident.setIncidentId(-1);
             incident.setIncidentName(NO_SELECTION);
         }
-        mPreferences.edit().putString(SELECTED_INCIDENT, incident.toJson()).apply();
+        commit(SELECTED_INCIDENT, mPreferences.edit().putString(SELECTED_INCIDENT, incident.toJson()));
     }
 
     public Incident getSelectedIncident() {
-        String json = mPreferences.getString(SELECTED_INCIDENT, EMPTY);
-        return parseIncident(json);
+        return mSnapshot.get(SELECTED_INCIDENT, preferences -> parseIncident(preferences.getString(SELECTED_INCIDENT, EMPTY)));
     }
 
     public LiveData<Incident> getSelectedIncidentLiveData() {
@@ -559,7 +559,7 @@ public class PreferencesRepository {
 
     public void setOrgCapabilites(OrgCapabilities newOrgCap) {
         if (newOrgCap != null) {
-            mPreferences.edit().putString(SAVED_ORGCAPABILITES, newOrgCap.toJson()).apply();
+            commit(SAVED_ORGCAPABILITES, mPreferences.edit().putString(SAVED_ORGCAPABILITES, newOrgCap.toJson()));
             getMyOrgCapabilities().setCapabilities(newOrgCap);
         } else {
             getMyOrgCapabilities().resetCapabilitiesToOff();
@@ -567,12 +567,14 @@ public class PreferencesRepository {
     }
 
     public OrgCapabilities getOrgCapabilites() {
-        String collabroomString = mPreferences.getString(SAVED_ORGCAPABILITES, EMPTY);
-        if (!collabroomString.equals(EMPTY)) {
-            return new Gson().fromJson(collabroomString, OrgCapabilities.class);
-        } else {
-            return new OrgCapabilities();
-        }
+        return mSnapshot.get(SAVED_ORGCAPABILITES, preferences -> {
+            String collabroomString = preferences.getString(SAVED_ORGCAPABILITES, EMPTY);
+            if (!collabroomString.equals(EMPTY)) {
+                return new Gson().fromJson(collabroomString, OrgCapabilities.class);
+            } else {
+                return new OrgCapabilities();
+            }
+        });
     }
 
     public LiveData<List<Organization>> getOrganizationsLiveData() {
@@ -592,13 +594,15 @@ public class PreferencesRepository {
     }
 
     public List<Organization> getOrganizations() {
-        String json = mPreferences.getString(SAVED_ORGANIZATIONS, NICS_NO_RESULTS);
-        if (json.equals(NICS_NO_RESULTS)) {
-            return null;
-        }
+        return mSnapshot.get(SAVED_ORGANIZATIONS, preferences -> {
+            String json = preferences.getString(SAVED_ORGANIZATIONS, NICS_NO_RESULTS);
+            if (json.equals(NICS_NO_RESULTS)) {
+                return null;
+            }
 
-        OrganizationMessage message = new Gson().fromJson(json, OrganizationMessage.class);
-        return message.getOrgs();
+            OrganizationMessage message = new Gson().fromJson(json, OrganizationMessage.class);
+            return message.getOrgs();
+        });
     }
 
     public void setOrganizations(OrganizationMessage orgs) {
@@ -606,7 +610,7 @@ public class PreferencesRepository {
             org.getUserOrgs().get(0).setUser(getUser());
         }
 
-        mPreferences.edit().putString(SAVED_ORGANIZATIONS, orgs.toJson()).apply();
+        commit(SAVED_ORGANIZATIONS, mPreferences.edit().putString(SAVED_ORGANIZATIONS, orgs.toJson()));
 
         if (getUserOrgId() == -1) {
             setUserOrgId(orgs.getOrgs().get(0).getOrgId());
@@ -623,8 +627,7 @@ public class PreferencesRepository {
     }
 
     public Organization getSelectedOrganization() {
-        String json = mPreferences.getString(CURRENT_USER_ORG, EMPTY);
-        return parseOrganization(json);
+        return mSnapshot.get(CURRENT_USER_ORG, preferences -> parseOrganization(preferences.getString(CURRENT_USER_ORG, EMPTY)));
     }
 
     public void setSelectedOrganization(@Nullable Organization organization) {
@@ -633,8 +636,8 @@ public class PreferencesRepository {
             organization.setOrgId(-1L);
             organization.setName(NO_SELECTION);
         }
-        mPreferences.edit().putString(CURRENT_USER_ORG, organization.toJson()).apply();
-        mPreferences.edit().putLong(USER_ORG_ID, organization.getOrgId()).apply();
+        commit(CURRENT_USER_ORG, mPreferences.edit().putString(CURRENT_USER_ORG, organization.toJson()));
+        commit(USER_ORG_ID, mPreferences.edit().putLong(USER_ORG_ID, organization.getOrgId()));
     }
 
     private Organization parseOrganization(String json) {
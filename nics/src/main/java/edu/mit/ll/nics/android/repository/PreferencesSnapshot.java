@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.repository;
+
+import android.content.SharedPreferences;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the decoded value of each preference that has been read through it, so that the decrypt
+ * and parse cost of the backing {@link SharedPreferences} is only paid once per change.
+ *
+ * Reads are lock-free. An entry is dropped whenever the backing preferences report a change for
+ * its key, and writers can drop it directly to make a write visible before the listener runs.
+ * A decode that raced with a change is never kept, so the snapshot can not go stale.
+ *
+ * The decoded values are shared between callers and must be treated as read-only.
+ */
+class PreferencesSnapshot implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+    private static final Object NULL = new Object();
+
+    private final SharedPreferences mPreferences;
+    private final ConcurrentHashMap<String, Object> mValues = new ConcurrentHashMap<>();
+    private final AtomicLong mVersion = new AtomicLong();
+
+    public interface Decoder<T> {
+        T decode(SharedPreferences preferences);
+    }
+
+    PreferencesSnapshot(SharedPreferences preferences) {
+        mPreferences = preferences;
+
+        // The preferences only keep a weak reference to the listener, so this snapshot must be
+        // held by its owner for as long as it is used.
+        mPreferences.registerOnSharedPreferenceChangeListener(this);
+    }
+
+    /**
+     * Returns the decoded value of the preference, decoding it with the given decoder if it is not
+     * in the snapshot yet. Every caller of a key must use the same decoder.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, Decoder<T> decoder) {
+        Object value = mValues.get(key);
+        if (value == null) {
+            long version = mVersion.get();
+            T decoded = decoder.decode(mPreferences);
+            value = decoded == null ? NULL : decoded;
+
+            Object previous = mValues.putIfAbsent(key, value);
+            if (previous != null) {
+                value = previous;
+            } else if (mVersion.get() != version) {
+                // The preferences changed while decoding, so the value may already be stale.
+                mValues.remove(key, value);
+            }
+        }
+        return value == NULL ? null : (T) value;
+    }
+
+    void invalidate(String key) {
+        mVersion.incrementAndGet();
+        mValues.remove(key);
+    }
+
+    void clear() {
+        mVersion.incrementAndGet();
+        mValues.clear();
+    }
+
+    int size() {
+        return mValues.size();
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        // A null key is reported when the preferences have been cleared.
+        if (key == null) {
+            clear();
+        } else {
+            invalidate(key);
+        }
+    }
+}
@@ -47,6 +47,7 @@ import edu.mit.ll.nics.android.utils.livedata.SharedPreferenceStringLiveData;
 
 import static edu.mit.ll.nics.android.utils.UnitConverter.METRIC;
 import static edu.mit.ll.nics.android.utils.constants.Preferences.SUPPORTED_LANGUAGES;
+import static edu.mit.ll.nics.android.utils.constants.Settings.ADAPTIVE_LOCATION_CHECKBOX;
 import static edu.mit.ll.nics.android.utils.constants.Settings.COLLABROOM_SYNC_FREQUENCY;
 import static edu.mit.ll.nics.android.utils.constants.Settings.COORDINATE_REPRESENTATION;
 import static edu.mit.ll.nics.android.utils.constants.Settings.DEBUG_CHECKBOX;
@@ -114,6 +115,10 @@ public class SettingsRepository {
         mSettings.edit().putBoolean(GEOFENCING_CHECKBOX, enabled).apply();
     }
 
+    public boolean isAdaptiveLocationEnabled() {
+        return mSettings.getBoolean(ADAPTIVE_LOCATION_CHECKBOX, true);
+    }
+
     public String getSelectedLanguage() {
         String code = mSettings.getString(LANGUAGE_SELECT_LIST, DEVICE_DEFAULT);
         if (code.equals(DEVICE_DEFAULT)) {
@@ -32,6 +32,7 @@ package edu.mit.ll.nics.android.repository;
 import android.content.Context;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -118,7 +119,11 @@ public class TrackingLayerRepository {
         mExecutor.execute(() -> mFeatureDao.replace(feature));
     }
 
+    public void replaceTrackingLayerFeatures(String layerName, List<TrackingLayerFeature> features) {
+        mExecutor.execute(() -> mFeatureDao.replaceAll(layerName, features));
+    }
+
     public LiveData<List<TrackingLayerFeature>> getTrackingFeaturesByName(String name) {
-        return mFeatureDao.getTrackingFeaturesByName(name);
+        return Transformations.distinctUntilChanged(mFeatureDao.getTrackingFeaturesByName(name));
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.repository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import edu.mit.ll.nics.android.data.User;
+import edu.mit.ll.nics.android.data.messages.UserMessage;
+
+/**
+ * Username index over the users of the saved {@link UserMessage}. It is built once per change of
+ * the user data and is read-only afterwards, so lookups are a single hash lookup.
+ */
+final class UserDirectory {
+
+    private final HashMap<String, User> mUsers;
+    private final HashMap<String, String> mNickNames;
+
+    UserDirectory(List<User> users) {
+        mUsers = new HashMap<>(users.size() * 4 / 3 + 1);
+        mNickNames = new HashMap<>(users.size() * 4 / 3 + 1);
+
+        for (User user : users) {
+            String username = user.getUserName();
+
+            // Keep the first user with a username, like the linear scan this replaces.
+            if (username != null && !mUsers.containsKey(username)) {
+                mUsers.put(username, user);
+                mNickNames.put(username, user.getFirstName() + " " + user.getLastName());
+            }
+        }
+    }
+
+    static UserDirectory from(UserMessage message) {
+        if (message == null || message.getUsers() == null) {
+            return new UserDirectory(Collections.<User>emptyList());
+        }
+        return new UserDirectory(message.getUsers());
+    }
+
+    User getUser(String username) {
+        return mUsers.get(username);
+    }
+
+    String getNickName(String username) {
+        return mNickNames.get(username);
+    }
+
+    int size() {
+        return mUsers.size();
+    }
+}
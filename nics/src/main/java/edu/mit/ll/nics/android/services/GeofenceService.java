@@ -50,16 +50,12 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Transformations;
 
 import com.google.android.gms.maps.model.LatLng;
-import com.google.common.base.Function;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.Ordering;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -78,17 +74,14 @@ import edu.mit.ll.nics.android.utils.constants.Intents;
 import edu.mit.ll.nics.android.utils.livedata.LiveDataBus;
 import timber.log.Timber;
 
-import static com.google.maps.android.SphericalUtil.computeDistanceBetween;
 import static edu.mit.ll.nics.android.database.entities.Hazard.getHazardBounds;
-import static edu.mit.ll.nics.android.utils.GeoUtils.coordinateToGeometryString;
-import static edu.mit.ll.nics.android.utils.GeoUtils.findNearestPoint;
-import static edu.mit.ll.nics.android.utils.GeoUtils.getCardinalDirection;
 import static edu.mit.ll.nics.android.utils.StringUtils.SPACE;
 import static edu.mit.ll.nics.android.utils.UnitConverter.IMPERIAL;
 import static edu.mit.ll.nics.android.utils.UnitConverter.METRIC;
 import static edu.mit.ll.nics.android.utils.UnitConverter.NAUTICAL;
 import static edu.mit.ll.nics.android.utils.constants.Events.NICS_LOCAL_MAP_FEATURES_CLEARED;
 import static edu.mit.ll.nics.android.utils.constants.Events.NICS_LOCATION_CHANGED;
+import static edu.mit.ll.nics.android.utils.constants.Events.NICS_NEAREST_HAZARD_DISTANCE;
 import static edu.mit.ll.nics.android.utils.constants.Intents.HAZARD_BOUNDS;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 import static edu.mit.ll.nics.android.utils.constants.NICS.frequencyValues;
@@ -106,8 +99,8 @@ public class GeofenceService extends AppService {
     private boolean mReceiversRegistered = false;
     private boolean mIsEnabled = true;
     private LatLng mCurrentUserLocation;
-    private Ordering<Hazard> mOrdering;
     private List<Hazard> mHazards = new ArrayList<>();
+    private final HazardIndex mHazardIndex = new HazardIndex();
     private ArrayList<Hazard> mActiveHazards = new ArrayList<>();
     private LiveData<Boolean> mGeofencingEnabledObserver;
     private LiveData<List<Hazard>> mHazardsObserver;
@@ -125,9 +118,6 @@ public class GeofenceService extends AppService {
         super.onCreate();
         mExecutorService = Executors.newSingleThreadExecutor();
 
-        mOrdering = Ordering.natural().nullsFirst().onResultOf(
-                (Function<Hazard, Comparable<Double>>) hazard -> hazard != null ? hazard.getDistanceFromUser() : null);
-
         if (!mReceiversRegistered) {
             LiveDataBus.subscribe(NICS_LOCATION_CHANGED, this, data -> onLocationChanged((Location) data));
             LiveDataBus.subscribe(NICS_LOCAL_MAP_FEATURES_CLEARED, this, data -> refresh());
@@ -225,6 +215,9 @@ public class GeofenceService extends AppService {
 
         mHazardsObserver.observe(this, hazards -> {
             mHazards = hazards;
+
+            // Re-index only when the hazard list changes. The notification refresh is queued behind the rebuild.
+            updateHazardIndex(hazards);
             refreshNotification();
         });
 
@@ -241,6 +234,19 @@ public class GeofenceService extends AppService {
         });
     }
 
+    /**
+     * Rebuild the {@link HazardIndex} on the executor, so the main thread isn't blocked while the tree is built.
+     *
+     * @param hazards The current list of {@link Hazard} hazards.
+     */
+    private void updateHazardIndex(List<Hazard> hazards) {
+        try {
+            mExecutorService.execute(() -> mHazardIndex.update(hazards));
+        } catch (Exception e) {
+            Timber.tag(DEBUG).d(e, "Failed to update the hazard index.");
+        }
+    }
+
     private void refreshNotification() {
         try {
             mExecutorService.submit(() -> mNotificationsHandler.notification(GEOFENCE_SERVICE_NOTIFICATION_ID, getNotification(getNotificationText())));
@@ -268,6 +274,7 @@ public class GeofenceService extends AppService {
      */
     private void startGeofenceService() {
         mExecutorService = Executors.newSingleThreadExecutor();
+        updateHazardIndex(mHazards);
         startForeground(GEOFENCE_SERVICE_NOTIFICATION_ID, getNotification(getNotificationText()));
     }
 
@@ -354,17 +361,14 @@ public class GeofenceService extends AppService {
         String systemOfMeasurement = mSettings.getSelectedSystemOfMeasurement();
 
         if (mCurrentUserLocation != null) {
-            // Get the nearest hazards to the user's current location.
-            for (Hazard hazard : mHazards) {
-                LatLng nearestPoint = findNearestPoint(mCurrentUserLocation, hazard.getCoordinates());
-                hazard.setDirectionToHazard(getCardinalDirection(mCurrentUserLocation, nearestPoint));
-                hazard.setDistanceFromUser(computeDistanceBetween(mCurrentUserLocation, nearestPoint));
-            }
-
             handleHazardNotifications();
 
-            sortHazards(mHazards);
-            List<Hazard> closestHazards = FluentIterable.from(mHazards).limit(10).toList();
+            // Get the nearest hazards to the user's current location.
+            List<Hazard> closestHazards = mHazardIndex.getNearestHazards(mCurrentUserLocation, 10);
+
+            // Let the location service sample more often when the user is close to a hazard.
+            double nearestDistance = !mActiveHazards.isEmpty() ? 0.0 : closestHazards.isEmpty() ? Double.POSITIVE_INFINITY : closestHazards.get(0).getDistanceFromUser();
+            LiveDataBus.publish(NICS_NEAREST_HAZARD_DISTANCE, nearestDistance);
             closestHazards = (List<Hazard>) CollectionUtils.subtract(closestHazards, mActiveHazards);
 
             if (mActiveHazards.size() > 0) {
@@ -411,10 +415,8 @@ public class GeofenceService extends AppService {
     }
 
     private void handleHazardNotifications() {
-        String userLocation = coordinateToGeometryString(mCurrentUserLocation);
-
         // Get a list of the hazard zones that the user is inside of.
-        ArrayList<Hazard> intersectingHazards = mRepository.getIntersectingHazards(mPreferences.getSelectedCollabroomId(), userLocation);
+        ArrayList<Hazard> intersectingHazards = mHazardIndex.getContainingHazards(mCurrentUserLocation);
 
         // Get the difference between the current active ones.
         ArrayList<Hazard> difference = new ArrayList<>(CollectionUtils.subtract(intersectingHazards, mActiveHazards));
@@ -473,14 +475,6 @@ public class GeofenceService extends AppService {
         mNotificationsHandler.createHazardsNotification(details, hazards, mContext);
     }
 
-    /**
-     * Sorts the Hazard list based upon the distance away from the user's current location.
-     * Uses the defined Ordering from the constructor.
-     */
-    private void sortHazards(List<Hazard> hazards) {
-        Collections.sort(hazards, mOrdering);
-    }
-
     public ArrayList<Hazard> getActiveHazards() {
         return mActiveHazards;
     }
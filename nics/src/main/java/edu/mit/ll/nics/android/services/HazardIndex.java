@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import edu.mit.ll.nics.android.database.entities.Hazard;
+import edu.mit.ll.nics.android.utils.WebMercator;
+import timber.log.Timber;
+
+import static com.google.maps.android.SphericalUtil.computeDistanceBetween;
+import static edu.mit.ll.nics.android.utils.GeoUtils.findNearestPoint;
+import static edu.mit.ll.nics.android.utils.GeoUtils.getCardinalDirection;
+import static edu.mit.ll.nics.android.utils.GeoUtils.pointsToGeometry;
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+
+/**
+ * In memory spatial index of {@link Hazard} geometries used by the {@link GeofenceService} to find the hazards that
+ * contain the user and the hazards closest to the user.
+ *
+ * Hazard geometries are projected to Web Mercator, prepared and bulk loaded into an {@link STRtree}. When the hazard list
+ * changes, the geometries of hazards that haven't changed are reused and only the tree itself is rebuilt. The rebuild
+ * happens on the caller's thread without blocking queries, which keep using the previous tree until the new one is
+ * published.
+ */
+public class HazardIndex {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    // Distance from the user's location to the boundary of the hazard, matching the distance shown to the user.
+    private static final ItemDistance BOUNDARY_DISTANCE = (a, b) -> boundary(a.getItem()).distance(boundary(b.getItem()));
+
+    private volatile Snapshot mSnapshot = new Snapshot(new HashMap<>(), new STRtree());
+
+    /**
+     * Update the index with the provided hazards. This rebuilds the tree, so it should be called off of the main thread.
+     *
+     * @param hazards The current list of {@link Hazard} hazards.
+     */
+    public synchronized void update(List<Hazard> hazards) {
+        HashMap<Hazard, Entry> previous = mSnapshot.entries;
+        HashMap<Hazard, Entry> entries = new HashMap<>();
+        STRtree tree = new STRtree();
+
+        if (hazards != null) {
+            for (Hazard hazard : hazards) {
+                Entry entry = previous.get(hazard);
+                if (entry != null) {
+                    entry = new Entry(hazard, entry);
+                } else {
+                    entry = createEntry(hazard);
+                    if (entry == null) {
+                        continue;
+                    }
+                }
+
+                entries.put(hazard, entry);
+                tree.insert(entry.geometry.getEnvelopeInternal(), entry);
+            }
+        }
+
+        tree.build();
+        mSnapshot = new Snapshot(entries, tree);
+    }
+
+    /**
+     * Get the number of hazards in the index.
+     *
+     * @return The number of indexed hazards.
+     */
+    public int size() {
+        return mSnapshot.entries.size();
+    }
+
+    /**
+     * Get the hazards whose geometry intersects the provided location.
+     *
+     * @param location The {@link LatLng} location of the user.
+     * @return The list of {@link Hazard} hazards that the user is inside of.
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<Hazard> getContainingHazards(LatLng location) {
+        Snapshot snapshot = mSnapshot;
+        ArrayList<Hazard> hazards = new ArrayList<>();
+        if (location == null || snapshot.entries.isEmpty()) {
+            return hazards;
+        }
+
+        Point point = project(location);
+        List<Entry> candidates = snapshot.tree.query(point.getEnvelopeInternal());
+        for (Entry entry : candidates) {
+            if (entry.prepared.intersects(point)) {
+                hazards.add(entry.hazard);
+            }
+        }
+        return hazards;
+    }
+
+    /**
+     * Get the k hazards with the boundary closest to the provided location, ordered by distance. The distance from the user and
+     * the direction to each of the returned hazards is updated.
+     *
+     * @param location The {@link LatLng} location of the user.
+     * @param k        The maximum number of hazards to return.
+     * @return The list of the nearest {@link Hazard} hazards.
+     */
+    public List<Hazard> getNearestHazards(LatLng location, int k) {
+        Snapshot snapshot = mSnapshot;
+        if (location == null || k <= 0 || snapshot.entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Point point = project(location);
+        Object[] nearest = snapshot.tree.nearestNeighbour(point.getEnvelopeInternal(), point, BOUNDARY_DISTANCE, Math.min(k, snapshot.entries.size()));
+
+        ArrayList<Hazard> hazards = new ArrayList<>(nearest.length);
+        for (Object item : nearest) {
+            Hazard hazard = ((Entry) item).hazard;
+            LatLng nearestPoint = findNearestPoint(location, hazard.getCoordinates());
+            hazard.setDirectionToHazard(getCardinalDirection(location, nearestPoint));
+            hazard.setDistanceFromUser(computeDistanceBetween(location, nearestPoint));
+            hazards.add(hazard);
+        }
+
+        // Order by the geodesic distance, since the projected distance is only used to find the candidates.
+        Collections.sort(hazards, (h1, h2) -> Double.compare(h1.getDistanceFromUser(), h2.getDistanceFromUser()));
+        return hazards;
+    }
+
+    private static Entry createEntry(Hazard hazard) {
+        ArrayList<LatLng> coordinates = hazard.getCoordinates();
+        if (coordinates == null || coordinates.isEmpty()) {
+            return null;
+        }
+
+        double[] points = new double[coordinates.size() * 2];
+        for (int i = 0; i < coordinates.size(); i++) {
+            LatLng coordinate = coordinates.get(i);
+            points[i * 2] = WebMercator.projectX(coordinate.longitude);
+            points[i * 2 + 1] = WebMercator.projectY(coordinate.latitude);
+        }
+
+        try {
+            String type = coordinates.size() == 1 ? "marker" : coordinates.size() < 3 ? "sketch" : "polygon";
+            return new Entry(hazard, pointsToGeometry(points, type));
+        } catch (Exception e) {
+            Timber.tag(DEBUG).e(e, "Failed to index hazard geometry.");
+            return null;
+        }
+    }
+
+    private static Point project(LatLng location) {
+        return GEOMETRY_FACTORY.createPoint(new Coordinate(WebMercator.projectX(location.longitude), WebMercator.projectY(location.latitude)));
+    }
+
+    private static Geometry boundary(Object item) {
+        return item instanceof Entry ? ((Entry) item).boundary : (Geometry) item;
+    }
+
+    private static class Snapshot {
+        private final HashMap<Hazard, Entry> entries;
+        private final STRtree tree;
+
+        private Snapshot(HashMap<Hazard, Entry> entries, STRtree tree) {
+            this.entries = entries;
+            this.tree = tree;
+        }
+    }
+
+    private static class Entry {
+        private final Hazard hazard;
+        private final Geometry geometry;
+        private final Geometry boundary;
+        private final PreparedGeometry prepared;
+
+        private Entry(Hazard hazard, Geometry geometry) {
+            this.hazard = hazard;
+            this.geometry = geometry;
+            this.prepared = PreparedGeometryFactory.prepare(geometry);
+
+            Geometry boundary = geometry.getBoundary();
+            this.boundary = boundary.isEmpty() ? geometry : boundary;
+        }
+
+        private Entry(Hazard hazard, Entry entry) {
+            this.hazard = hazard;
+            this.geometry = entry.geometry;
+            this.prepared = entry.prepared;
+            this.boundary = entry.boundary;
+        }
+    }
+}
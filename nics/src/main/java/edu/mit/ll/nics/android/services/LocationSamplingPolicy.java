@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.maps.model.LatLng;
+
+import java.util.Objects;
+
+import static com.google.maps.android.SphericalUtil.computeDistanceBetween;
+
+/**
+ * Picks the location request interval and priority for the {@link LocationService} from the user's speed, the distance
+ * moved since the last MDT was sent and the distance to the nearest hazard reported by the {@link GeofenceService}.
+ *
+ * Fixes stay at the MDT rate while the user is moving, get faster when the user is near a hazard and back off to a lower
+ * power priority once the user has been stationary for a while.
+ */
+public class LocationSamplingPolicy {
+
+    public static final double NEAR_HAZARD_DISTANCE = 500.0;
+    public static final double APPROACHING_HAZARD_DISTANCE = 2000.0;
+    public static final long NEAR_HAZARD_INTERVAL = 5000L;
+    public static final long STATIONARY_INTERVAL = 60000L;
+    public static final long STATIONARY_DELAY = 120000L;
+    public static final double MOVING_SPEED = 1.0;
+    public static final double MOVED_DISTANCE = 50.0;
+
+    private long mBaseInterval;
+    private LatLng mLastLocation;
+    private long mLastTime;
+    private LatLng mLastMdtLocation;
+    private long mStationarySince = -1L;
+    private double mHazardDistance = Double.POSITIVE_INFINITY;
+    private Request mRequest;
+
+    /**
+     * @param rate The MDT data rate in seconds.
+     */
+    public LocationSamplingPolicy(int rate) {
+        setRate(rate);
+    }
+
+    /**
+     * Set the MDT data rate that the user has selected, which is the interval used while the user is moving.
+     *
+     * @param rate The MDT data rate in seconds.
+     */
+    public void setRate(int rate) {
+        mBaseInterval = Math.max(1000L, 1000L * rate);
+        mRequest = null;
+    }
+
+    /**
+     * Set the distance to the boundary of the nearest hazard, or 0 if the user is inside of a hazard.
+     *
+     * @param distance The distance in meters, or {@link Double#POSITIVE_INFINITY} if there are no hazards.
+     */
+    public void setHazardDistance(double distance) {
+        mHazardDistance = distance;
+    }
+
+    /**
+     * Record the location of the MDT that was just sent.
+     *
+     * @param location The {@link LatLng} location of the MDT.
+     */
+    public void onMdtSent(LatLng location) {
+        mLastMdtLocation = location;
+    }
+
+    /**
+     * Update the policy with a new location fix.
+     *
+     * Distances that are within the fix's accuracy are treated as noise, so that a stationary user whose fixes jitter
+     * around isn't counted as moving.
+     *
+     * @param location The {@link LatLng} location of the fix.
+     * @param speed    The speed in meters per second reported by the fix, or {@link Float#NaN} if it doesn't have one.
+     * @param accuracy The horizontal accuracy of the fix in meters, or {@link Float#NaN} if it doesn't have one.
+     * @param time     The time of the fix in milliseconds.
+     * @return The {@link Request} that location updates should use from now on.
+     */
+    public Request update(LatLng location, float speed, float accuracy, long time) {
+        double noise = Float.isNaN(accuracy) ? 0.0 : accuracy;
+        double moved = mLastMdtLocation != null ? computeDistanceBetween(mLastMdtLocation, location) : 0.0;
+
+        // Estimate the speed from the previous fix if the provider didn't report one.
+        double currentSpeed = speed;
+        if (Float.isNaN(speed) && mLastLocation != null && time > mLastTime) {
+            double distance = computeDistanceBetween(mLastLocation, location);
+            currentSpeed = distance > noise ? distance / ((time - mLastTime) / 1000.0) : 0.0;
+        }
+
+        mLastLocation = location;
+        mLastTime = time;
+
+        boolean moving = (!Double.isNaN(currentSpeed) && currentSpeed >= MOVING_SPEED) || moved >= Math.max(MOVED_DISTANCE, noise);
+        if (moving) {
+            mStationarySince = -1L;
+        } else if (mStationarySince < 0) {
+            mStationarySince = time;
+        }
+
+        if (mHazardDistance <= NEAR_HAZARD_DISTANCE) {
+            mRequest = new Request(Math.min(mBaseInterval, NEAR_HAZARD_INTERVAL), LocationRequest.PRIORITY_HIGH_ACCURACY);
+        } else if (moving || mHazardDistance <= APPROACHING_HAZARD_DISTANCE) {
+            mRequest = new Request(mBaseInterval, LocationRequest.PRIORITY_HIGH_ACCURACY);
+        } else if (time - mStationarySince >= STATIONARY_DELAY) {
+            mRequest = new Request(Math.max(mBaseInterval, STATIONARY_INTERVAL), LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+        } else {
+            // Keep the previous priority until the user has been stationary for the full delay.
+            mRequest = new Request(mBaseInterval, getRequest().getPriority());
+        }
+
+        return mRequest;
+    }
+
+    /**
+     * Get the current {@link Request}. Before the first fix this is the MDT rate at high accuracy.
+     *
+     * @return The {@link Request} that location updates should use.
+     */
+    public Request getRequest() {
+        if (mRequest == null) {
+            mRequest = new Request(mBaseInterval, LocationRequest.PRIORITY_HIGH_ACCURACY);
+        }
+        return mRequest;
+    }
+
+    public static class Request {
+
+        private final long mInterval;
+        private final int mPriority;
+
+        public Request(long interval, int priority) {
+            mInterval = interval;
+            mPriority = priority;
+        }
+
+        public long getInterval() {
+            return mInterval;
+        }
+
+        public long getFastestInterval() {
+            return mInterval / 2;
+        }
+
+        public int getPriority() {
+            return mPriority;
+        }
+
+        public LocationRequest toLocationRequest() {
+            LocationRequest request = LocationRequest.create();
+            request.setPriority(mPriority);
+            request.setInterval(mInterval);
+            request.setFastestInterval(getFastestInterval());
+            return request;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Request)) return false;
+
+            Request request = (Request) o;
+            return mInterval == request.mInterval && mPriority == request.mPriority;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mInterval, mPriority);
+        }
+    }
+}
@@ -33,16 +33,19 @@ import android.app.Notification;
 import android.app.PendingIntent;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.location.Location;
 import android.os.Binder;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
@@ -50,6 +53,7 @@ import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.maps.LocationSource;
+import com.google.android.gms.maps.model.LatLng;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -66,23 +70,32 @@ import timber.log.Timber;
 import static edu.mit.ll.nics.android.utils.CheckPermissions.hasLocationPermissions;
 import static edu.mit.ll.nics.android.utils.StringUtils.EMPTY;
 import static edu.mit.ll.nics.android.utils.StringUtils.SPACE;
+import static edu.mit.ll.nics.android.utils.constants.Events.NICS_NEAREST_HAZARD_DISTANCE;
 import static edu.mit.ll.nics.android.utils.constants.Events.NICS_SHOW_PERMISSIONS_DIALOG;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 import static edu.mit.ll.nics.android.utils.constants.Notifications.EXTRA_NEW_TRACKING_STATE;
 import static edu.mit.ll.nics.android.utils.constants.Notifications.EXTRA_STARTED_FROM_NOTIFICATION;
 import static edu.mit.ll.nics.android.utils.constants.Notifications.LOCATION_NOTIFICATION_CHANNEL_ID_SERVICE;
 import static edu.mit.ll.nics.android.utils.constants.Notifications.LOCATION_NOTIFICATION_ID;
+import static edu.mit.ll.nics.android.utils.constants.Settings.ADAPTIVE_LOCATION_CHECKBOX;
 import static edu.mit.ll.nics.android.utils.constants.Settings.GEOFENCING_CHECKBOX;
 import static edu.mit.ll.nics.android.utils.constants.Settings.TRACKING_CHECKBOX;
 
 @AndroidEntryPoint
 public class LocationService extends AppService implements LocationSource, SharedPreferences.OnSharedPreferenceChangeListener {
 
+    // Minimum time between rebuilding the foreground notification for new location fixes.
+    private static final long NOTIFICATION_DEBOUNCE = 10000L;
+
     private FusedLocationProviderClient mLocationClient;
     private final IBinder mBinder = new LocalBinder();
 
     private OnLocationChangedListener mOnLocationChangedListener;
     private Location mLastLocation;
+    private Bitmap mLargeIcon;
+    private long mLastNotificationTime;
+    private LocationSamplingPolicy mSamplingPolicy;
+    private LocationSamplingPolicy.Request mCurrentRequest;
 
     private final LocationCallback mLocationCallback = new LocationCallback() {
         @Override
@@ -92,6 +105,7 @@ public class LocationService extends AppService implements LocationSource, Share
     };
 
     private LiveData<String> mMDTRateObserver;
+    private final Observer<Object> mNearestHazardObserver = data -> onNearestHazardChanged((Double) data);
 
     @Inject
     MDTRepository mMDTRepository;
@@ -104,6 +118,10 @@ public class LocationService extends AppService implements LocationSource, Share
         super.onCreate();
 
         mLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        mSamplingPolicy = new LocationSamplingPolicy(mSettings.getMDTDataRate());
+        mLargeIcon = BitmapFactory.decodeResource(mContext.getResources(), R.mipmap.ic_launcher);
+
+        LiveDataBus.subscribe(NICS_NEAREST_HAZARD_DISTANCE, this, mNearestHazardObserver);
 
         // TODO should unregister when service is stopped. .. use livedata instead.
         mSettings.getSettings().registerOnSharedPreferenceChangeListener(this);
@@ -144,6 +162,7 @@ public class LocationService extends AppService implements LocationSource, Share
 
     @Override
     public void onDestroy() {
+        LiveDataBus.unsubscribe(NICS_NEAREST_HAZARD_DISTANCE, mNearestHazardObserver);
         deactivate();
         mNotificationsHandler.cancelNotification(LOCATION_NOTIFICATION_ID);
         super.onDestroy();
@@ -206,11 +225,36 @@ public class LocationService extends AppService implements LocationSource, Share
     }
 
     public void startLocationUpdates(int rate) {
+        mSamplingPolicy.setRate(rate);
+
+        LocationRequest request;
+        if (mSettings.isAdaptiveLocationEnabled()) {
+            mCurrentRequest = mSamplingPolicy.getRequest();
+            request = mCurrentRequest.toLocationRequest();
+        } else {
+            mCurrentRequest = null;
+            request = LocationRequest.create();
+            request.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
+            request.setInterval(1000L * (long) rate);
+            request.setFastestInterval(0L);
+        }
+
+        requestLocationUpdates(request);
+    }
+
+    /**
+     * Switch location updates to the request picked by the {@link LocationSamplingPolicy} if it has changed.
+     */
+    private void updateLocationRequest(LocationSamplingPolicy.Request request) {
+        if (mCurrentRequest != null && !mCurrentRequest.equals(request)) {
+            Timber.tag(DEBUG).d("Location request changed to %d ms with priority %d.", request.getInterval(), request.getPriority());
+            mCurrentRequest = request;
+            requestLocationUpdates(request.toLocationRequest());
+        }
+    }
+
+    private void requestLocationUpdates(LocationRequest request) {
         stopLocationUpdates();
-        LocationRequest request = LocationRequest.create();
-        request.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
-        request.setInterval(1000L * (long) rate);
-        request.setFastestInterval(0L);
 
         // TODO need to create a dialog telling the user that they denied the permissions or something like that.
         // Call requires location permissions, check if permission are available. If not denied by user than request permission
@@ -273,7 +317,7 @@ public class LocationService extends AppService implements LocationSource, Share
                 .setPriority(Notification.PRIORITY_LOW)
                 .setSmallIcon(R.drawable.ic_person_pin)
                 .setColor(ContextCompat.getColor(mContext, R.color.notification))
-                .setLargeIcon(BitmapFactory.decodeResource(mContext.getResources(), R.mipmap.ic_launcher))
+                .setLargeIcon(mLargeIcon)
                 .setWhen(System.currentTimeMillis())
                 .setOnlyAlertOnce(true)
                 .build();
@@ -286,9 +330,17 @@ public class LocationService extends AppService implements LocationSource, Share
             long lastTime = mPreferences.getMDTTime();
             long curTime = location.getTime();
 
+            LatLng latLng = new LatLng(location.getLatitude(), location.getLongitude());
             if (mSettings.isMDTEnabled() && curTime >= lastTime + ((mSettings.getMDTDataRate() - 5) * 1000) && mAuthRepository.isLoggedIn()) {
                 mMDTRepository.addMDT(mPreferences.setMDT(location));
                 mNetworkRepository.postMDTs();
+                mSamplingPolicy.onMdtSent(latLng);
+            }
+
+            if (mCurrentRequest != null) {
+                float speed = location.hasSpeed() ? location.getSpeed() : Float.NaN;
+                float accuracy = location.hasAccuracy() ? location.getAccuracy() : Float.NaN;
+                updateLocationRequest(mSamplingPolicy.update(latLng, speed, accuracy, curTime));
             }
 
             if (mOnLocationChangedListener != null) {
@@ -297,7 +349,22 @@ public class LocationService extends AppService implements LocationSource, Share
 
             LiveDataBus.publish(Events.NICS_LOCATION_CHANGED, location);
 
-            mNotificationsHandler.notification(LOCATION_NOTIFICATION_ID, getNotification());
+            // The notification only shows the latest fix, so don't rebuild it for every location update.
+            long now = SystemClock.elapsedRealtime();
+            if (now - mLastNotificationTime >= NOTIFICATION_DEBOUNCE) {
+                refreshNotification();
+            }
+        }
+    }
+
+    private void refreshNotification() {
+        mLastNotificationTime = SystemClock.elapsedRealtime();
+        mNotificationsHandler.notification(LOCATION_NOTIFICATION_ID, getNotification());
+    }
+
+    private void onNearestHazardChanged(Double distance) {
+        if (distance != null) {
+            mSamplingPolicy.setHazardDistance(distance);
         }
     }
 
@@ -347,7 +414,7 @@ public class LocationService extends AppService implements LocationSource, Share
                 }
             }
 
-            mNotificationsHandler.notification(LOCATION_NOTIFICATION_ID, getNotification());
+            refreshNotification();
         }
 
         // If both hazard detection and mobile device tracking were off, and geofencing is turned on, we need to start location updates for the geofencing service.
@@ -355,6 +422,11 @@ public class LocationService extends AppService implements LocationSource, Share
             mLastLocation = null;
             startLocationUpdates(mSettings.getMDTDataRate());
         }
+
+        // Switch between adaptive and fixed rate location requests.
+        else if (ADAPTIVE_LOCATION_CHECKBOX.equals(key) && (mSettings.isMDTEnabled() || mSettings.isGeofencingEnabled())) {
+            startLocationUpdates(mSettings.getMDTDataRate());
+        }
     }
 
     /**
@@ -29,16 +29,9 @@
  */
 package edu.mit.ll.nics.android.services;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.os.Binder;
 import android.os.IBinder;
-import android.os.PowerManager;
-import android.os.SystemClock;
 
 import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
@@ -56,55 +49,18 @@ import edu.mit.ll.nics.android.enums.PresenceStatus;
 import timber.log.Timber;
 
 import static edu.mit.ll.nics.android.utils.NetworkUtils.isNetworkConnected;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_ALERTS;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_COLLABROOMS;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_COLLABROOM_LAYERS;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_INCIDENTS;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_MARKUP_REQUEST;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_ORGANIZATIONS;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_TASK_CHAT_MESSAGES;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_TASK_CHAT_PRESENCE;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_TASK_EOD_REPORT;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_TASK_GENERAL_MESSAGE;
-import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_TRACKING_LAYERS;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_NO_RESULTS;
-import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_WAKE_LOCK;
-import static edu.mit.ll.nics.android.utils.constants.NICS.TEN_MINUTES;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.ALERTS_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.CHATS_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.CHAT_PRESENCE_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.COLLABROOMS_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.COLLABROOM_LAYERS_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.EOD_REPORTS_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.GENERAL_MESSAGES_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.INCIDENTS_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.MARKUP_FEATURES_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.ORGANIZATIONS_REQUEST_CODE;
-import static edu.mit.ll.nics.android.utils.constants.Notifications.TRACKING_LAYERS_REQUEST_CODE;
 
 @AndroidEntryPoint
 public class PollingService extends AppService {
 
-    private static final String TYPE = "type";
-
     private final IBinder mBinder = new LocalBinder();
 
     // TODO poll incident and organizations.
 
     private boolean mIsPollingIncident = false;
     private boolean mIsPollingCollabroom = false;
-    private PendingIntent mPendingAlertIntent;
-    private PendingIntent mPendingCollabroomIntent;
-    private PendingIntent mPendingIncidentIntent;
-    private PendingIntent mPendingOrganizationIntent;
-    private PendingIntent mPendingCollabroomLayerIntent;
-    private PendingIntent mPendingEODReportIntent;
-    private PendingIntent mPendingGeneralMessageIntent;
-    private PendingIntent mPendingMarkupRequestIntent;
-    private PendingIntent mPendingChatMessagesRequestIntent;
-    private PendingIntent mPendingChatPresenceRequestIntent;
-    private PendingIntent mPendingTrackingLayerIntent;
     private LiveData<String> mIncidentRateObserver;
     private LiveData<String> mCollabroomRateObserver;
 
@@ -112,20 +68,19 @@ public class PollingService extends AppService {
     private Timer mServerCommsTimer;
 
     @Inject
-    AlarmManager mAlarmManager;
+    SyncScheduler mSyncScheduler;
 
     @Nullable
     @Override
     public IBinder onBind(@NotNull Intent intent) {
         super.onBind(intent);
-        registerReceivers();
         subscribeToLiveData();
         return mBinder;
     }
 
     @Override
     public boolean onUnbind(Intent intent) {
-        unregisterReceiver(receiver);
+        stopPolling();
 
         if (mIncidentRateObserver != null) {
             mIncidentRateObserver.removeObservers(this);
@@ -145,198 +100,69 @@ public class PollingService extends AppService {
         mCollabroomRateObserver.observe(this, rate -> refreshPollingCollabroom());
     }
 
-    private void registerReceivers() {
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_ALERTS));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_COLLABROOMS));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_MARKUP_REQUEST));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_TASK_EOD_REPORT));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_TASK_GENERAL_MESSAGE));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_TASK_CHAT_MESSAGES));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_TASK_CHAT_PRESENCE));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_COLLABROOM_LAYERS));
-        registerReceiver(receiver, new IntentFilter(NICS_POLLING_TRACKING_LAYERS));
+    /**
+     * Add the sync to the {@link SyncScheduler}, only requesting the data while the network is connected and the user is
+     * logged in.
+     *
+     * @param adaptive Whether the sync may back off and slow down in the background, which syncs that have to keep their
+     *                 rate, such as alerts and the chat presence, opt out of.
+     */
+    private void schedule(Polling type, int seconds, boolean immediately, boolean adaptive, Runnable sync) {
+        mSyncScheduler.schedule(type.toString(), seconds, immediately, adaptive, () -> {
+            if (isNetworkConnected(mConnectivityManager) && mAuthRepository.isLoggedIn()) {
+                sync.run();
+            }
+        });
     }
 
-    public void requestAlertsRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_ALERTS);
-        intent.putExtra(TYPE, Polling.ALERTS.toString());
-
-        mPendingAlertIntent = PendingIntent.getBroadcast(mContext, ALERTS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getAlerts();
+    private void cancel(Polling... types) {
+        for (Polling type : types) {
+            mSyncScheduler.cancel(type.toString());
         }
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingAlertIntent);
+    }
 
-        Timber.tag(DEBUG).i("Set alert report repeating fetch interval: %s seconds.", seconds);
+    public void requestAlertsRepeating(int seconds, boolean immediately) {
+        schedule(Polling.ALERTS, seconds, immediately, false, mNetworkRepository::getAlerts);
     }
 
     public void requestCollabroomLayersRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_COLLABROOM_LAYERS);
-        intent.putExtra(TYPE, Polling.COLLABROOM_LAYERS.toString());
-
-        mPendingCollabroomLayerIntent = PendingIntent.getBroadcast(mContext, COLLABROOM_LAYERS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getCollabroomLayers();
-        }
-
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingCollabroomLayerIntent);
-
-        Timber.tag(DEBUG).i("Set collabroom layer repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.COLLABROOM_LAYERS, seconds, immediately, true, mNetworkRepository::getCollabroomLayers);
     }
 
     public void requestCollabroomsRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_COLLABROOMS);
-        intent.putExtra(TYPE, Polling.COLLABROOM.toString());
-
-        mPendingCollabroomIntent = PendingIntent.getBroadcast(mContext, COLLABROOMS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getCollabrooms(mPreferences.getSelectedIncidentId());
-        }
-
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingCollabroomIntent);
-
-        Timber.tag(DEBUG).i("Set collabroom repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.COLLABROOM, seconds, immediately, true, () -> mNetworkRepository.getCollabrooms(mPreferences.getSelectedIncidentId()));
     }
 
     public void requestIncidentsRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_INCIDENTS);
-        intent.putExtra(TYPE, Polling.INCIDENT.toString());
-
-        mPendingIncidentIntent = PendingIntent.getBroadcast(mContext, INCIDENTS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getIncidents();
-        }
-
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingIncidentIntent);
-
-        Timber.tag(DEBUG).i("Set incident repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.INCIDENT, seconds, immediately, true, mNetworkRepository::getIncidents);
     }
 
     public void requestOrganizationsRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_ORGANIZATIONS);
-        intent.putExtra(TYPE, Polling.ORGANIZATION.toString());
-
-        mPendingOrganizationIntent = PendingIntent.getBroadcast(mContext, ORGANIZATIONS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getUserOrgs();
-        }
-
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingOrganizationIntent);
-
-        Timber.tag(DEBUG).i("Set collabroom repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.ORGANIZATION, seconds, immediately, true, mNetworkRepository::getUserOrgs);
     }
 
     public void requestGeneralMessageRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_TASK_GENERAL_MESSAGE);
-        intent.putExtra(TYPE, Polling.GENERAL_MESSAGE.toString());
-
-        mPendingGeneralMessageIntent = PendingIntent.getBroadcast(mContext, GENERAL_MESSAGES_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getGeneralMessages();
-        }
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingGeneralMessageIntent);
-
-        Timber.tag(DEBUG).i("Set general message repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.GENERAL_MESSAGE, seconds, immediately, true, mNetworkRepository::getGeneralMessages);
     }
 
     public void requestEODReportRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_TASK_EOD_REPORT);
-        intent.putExtra(TYPE, Polling.EOD_REPORT.toString());
-
-        mPendingEODReportIntent = PendingIntent.getBroadcast(mContext, EOD_REPORTS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getEODReports();
-        }
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingEODReportIntent);
-
-        Timber.tag(DEBUG).i("Set EOD report repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.EOD_REPORT, seconds, immediately, true, mNetworkRepository::getEODReports);
     }
 
     public void requestChatMessagesRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_TASK_CHAT_MESSAGES);
-        intent.putExtra(TYPE, Polling.CHAT_MESSAGES.toString());
-
-        mPendingChatMessagesRequestIntent = PendingIntent.getBroadcast(mContext, CHATS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getChatMessages();
-        }
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingChatMessagesRequestIntent);
-
-        Timber.tag(DEBUG).i("Set chat message request repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.CHAT_MESSAGES, seconds, immediately, true, mNetworkRepository::getChatMessages);
     }
 
     public void requestChatPresenceRepeating(boolean immediately) {
-        int seconds = 4 * 60;
-        Intent intent = new Intent(NICS_POLLING_TASK_CHAT_PRESENCE);
-        intent.putExtra(TYPE, Polling.CHAT_PRESENCE.toString());
-
-        mPendingChatPresenceRequestIntent = PendingIntent.getBroadcast(mContext, CHAT_PRESENCE_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.postChatPresence(PresenceStatus.ACTIVE);
-        }
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingChatPresenceRequestIntent);
-
-        Timber.tag(DEBUG).i("Set chat presence request repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.CHAT_PRESENCE, 4 * 60, immediately, false, () -> mNetworkRepository.postChatPresence(PresenceStatus.ACTIVE));
     }
 
     public void requestMarkupRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_MARKUP_REQUEST);
-        intent.putExtra(TYPE, Polling.MAP_MARKUP.toString());
-
-        mPendingMarkupRequestIntent = PendingIntent.getBroadcast(mContext, MARKUP_FEATURES_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getMarkupFeatures();
-        }
-
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingMarkupRequestIntent);
-
-        Timber.tag(DEBUG).i("Set map markup repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.MAP_MARKUP, seconds, immediately, true, mNetworkRepository::getMarkupFeatures);
     }
 
     public void requestTrackingLayersRepeating(int seconds, boolean immediately) {
-        Intent intent = new Intent(NICS_POLLING_TRACKING_LAYERS);
-        intent.putExtra(TYPE, Polling.TRACKING_LAYERS.toString());
-
-        mPendingTrackingLayerIntent = PendingIntent.getBroadcast(mContext, TRACKING_LAYERS_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        long secondsFromNow = SystemClock.elapsedRealtime() + (seconds * 1000);
-
-        if (immediately) {
-            mNetworkRepository.getTrackingLayers();
-        }
-        mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, secondsFromNow, (seconds * 1000), mPendingTrackingLayerIntent);
-
-        Timber.tag(DEBUG).i("Set tracking layer repeating fetch interval: %s seconds.", seconds);
+        schedule(Polling.TRACKING_LAYERS, seconds, immediately, true, mNetworkRepository::getTrackingLayers);
     }
 
     public void startPolling() {
@@ -352,17 +178,9 @@ public class PollingService extends AppService {
     }
 
     public void stopPolling() {
-        if (mPendingGeneralMessageIntent != null) mAlarmManager.cancel(mPendingGeneralMessageIntent);
-        if (mPendingEODReportIntent != null) mAlarmManager.cancel(mPendingEODReportIntent);
-        if (mPendingChatMessagesRequestIntent != null) mAlarmManager.cancel(mPendingChatMessagesRequestIntent);
-        if (mPendingChatPresenceRequestIntent != null) mAlarmManager.cancel(mPendingChatPresenceRequestIntent);
-        if (mPendingMarkupRequestIntent != null) mAlarmManager.cancel(mPendingMarkupRequestIntent);
-        if (mPendingAlertIntent != null) mAlarmManager.cancel(mPendingAlertIntent);
-        if (mPendingCollabroomLayerIntent != null) mAlarmManager.cancel(mPendingCollabroomLayerIntent);
-        if (mPendingCollabroomIntent != null) mAlarmManager.cancel(mPendingCollabroomIntent);
-        if (mPendingTrackingLayerIntent != null) mAlarmManager.cancel(mPendingTrackingLayerIntent);
-        if (mPendingIncidentIntent != null) mAlarmManager.cancel(mPendingIncidentIntent);
-        if (mPendingOrganizationIntent != null) mAlarmManager.cancel(mPendingOrganizationIntent);
+        cancel(Polling.GENERAL_MESSAGE, Polling.EOD_REPORT, Polling.CHAT_MESSAGES, Polling.CHAT_PRESENCE, Polling.MAP_MARKUP,
+                Polling.ALERTS, Polling.COLLABROOM_LAYERS, Polling.COLLABROOM, Polling.TRACKING_LAYERS, Polling.INCIDENT,
+                Polling.ORGANIZATION);
         mIsPollingIncident = false;
         mIsPollingCollabroom = false;
     }
@@ -373,8 +191,7 @@ public class PollingService extends AppService {
     }
 
     public void stopPollingServer() {
-        if (mPendingIncidentIntent != null) mAlarmManager.cancel(mPendingIncidentIntent);
-        if (mPendingOrganizationIntent != null) mAlarmManager.cancel(mPendingOrganizationIntent);
+        cancel(Polling.INCIDENT, Polling.ORGANIZATION);
     }
 
     public void startPollingIncident() {
@@ -385,10 +202,7 @@ public class PollingService extends AppService {
     }
 
     public void stopPollingIncident() {
-        if (mPendingAlertIntent != null) mAlarmManager.cancel(mPendingAlertIntent);
-        if (mPendingCollabroomLayerIntent != null) mAlarmManager.cancel(mPendingCollabroomLayerIntent);
-        if (mPendingCollabroomIntent != null) mAlarmManager.cancel(mPendingCollabroomIntent);
-        if (mPendingTrackingLayerIntent != null) mAlarmManager.cancel(mPendingTrackingLayerIntent);
+        cancel(Polling.ALERTS, Polling.COLLABROOM_LAYERS, Polling.COLLABROOM, Polling.TRACKING_LAYERS);
         mIsPollingIncident = false;
     }
 
@@ -403,11 +217,7 @@ public class PollingService extends AppService {
     }
 
     public void stopPollingCollabroom() {
-        if (mPendingGeneralMessageIntent != null) mAlarmManager.cancel(mPendingGeneralMessageIntent);
-        if (mPendingEODReportIntent != null) mAlarmManager.cancel(mPendingEODReportIntent);
-        if (mPendingChatMessagesRequestIntent != null) mAlarmManager.cancel(mPendingChatMessagesRequestIntent);
-        if (mPendingChatPresenceRequestIntent != null) mAlarmManager.cancel(mPendingChatPresenceRequestIntent);
-        if (mPendingMarkupRequestIntent != null) mAlarmManager.cancel(mPendingMarkupRequestIntent);
+        cancel(Polling.GENERAL_MESSAGE, Polling.EOD_REPORT, Polling.CHAT_MESSAGES, Polling.CHAT_PRESENCE, Polling.MAP_MARKUP);
         mIsPollingCollabroom = false;
     }
 
@@ -425,71 +235,6 @@ public class PollingService extends AppService {
         }
     }
 
-    final BroadcastReceiver receiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            if (isNetworkConnected(mConnectivityManager) && mAuthRepository.isLoggedIn()) {
-                try {
-                    PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-                    PowerManager.WakeLock wakeLock = null;
-                    if (pm != null) {
-                        wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, NICS_WAKE_LOCK);
-                    }
-
-                    //Acquire the lock
-                    if (wakeLock != null) {
-                        wakeLock.acquire(TEN_MINUTES);
-                    }
-
-                    Polling type = Polling.valueOf(intent.getStringExtra(TYPE));
-                    Timber.tag(DEBUG).i("Requesting Data Update: %s", type);
-                    switch (type) {
-                        case GENERAL_MESSAGE:
-                            mNetworkRepository.getGeneralMessages();
-                            break;
-                        case EOD_REPORT:
-                            mNetworkRepository.getEODReports();
-                            break;
-                        case CHAT_MESSAGES:
-                            mNetworkRepository.getChatMessages();
-                            break;
-                        case CHAT_PRESENCE:
-                            mNetworkRepository.postChatPresence(PresenceStatus.ACTIVE);
-                            break;
-                        case MAP_MARKUP:
-                            mNetworkRepository.getMarkupFeatures();
-                            break;
-                        case ALERTS:
-                            mNetworkRepository.getAlerts();
-                            break;
-                        case COLLABROOM_LAYERS:
-                            mNetworkRepository.getCollabroomLayers();
-                            break;
-                        case TRACKING_LAYERS:
-                            mNetworkRepository.getTrackingLayers();
-                            break;
-                        case COLLABROOM:
-                            mNetworkRepository.getCollabrooms(mPreferences.getSelectedIncidentId());
-                            break;
-                        case INCIDENT:
-                            mNetworkRepository.getIncidents();
-                            break;
-                        case ORGANIZATION:
-                            mNetworkRepository.getUserOrgs();
-                            break;
-                    }
-
-                    //Release the lock
-                    if (wakeLock != null) {
-                        wakeLock.release();
-                    }
-                } catch (Exception e) {
-                    Timber.tag(DEBUG).e(e, "Failed inside of the polling receiver.");
-                }
-            }
-        }
-    };
-
     // TODO need to implement this back.
     public void startServerPingedTimer() {
         long rate = (long) mSettings.getIncidentDataRate() * 1000L;
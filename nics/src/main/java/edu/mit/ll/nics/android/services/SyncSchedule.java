@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the next due time and the current interval of every periodic sync, so that all of the syncs that are due around
+ * the same time can be fetched together in a single wake up of the device.
+ *
+ * Each sync starts at the data rate that the user has selected. Polls that don't return anything new double the interval,
+ * up to {@link #MAX_BACKOFF} times, and a poll that does return new data drops it back to the selected rate. The interval is
+ * also stretched while the app is in the background and while the screen is off. Syncs that must keep their rate, such as
+ * alerts, can be scheduled without adaptation. Time is read from a {@link Clock} so the schedule can be driven
+ * deterministically.
+ */
+public class SyncSchedule {
+
+    public static final long COALESCE_WINDOW = 15000L;
+    public static final long MAX_INTERVAL = 900000L;
+    public static final int MAX_BACKOFF = 3;
+    public static final int BACKGROUND_FACTOR = 2;
+    public static final int SCREEN_OFF_FACTOR = 4;
+
+    private final Clock mClock;
+    private final LinkedHashMap<String, Sync> mSyncs = new LinkedHashMap<>();
+    private boolean mForeground = true;
+    private boolean mScreenOn = true;
+
+    public SyncSchedule(Clock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Add an adaptive sync to the schedule, or replace it if it is already scheduled, which also resets its back off.
+     *
+     * @see #schedule(String, long, boolean, boolean)
+     */
+    public void schedule(String key, long interval, boolean immediately) {
+        schedule(key, interval, immediately, true);
+    }
+
+    /**
+     * Add a sync to the schedule, or replace it if it is already scheduled, which also resets its back off.
+     *
+     * @param key         The key of the sync.
+     * @param interval    The interval in milliseconds that the user has selected for the sync.
+     * @param immediately Whether the sync should be due right away or after the first interval.
+     * @param adaptive    Whether the interval backs off and is stretched in the background and with the screen off, or
+     *                    always stays at the selected rate.
+     */
+    public void schedule(String key, long interval, boolean immediately, boolean adaptive) {
+        Sync sync = new Sync(Math.max(1000L, interval), adaptive);
+        sync.mLastRun = mClock.elapsedRealtime();
+        sync.mNextDue = immediately ? sync.mLastRun : sync.mLastRun + getInterval(sync);
+        mSyncs.put(key, sync);
+    }
+
+    public void cancel(String key) {
+        mSyncs.remove(key);
+    }
+
+    public boolean isScheduled(String key) {
+        return mSyncs.containsKey(key);
+    }
+
+    public boolean isEmpty() {
+        return mSyncs.isEmpty();
+    }
+
+    /**
+     * Get the interval that the sync is currently running at, after back off and the foreground and screen state.
+     *
+     * @param key The key of the sync.
+     * @return The interval in milliseconds, or -1 if the sync isn't scheduled.
+     */
+    public long getInterval(String key) {
+        Sync sync = mSyncs.get(key);
+        return sync != null ? getInterval(sync) : -1L;
+    }
+
+    /**
+     * Get the time that the device should next be woken up to run syncs.
+     *
+     * @return The earliest due time of all of the syncs, or -1 if nothing is scheduled.
+     */
+    public long getNextWakeup() {
+        long next = -1L;
+        for (Sync sync : mSyncs.values()) {
+            if (next < 0 || sync.mNextDue < next) {
+                next = sync.mNextDue;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Take all of the syncs that are due now or within the {@link #COALESCE_WINDOW}, and schedule their next run. Pulling
+     * in the syncs that are almost due avoids another wake up a few seconds later.
+     *
+     * @return The keys of the syncs to run, in the order that they were scheduled.
+     */
+    public List<String> pollDue() {
+        long now = mClock.elapsedRealtime();
+        List<String> due = new ArrayList<>();
+
+        for (Map.Entry<String, Sync> entry : mSyncs.entrySet()) {
+            Sync sync = entry.getValue();
+            if (sync.mNextDue <= now + COALESCE_WINDOW) {
+                // Keep a sync that was pulled in early on its own cadence, instead of running it early every time.
+                sync.mLastRun = Math.max(now, sync.mNextDue);
+                sync.mNextDue = sync.mLastRun + getInterval(sync);
+                due.add(entry.getKey());
+            }
+        }
+
+        return due;
+    }
+
+    /**
+     * Report whether a poll of a sync returned any new data, so that its interval can adapt to how often the data changes.
+     *
+     * @param key     The key of the sync.
+     * @param changed Whether the poll returned any new data.
+     */
+    public void onResult(String key, boolean changed) {
+        Sync sync = mSyncs.get(key);
+        if (sync == null || !sync.mAdaptive) {
+            return;
+        }
+
+        if (changed) {
+            sync.mBackoff = 0;
+        } else if (sync.mBackoff < MAX_BACKOFF) {
+            sync.mBackoff++;
+        }
+
+        sync.mNextDue = sync.mLastRun + getInterval(sync);
+    }
+
+    public void setForeground(boolean foreground) {
+        if (mForeground != foreground) {
+            mForeground = foreground;
+            reschedule();
+        }
+    }
+
+    public void setScreenOn(boolean screenOn) {
+        if (mScreenOn != screenOn) {
+            mScreenOn = screenOn;
+            reschedule();
+        }
+    }
+
+    private void reschedule() {
+        for (Sync sync : mSyncs.values()) {
+            sync.mNextDue = sync.mLastRun + getInterval(sync);
+        }
+    }
+
+    private long getInterval(Sync sync) {
+        if (!sync.mAdaptive) {
+            return sync.mInterval;
+        }
+
+        int factor = !mScreenOn ? SCREEN_OFF_FACTOR : !mForeground ? BACKGROUND_FACTOR : 1;
+        long interval = (sync.mInterval << sync.mBackoff) * factor;
+
+        // Never stretch a sync past the maximum, unless the user selected a slower rate to begin with.
+        return Math.max(sync.mInterval, Math.min(interval, MAX_INTERVAL));
+    }
+
+    /**
+     * Source of the monotonic time in milliseconds that the schedule runs on.
+     */
+    public interface Clock {
+        long elapsedRealtime();
+    }
+
+    private static class Sync {
+
+        private final long mInterval;
+        private final boolean mAdaptive;
+        private int mBackoff;
+        private long mLastRun;
+        private long mNextDue;
+
+        private Sync(long interval, boolean adaptive) {
+            mInterval = interval;
+            mAdaptive = adaptive;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import java.util.HashMap;
+import java.util.List;
+
+import timber.log.Timber;
+
+import static edu.mit.ll.nics.android.utils.constants.Intents.NICS_POLLING_SYNC;
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_WAKE_LOCK;
+import static edu.mit.ll.nics.android.utils.constants.NICS.TEN_MINUTES;
+import static edu.mit.ll.nics.android.utils.constants.Notifications.SYNC_REQUEST_CODE;
+
+/**
+ * Runs all of the periodic server syncs from a single {@link AlarmManager} alarm. Every wake up runs all of the syncs that
+ * are due in that window under one wake lock, and the {@link SyncSchedule} adapts the interval of each sync to how often
+ * its data changes and to whether the app is in the foreground and the screen is on.
+ *
+ * Syncs report back through {@link #onResult(String, boolean)} whether their last poll returned anything new.
+ */
+public class SyncScheduler implements DefaultLifecycleObserver {
+
+    private final Context mContext;
+    private final AlarmManager mAlarmManager;
+    private final PowerManager mPowerManager;
+    private final Handler mMainHandler;
+    private final SyncSchedule mSchedule;
+    private final HashMap<String, Runnable> mSyncs = new HashMap<>();
+    private final PendingIntent mPendingIntent;
+    private boolean mReceiverRegistered = false;
+
+    public SyncScheduler(Context context, AlarmManager alarmManager, Handler mainHandler) {
+        mContext = context;
+        mAlarmManager = alarmManager;
+        mMainHandler = mainHandler;
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        mPendingIntent = PendingIntent.getBroadcast(context, SYNC_REQUEST_CODE, new Intent(NICS_POLLING_SYNC), PendingIntent.FLAG_UPDATE_CURRENT);
+
+        mSchedule = new SyncSchedule(SystemClock::elapsedRealtime);
+        mSchedule.setScreenOn(mPowerManager == null || mPowerManager.isInteractive());
+
+        mMainHandler.post(() -> ProcessLifecycleOwner.get().getLifecycle().addObserver(this));
+    }
+
+    /**
+     * Add an adaptive periodic sync, or replace it if a sync with the same key is already scheduled.
+     *
+     * @see #schedule(String, int, boolean, boolean, Runnable)
+     */
+    public void schedule(String key, int seconds, boolean immediately, Runnable sync) {
+        schedule(key, seconds, immediately, true, sync);
+    }
+
+    /**
+     * Add a periodic sync, or replace it if a sync with the same key is already scheduled.
+     *
+     * @param key         The key of the sync.
+     * @param seconds     The interval in seconds that the user has selected for the sync.
+     * @param immediately Whether to run the sync right away, or to wait for the first interval.
+     * @param adaptive    Whether the interval may back off and stretch in the background, or must stay at the selected rate.
+     * @param sync        The {@link Runnable} that requests the data.
+     */
+    public synchronized void schedule(String key, int seconds, boolean immediately, boolean adaptive, Runnable sync) {
+        mSyncs.put(key, sync);
+        mSchedule.schedule(key, seconds * 1000L, immediately, adaptive);
+        registerReceiver();
+
+        if (immediately) {
+            // Post the run, so that syncs that are scheduled together are also requested together.
+            mMainHandler.removeCallbacks(mRunDue);
+            mMainHandler.post(mRunDue);
+        } else {
+            updateAlarm();
+        }
+
+        Timber.tag(DEBUG).i("Scheduled %s sync every %s seconds.", key, seconds);
+    }
+
+    public synchronized void cancel(String key) {
+        mSyncs.remove(key);
+        mSchedule.cancel(key);
+
+        if (mSchedule.isEmpty()) {
+            mAlarmManager.cancel(mPendingIntent);
+            unregisterReceiver();
+        } else {
+            updateAlarm();
+        }
+    }
+
+    public synchronized boolean isScheduled(String key) {
+        return mSchedule.isScheduled(key);
+    }
+
+    /**
+     * Report whether the last poll of a sync returned any new data.
+     *
+     * @param key     The key of the sync.
+     * @param changed Whether the poll returned any new data.
+     */
+    public synchronized void onResult(String key, boolean changed) {
+        if (mSchedule.isScheduled(key)) {
+            mSchedule.onResult(key, changed);
+            updateAlarm();
+            Timber.tag(DEBUG).d("%s sync %s, next interval %s ms.", key, changed ? "changed" : "unchanged", mSchedule.getInterval(key));
+        }
+    }
+
+    @Override
+    public synchronized void onStart(@NonNull LifecycleOwner owner) {
+        mSchedule.setForeground(true);
+        updateAlarm();
+    }
+
+    @Override
+    public synchronized void onStop(@NonNull LifecycleOwner owner) {
+        mSchedule.setForeground(false);
+        updateAlarm();
+    }
+
+    private synchronized void runDue() {
+        List<String> due = mSchedule.pollDue();
+        if (!due.isEmpty()) {
+            PowerManager.WakeLock wakeLock = null;
+            if (mPowerManager != null) {
+                wakeLock = mPowerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, NICS_WAKE_LOCK);
+                wakeLock.acquire(TEN_MINUTES);
+            }
+
+            try {
+                Timber.tag(DEBUG).i("Requesting Data Update: %s", due);
+                for (String key : due) {
+                    Runnable sync = mSyncs.get(key);
+                    try {
+                        if (sync != null) sync.run();
+                    } catch (Exception e) {
+                        Timber.tag(DEBUG).e(e, "Failed to request %s sync.", key);
+                    }
+                }
+            } finally {
+                if (wakeLock != null) {
+                    wakeLock.release();
+                }
+            }
+        }
+
+        updateAlarm();
+    }
+
+    private void updateAlarm() {
+        long next = mSchedule.getNextWakeup();
+        if (next >= 0) {
+            // Let the system batch the alarm with other wake ups in the same window.
+            mAlarmManager.setWindow(AlarmManager.ELAPSED_REALTIME_WAKEUP, next, SyncSchedule.COALESCE_WINDOW, mPendingIntent);
+        }
+    }
+
+    private void registerReceiver() {
+        if (!mReceiverRegistered) {
+            IntentFilter filter = new IntentFilter(NICS_POLLING_SYNC);
+            filter.addAction(Intent.ACTION_SCREEN_ON);
+            filter.addAction(Intent.ACTION_SCREEN_OFF);
+            mContext.registerReceiver(mReceiver, filter);
+            mReceiverRegistered = true;
+        }
+    }
+
+    private void unregisterReceiver() {
+        if (mReceiverRegistered) {
+            mContext.unregisterReceiver(mReceiver);
+            mReceiverRegistered = false;
+        }
+    }
+
+    private final Runnable mRunDue = this::runDue;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (Intent.ACTION_SCREEN_ON.equals(action) || Intent.ACTION_SCREEN_OFF.equals(action)) {
+                synchronized (SyncScheduler.this) {
+                    mSchedule.setScreenOn(Intent.ACTION_SCREEN_ON.equals(action));
+                    updateAlarm();
+                }
+
+                // Catch up on anything that became due while the screen was off.
+                if (Intent.ACTION_SCREEN_ON.equals(action)) {
+                    runDue();
+                }
+            } else {
+                runDue();
+            }
+        }
+    };
+}
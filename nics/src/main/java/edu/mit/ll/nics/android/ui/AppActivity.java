@@ -154,6 +154,7 @@ public abstract class AppActivity extends AppCompatActivity {
                     workInfo.removeObservers(this);
                 } else {
                     callback.onWorking();
+                    callback.onProgress(info);
                 }
             }
         });
@@ -38,6 +38,7 @@ import androidx.work.WorkManager;
 
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.material.snackbar.Snackbar;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -53,7 +54,6 @@ import java.util.concurrent.ExecutorService;
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedFactory;
 import dagger.assisted.AssistedInject;
-import edu.mit.ll.nics.android.api.DownloaderApiService;
 import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
 import edu.mit.ll.nics.android.database.entities.Hazard;
 import edu.mit.ll.nics.android.database.entities.MarkupFeature;
@@ -63,6 +63,8 @@ import edu.mit.ll.nics.android.di.Qualifiers.DiskExecutor;
 import edu.mit.ll.nics.android.di.Qualifiers.MainHandler;
 import edu.mit.ll.nics.android.di.Qualifiers.NetworkExecutor;
 import edu.mit.ll.nics.android.maps.LocationSegment;
+import edu.mit.ll.nics.android.maps.MapMutationScheduler;
+import edu.mit.ll.nics.android.maps.StyleIconCache;
 import edu.mit.ll.nics.android.maps.layers.ArcGISLayer;
 import edu.mit.ll.nics.android.maps.layers.Layer;
 import edu.mit.ll.nics.android.maps.layers.LayerType;
@@ -73,15 +75,18 @@ import edu.mit.ll.nics.android.maps.layers.WmsLayer;
 import edu.mit.ll.nics.android.maps.layers.reports.EODReportLayer;
 import edu.mit.ll.nics.android.maps.layers.reports.GeneralMessageLayer;
 import edu.mit.ll.nics.android.maps.markup.DistancePolyline;
+import edu.mit.ll.nics.android.maps.markup.FirelineOverlay;
 import edu.mit.ll.nics.android.maps.markup.HazardPolygon;
 import edu.mit.ll.nics.android.maps.markup.MarkupBaseShape;
 import edu.mit.ll.nics.android.maps.markup.MarkupSymbol;
+import edu.mit.ll.nics.android.maps.tileproviders.TileStore;
 import edu.mit.ll.nics.android.repository.EODReportRepository;
 import edu.mit.ll.nics.android.repository.GeneralMessageRepository;
 import edu.mit.ll.nics.android.repository.NetworkRepository;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
 import edu.mit.ll.nics.android.repository.SettingsRepository;
 import edu.mit.ll.nics.android.repository.TrackingLayerRepository;
+import edu.mit.ll.nics.android.services.SyncScheduler;
 import edu.mit.ll.nics.android.utils.Diff;
 import edu.mit.ll.nics.android.utils.DiffableHashMap;
 import timber.log.Timber;
@@ -105,7 +110,11 @@ public class MapAdapter {
     private final Handler mMainHandler;
     private final ExecutorService mExecutor;
     private final ExecutorService mDiskExecutor;
-    private final DownloaderApiService mDownloader;
+    private final TileStore mTileStore;
+    private final StyleIconCache mIconCache;
+    private final SyncScheduler mSyncScheduler;
+    private final MapMutationScheduler mScheduler;
+    private final FirelineOverlay mFirelineOverlay;
 
     private long mEditingFeature;
     private boolean mIsEditing = false;
@@ -132,7 +141,9 @@ public class MapAdapter {
                       @MainHandler Handler mainHandler,
                       @NetworkExecutor ExecutorService executor,
                       @DiskExecutor ExecutorService diskExecutor,
-                      DownloaderApiService downloader) {
+                      TileStore tileStore,
+                      StyleIconCache iconCache,
+                      SyncScheduler syncScheduler) {
 
         mActivity = activity;
         mLifecycleOwner = lifecycleOwner;
@@ -147,19 +158,25 @@ public class MapAdapter {
         mMainHandler = mainHandler;
         mExecutor = executor;
         mDiskExecutor = diskExecutor;
-        mDownloader = downloader;
+        mTileStore = tileStore;
+        mIconCache = iconCache;
+        mSyncScheduler = syncScheduler;
         mRootView = rootView;
 
+        mScheduler = new MapMutationScheduler(mainHandler::post);
+        mFirelineOverlay = new FirelineOverlay(map);
+
         mMarkupFeatures = new DiffableHashMap<>(new Diff<Long, MarkupBaseShape, MarkupFeature>() {
             @Override
             public void add(Long key, MarkupFeature item) {
-                MarkupBaseShape shape = getShapeFromFeature(item, mMap, mPreferences, mActivity);
-                mActivity.runOnUiThread(() -> {
+                MarkupBaseShape shape = getShapeFromFeature(item, mMap, mFirelineOverlay, mPreferences, mActivity);
+                mScheduler.post(() -> {
                     try {
                         shape.addToMap();
                         shape.setClickable(!mIsEditing);
                         mMarkupFeatures.put(key, shape);
                     } catch (NullPointerException e) {
+                        mMarkupFeatures.discard(key);
                         Timber.tag(DEBUG).d(e);
                     }
                 });
@@ -167,21 +184,18 @@ public class MapAdapter {
 
             @Override
             public void replace(Long key, MarkupFeature item) {
-                mActivity.runOnUiThread(() -> {
-                    remove(key);
-                    add(key, item);
-                });
+                remove(key);
+                add(key, item);
             }
 
             @Override
             public void remove(Long key) {
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
-                        MarkupBaseShape shape = mMarkupFeatures.get(key);
+                        MarkupBaseShape shape = mMarkupFeatures.remove(key);
                         if (shape != null) {
                             shape.removeFromMap();
                         }
-                        mMarkupFeatures.remove(key);
                     } catch (NullPointerException e) {
                         Timber.tag(DEBUG).d(e);
                     }
@@ -190,7 +204,7 @@ public class MapAdapter {
 
             @Override
             public void removeAll() {
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
                         ArrayList<MarkupBaseShape> shapes = new ArrayList<>(mMarkupFeatures.values());
                         for (MarkupBaseShape shape : shapes) {
@@ -204,18 +218,19 @@ public class MapAdapter {
                     mMarkupFeatures.clear();
                 });
             }
-        });
+        }, MarkupFeature::getId, MarkupFeature::getVersion);
 
         mHazards = new DiffableHashMap<>(new Diff<Long, HazardPolygon, Hazard>() {
             @Override
             public void add(Long key, Hazard item) {
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
                         HazardPolygon hazard = new HazardPolygon(item, mMap, mPreferences, mActivity);
                         hazard.addToMap();
                         hazard.setClickable(!mIsEditing);
                         mHazards.put(key, hazard);
                     } catch (NullPointerException e) {
+                        mHazards.discard(key);
                         Timber.tag(DEBUG).d(e);
                     }
                 });
@@ -223,21 +238,18 @@ public class MapAdapter {
 
             @Override
             public void replace(Long key, Hazard item) {
-                mActivity.runOnUiThread(() -> {
-                    remove(key);
-                    add(key, item);
-                });
+                remove(key);
+                add(key, item);
             }
 
             @Override
             public void remove(Long key) {
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
-                        HazardPolygon hazard = mHazards.get(key);
+                        HazardPolygon hazard = mHazards.remove(key);
                         if (hazard != null) {
                             hazard.removeFromMap();
                         }
-                        mHazards.remove(key);
                     } catch (Exception e) {
                         Timber.tag(DEBUG).d(e);
                     }
@@ -246,7 +258,7 @@ public class MapAdapter {
 
             @Override
             public void removeAll() {
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
                         for (HazardPolygon shape : mHazards.values()) {
                             if (shape != null) {
@@ -259,7 +271,7 @@ public class MapAdapter {
                     mHazards.clear();
                 });
             }
-        });
+        }, Hazard::getId, Hazard::getVersion);
 
         mCollabroomLayers = new DiffableHashMap<>(new Diff<String, Layer, CollabroomDataLayer>() {
             @Override
@@ -268,26 +280,25 @@ public class MapAdapter {
 
                 Layer tempLayer = null;
                 if (LayerType.WMS.equals(type)) {
-                    tempLayer = new WmsLayer(mActivity, item, mMap, mDownloader);
+                    tempLayer = new WmsLayer(mActivity, item, mMap, mTileStore);
                 } else if (LayerType.ARCGIS_REST.equals(type)) {
-                    tempLayer = new ArcGISLayer(mActivity, item, mMap, mDownloader);
+                    tempLayer = new ArcGISLayer(mActivity, item, mMap, mTileStore);
                 } else if (LayerType.GEOJSON.equals(type) || LayerType.WFS.equals(type)) {
-                    tempLayer = new WfsLayer(mActivity, mMap, item, mPreferences);
+                    tempLayer = new WfsLayer(mActivity, mMap, item, mPreferences, mFirelineOverlay, mScheduler, mDiskExecutor);
                 } else {
                     Snackbar.make(mRootView, String.format("%s layer type is not yet available.", item.getTypeName()), Snackbar.LENGTH_SHORT).show();
                 }
 
                 Layer layer = tempLayer;
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
                         if (layer != null) {
                             layer.addToMap();
-                            for (MarkupBaseShape shape : layer.getFeatures()) {
-                                shape.setClickable(!mIsEditing);
-                            }
+                            layer.setClickable(!mIsEditing);
+                            mCollabroomLayers.put(key, layer);
                         }
-                        mCollabroomLayers.put(key, layer);
                     } catch (NullPointerException e) {
+                        mCollabroomLayers.discard(key);
                         Timber.tag(DEBUG).d(e);
                     }
                 });
@@ -295,21 +306,18 @@ public class MapAdapter {
 
             @Override
             public void replace(String key, CollabroomDataLayer item) {
-                mActivity.runOnUiThread(() -> {
-                    remove(key);
-                    add(key, item);
-                });
+                remove(key);
+                add(key, item);
             }
 
             @Override
             public void remove(String key) {
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
-                        Layer layer = mCollabroomLayers.get(key);
+                        Layer layer = mCollabroomLayers.remove(key);
                         if (layer != null) {
                             layer.unregister();
                             layer.removeFromMap();
-                            mCollabroomLayers.remove(key);
                         }
                     } catch (NullPointerException e) {
                         Timber.tag(DEBUG).d(e);
@@ -319,10 +327,9 @@ public class MapAdapter {
 
             @Override
             public void removeAll() {
-                ArrayList<Layer> layers = new ArrayList<>(mCollabroomLayers.values());
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
-                        for (Layer layer : layers) {
+                        for (Layer layer : mCollabroomLayers.values()) {
                             if (layer != null) {
                                 layer.unregister();
                                 layer.removeFromMap();
@@ -334,20 +341,19 @@ public class MapAdapter {
                     mCollabroomLayers.clear();
                 });
             }
-        });
+        }, CollabroomDataLayer::getDisplayName, CollabroomDataLayer::getVersion, CollabroomDataLayer::isActive);
 
         mOverlappingRoomLayers = new DiffableHashMap<>(new Diff<String, RoomLayer, OverlappingRoomLayer>() {
             @Override
             public void add(String key, OverlappingRoomLayer item) {
-                mActivity.runOnUiThread(() -> {
+                RoomLayer layer = new RoomLayer(mActivity, mMap, item, mPreferences, mFirelineOverlay, mScheduler, mDiskExecutor);
+                mScheduler.post(() -> {
                     try {
-                        RoomLayer layer = new RoomLayer(mActivity, mMap, item, mPreferences);
                         layer.addToMap();
-                        for (MarkupBaseShape shape : layer.getFeatures()) {
-                            shape.setClickable(!mIsEditing);
-                        }
+                        layer.setClickable(!mIsEditing);
                         mOverlappingRoomLayers.put(key, layer);
                     } catch (Exception e) {
+                        mOverlappingRoomLayers.discard(key);
                         Timber.tag(DEBUG).d(e);
                     }
                 });
@@ -355,34 +361,30 @@ public class MapAdapter {
 
             @Override
             public void replace(String key, OverlappingRoomLayer item) {
-                mActivity.runOnUiThread(() -> {
-                    remove(key);
-                    add(key, item);
-                });
+                remove(key);
+                add(key, item);
             }
 
             @Override
             public void remove(String key) {
-                Layer layer = mOverlappingRoomLayers.get(key);
-                if (layer != null) {
-                    mActivity.runOnUiThread(() -> {
-                        try {
+                mScheduler.post(() -> {
+                    try {
+                        Layer layer = mOverlappingRoomLayers.remove(key);
+                        if (layer != null) {
                             layer.unregister();
                             layer.removeFromMap();
-                            mOverlappingRoomLayers.remove(key);
-                        } catch (NullPointerException e) {
-                            Timber.tag(DEBUG).d(e);
                         }
-                    });
-                }
+                    } catch (NullPointerException e) {
+                        Timber.tag(DEBUG).d(e);
+                    }
+                });
             }
 
             @Override
             public void removeAll() {
-                ArrayList<RoomLayer> layers = new ArrayList<>(mOverlappingRoomLayers.values());
-                mActivity.runOnUiThread(() -> {
+                mScheduler.post(() -> {
                     try {
-                        for (Layer layer : layers) {
+                        for (Layer layer : mOverlappingRoomLayers.values()) {
                             if (layer != null) {
                                 layer.unregister();
                                 layer.removeFromMap();
@@ -394,11 +396,11 @@ public class MapAdapter {
                     mOverlappingRoomLayers.clear();
                 });
             }
-        });
+        }, OverlappingRoomLayer::getCollabroomName, OverlappingRoomLayer::getVersion, OverlappingRoomLayer::isActive);
     }
 
     public void setMarkupFeatures(List<MarkupFeature> features) {
-        mDiskExecutor.submit(() -> mMarkupFeatures.diff(features, "getId", "getFeature"));
+        mDiskExecutor.submit(() -> mMarkupFeatures.diff(features));
     }
 
     public Set<Map.Entry<Long, MarkupBaseShape>> getMarkupFeatures() {
@@ -406,15 +408,15 @@ public class MapAdapter {
     }
 
     public void setHazards(List<Hazard> hazards) {
-        mDiskExecutor.submit(() -> mHazards.diff(hazards, "getId", "getHazard"));
+        mDiskExecutor.submit(() -> mHazards.diff(hazards));
     }
 
     public void setOverlappingRoomLayers(List<OverlappingRoomLayer> layers) {
-        mDiskExecutor.submit(() -> mOverlappingRoomLayers.diff(layers, "getCollabroomName", "getLayer", "isActive"));
+        mDiskExecutor.submit(() -> mOverlappingRoomLayers.diff(layers));
     }
 
     public void setCollabroomLayers(List<CollabroomDataLayer> layers) {
-        mDiskExecutor.submit(() -> mCollabroomLayers.diff(layers, "getDisplayName", "getLayer", "isActive"));
+        mDiskExecutor.submit(() -> mCollabroomLayers.diff(layers));
     }
 
     public void toggleHazards(boolean isShowHazards) {
@@ -441,15 +443,28 @@ public class MapAdapter {
         }
 
         for (Layer layer : mCollabroomLayers.values()) {
-            for (MarkupBaseShape shape : layer.getFeatures()) {
-                shape.setClickable(!editing);
-            }
+            layer.setClickable(!editing);
         }
 
         for (Layer layer : mOverlappingRoomLayers.values()) {
-            for (MarkupBaseShape shape : layer.getFeatures()) {
-                shape.setClickable(!editing);
-            }
+            layer.setClickable(!editing);
+        }
+    }
+
+    /**
+     * Lets the data layers update the features that they show for the visible region of the map.
+     * Must be called on the main thread when the camera has stopped moving.
+     */
+    public void onCameraIdle() {
+        LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+        float zoom = mMap.getCameraPosition().zoom;
+
+        for (Layer layer : mCollabroomLayers.values()) {
+            layer.onCameraIdle(bounds, zoom);
+        }
+
+        for (Layer layer : mOverlappingRoomLayers.values()) {
+            layer.onCameraIdle(bounds, zoom);
         }
     }
 
@@ -525,7 +540,7 @@ public class MapAdapter {
         } else {
             TrackingLayer trackingLayer = new TrackingLayer(mActivity, map, tracking,
                     mLifecycleOwner, mPreferences, mWorkManager, mSettings,
-                    mNetworkRepository, mTrackingLayerRepository, mMainHandler, mExecutor, mDownloader);
+                    mNetworkRepository, mTrackingLayerRepository, mMainHandler, mExecutor, mIconCache, mSyncScheduler);
             for (MarkupBaseShape shape : trackingLayer.getFeatures()) {
                 shape.setClickable(!mIsEditing);
             }
@@ -586,6 +601,19 @@ public class MapAdapter {
         }
     }
 
+    public FirelineOverlay getFirelineOverlay() {
+        return mFirelineOverlay;
+    }
+
+    /**
+     * Drops the shape mutations that haven't been applied yet and releases the map's overlays when the map is torn
+     * down, so they don't keep the map and its activity alive.
+     */
+    public void destroy() {
+        mScheduler.clear();
+        mFirelineOverlay.destroy();
+    }
+
     @AssistedFactory
     public interface MapAdapterFactory {
         MapAdapter create(Activity activity, LifecycleOwner lifecycleOwner, GoogleMap map, View rootView);
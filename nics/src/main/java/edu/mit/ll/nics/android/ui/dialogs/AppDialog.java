@@ -135,6 +135,7 @@ public class AppDialog extends DialogFragment {
                         workInfo.removeObservers(getViewLifecycleOwner());
                     } else {
                         callback.onWorking();
+                        callback.onProgress(info);
                     }
                 }
             });
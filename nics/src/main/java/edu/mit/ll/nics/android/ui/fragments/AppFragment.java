@@ -155,6 +155,7 @@ public abstract class AppFragment extends Fragment {
                     workInfo.removeObservers(getViewLifecycleOwner());
                 } else {
                     callback.onWorking();
+                    callback.onProgress(info);
                 }
             }
         });
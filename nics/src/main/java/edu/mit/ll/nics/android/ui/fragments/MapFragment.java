@@ -41,6 +41,7 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.location.Location;
 import android.os.Bundle;
+import android.text.format.Formatter;
 import android.view.GestureDetector;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -62,6 +63,8 @@ import androidx.navigation.NavController;
 import androidx.navigation.NavDestination;
 import androidx.navigation.Navigation;
 import androidx.navigation.fragment.NavHostFragment;
+import androidx.work.Data;
+import androidx.work.OneTimeWorkRequest;
 import androidx.work.WorkInfo;
 
 import com.google.android.gms.maps.CameraUpdate;
@@ -75,12 +78,14 @@ import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.MapStyleOptions;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.snackbar.Snackbar;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import javax.inject.Inject;
 
@@ -92,6 +97,7 @@ import edu.mit.ll.nics.android.database.entities.EODReport;
 import edu.mit.ll.nics.android.database.entities.GeneralMessage;
 import edu.mit.ll.nics.android.database.entities.Tracking;
 import edu.mit.ll.nics.android.databinding.FragmentMapBinding;
+import edu.mit.ll.nics.android.di.Qualifiers.DiskExecutor;
 import edu.mit.ll.nics.android.interfaces.WorkerCallback;
 import edu.mit.ll.nics.android.maps.EnhancedLocation;
 import edu.mit.ll.nics.android.maps.LocationSegment;
@@ -107,6 +113,7 @@ import edu.mit.ll.nics.android.ui.adapters.MapAdapter.MapAdapterFactory;
 import edu.mit.ll.nics.android.ui.dialogs.MapStylePickerDialog;
 import edu.mit.ll.nics.android.ui.viewmodel.MapViewModel;
 import edu.mit.ll.nics.android.utils.livedata.LiveDataBus;
+import edu.mit.ll.nics.android.workers.OfflineTilesWorker;
 import timber.log.Timber;
 
 import static com.google.android.gms.maps.GoogleMap.MAP_TYPE_HYBRID;
@@ -122,6 +129,7 @@ import static edu.mit.ll.nics.android.utils.constants.Events.NICS_LOCATION_CHANG
 import static edu.mit.ll.nics.android.utils.constants.Map.SAVED_CAMERA_POSITION;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 import static edu.mit.ll.nics.android.utils.livedata.LiveDataTrigger.MAP;
+import static edu.mit.ll.nics.android.workers.AppWorker.PROGRESS;
 
 // TODO list:
 // - editing panels.
@@ -130,7 +138,7 @@ import static edu.mit.ll.nics.android.utils.livedata.LiveDataTrigger.MAP;
 @SuppressLint("PotentialBehaviorOverride")
 @AndroidEntryPoint
 public class MapFragment extends AppFragment implements OnMapReadyCallback,
-        GoogleMap.OnCameraMoveStartedListener {
+        GoogleMap.OnCameraMoveStartedListener, GoogleMap.OnCameraIdleListener {
 
     public GoogleMap mMap;
     private Marker mInfoMarker;
@@ -151,6 +159,14 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
     private LocationService mLocationService;
 
     private CameraPosition mStartingPosition;
+    private Snackbar mOfflineTilesSnackbar;
+
+    /**
+     * The number of zoom levels above the current one to download for offline use, up to
+     * {@link #MAX_OFFLINE_ZOOM}.
+     */
+    private static final int OFFLINE_ZOOM_LEVELS = 2;
+    private static final int MAX_OFFLINE_ZOOM = 18;
 
     @Inject
     MapAdapterFactory mMapAdapterFactory;
@@ -167,6 +183,10 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
     @Inject
     EODReportRepository mEodReportRepository;
 
+    @DiskExecutor
+    @Inject
+    ExecutorService mExecutor;
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -278,6 +298,12 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
 
     @Override
     public void onDestroyView() {
+        mOfflineTilesSnackbar = null;
+        if (mMapAdapter != null) {
+            mViewModel.setFirelineOverlay(null);
+            mMapAdapter.destroy();
+            mMapAdapter = null;
+        }
         mBinding = null;
         super.onDestroyView();
     }
@@ -335,6 +361,10 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
             refresh();
         } else if (id == R.id.snapshot) {
             takeMapSnapshot();
+        } else if (id == R.id.offlineTilesOption) {
+            downloadOfflineTiles();
+        } else if (id == R.id.offlineTilesClearOption) {
+            clearOfflineTiles();
         } else if (id == R.id.distanceCalculator) {
             openDistanceCalculator();
         } else if (id == R.id.showDistanceCalculator) {
@@ -384,6 +414,13 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
         }
     }
 
+    @Override
+    public void onCameraIdle() {
+        if (mMapAdapter != null) {
+            mMapAdapter.onCameraIdle();
+        }
+    }
+
     /**
      * Initializes the map if it hasn't been already. This will call
      * {@link SupportMapFragment#getMapAsync(OnMapReadyCallback)} which will
@@ -412,6 +449,7 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
         mViewModel.setMap(mMap);
 
         mMapAdapter = mMapAdapterFactory.create(mActivity, mLifecycleOwner, mMap, mBinding.getRoot());
+        mViewModel.setFirelineOverlay(mMapAdapter.getFirelineOverlay());
         subscribeToModel();
 
         // Set the navigation for the map panels after the map is ready to make sure the map instance is available.
@@ -524,6 +562,7 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
 
     private void initMapListeners() {
         mMap.setOnCameraMoveStartedListener(this);
+        mMap.setOnCameraIdleListener(this);
     }
 
     private void initInfoWindowAdapter() {
@@ -675,6 +714,139 @@ public class MapFragment extends AppFragment implements OnMapReadyCallback,
         }
     }
 
+    /**
+     * Estimate the download of the collabroom's tiled layers for the visible area, from the current
+     * zoom level up a few levels, and start it once the user confirms the size.
+     */
+    private void downloadOfflineTiles() {
+        if (mMap == null) {
+            Snackbar.make(requireView(), "Map is not ready.", Snackbar.LENGTH_SHORT).show();
+            return;
+        }
+
+        LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+        int minZoom = Math.min((int) mMap.getCameraPosition().zoom, MAX_OFFLINE_ZOOM);
+        int maxZoom = Math.min(minZoom + OFFLINE_ZOOM_LEVELS, MAX_OFFLINE_ZOOM);
+
+        // The estimate reads the collabroom's layers from the database, so get it off the main thread.
+        mExecutor.execute(() -> {
+            Data estimate = mNetworkRepository.estimateOfflineTiles(bounds, minZoom, maxZoom);
+            mMainHandler.post(() -> {
+                if (isAdded()) {
+                    confirmOfflineTiles(estimate, bounds, minZoom, maxZoom);
+                }
+            });
+        });
+    }
+
+    private void confirmOfflineTiles(Data estimate, LatLngBounds bounds, int minZoom, int maxZoom) {
+        if (estimate == null) {
+            Snackbar.make(requireView(), getString(R.string.no_room_selected), Snackbar.LENGTH_SHORT).show();
+            return;
+        }
+
+        int layerCount = estimate.getInt(OfflineTilesWorker.LAYER_COUNT, 0);
+        long tileCount = estimate.getLong(OfflineTilesWorker.TILE_COUNT, 0);
+        if (layerCount == 0) {
+            Snackbar.make(requireView(), getString(R.string.offline_tiles_no_layers), Snackbar.LENGTH_LONG).show();
+            return;
+        } else if (tileCount / layerCount > OfflineTilesWorker.MAX_TILES_PER_LAYER) {
+            Snackbar.make(requireView(), getString(R.string.offline_tiles_too_large), Snackbar.LENGTH_LONG).show();
+            return;
+        }
+
+        String size = Formatter.formatFileSize(mContext, estimate.getLong(OfflineTilesWorker.ESTIMATED_BYTES, 0));
+        new MaterialAlertDialogBuilder(mActivity)
+                .setTitle(getString(R.string.offline_tiles))
+                .setIcon(R.drawable.nics_logo)
+                .setMessage(getString(R.string.offline_tiles_estimate, tileCount, layerCount, size))
+                .setPositiveButton(getString(R.string.ok), (dialog, which) -> seedOfflineTiles(bounds, minZoom, maxZoom))
+                .setNegativeButton(getString(R.string.cancel), (dialog, which) -> dialog.dismiss())
+                .setCancelable(true)
+                .create()
+                .show();
+    }
+
+    private void seedOfflineTiles(LatLngBounds bounds, int minZoom, int maxZoom) {
+        OneTimeWorkRequest request = mNetworkRepository.seedOfflineTiles(bounds, minZoom, maxZoom);
+        if (request == null) {
+            Snackbar.make(requireView(), getString(R.string.no_room_selected), Snackbar.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Keep the snackbar up while the download runs, so it can show the progress of each layer.
+        mOfflineTilesSnackbar = Snackbar.make(requireView(), getString(R.string.offline_tiles_started), Snackbar.LENGTH_INDEFINITE);
+        mOfflineTilesSnackbar.show();
+
+        subscribeToWorker(request, new WorkerCallback() {
+            @Override
+            public void onSuccess(@NonNull @NotNull WorkInfo workInfo) {
+                dismissOfflineTilesProgress();
+                Snackbar.make(requireView(), getString(R.string.offline_tiles_finished), Snackbar.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onFailure(@NonNull @NotNull WorkInfo workInfo) {
+                dismissOfflineTilesProgress();
+                Snackbar.make(requireView(), getString(R.string.offline_tiles_failed), Snackbar.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onWorking() {
+            }
+
+            @Override
+            public void onProgress(@NonNull @NotNull WorkInfo workInfo) {
+                showOfflineTilesProgress(workInfo.getProgress());
+            }
+        });
+    }
+
+    private void showOfflineTilesProgress(Data progress) {
+        // The progress only has the estimate until the first tiles of a layer are downloaded.
+        String layer = progress.getString(OfflineTilesWorker.LAYER);
+        if (mOfflineTilesSnackbar == null || layer == null) {
+            return;
+        }
+
+        mOfflineTilesSnackbar.setText(getString(R.string.offline_tiles_progress,
+                progress.getInt(PROGRESS, 0),
+                layer,
+                progress.getInt(OfflineTilesWorker.LAYER_PROGRESS, 0),
+                progress.getInt(OfflineTilesWorker.LAYERS_COMPLETED, 0),
+                progress.getInt(OfflineTilesWorker.LAYER_COUNT, 0)));
+    }
+
+    private void dismissOfflineTilesProgress() {
+        if (mOfflineTilesSnackbar != null) {
+            mOfflineTilesSnackbar.dismiss();
+            mOfflineTilesSnackbar = null;
+        }
+    }
+
+    /**
+     * Remove the offline tiles of the collabroom's tiled layers, stopping a download that is still
+     * running.
+     */
+    private void clearOfflineTiles() {
+        // Clearing reads the collabroom's layers from the database, so get it off the main thread.
+        mExecutor.execute(() -> {
+            int layerCount = mNetworkRepository.clearOfflineTiles();
+            mMainHandler.post(() -> {
+                if (!isAdded()) {
+                    return;
+                }
+
+                dismissOfflineTilesProgress();
+                if (layerCount < 0) {
+                    Snackbar.make(requireView(), getString(R.string.no_room_selected), Snackbar.LENGTH_SHORT).show();
+                } else {
+                    Snackbar.make(requireView(), getString(R.string.offline_tiles_cleared, layerCount), Snackbar.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+
     @SuppressLint("ClickableViewAccessibility")
     private void initCompass() {
         ImageView compass = mBinding.getRoot().findViewWithTag("GoogleMapCompass");
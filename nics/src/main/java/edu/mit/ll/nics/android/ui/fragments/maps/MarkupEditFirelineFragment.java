@@ -369,9 +369,9 @@ public class MarkupEditFirelineFragment extends MarkupEditFeatureFragment {
             MarkupFeature feature = mRepository.getMarkupFeatureById(id);
             mMapViewModel.setEditingMarkupId(id);
             zoomToFeature(mMap, feature);
-            return new MarkupFireLine(mMap, mPreferences, mActivity, feature);
+            return new MarkupFireLine(mMap, mMapViewModel.getFirelineOverlay(), mPreferences, mActivity, feature);
         } else {
-            return new MarkupFireLine(mMap, mPreferences, mActivity);
+            return new MarkupFireLine(mMap, mMapViewModel.getFirelineOverlay(), mPreferences, mActivity);
         }
     }
 
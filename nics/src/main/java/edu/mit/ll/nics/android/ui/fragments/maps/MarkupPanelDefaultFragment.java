@@ -146,7 +146,7 @@ public class MarkupPanelDefaultFragment extends MapBaseFragment {
         mMapViewModel.getMarkupFeatures().observe(mLifecycleOwner, features -> {
             GoogleMap map = mMapViewModel.getMap();
             if (features != null && map != null) {
-                adapter.setMarkupFeatures(getShapesFromFeatures(features, map, mPreferences, mActivity));
+                adapter.setMarkupFeatures(getShapesFromFeatures(features, map, mMapViewModel.getFirelineOverlay(), mPreferences, mActivity));
             }
             mBinding.executePendingBindings();
         });
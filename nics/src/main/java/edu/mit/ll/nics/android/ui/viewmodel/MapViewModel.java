@@ -53,6 +53,7 @@ import edu.mit.ll.nics.android.database.entities.OverlappingRoomLayer;
 import edu.mit.ll.nics.android.database.entities.Tracking;
 import edu.mit.ll.nics.android.maps.EnhancedLocation;
 import edu.mit.ll.nics.android.maps.LocationSegment;
+import edu.mit.ll.nics.android.maps.markup.FirelineOverlay;
 import edu.mit.ll.nics.android.repository.CollabroomLayerRepository;
 import edu.mit.ll.nics.android.repository.HazardRepository;
 import edu.mit.ll.nics.android.repository.MapRepository;
@@ -72,6 +73,7 @@ import static edu.mit.ll.nics.android.utils.Utils.getValueOrDefault;
 public class MapViewModel extends ViewModel {
 
     private GoogleMap mMap;
+    private FirelineOverlay mFirelineOverlay;
     private final LiveData<String> mMapStyle;
     private final LiveData<Integer> mMapType;
     private final NonNullMutableLiveData<Boolean> mTrafficEnabled;
@@ -207,6 +209,14 @@ public class MapViewModel extends ViewModel {
         mMap = map;
     }
 
+    public FirelineOverlay getFirelineOverlay() {
+        return mFirelineOverlay;
+    }
+
+    public void setFirelineOverlay(FirelineOverlay firelineOverlay) {
+        mFirelineOverlay = firelineOverlay;
+    }
+
     public LiveData<List<MarkupFeature>> getMarkupFeatures() {
         return mMarkupFeatures;
     }
@@ -76,6 +76,19 @@ public class BitmapUtils {
         return bos.toByteArray();
     }
 
+    /**
+     * Converts a {@link Bitmap} bitmap to raw bytes, encoding it into the given stream so that a
+     * caller that encodes many bitmaps can reuse one buffer for all of them.
+     *
+     * @param bitmap The {@link Bitmap} to convert.
+     * @param bos The stream to encode into. It should be empty.
+     * @return byte[] The array of bytes representing the bitmap.
+     */
+    public static byte[] bitmapToByteArray(Bitmap bitmap, ByteArrayOutputStream bos) {
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, bos);
+        return bos.toByteArray();
+    }
+
     /**
      * Generates a {@link Bitmap} bitmap from an array of bytes that represent a bitmap image in
      * raw bytes.
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The changes that a single emission of items makes to a {@link DiffableHashMap}. Removals are
+ * listed before replacements and additions, and apply in that order.
+ */
+public class ChangeSet<K, T> {
+
+    private final boolean mRemoveAll;
+    private final List<K> mRemoved = new ArrayList<>();
+    private final Map<K, T> mReplaced = new LinkedHashMap<>();
+    private final Map<K, T> mAdded = new LinkedHashMap<>();
+
+    ChangeSet(boolean removeAll) {
+        mRemoveAll = removeAll;
+    }
+
+    void remove(K key) {
+        mRemoved.add(key);
+    }
+
+    void replace(K key, T item) {
+        mReplaced.put(key, item);
+    }
+
+    void add(K key, T item) {
+        mAdded.put(key, item);
+    }
+
+    /**
+     * @return Whether every item was removed. The other change lists are empty if so.
+     */
+    public boolean isRemoveAll() {
+        return mRemoveAll;
+    }
+
+    public List<K> getRemoved() {
+        return mRemoved;
+    }
+
+    public Map<K, T> getReplaced() {
+        return mReplaced;
+    }
+
+    public Map<K, T> getAdded() {
+        return mAdded;
+    }
+
+    public boolean isEmpty() {
+        return !mRemoveAll && mRemoved.isEmpty() && mReplaced.isEmpty() && mAdded.isEmpty();
+    }
+
+    public int size() {
+        return mRemoved.size() + mReplaced.size() + mAdded.size();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.CoordinateTransformFactory;
+import org.locationtech.proj4j.Proj4jException;
+import org.locationtech.proj4j.ProjCoordinate;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.mit.ll.nics.android.enums.EPSG;
+
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_3857;
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_4326;
+
+/**
+ * Cache of Proj4j {@link CoordinateTransform} definitions keyed by the source and destination {@link EPSG} pair.
+ *
+ * Parsing the projection parameters is the expensive part of creating a transform, so each {@link CoordinateReferenceSystem}
+ * is parsed once and shared. A {@link CoordinateTransform} keeps intermediate state while transforming, so the transforms
+ * themselves are cached per thread. Transforms between EPSG:4326 and EPSG:3857 skip Proj4j and use {@link WebMercator}.
+ */
+public class CoordinateTransforms {
+
+    private static final int SIZE = EPSG.values().length;
+
+    private static final CRSFactory CRS_FACTORY = new CRSFactory();
+    private static final CoordinateTransformFactory TRANSFORM_FACTORY = new CoordinateTransformFactory();
+    private static final ConcurrentHashMap<EPSG, CoordinateReferenceSystem> SYSTEMS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Transforms> TRANSFORMS = new ThreadLocal<Transforms>() {
+        @Override
+        protected Transforms initialValue() {
+            return new Transforms();
+        }
+    };
+
+    private CoordinateTransforms() {
+    }
+
+    /**
+     * Get the {@link CoordinateReferenceSystem} for the provided {@link EPSG} code, parsing it the first time it is requested.
+     *
+     * @param epsg The {@link EPSG} code of the coordinate reference system.
+     * @return The parsed {@link CoordinateReferenceSystem}.
+     * @throws Proj4jException Throws a {@link Proj4jException} if the projection parameters can't be parsed.
+     */
+    public static CoordinateReferenceSystem getCrs(EPSG epsg) throws Proj4jException {
+        CoordinateReferenceSystem crs = SYSTEMS.get(epsg);
+        if (crs == null) {
+            crs = CRS_FACTORY.createFromParameters(epsg.getName(), epsg.getParams());
+            CoordinateReferenceSystem existing = SYSTEMS.putIfAbsent(epsg, crs);
+            if (existing != null) {
+                crs = existing;
+            }
+        }
+        return crs;
+    }
+
+    /**
+     * Get the calling thread's cached {@link CoordinateTransform} from the source CRS to the destination CRS. The returned
+     * transform must not be shared with other threads.
+     *
+     * @param source      The source CRS to project from.
+     * @param destination The destination CRS to project to.
+     * @return The {@link CoordinateTransform} between the two coordinate reference systems.
+     * @throws Proj4jException Throws a {@link Proj4jException} if the transform can't be created.
+     */
+    public static CoordinateTransform get(EPSG source, EPSG destination) throws Proj4jException {
+        Transforms transforms = TRANSFORMS.get();
+
+        int key = source.ordinal() * SIZE + destination.ordinal();
+        CoordinateTransform transform = transforms.cache[key];
+        if (transform == null) {
+            transform = TRANSFORM_FACTORY.createTransform(getCrs(source), getCrs(destination));
+            transforms.cache[key] = transform;
+        }
+        return transform;
+    }
+
+    /**
+     * Transform a single coordinate from the source CRS to the destination CRS.
+     *
+     * @param source      The source CRS to project from.
+     * @param destination The destination CRS to project to.
+     * @param x           The x coordinate value.
+     * @param y           The y coordinate value.
+     * @param result      The {@link ProjCoordinate} to write the result to.
+     * @return The result {@link ProjCoordinate}.
+     * @throws Proj4jException Throws a {@link Proj4jException} if the transformation fails.
+     */
+    public static ProjCoordinate transform(EPSG source, EPSG destination, double x, double y, ProjCoordinate result) throws Proj4jException {
+        if (WebMercator.supports(source, destination)) {
+            if (source == EPSG_4326) {
+                result.setValue(WebMercator.projectX(x), WebMercator.projectY(y));
+            } else {
+                result.setValue(WebMercator.unprojectX(x), WebMercator.unprojectY(y));
+            }
+            return result;
+        }
+
+        CoordinateTransform transform = get(source, destination);
+        ProjCoordinate input = TRANSFORMS.get().input;
+        input.setValue(x, y);
+        return transform.transform(input, result);
+    }
+
+    /**
+     * Transform packed x,y coordinate pairs in place from the source CRS to the destination CRS.
+     *
+     * @param source      The source CRS to project from.
+     * @param destination The destination CRS to project to.
+     * @param coordinates The packed coordinates in x0, y0, x1, y1, ... order.
+     * @throws Proj4jException Throws a {@link Proj4jException} if the transformation fails.
+     */
+    public static void transform(EPSG source, EPSG destination, double[] coordinates) throws Proj4jException {
+        transform(source, destination, coordinates, 0, coordinates.length / 2);
+    }
+
+    /**
+     * Transform a range of packed x,y coordinate pairs in place from the source CRS to the destination CRS.
+     *
+     * @param source      The source CRS to project from.
+     * @param destination The destination CRS to project to.
+     * @param coordinates The packed coordinates in x0, y0, x1, y1, ... order.
+     * @param offset      The index of the first coordinate pair to transform.
+     * @param count       The number of coordinate pairs to transform.
+     * @throws Proj4jException Throws a {@link Proj4jException} if the transformation fails.
+     */
+    public static void transform(EPSG source, EPSG destination, double[] coordinates, int offset, int count) throws Proj4jException {
+        if (source == destination) {
+            return;
+        } else if (source == EPSG_4326 && destination == EPSG_3857) {
+            WebMercator.project(coordinates, offset, count);
+            return;
+        } else if (source == EPSG_3857 && destination == EPSG_4326) {
+            WebMercator.unproject(coordinates, offset, count);
+            return;
+        }
+
+        CoordinateTransform transform = get(source, destination);
+        Transforms transforms = TRANSFORMS.get();
+        ProjCoordinate input = transforms.input;
+        ProjCoordinate output = transforms.output;
+
+        int end = (offset + count) * 2;
+        for (int i = offset * 2; i < end; i += 2) {
+            input.setValue(coordinates[i], coordinates[i + 1]);
+            transform.transform(input, output);
+            coordinates[i] = output.x;
+            coordinates[i + 1] = output.y;
+        }
+    }
+
+    private static class Transforms {
+        private final CoordinateTransform[] cache = new CoordinateTransform[SIZE * SIZE];
+        private final ProjCoordinate input = new ProjCoordinate();
+        private final ProjCoordinate output = new ProjCoordinate();
+    }
+}
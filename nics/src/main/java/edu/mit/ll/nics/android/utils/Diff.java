@@ -29,6 +29,8 @@
  */
 package edu.mit.ll.nics.android.utils;
 
+import java.util.Map;
+
 public interface Diff<K, V, T> {
 
     void add(K key, T item);
@@ -38,4 +40,27 @@ public interface Diff<K, V, T> {
     void remove(K key);
 
     void removeAll();
+
+    /**
+     * Applies all of the changes of one emission. Override to apply them as a batch, by default
+     * each change is applied on its own.
+     */
+    default void apply(ChangeSet<K, T> changes) {
+        if (changes.isRemoveAll()) {
+            removeAll();
+            return;
+        }
+
+        for (K key : changes.getRemoved()) {
+            remove(key);
+        }
+
+        for (Map.Entry<K, T> entry : changes.getReplaced().entrySet()) {
+            replace(entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<K, T> entry : changes.getAdded().entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+    }
 }
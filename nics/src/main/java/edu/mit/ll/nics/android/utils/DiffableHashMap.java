@@ -29,83 +29,144 @@
  */
 package edu.mit.ll.nics.android.utils;
 
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.TransformerUtils;
-
-import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
-import timber.log.Timber;
-
-import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
-
-@SuppressWarnings("unchecked")
+/**
+ * Map of the values that are displayed for a list of items, which diffs each new emission of
+ * items against the items it has already seen and hands the resulting {@link ChangeSet} to its
+ * {@link Diff} callback.
+ *
+ * Items are matched by the key extractor and compared by a version stamp, such as a last update
+ * time or a content hash, so an unchanged item costs a hash lookup and a long comparison. The
+ * stamps are tracked here rather than read back from the displayed values, since those are added
+ * asynchronously by the callback. A stamp is only recorded once the callback puts the item's value
+ * into the map; until then it is pending, and the callback can {@link #discard} it if the add
+ * fails so that the next emission tries again.
+ */
 public class DiffableHashMap<K, V, T> extends ConcurrentHashMap<K, V> {
 
     public Diff<K, V, T> mDiffCallback;
 
-    public DiffableHashMap(Diff<K, V, T> diffCallback) {
+    private final Function<T, K> mKey;
+    private final ToLongFunction<T> mVersion;
+    private final Predicate<T> mPreCondition;
+    private final HashMap<K, Long> mVersions = new HashMap<>();
+    private final HashMap<K, Long> mPending = new HashMap<>();
+
+    public DiffableHashMap(Diff<K, V, T> diffCallback, Function<T, K> key, ToLongFunction<T> version) {
+        this(diffCallback, key, version, null);
+    }
+
+    /**
+     * @param preCondition Items that fail the pre condition are treated as if they were not in
+     *                     the emission, so they are removed if they have been added before.
+     */
+    public DiffableHashMap(Diff<K, V, T> diffCallback,
+                           Function<T, K> key,
+                           ToLongFunction<T> version,
+                           Predicate<T> preCondition) {
         super();
         mDiffCallback = diffCallback;
+        mKey = key;
+        mVersion = version;
+        mPreCondition = preCondition;
     }
 
-    public void diff(List<T> items, String methodName, String compareMethodName) {
-        diff(items, methodName, compareMethodName, null);
-    }
+    public synchronized ChangeSet<K, T> diff(List<T> items) {
+        ChangeSet<K, T> changes;
 
-    public void diff(List<T> items,
-                     String methodName,
-                     String compareMethodName,
-                     String preConditionName) {
         // If the new set of items is null, remove all the elements.
         if (items == null || items.size() == 0) {
-            mDiffCallback.removeAll();
+            synchronized (mVersions) {
+                mVersions.clear();
+                mPending.clear();
+            }
+            changes = new ChangeSet<>(true);
         } else {
-            for (T item : items) {
-                try {
-                    boolean preCondition = true;
-                    if (preConditionName != null) {
-                        Method preConditionMethod = item.getClass().getDeclaredMethod(preConditionName);
-                        Boolean result = (Boolean) preConditionMethod.invoke(item);
-                        if (result != null) {
-                            preCondition = result;
-                        }
+            changes = new ChangeSet<>(false);
+            HashSet<K> keys = new HashSet<>(items.size() * 4 / 3 + 1);
+
+            synchronized (mVersions) {
+                for (T item : items) {
+                    if (mPreCondition != null && !mPreCondition.test(item)) {
+                        continue;
+                    }
+
+                    K key = mKey.apply(item);
+                    if (key == null || !keys.add(key)) {
+                        continue;
                     }
 
-                    Method method = item.getClass().getDeclaredMethod(methodName);
-                    K key = (K) method.invoke(item);
-                    if (preCondition) {
-                        if (containsKey(Objects.requireNonNull(key))) {
-                            V value = get(key);
-                            if (value != null) {
-                                Method compareMethod = value.getClass().getMethod(compareMethodName);
-                                T itemToCompare = (T) compareMethod.invoke(value);
-
-                                if (itemToCompare != null && !itemToCompare.equals(item)) {
-                                    mDiffCallback.replace(key, item);
-                                }
-                            }
-                        } else {
-                            mDiffCallback.add(key, item);
-                        }
-                    } else {
-                        if (containsKey(key)) {
-                            mDiffCallback.remove(key);
-                        }
+                    long version = mVersion.applyAsLong(item);
+                    Long previous = mPending.containsKey(key) ? mPending.get(key) : mVersions.get(key);
+                    if (previous == null) {
+                        mPending.put(key, version);
+                        changes.add(key, item);
+                    } else if (previous != version) {
+                        mPending.put(key, version);
+                        changes.replace(key, item);
+                    }
+                }
+
+                Iterator<Map.Entry<K, Long>> iterator = mVersions.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    K key = iterator.next().getKey();
+                    if (!keys.contains(key)) {
+                        changes.remove(key);
+                        mPending.remove(key);
+                        iterator.remove();
+                    }
+                }
+
+                // Pending adds are already queued on the callback, so they need removing as well.
+                iterator = mPending.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    K key = iterator.next().getKey();
+                    if (!keys.contains(key)) {
+                        changes.remove(key);
+                        iterator.remove();
                     }
-                } catch (Exception e) {
-                    Timber.tag(DEBUG).e(e, "Failed performing diff on new items.");
                 }
             }
+        }
 
-            List<K> keys = (List<K>) CollectionUtils.collect(items, TransformerUtils.invokerTransformer(methodName));
-            List<K> keysToRemove = (List<K>) CollectionUtils.subtract(keySet(), keys);
+        if (!changes.isEmpty()) {
+            mDiffCallback.apply(changes);
+        }
+        return changes;
+    }
 
-            for (K k : keysToRemove) {
-                mDiffCallback.remove(k);
+    /**
+     * Records the pending version of the item once its value has been added.
+     */
+    @Override
+    public V put(K key, V value) {
+        synchronized (mVersions) {
+            Long version = mPending.remove(key);
+            if (version != null) {
+                mVersions.put(key, version);
             }
         }
+        return super.put(key, value);
+    }
+
+    /**
+     * Forgets an item whose add failed, so that the next emission adds it again.
+     *
+     * @param key The key of the item.
+     */
+    public void discard(K key) {
+        synchronized (mVersions) {
+            mPending.remove(key);
+            mVersions.remove(key);
+        }
     }
 }
@@ -50,13 +50,11 @@ import com.google.maps.android.data.geojson.GeoJsonPolygon;
 import org.json.JSONObject;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.locationtech.jts.operation.distance.DistanceOp;
-import org.locationtech.proj4j.CRSFactory;
-import org.locationtech.proj4j.CoordinateReferenceSystem;
 import org.locationtech.proj4j.CoordinateTransform;
-import org.locationtech.proj4j.CoordinateTransformFactory;
 import org.locationtech.proj4j.Proj4jException;
 import org.locationtech.proj4j.ProjCoordinate;
 
@@ -68,7 +66,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
 
 import edu.mit.ll.nics.android.database.entities.LayerFeature;
 import edu.mit.ll.nics.android.database.entities.OverlappingLayerFeature;
@@ -96,6 +93,8 @@ import static java.lang.Math.toRadians;
 
 public class GeoUtils {
 
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
     /**
      * Calculate the radius of the smallest circle that encloses the provided {@link LatLng} coordinates.
      *
@@ -254,12 +253,7 @@ public class GeoUtils {
     }
 
     public static Vector2 projectionTransformation(EPSG source, EPSG destination, LatLng latLng) throws Proj4jException {
-        CRSFactory factory = new CRSFactory();
-        CoordinateReferenceSystem srcCrs = factory.createFromParameters(source.getName(), source.getParams());
-        CoordinateReferenceSystem dstCrs = factory.createFromParameters(destination.getName(), destination.getParams());
-
-        CoordinateTransform transform = new CoordinateTransformFactory().createTransform(srcCrs, dstCrs);
-        ProjCoordinate dstCoord = transformCoordinate(transform, latLng.latitude, latLng.longitude);
+        ProjCoordinate dstCoord = CoordinateTransforms.transform(source, destination, latLng.latitude, latLng.longitude, new ProjCoordinate());
 
         return new Vector2(dstCoord.y, dstCoord.x);
     }
@@ -269,13 +263,8 @@ public class GeoUtils {
     }
 
     public static LatLng projectionTransformation(EPSG source, EPSG destination, double latitude, double longitude) throws Proj4jException {
-        CRSFactory factory = new CRSFactory();
-        CoordinateReferenceSystem srcCrs = factory.createFromParameters(source.getName(), source.getParams());
-        CoordinateReferenceSystem dstCrs = factory.createFromParameters(destination.getName(), destination.getParams());
-
         // x,y = lon, lat so need to check if it's 4326 as input
-        CoordinateTransform transform = new CoordinateTransformFactory().createTransform(srcCrs, dstCrs);
-        ProjCoordinate dstCoord = transformCoordinate(transform, latitude, longitude);
+        ProjCoordinate dstCoord = CoordinateTransforms.transform(source, destination, latitude, longitude, new ProjCoordinate());
 
         return new LatLng(dstCoord.y, dstCoord.x);
     }
@@ -290,21 +279,36 @@ public class GeoUtils {
      * @throws Proj4jException     Throws a {@link Proj4jException} if the projection fails.
      */
     public static ArrayList<Vector2> projectionTransformation(EPSG source, EPSG destination, ArrayList<Vector2> coordinates) throws Proj4jException {
-        CRSFactory factory = new CRSFactory();
-
-        CoordinateReferenceSystem srcCrs = factory.createFromParameters(source.getName(), source.getParams());
-        CoordinateReferenceSystem dstCrs = factory.createFromParameters(destination.getName(), destination.getParams());
+        double[] points = new double[coordinates.size() * 2];
+        for (int i = 0; i < coordinates.size(); i++) {
+            Vector2 coordinate = coordinates.get(i);
+            points[i * 2] = coordinate.x;
+            points[i * 2 + 1] = coordinate.y;
+        }
 
-        CoordinateTransform transform = new CoordinateTransformFactory().createTransform(srcCrs, dstCrs);
+        CoordinateTransforms.transform(source, destination, points);
 
-        ArrayList<Vector2> transformedCoordinates = new ArrayList<>();
-        for (Vector2 coordinate : coordinates) {
-            transformedCoordinates.add(projectionTransformation(transform, coordinate));
+        ArrayList<Vector2> transformedCoordinates = new ArrayList<>(coordinates.size());
+        for (int i = 0; i < points.length; i += 2) {
+            transformedCoordinates.add(new Vector2(points[i], points[i + 1]));
         }
 
         return transformedCoordinates;
     }
 
+    /**
+     * Projects packed x,y coordinate pairs in place from one EPSG Coordinate Reference System (CRS) to another CRS.
+     *
+     * @param source      The source CRS to project from.
+     * @param destination The destination CRS to project to.
+     * @param coordinates The packed coordinates in x0, y0, x1, y1, ... order.
+     * @throws Proj4jException Throws a {@link Proj4jException} if the projection fails.
+     * @see CoordinateTransforms#transform(EPSG, EPSG, double[])
+     */
+    public static void projectionTransformation(EPSG source, EPSG destination, double[] coordinates) throws Proj4jException {
+        CoordinateTransforms.transform(source, destination, coordinates);
+    }
+
     /**
      * Transform the {@link Vector2} coordinate point using the {@link CoordinateTransform} projection definition.
      *
@@ -341,7 +345,7 @@ public class GeoUtils {
      * with the correct unit of measurement.
      *
      * @param geometryString The geometry string to
-     * @param markupType     The type of geometry that the geometryString is, so that we can create the correct projected geometry string.
+     * @param markupType     The type of geometry that the geometryString is, so that we can create the correct projected geometry.
      * @param buffer         The buffer to apply to the geometryString in meters.
      * @return The {@link ArrayList<LatLng>} coordinates of the buffered geometry.
      * @throws ParseException       Throws {@link ParseException} if the geometry string can't be parsed into {@link ArrayList<LatLng>} coordinates.
@@ -350,32 +354,94 @@ public class GeoUtils {
      */
     public static ArrayList<LatLng> bufferGeometry(String geometryString, String markupType, double buffer) throws ParseException, Proj4jException, NullPointerException {
         // Get the LatLng coordinates from the provided geometryString.
-        ArrayList<LatLng> coordinates = geometryStringToCoordinates(geometryString);
+        return bufferGeometry(geometryStringToCoordinates(geometryString), markupType, buffer);
+    }
 
+    /**
+     * Buffer the provided EPSG 4326 coordinates with the given buffer (in meters). The coordinates are projected to EPSG 3857,
+     * so that the unit of measurement is in meters, and the geometry is built directly from the projected coordinates.
+     *
+     * @param coordinates The {@link ArrayList<LatLng>} coordinates of the geometry to buffer.
+     * @param markupType  The type of geometry that the coordinates are, so that we can create the correct projected geometry.
+     * @param buffer      The buffer to apply to the geometry in meters.
+     * @return The {@link ArrayList<LatLng>} coordinates of the buffered geometry.
+     * @throws ParseException  Throws {@link ParseException} if the markup type isn't a supported geometry type.
+     * @throws Proj4jException Throws {@link Proj4jException} if the geometry can't be projected between the different Coordinate Reference Systems.
+     */
+    public static ArrayList<LatLng> bufferGeometry(List<LatLng> coordinates, String markupType, double buffer) throws ParseException, Proj4jException {
         // Project the coordinates to EPSG: 3857 to get a projection that uses meters as a unit of measurement.
-        ArrayList<Vector2> points = projectionTransformation(EPSG_4326, EPSG_3857, convertLatLngToPoints(coordinates));
+        double[] points = new double[coordinates.size() * 2];
+        for (int i = 0; i < coordinates.size(); i++) {
+            LatLng coordinate = coordinates.get(i);
+            points[i * 2] = coordinate.longitude;
+            points[i * 2 + 1] = coordinate.latitude;
+        }
+        CoordinateTransforms.transform(EPSG_4326, EPSG_3857, points);
 
-        // Get the geometry object from the transformed coordinates.
-        Geometry geometry = pointsToGeometry(points, markupType);
+        // Get the geometry object from the transformed coordinates and buffer it with the provided distance given in meters.
+        Geometry geometry = pointsToGeometry(points, markupType).buffer(buffer);
 
-        // Buffers the geometry with the provided buffer distance given in meters.
-        geometry = Objects.requireNonNull(geometry).buffer(buffer);
+        // Project the coordinates back to EPSG: 4326 to actually plot the points on the Android Google map.
+        Coordinate[] buffered = geometry.getCoordinates();
+        double[] bufferedPoints = new double[buffered.length * 2];
+        for (int i = 0; i < buffered.length; i++) {
+            bufferedPoints[i * 2] = buffered[i].x;
+            bufferedPoints[i * 2 + 1] = buffered[i].y;
+        }
+        CoordinateTransforms.transform(EPSG_3857, EPSG_4326, bufferedPoints);
 
-        // Get a list of Vector2 coordinates from the buffered geometry.
-        ArrayList<Vector2> bufferedGeometry = new ArrayList<>();
-        for (Coordinate coordinate : geometry.getCoordinates()) {
-            bufferedGeometry.add(new Vector2(coordinate.getX(), coordinate.getY()));
+        ArrayList<LatLng> result = new ArrayList<>(buffered.length);
+        for (int i = 0; i < bufferedPoints.length; i += 2) {
+            result.add(new LatLng(bufferedPoints[i + 1], bufferedPoints[i]));
         }
 
-        // Project the coordinates back to EPSG: 4327 to actually plot the points on the Android Google map.
-        bufferedGeometry = projectionTransformation(EPSG_3857, EPSG_4326, bufferedGeometry);
+//        if (PolyUtil.isClosedPolygon(result)) {
+//            result = (ArrayList<LatLng>) PolyUtil.simplify(result, PolyUtil.DEFAULT_TOLERANCE);
+//        }
+
+        return result;
+    }
+
+    /**
+     * Build a {@link Geometry} directly from packed x,y coordinate pairs without going through a geometry string.
+     *
+     * @param points The packed coordinates in x0, y0, x1, y1, ... order.
+     * @param type   The geometry type that the coordinates represent.
+     * @return The {@link Geometry} of the coordinates.
+     * @throws ParseException Thrown if the type isn't a supported geometry type.
+     */
+    public static Geometry pointsToGeometry(double[] points, String type) throws ParseException {
+        switch (type) {
+            case "marker":
+            case "label":
+                return GEOMETRY_FACTORY.createPoint(new Coordinate(points[0], points[1]));
+            case "square":
+            case "triangle":
+            case "hexagon":
+            case "polygon":
+            case "circle":
+                return GEOMETRY_FACTORY.createPolygon(toCoordinates(points, true));
+            case "sketch":
+                return GEOMETRY_FACTORY.createLineString(toCoordinates(points, false));
+            default:
+                throw new ParseException("Unsupported geometry type: " + type);
+        }
+    }
 
-        coordinates = convertPointsToLatLng(bufferedGeometry, false);
+    private static Coordinate[] toCoordinates(double[] points, boolean closed) {
+        int count = points.length / 2;
+        int last = (count - 1) * 2;
+        boolean close = closed && count > 0 && (points[0] != points[last] || points[1] != points[last + 1]);
 
-//        if (PolyUtil.isClosedPolygon(coordinates)) {
-//            coordinates = (ArrayList<LatLng>) PolyUtil.simplify(coordinates, PolyUtil.DEFAULT_TOLERANCE);
-//        }
+        Coordinate[] coordinates = new Coordinate[close ? count + 1 : count];
+        for (int i = 0; i < count; i++) {
+            coordinates[i] = new Coordinate(points[i * 2], points[i * 2 + 1]);
+        }
 
+        // Close the ring if the first and last points don't match.
+        if (close) {
+            coordinates[count] = new Coordinate(coordinates[0]);
+        }
         return coordinates;
     }
 
@@ -46,6 +46,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import edu.mit.ll.nics.android.database.entities.MarkupFeature;
+import edu.mit.ll.nics.android.maps.markup.FirelineOverlay;
 import edu.mit.ll.nics.android.maps.markup.FirelineType;
 import edu.mit.ll.nics.android.maps.markup.MarkupBaseShape;
 import edu.mit.ll.nics.android.maps.markup.MarkupFireLine;
@@ -57,7 +58,6 @@ import edu.mit.ll.nics.android.maps.markup.MarkupType;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
 
 import static edu.mit.ll.nics.android.maps.markup.MarkupBaseShape.ANCHOR_CENTER;
-import static edu.mit.ll.nics.android.utils.GeoUtils.convertPointsToLatLng;
 import static edu.mit.ll.nics.android.utils.GeoUtils.getLatLngBounds;
 import static edu.mit.ll.nics.android.utils.UnitConverter.IMPERIAL;
 import static edu.mit.ll.nics.android.utils.UnitConverter.METRIC;
@@ -95,7 +95,7 @@ public class MapUtils {
         if (feature != null && map != null) {
             String type = feature.getType();
 
-            ArrayList<LatLng> coordinates = convertPointsToLatLng(feature.getGeometryVector2());
+            ArrayList<LatLng> coordinates = feature.getLatLngs();
             if (coordinates.size() > 0) {
                 if (type.equals(MarkupType.marker.toString()) || type.equals(MarkupType.label.toString())) {
                     map.animateCamera(CameraUpdateFactory.newLatLngZoom(coordinates.get(0), 13));
@@ -130,17 +130,19 @@ public class MapUtils {
      *
      * @param features The list of {@link MarkupFeature} markup features to convert.
      * @param map The {@link GoogleMap} Google map instance that the shapes with be associated with.
+     * @param firelineOverlay The {@link FirelineOverlay} of the map that draws the fireline shapes.
      * @param preferences The {@link PreferencesRepository} that the shapes will be associated with.
      * @param activity The {@link Activity} that the shapes will be associated with.
      * @return A list of {@link MarkupBaseShape} markup shapes.
      */
     public static ArrayList<MarkupBaseShape> getShapesFromFeatures(List<MarkupFeature> features,
                                                                    GoogleMap map,
+                                                                   FirelineOverlay firelineOverlay,
                                                                    PreferencesRepository preferences,
                                                                    Activity activity) {
         ArrayList<MarkupBaseShape> shapes = new ArrayList<>();
         for (MarkupFeature feature : features) {
-            shapes.add(getShapeFromFeature(feature, map, preferences, activity));
+            shapes.add(getShapeFromFeature(feature, map, firelineOverlay, preferences, activity));
         }
 
         return shapes;
@@ -152,12 +154,14 @@ public class MapUtils {
      *
      * @param feature The {@link MarkupFeature} markup feature to convert.
      * @param map The {@link GoogleMap} Google map instance that the shape with be associated with.
+     * @param firelineOverlay The {@link FirelineOverlay} of the map that draws the fireline shape.
      * @param preferences The {@link PreferencesRepository} that the shape will be associated with.
      * @param activity The {@link Activity} that the shape will be associated with.
      * @return A {@link MarkupBaseShape} markup shape.
      */
     public static MarkupBaseShape getShapeFromFeature(MarkupFeature feature,
                                                       GoogleMap map,
+                                                      FirelineOverlay firelineOverlay,
                                                       PreferencesRepository preferences,
                                                       Activity activity) {
         MarkupBaseShape shape = null;
@@ -174,16 +178,16 @@ public class MapUtils {
                     MarkupFeature.Attributes attributes = feature.getAttributes();
                     if (attributes.getDescription() != null && attributes.getDescription().equals(FirelineType.FIRE_SPREAD_PREDICTION.getName())) {
                         feature.setDashStyle(FirelineType.FIRE_SPREAD_PREDICTION.getType());
-                        shape = new MarkupFireLine(map, preferences, activity, feature);
+                        shape = new MarkupFireLine(map, firelineOverlay, preferences, activity, feature);
                     } else if (attributes.getDescription() != null && attributes.getDescription().equals(FirelineType.COMPLETED_FIRELINE.getName())) {
                         feature.setDashStyle(FirelineType.COMPLETED_FIRELINE.getType());
-                        shape = new MarkupFireLine(map, preferences, activity, feature);
+                        shape = new MarkupFireLine(map, firelineOverlay, preferences, activity, feature);
                     } else {
                         feature.setDashStyle("solid");
                         shape = new MarkupSegment(map, preferences, activity, feature);
                     }
                 } else {
-                    shape = new MarkupFireLine(map, preferences, activity, feature);
+                    shape = new MarkupFireLine(map, firelineOverlay, preferences, activity, feature);
                 }
                 break;
             case circle:
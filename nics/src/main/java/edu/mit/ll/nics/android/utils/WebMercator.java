@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import org.locationtech.proj4j.Proj4jException;
+
+import edu.mit.ll.nics.android.enums.EPSG;
+
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_3857;
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_4326;
+
+/**
+ * Closed form spherical Mercator projection between EPSG:4326 longitude/latitude degrees and EPSG:3857 meters.
+ *
+ * Produces the same results as the Proj4j definitions in {@link EPSG} without going through the generic transform pipeline.
+ */
+public class WebMercator {
+
+    public static final double RADIUS = 6378137.0;
+
+    private static final double HALF_PI = Math.PI / 2.0;
+    private static final double QUARTER_PI = Math.PI / 4.0;
+    private static final double EPSILON = 1.0e-10;
+
+    private WebMercator() {
+    }
+
+    /**
+     * Whether the transform between the source and destination CRS can use this projection.
+     *
+     * @param source      The source CRS to project from.
+     * @param destination The destination CRS to project to.
+     * @return True if the pair is EPSG:4326 and EPSG:3857 in either direction.
+     */
+    public static boolean supports(EPSG source, EPSG destination) {
+        return (source == EPSG_4326 && destination == EPSG_3857) || (source == EPSG_3857 && destination == EPSG_4326);
+    }
+
+    /**
+     * Project packed longitude, latitude pairs in degrees to x, y pairs in meters in place.
+     *
+     * @param coordinates The packed coordinates in x0, y0, x1, y1, ... order.
+     * @param offset      The index of the first coordinate pair to project.
+     * @param count       The number of coordinate pairs to project.
+     * @throws Proj4jException Throws a {@link Proj4jException} if a latitude is at a pole.
+     */
+    public static void project(double[] coordinates, int offset, int count) throws Proj4jException {
+        int end = (offset + count) * 2;
+        for (int i = offset * 2; i < end; i += 2) {
+            coordinates[i] = projectX(coordinates[i]);
+            coordinates[i + 1] = projectY(coordinates[i + 1]);
+        }
+    }
+
+    /**
+     * Unproject packed x, y pairs in meters to longitude, latitude pairs in degrees in place.
+     *
+     * @param coordinates The packed coordinates in x0, y0, x1, y1, ... order.
+     * @param offset      The index of the first coordinate pair to unproject.
+     * @param count       The number of coordinate pairs to unproject.
+     */
+    public static void unproject(double[] coordinates, int offset, int count) {
+        int end = (offset + count) * 2;
+        for (int i = offset * 2; i < end; i += 2) {
+            coordinates[i] = unprojectX(coordinates[i]);
+            coordinates[i + 1] = unprojectY(coordinates[i + 1]);
+        }
+    }
+
+    public static double projectX(double longitude) {
+        return RADIUS * Math.toRadians(longitude);
+    }
+
+    public static double projectY(double latitude) throws Proj4jException {
+        double phi = Math.toRadians(latitude);
+        if (Math.abs(Math.abs(phi) - HALF_PI) <= EPSILON) {
+            throw new Proj4jException("Latitude " + latitude + " can't be projected to Web Mercator.");
+        }
+        return RADIUS * Math.log(Math.tan(QUARTER_PI + 0.5 * phi));
+    }
+
+    public static double unprojectX(double x) {
+        // Proj4j clamps the inverse longitude to the valid range.
+        return Math.toDegrees(Math.max(-Math.PI, Math.min(Math.PI, x / RADIUS)));
+    }
+
+    public static double unprojectY(double y) {
+        return Math.toDegrees(HALF_PI - 2.0 * Math.atan(Math.exp(-y / RADIUS)));
+    }
+}
@@ -40,6 +40,7 @@ public class Events {
 
     public static final String NICS_LOCATION_CHANGED = "NICS_LOCATION_CHANGED";
     public static final String NICS_LOCAL_MAP_FEATURES_CLEARED = "NICS_LOCAL_MAP_FEATURES_CLEARED";
+    public static final String NICS_NEAREST_HAZARD_DISTANCE = "NICS_NEAREST_HAZARD_DISTANCE";
 
     public static final String NICS_GENERAL_MESSAGE_PROGRESS = "NICS_GENERAL_MESSAGE_PROGRESS";
     public static final String NICS_EOD_REPORT_PROGRESS = "NICS_EOD_REPORT_PROGRESS";
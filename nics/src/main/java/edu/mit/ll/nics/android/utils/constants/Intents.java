@@ -65,18 +65,7 @@ public class Intents {
     public static final String NICS_VIEW_GAR_REPORTS_LIST = "NICS_VIEW_GAR_REPORTS_LIST";
     public static final String NICS_VIEW_ASSIGN_REPORTS_LIST = "NICS_VIEW_ASSIGN_REPORTS_LIST";
 
-    public static final String NICS_POLLING_TASK_GENERAL_MESSAGE = "NICS_POLLING_TASK_GENERAL_MESSAGE";
-    public static final String NICS_POLLING_TASK_EOD_REPORT = "NICS_POLLING_TASK_EOD_REPORT";
-    public static final String NICS_POLLING_TASK_CHAT_MESSAGES = "NICS_POLLING_TASK_CHAT_MESSAGES";
-    public static final String NICS_POLLING_TASK_CHAT_PRESENCE = "NICS_POLLING_TASK_CHAT_PRESENCE";
-    public static final String NICS_POLLING_MARKUP_REQUEST = "NICS_POLLING_MARKUP_REQUEST";
-    public static final String NICS_POLLING_COLLABROOM_LAYERS = "NICS_POLLING_COLLABROOM_LAYERS";
-    public static final String NICS_POLLING_TRACKING_LAYER = "NICS_POLLING_TRACKING_LAYER";
-    public static final String NICS_POLLING_COLLABROOMS = "NICS_POLLING_COLLABROOMS";
-    public static final String NICS_POLLING_INCIDENTS = "NICS_POLLING_INCIDENTS";
-    public static final String NICS_POLLING_ORGANIZATIONS = "NICS_POLLING_INCIDENTS";
-    public static final String NICS_POLLING_ALERTS = "NICS_POLLING_ALERTS";
-    public static final String NICS_POLLING_TRACKING_LAYERS = "NICS_POLLING_TRACKING_LAYERS";
+    public static final String NICS_POLLING_SYNC = "NICS_POLLING_SYNC";
 
     public static final String NICS_SUCCESSFUL_GET_USER_ORGANIZATION_INFO = "NICS_SUCCESSFUL_GET_USER_ORGANIZATION_INFO";
     public static final String NICS_FAILED_GET_USER_ORGANIZATION_INFO = "NICS_FAILED_GET_USER_ORGANIZATION_INFO";
@@ -39,6 +39,7 @@ public class NICS {
     public static final int MAX_RETRIES = 3;
     public static final int MAX_POST_IMAGE_SIZE = 1024;
     public static final int MAX_POST_IMAGE_QUALITY = 80;
+    public static final int MDT_UPLOAD_BATCH_SIZE = 50;
     public static final int NICS_CONNECTION_LIMIT = 60000;
     public static final int RC_AUTH = 9998; //OID authorization request code
     public static final long TEN_MINUTES = 600000L;
@@ -86,6 +87,13 @@ public class NICS {
     public static final String NICS_ROOM_LAYERS_TEMP_FOLDER = NICS_TEMP_FOLDER + File.separator + "collabroom_layers";
     public static final String NICS_OVERLAPPING_LAYERS_TEMP_FOLDER = NICS_TEMP_FOLDER + File.separator + "overlapping_layers";
 
+    // Cache folders
+    public static final String NICS_ICON_CACHE_FOLDER = File.separator + "style_icons";
+    public static final String NICS_TILE_CACHE_FOLDER = File.separator + "map_tiles";
+
+    // Files folders
+    public static final String NICS_OFFLINE_TILE_FOLDER = File.separator + "offline_map_tiles";
+
     // TODO need to use string resource for strings.
     public static final Map<Integer, String> frequencyValues = ImmutableMap.<Integer, String>builder()
             .put(5, "5 Seconds")
@@ -33,17 +33,7 @@ public class Notifications {
 
     public static final String NICS_TITLE = "NICS";
 
-    public static final int ALERTS_REQUEST_CODE = 1;
-    public static final int COLLABROOM_LAYERS_REQUEST_CODE = 2;
-    public static final int COLLABROOMS_REQUEST_CODE = 3;
-    public static final int GENERAL_MESSAGES_REQUEST_CODE = 4;
-    public static final int EOD_REPORTS_REQUEST_CODE = 5;
-    public static final int CHATS_REQUEST_CODE = 6;
-    public static final int CHAT_PRESENCE_REQUEST_CODE = 7;
-    public static final int MARKUP_FEATURES_REQUEST_CODE = 8;
-    public static final int TRACKING_LAYERS_REQUEST_CODE = 9;
-    public static final int INCIDENTS_REQUEST_CODE = 10;
-    public static final int ORGANIZATIONS_REQUEST_CODE = 11;
+    public static final int SYNC_REQUEST_CODE = 1;
 
     public static final String GENERAL_MESSAGES_GROUP = "edu.mit.ll.nics.android.generalmessages";
     public static final String EOD_REPORTS_GROUP = "edu.mit.ll.nics.android.eodreports";
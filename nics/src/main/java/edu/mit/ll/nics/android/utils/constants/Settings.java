@@ -49,6 +49,7 @@ public class Settings {
     public static final String DISABLE_NOTIFICATIONS_CHECKBOX = "disable_notifications_checkbox";
     public static final String TRACKING_CHECKBOX = "tracking_checkbox";
     public static final String GEOFENCING_CHECKBOX = "geofencing_checkbox";
+    public static final String ADAPTIVE_LOCATION_CHECKBOX = "adaptive_location_checkbox";
     public static final String LANGUAGE_SELECT_LIST = "language_select_list";
     public static final String DEVICE_DEFAULT = "Device Default";
     public static final String SYSTEM_OF_MEASUREMENT_SELECT_LIST = "system_of_measurement_select_list";
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming adapter for the attribute and property maps of features. Primitive values are read and
+ * written directly, nested objects and arrays are handled by Gson's {@link Object} adapter, so the
+ * values are the same as with the default map adapter (numbers are read as doubles).
+ *
+ * The maps are read as {@link LinkedHashMap}, which keeps the order of the properties and can be
+ * used for both {@code Map<String, Object>} and {@code HashMap<String, Object>}.
+ */
+public final class AttributesTypeAdapter extends TypeAdapter<Map<String, Object>> {
+
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+            Type type = typeToken.getType();
+            if (!(type instanceof ParameterizedType)) {
+                return null;
+            }
+
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type raw = parameterized.getRawType();
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if ((raw == Map.class || raw == HashMap.class || raw == LinkedHashMap.class)
+                    && arguments[0] == String.class && arguments[1] == Object.class) {
+                return (TypeAdapter<T>) new AttributesTypeAdapter(gson.getAdapter(Object.class));
+            }
+            return null;
+        }
+    };
+
+    private final TypeAdapter<Object> mValueAdapter;
+
+    private AttributesTypeAdapter(TypeAdapter<Object> valueAdapter) {
+        mValueAdapter = valueAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, Map<String, Object> map) throws IOException {
+        if (map == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            out.name(String.valueOf(entry.getKey()));
+
+            Object value = entry.getValue();
+            if (value == null) {
+                // Dropped together with the name unless the writer serializes nulls.
+                out.nullValue();
+            } else if (value instanceof String) {
+                out.value((String) value);
+            } else if (value instanceof Boolean) {
+                out.value((Boolean) value);
+            } else if (value instanceof Number) {
+                out.value((Number) value);
+            } else {
+                mValueAdapter.write(out, value);
+            }
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Map<String, Object> read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (in.peek()) {
+                case STRING:
+                    map.put(name, in.nextString());
+                    break;
+                case NUMBER:
+                    map.put(name, in.nextDouble());
+                    break;
+                case BOOLEAN:
+                    map.put(name, in.nextBoolean());
+                    break;
+                case NULL:
+                    in.nextNull();
+                    map.put(name, null);
+                    break;
+                default:
+                    map.put(name, mValueAdapter.read(in));
+                    break;
+            }
+        }
+        in.endObject();
+
+        return map;
+    }
+}
@@ -81,6 +81,20 @@ public final class LiveDataBus {
         getLiveData(event).observe(lifecycle, observer);
     }
 
+    /**
+     * Stop a single observer from listening for updates on the specific event, leaving any other
+     * subscribers of that event in place.
+     *
+     * @param event The event to unsubscribe from.
+     * @param observer The {@link Observer<Object>} observer to remove.
+     */
+    public static void unsubscribe(String event, @NonNull Observer<Object> observer) {
+        EventLiveData liveData = sEventMap.get(event);
+        if (liveData != null) {
+            liveData.removeObserver(observer);
+        }
+    }
+
     /**
      * Removes this event when it has no observers.
      *
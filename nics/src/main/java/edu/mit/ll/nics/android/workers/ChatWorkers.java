@@ -42,6 +42,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedInject;
@@ -51,11 +52,13 @@ import edu.mit.ll.nics.android.data.Organization;
 import edu.mit.ll.nics.android.data.Presence;
 import edu.mit.ll.nics.android.data.messages.ChatMessage;
 import edu.mit.ll.nics.android.database.entities.Chat;
+import edu.mit.ll.nics.android.enums.Polling;
 import edu.mit.ll.nics.android.enums.PresenceStatus;
 import edu.mit.ll.nics.android.enums.SendStatus;
 import edu.mit.ll.nics.android.repository.ChatRepository;
 import edu.mit.ll.nics.android.repository.PersonalHistoryRepository;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
+import edu.mit.ll.nics.android.services.SyncScheduler;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
@@ -75,6 +78,7 @@ public class ChatWorkers {
         private final PersonalHistoryRepository mPersonalHistory;
         private final PreferencesRepository mPreferences;
         private final ChatApiService mApiService;
+        private final SyncScheduler mSyncScheduler;
 
         @AssistedInject
         public Get(@Assisted @NonNull Context context,
@@ -82,13 +86,15 @@ public class ChatWorkers {
                    ChatRepository chatRepository,
                    PersonalHistoryRepository personalHistory,
                    PreferencesRepository preferences,
-                   ChatApiService chatApiService) {
+                   ChatApiService chatApiService,
+                   SyncScheduler syncScheduler) {
             super(context, workerParams);
 
             mChatRepository = chatRepository;
             mPersonalHistory = personalHistory;
             mPreferences = preferences;
             mApiService = chatApiService;
+            mSyncScheduler = syncScheduler;
         }
 
         @NonNull
@@ -107,7 +113,8 @@ public class ChatWorkers {
                     public void onResponse(@NotNull Call<ChatMessage> call, @NotNull Response<ChatMessage> response) {
                         mPreferences.setLastSuccessfulServerCommsTimestamp(System.currentTimeMillis());
                         ChatMessage message = response.body();
-                        if (message != null && message.getChats() != null && message.getChats().size() > 0) {
+                        boolean changed = message != null && message.getChats() != null && message.getChats().size() > 0;
+                        if (changed) {
                             parseChatMessages(message);
                             Timber.tag(DEBUG).i("Successfully received chat information for: %s - %s", incidentId, collabroomId);
                         } else {
@@ -116,6 +123,7 @@ public class ChatWorkers {
 
                         // Set progress to 100 after you are done doing your work.
                         setProgressAsync(new Data.Builder().putInt(PROGRESS, 100).build());
+                        mSyncScheduler.onResult(Polling.CHAT_MESSAGES.toString(), changed);
                         completer.set(Result.success());
                     }
 
@@ -134,16 +142,18 @@ public class ChatWorkers {
         }
 
         private void parseChatMessages(ChatMessage message) {
-            int numParsed = 0;
-            for (Chat chat : message.getChats()) {
+            List<Chat> chats = message.getChats();
+            for (Chat chat : chats) {
                 chat.setIncidentId(mPreferences.getSelectedIncidentId());
                 chat.setSendStatus(SendStatus.RECEIVED);
                 chat.setNew(true);
                 chat.setRead(false);
-                mChatRepository.addChatToDatabase(chat);
-                numParsed++;
             }
 
+            // Write the whole poll at once, so the chat paging source is only invalidated once.
+            mChatRepository.addChatsToDatabase(chats);
+            int numParsed = chats.size();
+
             if (numParsed > 0) {
                 mPersonalHistory.addPersonalHistory("Successfully received " + numParsed + " chat messages from " + mPreferences.getSelectedCollabroom().getName(),
                         mPreferences.getUserId(), mPreferences.getUserNickName());
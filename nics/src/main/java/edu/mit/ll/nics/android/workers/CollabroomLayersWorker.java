@@ -38,15 +38,20 @@ import androidx.work.Data;
 import androidx.work.WorkerParameters;
 
 import com.google.android.gms.maps.model.LatLng;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gson.Gson;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -74,14 +79,13 @@ import retrofit2.Callback;
 import retrofit2.Response;
 import timber.log.Timber;
 
+import static edu.mit.ll.nics.android.data.geo.geojson.GeojsonStreamParser.parseLayerFeatures;
 import static edu.mit.ll.nics.android.utils.FileUtils.clearDirectory;
 import static edu.mit.ll.nics.android.utils.FileUtils.createTempFile;
 import static edu.mit.ll.nics.android.utils.FileUtils.deleteFile;
 import static edu.mit.ll.nics.android.utils.GeoUtils.bufferGeometry;
 import static edu.mit.ll.nics.android.utils.GeoUtils.convertCoordinatesToGeometryString;
 import static edu.mit.ll.nics.android.utils.GeoUtils.getPolygonForCircle;
-import static edu.mit.ll.nics.android.utils.GeoUtils.parseGeojson;
-import static edu.mit.ll.nics.android.utils.GeoUtils.parseGeojsonFile;
 import static edu.mit.ll.nics.android.utils.StringUtils.httpToHttps;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_ROOM_LAYERS_TEMP_FOLDER;
@@ -89,6 +93,9 @@ import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_ROOM_LAYERS_TEMP
 @HiltWorker
 public class CollabroomLayersWorker extends AppWorker {
 
+    // Serializes the layer metadata into its content hash.
+    private static final Gson GSON = new Gson();
+
     private final CollabroomLayerRepository mRepository;
     private final PreferencesRepository mPreferences;
     private final CollabroomLayerApiService mApiService;
@@ -181,59 +188,45 @@ public class CollabroomLayersWorker extends AppWorker {
 
         for (CollabroomDataLayer dataLayer : collabroomDataLayers) {
             service.execute(() -> {
+                File file = null;
                 try {
-                    ArrayList<LayerFeature> features = downloadLayerFile(dataLayer);
+                    dataLayer.setCollabroomId(collabroomId);
+                    file = downloadLayerFile(dataLayer);
+
+                    // Parse the file once, outside of the database transaction, hashing the layer as its features stream by.
+                    Hasher hasher = Hashing.sha256().newHasher().putString(GSON.toJson(dataLayer), StandardCharsets.UTF_8);
+                    List<LayerFeature> features = file != null ? parseLayerFile(file, dataLayer, hasher) : null;
+                    dataLayer.setContentHash(hasher.hash().toString());
+
+                    if (!mRepository.isCollabroomLayerChanged(dataLayer)) {
+                        Timber.tag(DEBUG).i("%s is unchanged.", dataLayer.getDisplayName());
+                        return;
+                    }
 
+                    // Only buffer the hazards of the layers that are going to be written.
                     if (features != null) {
                         for (LayerFeature feature : features) {
-                            feature.setDatalayerid(dataLayer.getDatalayerId());
-                        }
-
-                        HazardInfo hazardInfo = dataLayer.getHazardInfo();
-
-                        try {
-                            for (LayerFeature feature : features) {
-                                feature.setDatalayerid(dataLayer.getDatalayerId());
-
-                                if (dataLayer.getHazardInfo() != null && dataLayer.getHazardInfo().getRadius() > 0.0d) {
-                                    double radius = hazardInfo.getRadius();
-
-                                    if (hazardInfo.getMetric().equalsIgnoreCase("kilometer")) {
-                                        radius = UnitConverter.kilometersToMeters(radius);
-                                    }
-
-                                    ArrayList<LatLng> points = feature.getCoordinates();
-                                    ArrayList<LatLng> coordinates = new ArrayList<>();
-                                    // If there is only one point, assume it's a marker, otherwise, assume it's a polygon.
-                                    if (points.size() == 1) {
-                                        coordinates = getPolygonForCircle(points.get(0), radius);
-                                    } else if (points.size() > 1) {
-                                        try {
-                                            coordinates = bufferGeometry(convertCoordinatesToGeometryString(points, feature.getType()), feature.getType(), radius);
-                                        } catch (Exception e) {
-                                            Timber.tag(DEBUG).e(e, "Failed to buffer geometry for geofence boundary.");
-                                        }
-                                    }
-
-                                    Hazard hazard = new Hazard(feature.getLayerFeatureId(), hazardInfo.getHazardLabel(), hazardInfo.getHazardType(), hazardInfo.getRadius(), hazardInfo.getMetric(),
-                                            convertCoordinatesToGeometryString(coordinates, "polygon"), collabroomId, coordinates);
-
-                                    hazard.setHazardLayerId(feature.getLayerFeatureId());
-                                    feature.setHazard(hazard);
-                                }
+                            try {
+                                feature.setHazard(createHazard(dataLayer, feature, collabroomId));
+                            } catch (Exception e) {
+                                Timber.tag(DEBUG).e("Failed to add layer feature.");
                             }
-                        } catch (Exception e) {
-                            Timber.tag(DEBUG).e("Failed to add layer feature.");
                         }
                     }
 
-                    dataLayer.setFeatures(features);
-                    dataLayer.setCollabroomId(collabroomId);
-                    mRepository.addCollabroomLayerToDatabase(dataLayer);
-
-                    Timber.tag(DEBUG).i("Downloaded %s", dataLayer.getDisplayName());
+                    if (mRepository.ingestCollabroomLayer(dataLayer, features)) {
+                        Timber.tag(DEBUG).i("Downloaded %s", dataLayer.getDisplayName());
+                    } else {
+                        Timber.tag(DEBUG).i("%s is unchanged.", dataLayer.getDisplayName());
+                    }
+                } catch (IOException e) {
+                    Timber.tag(DEBUG).e(e, "Failed to parse collabroom layer %s.", dataLayer.getDisplayName());
                 } catch (AssertionError e) {
                     Timber.tag(DEBUG).e(e, "Failed to add collabroom layer.");
+                } finally {
+                    if (file != null) {
+                        deleteFile(file);
+                    }
                 }
             });
         }
@@ -254,7 +247,59 @@ public class CollabroomLayersWorker extends AppWorker {
         clearDirectory(mContext.getCacheDir() + NICS_ROOM_LAYERS_TEMP_FOLDER);
     }
 
-    private ArrayList<LayerFeature> downloadLayerFile(CollabroomDataLayer layer) {
+    /**
+     * Streams the features out of the downloaded layer file in a single pass, adding each feature's
+     * id to the layer's content hash. Feature ids are already hashes of each feature's geometry and
+     * properties.
+     */
+    private List<LayerFeature> parseLayerFile(File file, CollabroomDataLayer dataLayer, Hasher hasher) throws IOException {
+        List<LayerFeature> features = new ArrayList<>();
+
+        try (InputStream in = new FileInputStream(file)) {
+            parseLayerFeatures(in, feature -> {
+                feature.setDatalayerid(dataLayer.getDatalayerId());
+                hasher.putString(feature.getLayerFeatureId(), StandardCharsets.UTF_8);
+                features.add(feature);
+            });
+        }
+
+        return features;
+    }
+
+    private Hazard createHazard(CollabroomDataLayer dataLayer, LayerFeature feature, long collabroomId) {
+        HazardInfo hazardInfo = dataLayer.getHazardInfo();
+        if (hazardInfo == null || hazardInfo.getRadius() <= 0.0d) {
+            return null;
+        }
+
+        double radius = hazardInfo.getRadius();
+
+        if (hazardInfo.getMetric().equalsIgnoreCase("kilometer")) {
+            radius = UnitConverter.kilometersToMeters(radius);
+        }
+
+        ArrayList<LatLng> points = feature.getCoordinates();
+        ArrayList<LatLng> coordinates = new ArrayList<>();
+        // If there is only one point, assume it's a marker, otherwise, assume it's a polygon.
+        if (points.size() == 1) {
+            coordinates = getPolygonForCircle(points.get(0), radius);
+        } else if (points.size() > 1) {
+            try {
+                coordinates = bufferGeometry(points, feature.getType(), radius);
+            } catch (Exception e) {
+                Timber.tag(DEBUG).e(e, "Failed to buffer geometry for geofence boundary.");
+            }
+        }
+
+        Hazard hazard = new Hazard(feature.getLayerFeatureId(), hazardInfo.getHazardLabel(), hazardInfo.getHazardType(), hazardInfo.getRadius(), hazardInfo.getMetric(),
+                convertCoordinatesToGeometryString(coordinates, "polygon"), collabroomId, coordinates);
+
+        hazard.setHazardLayerId(feature.getLayerFeatureId());
+        hazard.setVersion(dataLayer.getVersion());
+        return hazard;
+    }
+
+    private File downloadLayerFile(CollabroomDataLayer layer) {
         String url;
         try {
             url = httpToHttps(layer.getInternalUrl());
@@ -284,14 +329,13 @@ public class CollabroomLayersWorker extends AppWorker {
             try {
                 Response<ResponseBody> response = call.execute();
                 if (response.body() != null) {
+                    File file = createTempFile(tempDirectory);
                     try (InputStream stream = response.body().byteStream()) {
-                        File file = createTempFile(tempDirectory);
                         Files.asByteSink(file).writeFrom(stream);
-                        ArrayList<String> features = parseGeojsonFile(file);
-                        deleteFile(file);
-                        return parseGeojson(features);
+                        return file;
                     } catch (IOException e) {
-                        Timber.tag(DEBUG).e(e, "Failed to save and parse geojson response.");
+                        deleteFile(file);
+                        Timber.tag(DEBUG).e(e, "Failed to save geojson response.");
                     }
                 }
             } catch (IOException e) {
@@ -56,11 +56,13 @@ import edu.mit.ll.nics.android.auth.AuthCallback;
 import edu.mit.ll.nics.android.data.ReportProgress;
 import edu.mit.ll.nics.android.data.messages.EODReportMessage;
 import edu.mit.ll.nics.android.database.entities.EODReport;
+import edu.mit.ll.nics.android.enums.Polling;
 import edu.mit.ll.nics.android.enums.SendStatus;
 import edu.mit.ll.nics.android.repository.EODReportRepository;
 import edu.mit.ll.nics.android.repository.NetworkRepository;
 import edu.mit.ll.nics.android.repository.PersonalHistoryRepository;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
+import edu.mit.ll.nics.android.services.SyncScheduler;
 import edu.mit.ll.nics.android.utils.ExifUtils;
 import edu.mit.ll.nics.android.utils.ProgressRequestBody;
 import edu.mit.ll.nics.android.utils.livedata.LiveDataBus;
@@ -87,6 +89,7 @@ public class EODReportsWorkers {
         private final PersonalHistoryRepository mPersonalHistory;
         private final PreferencesRepository mPreferences;
         private final EODReportApiService mApiService;
+        private final SyncScheduler mSyncScheduler;
 
         @AssistedInject
         public Get(@Assisted @NonNull Context context,
@@ -94,13 +97,15 @@ public class EODReportsWorkers {
                    EODReportRepository repository,
                    PersonalHistoryRepository personalHistory,
                    PreferencesRepository preferences,
-                   EODReportApiService apiService) {
+                   EODReportApiService apiService,
+                   SyncScheduler syncScheduler) {
             super(context, workerParams);
 
             mRepository = repository;
             mPersonalHistory = personalHistory;
             mPreferences = preferences;
             mApiService = apiService;
+            mSyncScheduler = syncScheduler;
         }
 
         @NonNull
@@ -123,7 +128,8 @@ public class EODReportsWorkers {
                         mPreferences.setLastSuccessfulServerCommsTimestamp(System.currentTimeMillis());
 
                         EODReportMessage message = response.body();
-                        if (message != null && message.getReports() != null && message.getReports().size() > 0) {
+                        boolean changed = message != null && message.getReports() != null && message.getReports().size() > 0;
+                        if (changed) {
                             parseEODReports(message.getReports());
                             Timber.tag(DEBUG).i("Successfully received EOD report information.");
                         } else {
@@ -133,6 +139,7 @@ public class EODReportsWorkers {
                         Timber.tag(DEBUG).d("Finished EOD Report Get Request.");
                         // Set progress to 100 after you are done doing your work.
                         setProgressAsync(new Data.Builder().putInt(PROGRESS, 100).build());
+                        mSyncScheduler.onResult(Polling.EOD_REPORT.toString(), changed);
                         completer.set(Result.success());
                     }
 
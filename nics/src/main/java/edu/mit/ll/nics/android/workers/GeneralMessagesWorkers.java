@@ -45,6 +45,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,11 +57,13 @@ import edu.mit.ll.nics.android.auth.AuthCallback;
 import edu.mit.ll.nics.android.data.ReportProgress;
 import edu.mit.ll.nics.android.data.messages.GeneralMessageMessage;
 import edu.mit.ll.nics.android.database.entities.GeneralMessage;
+import edu.mit.ll.nics.android.enums.Polling;
 import edu.mit.ll.nics.android.enums.SendStatus;
 import edu.mit.ll.nics.android.repository.GeneralMessageRepository;
 import edu.mit.ll.nics.android.repository.NetworkRepository;
 import edu.mit.ll.nics.android.repository.PersonalHistoryRepository;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
+import edu.mit.ll.nics.android.services.SyncScheduler;
 import edu.mit.ll.nics.android.utils.ExifUtils;
 import edu.mit.ll.nics.android.utils.ProgressRequestBody;
 import edu.mit.ll.nics.android.utils.livedata.LiveDataBus;
@@ -87,6 +90,7 @@ public class GeneralMessagesWorkers {
         private final PreferencesRepository mPreferences;
         private final PersonalHistoryRepository mPersonalHistory;
         private final GeneralMessageApiService mApiService;
+        private final SyncScheduler mSyncScheduler;
 
         @AssistedInject
         public Get(@Assisted @NonNull Context context,
@@ -94,13 +98,15 @@ public class GeneralMessagesWorkers {
                    GeneralMessageRepository repository,
                    PreferencesRepository preferences,
                    PersonalHistoryRepository personalHistory,
-                   GeneralMessageApiService apiService) {
+                   GeneralMessageApiService apiService,
+                   SyncScheduler syncScheduler) {
             super(context, workerParams);
 
             mRepository = repository;
             mPreferences = preferences;
             mPersonalHistory = personalHistory;
             mApiService = apiService;
+            mSyncScheduler = syncScheduler;
         }
 
         @NonNull
@@ -123,7 +129,8 @@ public class GeneralMessagesWorkers {
                         mPreferences.setLastSuccessfulServerCommsTimestamp(System.currentTimeMillis());
 
                         GeneralMessageMessage message = response.body();
-                        if (message != null && message.getReports() != null && message.getReports().size() > 0) {
+                        boolean changed = message != null && message.getReports() != null && message.getReports().size() > 0;
+                        if (changed) {
                             parseGeneralMessages(message);
                             Timber.tag(DEBUG).i("Successfully received general message information.");
                         } else {
@@ -133,6 +140,7 @@ public class GeneralMessagesWorkers {
                         Timber.tag(DEBUG).d("Finished General Message Get Request.");
                         // Set progress to 100 after you are done doing your work.
                         setProgressAsync(new Data.Builder().putInt(PROGRESS, 100).build());
+                        mSyncScheduler.onResult(Polling.GENERAL_MESSAGE.toString(), changed);
                         completer.set(Result.success());
                     }
 
@@ -151,30 +159,23 @@ public class GeneralMessagesWorkers {
         }
 
         private void parseGeneralMessages(GeneralMessageMessage message) {
-            int numParsed = 0;
+            List<GeneralMessage> reports = new ArrayList<>();
 
             for (GeneralMessage report : message.getReports()) {
                 if (report.getIncidentId() == mPreferences.getSelectedIncidentId()) {
                     report.setSendStatus(SendStatus.RECEIVED);
                     report.setNew(true);
                     report.setRead(false);
-
-                    // TODO might not need to do this since formID is unique and will cause conflict?
-                    List<GeneralMessage> generalMessages = mRepository.getGeneralMessages();
-
-                    // If the report already exists locally, we need to set the report id so that it can replace it with the correct report id.
-                    for (GeneralMessage generalMessage : generalMessages) {
-                        if (generalMessage.getFormId() == report.getFormId()) {
-                            report.setId(generalMessage.getId());
-                            break;
-                        }
-                    }
-
-                    mRepository.addGeneralMessageToDatabase(report);
-                    numParsed++;
+                    reports.add(report);
                 }
             }
 
+            // Existing reports are resolved by form id inside the same transaction as the write.
+            if (!reports.isEmpty()) {
+                mRepository.addGeneralMessagesToDatabase(reports);
+            }
+
+            int numParsed = reports.size();
             if (numParsed > 0) {
                 mPersonalHistory.addPersonalHistory("Successfully received " + numParsed + " general messages from " + mPreferences.getSelectedIncidentName(), mPreferences.getUserId(), mPreferences.getUserNickName());
             }
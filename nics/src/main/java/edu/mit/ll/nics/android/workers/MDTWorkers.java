@@ -30,6 +30,7 @@
 package edu.mit.ll.nics.android.workers;
 
 import android.content.Context;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.concurrent.futures.CallbackToFutureAdapter;
@@ -58,6 +59,7 @@ import retrofit2.Response;
 import timber.log.Timber;
 
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+import static edu.mit.ll.nics.android.utils.constants.NICS.MDT_UPLOAD_BATCH_SIZE;
 
 public class MDTWorkers {
 
@@ -85,37 +87,11 @@ public class MDTWorkers {
         @Override
         public ListenableFuture<Result> startWork() {
             return CallbackToFutureAdapter.getFuture(completer -> {
-                List<MobileDeviceTracking> mdts = mRepository.getMDTs();
-
-                if (mdts.size() > 0) {
-                    MobileDeviceTracking mdt = mdts.get(mdts.size() - 1);
-
-                    if (!Utils.emptyCheck(mdt.getDeviceId())) {
-                        Call<ResponseBody> call = mApiService.postMDT(mPreferences.getSelectedWorkspaceId(), mdt);
-                        call.enqueue(new AuthCallback<>(new Callback<ResponseBody>() {
-                            @Override
-                            public void onResponse(@NotNull Call<ResponseBody> call, @NotNull Response<ResponseBody> response) {
-                                mPreferences.setLastSuccessfulServerCommsTimestamp(System.currentTimeMillis());
-                                Timber.tag(DEBUG).i("Successfully posted MDT messages");
-
-                                for (MobileDeviceTracking feature : mdts) {
-                                    mRepository.deleteMDT(feature.getId());
-                                }
-
-                                completer.set(Result.success());
-                            }
-
-                            @Override
-                            public void onFailure(@NotNull Call<ResponseBody> call, @NotNull Throwable t) {
-                                Timber.tag(DEBUG).e("Failed to post MDT information: %s", t.getMessage());
-                                completer.set(Result.failure());
-                            }
-                        }));
-                    } else {
-                        mRepository.deleteMDT(mdt.getId());
-                        completer.set(Result.failure());
-                        Timber.tag(DEBUG).w("Failed to post mobile device track because it lacks a deviceId. Deleting from the queue.");
-                    }
+                int depth = mRepository.getQueueDepth();
+
+                if (depth > 0) {
+                    Timber.tag(DEBUG).d("Preparing to send %s mobile device tracks.", depth);
+                    new Upload(getInputData().getInt("batchSize", MDT_UPLOAD_BATCH_SIZE), completer).nextChunk();
                 } else {
                     Timber.tag(DEBUG).i("No mdts to send.");
                     completer.set(Result.failure());
@@ -124,6 +100,107 @@ public class MDTWorkers {
                 return Result.success();
             });
         }
+
+        /**
+         * Drains the queue of mobile device tracks oldest first, one chunk at a time with a single request in flight.
+         * Acknowledged tracks are removed with one range delete per chunk, so after a failure the next upload resumes
+         * from the first track that wasn't acknowledged.
+         */
+        private class Upload {
+
+            private final int mBatchSize;
+            private final CallbackToFutureAdapter.Completer<Result> mCompleter;
+            private final long mStartTime = SystemClock.elapsedRealtime();
+
+            private List<MobileDeviceTracking> mChunk;
+            private int mIndex;
+            private long mCursor;
+            private long mDeletedThrough;
+            private int mSent;
+
+            private Upload(int batchSize, CallbackToFutureAdapter.Completer<Result> completer) {
+                mBatchSize = Math.max(1, batchSize);
+                mCompleter = completer;
+            }
+
+            private void nextChunk() {
+                mChunk = mRepository.getMDTs(mCursor, mBatchSize);
+                mIndex = 0;
+
+                if (mChunk.isEmpty()) {
+                    finish(Result.success());
+                } else {
+                    postNext();
+                }
+            }
+
+            private void postNext() {
+                if (mIndex >= mChunk.size()) {
+                    acknowledge();
+
+                    if (mChunk.size() < mBatchSize) {
+                        finish(Result.success());
+                    } else {
+                        nextChunk();
+                    }
+                    return;
+                }
+
+                MobileDeviceTracking mdt = mChunk.get(mIndex);
+                if (Utils.emptyCheck(mdt.getDeviceId())) {
+                    Timber.tag(DEBUG).w("Failed to post mobile device track because it lacks a deviceId. Deleting from the queue.");
+                    mCursor = mdt.getId();
+                    mIndex++;
+                    postNext();
+                    return;
+                }
+
+                Call<ResponseBody> call = mApiService.postMDT(mPreferences.getSelectedWorkspaceId(), mdt);
+                call.enqueue(new AuthCallback<>(new Callback<ResponseBody>() {
+                    @Override
+                    public void onResponse(@NotNull Call<ResponseBody> call, @NotNull Response<ResponseBody> response) {
+                        if (!response.isSuccessful()) {
+                            onFailure(call, new Throwable("Failure status code " + response.code()));
+                            return;
+                        }
+
+                        mPreferences.setLastSuccessfulServerCommsTimestamp(System.currentTimeMillis());
+                        mCursor = mdt.getId();
+                        mSent++;
+                        mIndex++;
+                        postNext();
+                    }
+
+                    @Override
+                    public void onFailure(@NotNull Call<ResponseBody> call, @NotNull Throwable t) {
+                        Timber.tag(DEBUG).e("Failed to post MDT information: %s", t.getMessage());
+
+                        // Only the tracks the server accepted before this one are removed, the rest are retried.
+                        acknowledge();
+                        finish(Result.retry());
+                    }
+                }));
+            }
+
+            private void acknowledge() {
+                if (mCursor > mDeletedThrough) {
+                    mRepository.deleteMDTsThrough(mCursor);
+                    mDeletedThrough = mCursor;
+                }
+            }
+
+            private void finish(Result result) {
+                double seconds = Math.max(1L, SystemClock.elapsedRealtime() - mStartTime) / 1000.0;
+                mRepository.setDrainRate(mSent / seconds);
+
+                if (result instanceof Result.Success) {
+                    Timber.tag(DEBUG).i("Successfully posted %s MDT messages, %s remaining in the queue.", mSent, mRepository.getQueueDepth());
+                } else {
+                    Timber.tag(DEBUG).w("Posted %s MDT messages before failing, %s remaining in the queue to retry.", mSent, mRepository.getQueueDepth());
+                }
+                mCompleter.set(result);
+            }
+        }
     }
 
     @HiltWorker
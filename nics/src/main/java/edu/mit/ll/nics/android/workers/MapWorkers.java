@@ -45,7 +45,6 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedInject;
@@ -56,11 +55,13 @@ import edu.mit.ll.nics.android.data.messages.MarkupMessage;
 import edu.mit.ll.nics.android.database.entities.Hazard;
 import edu.mit.ll.nics.android.database.entities.HazardInfo;
 import edu.mit.ll.nics.android.database.entities.MarkupFeature;
+import edu.mit.ll.nics.android.enums.Polling;
 import edu.mit.ll.nics.android.enums.SendStatus;
 import edu.mit.ll.nics.android.repository.MapRepository;
 import edu.mit.ll.nics.android.repository.PersonalHistoryRepository;
 import edu.mit.ll.nics.android.repository.PreferencesRepository;
 import edu.mit.ll.nics.android.services.ServiceManager;
+import edu.mit.ll.nics.android.services.SyncScheduler;
 import edu.mit.ll.nics.android.utils.UnitConverter;
 import edu.mit.ll.nics.android.utils.constants.Events;
 import edu.mit.ll.nics.android.utils.livedata.LiveDataBus;
@@ -73,7 +74,6 @@ import timber.log.Timber;
 
 import static edu.mit.ll.nics.android.utils.GeoUtils.bufferGeometry;
 import static edu.mit.ll.nics.android.utils.GeoUtils.convertCoordinatesToGeometryString;
-import static edu.mit.ll.nics.android.utils.GeoUtils.convertPointsToLatLng;
 import static edu.mit.ll.nics.android.utils.GeoUtils.getSimplifiedPolygonForCircle;
 import static edu.mit.ll.nics.android.utils.NetworkUtils.createPartFromString;
 import static edu.mit.ll.nics.android.utils.StringUtils.EMPTY;
@@ -89,6 +89,7 @@ public class MapWorkers {
         private final ServiceManager mServiceManager;
         private final PersonalHistoryRepository mPersonalHistory;
         private final MapApiService mApiService;
+        private final SyncScheduler mSyncScheduler;
 
         @AssistedInject
         public Get(@Assisted @NonNull Context context,
@@ -97,7 +98,8 @@ public class MapWorkers {
                    PreferencesRepository preferences,
                    ServiceManager serviceManager,
                    PersonalHistoryRepository personalHistory,
-                   MapApiService apiService) {
+                   MapApiService apiService,
+                   SyncScheduler syncScheduler) {
             super(context, workerParams);
 
             mRepository = repository;
@@ -105,6 +107,7 @@ public class MapWorkers {
             mServiceManager = serviceManager;
             mPersonalHistory = personalHistory;
             mApiService = apiService;
+            mSyncScheduler = syncScheduler;
         }
 
         @NonNull
@@ -127,7 +130,11 @@ public class MapWorkers {
                         mPreferences.setLastSuccessfulServerCommsTimestamp(System.currentTimeMillis());
 
                         MarkupMessage message = response.body();
+                        boolean changed = false;
                         if (message != null && message.getFeatures() != null) {
+                            changed = !message.getFeatures().isEmpty()
+                                    || (message.getDeletedFeatures() != null && !message.getDeletedFeatures().isEmpty());
+
                             for (MarkupFeature feature : message.getFeatures()) {
                                 feature.buildVector2Point(true);
                             }
@@ -140,6 +147,7 @@ public class MapWorkers {
 
                         // Set progress to 100 after you are done doing your work.
                         setProgressAsync(new Data.Builder().putInt(PROGRESS, 100).build());
+                        mSyncScheduler.onResult(Polling.MAP_MARKUP.toString(), changed);
                         completer.set(Result.success());
                     }
 
@@ -161,11 +169,6 @@ public class MapWorkers {
             int numParsed = 0;
             ArrayList<String> deletedFeatures = message.getDeletedFeatures();
 
-            // Remove markup from local db if it has been removed from server database.
-            for (String featureId : deletedFeatures) {
-                mRepository.deleteMarkupHistoryForCollabroomByFeatureId(collabroomId, featureId);
-            }
-
             ArrayList<MarkupFeature> features = message.getFeatures();
             if (features != null && features.size() > 0) {
                 for (MarkupFeature feature : features) {
@@ -184,7 +187,7 @@ public class MapWorkers {
                                     radius = UnitConverter.kilometersToMeters(radius);
                                 }
 
-                                ArrayList<LatLng> points = convertPointsToLatLng(feature.getGeometryVector2(), true);
+                                ArrayList<LatLng> points = feature.getLatLngs();
 
                                 ArrayList<LatLng> coordinates = new ArrayList<>();
                                 // If there is only one point, assume it's a marker, otherwise, assume it's a polygon.
@@ -193,7 +196,7 @@ public class MapWorkers {
                                 } else if (points.size() > 1) {
                                     try {
                                         // Buffer the geometry of the markup feature to use as a geofence.
-                                        coordinates = bufferGeometry(feature.getGeometry(), feature.getType(), radius);
+                                        coordinates = bufferGeometry(points, feature.getType(), radius);
                                     } catch (Exception e) {
                                         Timber.tag(DEBUG).e(e, "Failed to buffer geometry for geofence boundary.");
                                     }
@@ -202,31 +205,21 @@ public class MapWorkers {
                                 Hazard hazard = new Hazard(info, feature.getFeatureId(), collabroomId);
                                 hazard.setCoordinates(coordinates);
                                 hazard.setGeometry(convertCoordinatesToGeometryString(coordinates, "polygon"));
+                                hazard.setVersion(feature.getVersion());
                                 feature.addHazard(hazard);
                             }
                         }
                     } catch (Exception e) {
                         Timber.tag(DEBUG).e(e, "Failed to add hazards to markup feature.");
                     }
-
-                    List<MarkupFeature> storedFeatures = mRepository.getMarkupFeatures(collabroomId);
-
-                    // Check to see if the feature already exists. If it does, set the id so that we can just replace it in the db.
-                    if (storedFeatures != null) {
-                        for (MarkupFeature f : storedFeatures) {
-                            if (f.getFeatureId().equals(feature.getFeatureId())) {
-                                feature.setId(f.getId());
-                                break;
-                            }
-                        }
-                    }
-
-                    mRepository.addMarkupToDatabase(feature);
                 }
 
                 numParsed = features.size();
             }
 
+            // Remove deleted markup and add or replace received markup in a single transaction.
+            mRepository.addMarkupFeaturesToDatabase(collabroomId, deletedFeatures, features);
+
             if (numParsed > 0) {
                 mPersonalHistory.addPersonalHistory("Successfully received " + numParsed + " markup features from " + mPreferences.getSelectedCollabroom().getName(),
                         mPreferences.getUserId(), mPreferences.getUserNickName());
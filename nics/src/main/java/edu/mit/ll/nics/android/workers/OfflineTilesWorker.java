@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.workers;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.hilt.work.HiltWorker;
+import androidx.work.Data;
+import androidx.work.WorkerParameters;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dagger.assisted.Assisted;
+import dagger.assisted.AssistedInject;
+import edu.mit.ll.nics.android.database.entities.CollabroomDataLayer;
+import edu.mit.ll.nics.android.di.Qualifiers.NetworkExecutor;
+import edu.mit.ll.nics.android.maps.tileproviders.LayerTileProvider;
+import edu.mit.ll.nics.android.maps.tileproviders.TileProviderFactory;
+import edu.mit.ll.nics.android.maps.tileproviders.TilePyramid;
+import edu.mit.ll.nics.android.maps.tileproviders.TileStore;
+import edu.mit.ll.nics.android.repository.CollabroomLayerRepository;
+import timber.log.Timber;
+
+import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
+import static edu.mit.ll.nics.android.utils.constants.NICS.MAX_RETRIES;
+
+/**
+ * Seeds the offline tiles of the WMS and ArcGIS layers of a collabroom for an area and zoom range,
+ * so that they can be served by the layer tile providers without a network connection.
+ *
+ * The estimated download size is published as progress before any tile is downloaded, followed by
+ * the overall and per layer completion. Tiles that are already seeded are skipped, so a seed that
+ * was interrupted or failed is resumed by running it again.
+ */
+@HiltWorker
+public class OfflineTilesWorker extends AppWorker {
+
+    public static final String COLLABROOM_ID = "collabroomId";
+    public static final String SOUTH = "south";
+    public static final String WEST = "west";
+    public static final String NORTH = "north";
+    public static final String EAST = "east";
+    public static final String MIN_ZOOM = "minZoom";
+    public static final String MAX_ZOOM = "maxZoom";
+    public static final String ESTIMATED_BYTES = "estimatedBytes";
+    public static final String TILE_COUNT = "tileCount";
+    public static final String LAYER = "layer";
+    public static final String LAYER_PROGRESS = "layerProgress";
+    public static final String LAYERS_COMPLETED = "layersCompleted";
+    public static final String LAYER_COUNT = "layerCount";
+
+    // Upper bound of tiles per layer, so that a large area with a high zoom can't fill the disk.
+    public static final long MAX_TILES_PER_LAYER = 20000;
+
+    private static final int PARALLELISM = 4;
+
+    private final TileStore mTileStore;
+    private final CollabroomLayerRepository mRepository;
+    private final ExecutorService mNetworkExecutor;
+
+    @AssistedInject
+    public OfflineTilesWorker(@Assisted @NonNull Context context,
+                              @Assisted @NonNull WorkerParameters workerParams,
+                              @NetworkExecutor ExecutorService executor,
+                              CollabroomLayerRepository repository,
+                              TileStore tileStore) {
+        super(context, workerParams);
+
+        mTileStore = tileStore;
+        mRepository = repository;
+        mNetworkExecutor = executor;
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<Result> startWork() {
+        // Initialize the progress to 0, so that any observers can be updated that the request has started.
+        setProgressAsync(new Data.Builder().putInt(PROGRESS, 0).build());
+
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            Data input = getInputData();
+            TilePyramid pyramid = new TilePyramid(
+                    input.getDouble(SOUTH, 0),
+                    input.getDouble(WEST, 0),
+                    input.getDouble(NORTH, 0),
+                    input.getDouble(EAST, 0),
+                    input.getInt(MIN_ZOOM, 0),
+                    input.getInt(MAX_ZOOM, 0));
+            long collabroomId = input.getLong(COLLABROOM_ID, -1);
+
+            mNetworkExecutor.execute(() -> completer.set(seed(collabroomId, pyramid)));
+            return Result.success();
+        });
+    }
+
+    private Result seed(long collabroomId, TilePyramid pyramid) {
+        List<LayerTileProvider> providers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (CollabroomDataLayer layer : mRepository.getCollabroomLayerSources(collabroomId)) {
+            LayerTileProvider provider = TileProviderFactory.buildLayerTileProvider(layer, mTileStore);
+            if (provider != null) {
+                providers.add(provider);
+                names.add(layer.getDisplayName());
+            }
+        }
+
+        long tilesPerLayer = pyramid.getTileCount();
+        Data estimate = estimate(pyramid, providers.size(), mTileStore);
+        long tileCount = estimate.getLong(TILE_COUNT, 0);
+        Timber.tag(DEBUG).i("Seeding %s tiles of %s layers, estimated %s bytes.", tileCount, providers.size(), estimate.getLong(ESTIMATED_BYTES, 0));
+
+        setProgressAsync(new Data.Builder().putAll(estimate).putInt(PROGRESS, 0).build());
+
+        if (tilesPerLayer > MAX_TILES_PER_LAYER) {
+            Timber.tag(DEBUG).w("Offline area of %s tiles per layer is too large.", tilesPerLayer);
+            return Result.failure(estimate);
+        }
+
+        ExecutorService service = Executors.newFixedThreadPool(PARALLELISM);
+        Semaphore permits = new Semaphore(PARALLELISM * 2);
+        AtomicLong failures = new AtomicLong();
+        AtomicLong completed = new AtomicLong();
+
+        try {
+            for (int i = 0; i < providers.size(); i++) {
+                LayerTileProvider provider = providers.get(i);
+                String name = names.get(i);
+                int layersCompleted = i;
+                long layerStart = completed.get();
+                long step = Math.max(1, tilesPerLayer / 100);
+
+                boolean finished = pyramid.forEach((x, y, zoom) -> {
+                    if (isStopped()) {
+                        return false;
+                    }
+
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+
+                    service.execute(() -> {
+                        try {
+                            if (!provider.seed(x, y, zoom)) {
+                                failures.incrementAndGet();
+                            }
+
+                            long done = completed.incrementAndGet();
+                            if ((done - layerStart) % step == 0) {
+                                publishProgress(estimate, done, tileCount, name, (done - layerStart) * 100 / tilesPerLayer, layersCompleted);
+                            }
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                    return true;
+                });
+
+                // Wait for the layer to finish, so that its completion is reported in order.
+                permits.acquireUninterruptibly(PARALLELISM * 2);
+                permits.release(PARALLELISM * 2);
+
+                if (!finished) {
+                    Timber.tag(DEBUG).i("Offline tile seeding was stopped.");
+                    return Result.failure(estimate);
+                }
+
+                Timber.tag(DEBUG).i("Seeded offline tiles of %s.", name);
+                publishProgress(estimate, completed.get(), tileCount, name, 100, layersCompleted + 1);
+            }
+        } finally {
+            service.shutdown();
+            try {
+                service.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                service.shutdownNow();
+            }
+        }
+
+        if (failures.get() > 0) {
+            Timber.tag(DEBUG).w("Failed to seed %s offline tiles.", failures.get());
+            return getRunAttemptCount() < MAX_RETRIES ? Result.retry() : Result.failure(estimate);
+        }
+
+        return Result.success(estimate);
+    }
+
+    /**
+     * Estimate the download of the area for the number of tiled layers, which is published before
+     * the seed starts and can be shown to the user before it is enqueued.
+     *
+     * @return The {@link #TILE_COUNT}, {@link #ESTIMATED_BYTES} and {@link #LAYER_COUNT} of the seed.
+     */
+    public static Data estimate(TilePyramid pyramid, int layerCount, TileStore tileStore) {
+        long tileCount = pyramid.getTileCount() * layerCount;
+        return new Data.Builder()
+                .putLong(TILE_COUNT, tileCount)
+                .putLong(ESTIMATED_BYTES, tileStore.estimateBytes(tileCount))
+                .putInt(LAYER_COUNT, layerCount)
+                .build();
+    }
+
+    private void publishProgress(Data estimate, long done, long total, String layer, long layerProgress, int layersCompleted) {
+        setProgressAsync(new Data.Builder()
+                .putAll(estimate)
+                .putInt(PROGRESS, (int) (done * 100 / Math.max(1, total)))
+                .putString(LAYER, layer)
+                .putInt(LAYER_PROGRESS, (int) layerProgress)
+                .putInt(LAYERS_COMPLETED, layersCompleted)
+                .build());
+    }
+}
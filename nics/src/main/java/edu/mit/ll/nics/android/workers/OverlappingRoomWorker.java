@@ -37,12 +37,17 @@ import androidx.hilt.work.HiltWorker;
 import androidx.work.Data;
 import androidx.work.WorkerParameters;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gson.Gson;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -66,17 +71,19 @@ import retrofit2.Call;
 import retrofit2.Response;
 import timber.log.Timber;
 
+import static edu.mit.ll.nics.android.data.geo.geojson.GeojsonStreamParser.parseOverlappingFeatures;
 import static edu.mit.ll.nics.android.utils.FileUtils.clearDirectory;
 import static edu.mit.ll.nics.android.utils.FileUtils.createTempFile;
 import static edu.mit.ll.nics.android.utils.FileUtils.deleteFile;
-import static edu.mit.ll.nics.android.utils.GeoUtils.parseGeojsonFile;
-import static edu.mit.ll.nics.android.utils.GeoUtils.parseGeojsonOverlapping;
 import static edu.mit.ll.nics.android.utils.constants.NICS.DEBUG;
 import static edu.mit.ll.nics.android.utils.constants.NICS.NICS_OVERLAPPING_LAYERS_TEMP_FOLDER;
 
 @HiltWorker
 public class OverlappingRoomWorker extends AppWorker {
 
+    // Serializes the layer metadata into its content hash.
+    private static final Gson GSON = new Gson();
+
     private final PreferencesRepository mPreferences;
     private final DownloaderApiService mDownloader;
     private final CollabroomRepository mCollabroomRepository;
@@ -131,24 +138,31 @@ public class OverlappingRoomWorker extends AppWorker {
                 ExecutorService service = Executors.newCachedThreadPool();
                 for (Collabroom room : rooms) {
                     service.execute(() -> {
+                        File file = null;
                         try {
                             OverlappingRoomLayer layer = new OverlappingRoomLayer(room.getName(), room.getCollabRoomId(), room.getCreated(), incidentName, incidentId);
-                            layer.setFeatures(downloadLayerFile(layer, room.getCollabRoomId()));
-
-                            // Check to see if the layer already exists. If it does, set the id so that we can just replace it in the db.
-                            if (storedLayers != null) {
-                                for (OverlappingRoomLayer overlappingRoomLayer : storedLayers) {
-                                    if (overlappingRoomLayer.getCollabroomId() == layer.getCollabroomId()) {
-                                        layer.setId(overlappingRoomLayer.getId());
-                                        break;
-                                    }
-                                }
+                            file = downloadLayerFile(layer);
+
+                            // Parse the file once, outside of the database transaction, hashing the layer as its features stream by.
+                            Hasher hasher = Hashing.sha256().newHasher().putString(GSON.toJson(layer), StandardCharsets.UTF_8);
+                            List<OverlappingLayerFeature> features = file != null ? parseLayerFile(file, room.getCollabRoomId(), hasher) : null;
+                            layer.setContentHash(hasher.hash().toString());
+
+                            if (!mRepository.isOverlappingLayerChanged(layer)) {
+                                Timber.tag(DEBUG).i("%s is unchanged.", layer.getCollabroomName());
+                            } else if (mRepository.ingestOverlappingLayer(layer, features)) {
+                                Timber.tag(DEBUG).i("Downloaded %s", layer.getCollabroomName());
+                            } else {
+                                Timber.tag(DEBUG).i("%s is unchanged.", layer.getCollabroomName());
                             }
-
-                            Timber.tag(DEBUG).i("Downloaded %s", layer.getCollabroomName());
-                            mRepository.addOverlappingLayerToDatabase(layer);
+                        } catch (IOException e) {
+                            Timber.tag(DEBUG).e(e, "Failed to parse overlapping room layer %s.", room.getName());
                         } catch (AssertionError e) {
                             Timber.tag(DEBUG).e(e, "Error adding overlapping room layer to database.");
+                        } finally {
+                            if (file != null) {
+                                deleteFile(file);
+                            }
                         }
                     });
                 }
@@ -175,7 +189,25 @@ public class OverlappingRoomWorker extends AppWorker {
         });
     }
 
-    private ArrayList<OverlappingLayerFeature> downloadLayerFile(OverlappingRoomLayer layer, long collabroomId) {
+    /**
+     * Streams the features out of the downloaded layer file in a single pass, adding each feature's
+     * id to the layer's content hash. Feature ids are already hashes of each feature's geometry and
+     * properties.
+     */
+    private List<OverlappingLayerFeature> parseLayerFile(File file, long collabroomId, Hasher hasher) throws IOException {
+        List<OverlappingLayerFeature> features = new ArrayList<>();
+
+        try (InputStream in = new FileInputStream(file)) {
+            parseOverlappingFeatures(in, collabroomId, feature -> {
+                hasher.putString(feature.getLayerFeatureId(), StandardCharsets.UTF_8);
+                features.add(feature);
+            });
+        }
+
+        return features;
+    }
+
+    private File downloadLayerFile(OverlappingRoomLayer layer) {
         String url = new WfsUrl.Builder(mPreferences.getGeoServerURL().concat("wfs"), layer.getTypeName()).build().getUrl();
 
         String tempDirectory = mContext.getCacheDir() + NICS_OVERLAPPING_LAYERS_TEMP_FOLDER;
@@ -183,14 +215,13 @@ public class OverlappingRoomWorker extends AppWorker {
         try {
             Response<ResponseBody> response = call.execute();
             if (response.body() != null) {
+                File file = createTempFile(tempDirectory);
                 try (InputStream stream = response.body().byteStream()) {
-                    File file = createTempFile(tempDirectory);
                     Files.asByteSink(file).writeFrom(stream);
-                    ArrayList<String> features = parseGeojsonFile(file);
-                    deleteFile(file);
-                    return parseGeojsonOverlapping(features, collabroomId);
+                    return file;
                 } catch (IOException e) {
-                    Timber.tag(DEBUG).e(e, "Failed to save and parse geojson response.");
+                    deleteFile(file);
+                    Timber.tag(DEBUG).e(e, "Failed to save geojson response.");
                 }
             }
         } catch (IOException e) {
@@ -235,15 +235,20 @@ public class TrackingLayersWorkers {
         }
 
         private static void parseFeatures(ArrayList<Feature> features, Tracking tracking, TrackingLayerRepository repository) {
+            ArrayList<TrackingLayerFeature> trackingFeatures = new ArrayList<>();
+
             for (Feature feature : features) {
                 String uniqueId = feature.getUniqueId();
 
                 if (uniqueId != null) {
-                    repository.addTrackingLayerFeatureToDatabase(new TrackingLayerFeature(feature, tracking.getLayerName()));
+                    trackingFeatures.add(new TrackingLayerFeature(feature, tracking.getLayerName()));
                 } else {
                     Timber.tag(DEBUG).i("Failed to parse MDT id from feature properties. Can't add to database.");
                 }
             }
+
+            // Replace the layer's features and prune the stale ones in a single transaction.
+            repository.replaceTrackingLayerFeatures(tracking.getLayerName(), trackingFeatures);
         }
     }
 }
@@ -65,6 +65,7 @@ public class Workers {
     public static final String GEOCODE_COORDINATE_WORKER = "GEOCODE_LOCATION_WORKER";
     public static final String GEOCODE_ADDRESS_WORKER = "GEOCODE_ADDRESS_WORKER";
     public static final String OPEN_ELEVATION_WORKER = "OPEN_ELEVATION_WORKER";
+    public static final String SEED_OFFLINE_TILES_WORKER = "SEED_OFFLINE_TILES_WORKER";
 
     // Chains
     public static final String GET_COLLABROOMS_AND_ROOM_LAYERS_WORKER_CHAIN = "GET_COLLABROOMS_AND_ROOM_LAYERS_WORKER_CHAIN";
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.data.geo.geojson;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import edu.mit.ll.nics.android.database.entities.LayerFeature;
+import edu.mit.ll.nics.android.database.entities.OverlappingLayerFeature;
+import edu.mit.ll.nics.android.utils.GeoUtils;
+
+/**
+ * Parity tests of the streaming GeoJson parser against the GeoUtils parser. The throughput of the
+ * two is compared by GeojsonStreamParserBenchmark.
+ */
+public class GeojsonStreamParserTest {
+
+    private static final String FEATURES = "{ \"type\": \"FeatureCollection\", \"features\": ["
+            + "{ \"type\": \"Feature\", \"geometry\": { \"type\": \"Point\", \"coordinates\": [-71.25, 42.5] },"
+            + "  \"properties\": { \"name\": \"point\", \"count\": 5, \"ratio\": 0.5, \"visible\": true, \"empty\": null } },"
+            + "{ \"type\": \"Feature\", \"properties\": { \"name\": \"line\" },"
+            + "  \"geometry\": { \"type\": \"LineString\", \"coordinates\": [[-71.0, 42.0, 10.0], [-71.5, 42.5, 12.0]] } },"
+            + "{ \"type\": \"Feature\", \"geometry\": { \"type\": \"Polygon\", \"coordinates\": ["
+            + "  [[-71.0, 42.0], [-71.0, 43.0], [-70.0, 43.0], [-71.0, 42.0]],"
+            + "  [[-70.9, 42.1], [-70.9, 42.2], [-70.8, 42.2], [-70.9, 42.1]]] },"
+            + "  \"properties\": { \"name\": \"polygon\", \"style\": { \"color\": \"red\" } } }"
+            + "], \"totalFeatures\": 3 }";
+
+    private static final String GEOMETRIES = "{ \"type\": \"GeometryCollection\", \"geometries\": ["
+            + "{ \"type\": \"Point\", \"coordinates\": [10.0, 20.0] },"
+            + "{ \"coordinates\": [[1.0, 2.0], [3.0, 4.0]], \"type\": \"LineString\" }"
+            + "] }";
+
+    private static final String MULTI = "{ \"type\": \"FeatureCollection\", \"features\": ["
+            + "{ \"type\": \"Feature\", \"geometry\": { \"type\": \"MultiPoint\", \"coordinates\": [[1.0, 2.0], [3.0, 4.0]] },"
+            + "  \"properties\": { \"name\": \"points\" } },"
+            + "{ \"type\": \"Feature\", \"geometry\": { \"type\": \"MultiPolygon\", \"coordinates\": ["
+            + "  [[[0.0, 0.0], [0.0, 1.0], [1.0, 1.0], [0.0, 0.0]]],"
+            + "  [[[5.0, 5.0], [5.0, 6.0], [6.0, 6.0], [5.0, 5.0]]]] },"
+            + "  \"properties\": { \"name\": \"polygons\" } }"
+            + "] }";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void parseLayerFeatures_matchesGeoUtils() throws IOException {
+        assertParity(FEATURES);
+    }
+
+    @Test
+    public void parseLayerFeatures_geometryCollection_matchesGeoUtils() throws IOException {
+        assertParity(GEOMETRIES);
+    }
+
+    @Test
+    public void parseOverlappingFeatures_matchesGeoUtils() throws IOException {
+        File file = write(FEATURES);
+
+        ArrayList<OverlappingLayerFeature> expected = GeoUtils.parseGeojsonOverlapping(GeoUtils.parseGeojsonFile(file), 7L);
+        ArrayList<OverlappingLayerFeature> actual = GeojsonStreamParser.parseOverlappingFeatures(stream(FEATURES), 7L);
+
+        Assert.assertEquals("feature count", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals("feature id", expected.get(i).getLayerFeatureId(), actual.get(i).getLayerFeatureId());
+            Assert.assertEquals("coordinates", expected.get(i).getCoordinates(), actual.get(i).getCoordinates());
+            Assert.assertEquals("properties", expected.get(i).getProperties(), actual.get(i).getProperties());
+        }
+    }
+
+    @Test
+    public void parseLayerFeatures_multiGeometries() throws IOException {
+        ArrayList<LayerFeature> features = GeojsonStreamParser.parseLayerFeatures(stream(MULTI));
+
+        Assert.assertEquals("feature count", 4, features.size());
+        Assert.assertEquals("marker", features.get(0).getType());
+        Assert.assertEquals(2.0, features.get(0).getCoordinates().get(0).latitude, 0.0);
+        Assert.assertTrue("part suffix", features.get(0).getLayerFeatureId().endsWith("_0"));
+        Assert.assertEquals(4.0, features.get(1).getCoordinates().get(0).latitude, 0.0);
+        Assert.assertTrue("part suffix", features.get(1).getLayerFeatureId().endsWith("_1"));
+        Assert.assertEquals("polygon", features.get(2).getType());
+        Assert.assertEquals(4, features.get(2).getCoordinates().size());
+        Assert.assertEquals(5.0, features.get(3).getCoordinates().get(0).latitude, 0.0);
+    }
+
+    @Test
+    public void parse_callbackReceivesEveryFeature() throws IOException {
+        int[] count = new int[1];
+        GeojsonStreamParser.parseLayerFeatures(stream(FEATURES), feature -> count[0]++);
+        Assert.assertEquals(3, count[0]);
+    }
+
+    @Test
+    public void parse_largeCollectionMatchesGeoUtils() throws IOException {
+        int size = 20000;
+        StringBuilder builder = new StringBuilder("{ \"type\": \"FeatureCollection\", \"features\": [");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(',');
+            double x = -120.0 + (i % 1000) * 0.01;
+            double y = 35.0 + (i / 1000) * 0.01;
+            builder.append("{ \"type\": \"Feature\", \"properties\": { \"name\": \"feature ").append(i)
+                    .append("\", \"value\": ").append(i).append(" }, \"geometry\": { \"type\": \"Polygon\", \"coordinates\": [[")
+                    .append('[').append(x).append(", ").append(y).append("],")
+                    .append('[').append(x + 0.01).append(", ").append(y).append("],")
+                    .append('[').append(x + 0.01).append(", ").append(y + 0.01).append("],")
+                    .append('[').append(x).append(", ").append(y).append("]]] } }");
+        }
+        builder.append("] }");
+        File file = write(builder.toString());
+
+        ArrayList<LayerFeature> expected = GeoUtils.parseGeojson(GeoUtils.parseGeojsonFile(file));
+        int[] count = new int[1];
+        try (InputStream in = new FileInputStream(file)) {
+            GeojsonStreamParser.parseLayerFeatures(in, feature -> {
+                Assert.assertEquals("feature", expected.get(count[0]), feature);
+                count[0]++;
+            });
+        }
+
+        Assert.assertEquals(size, expected.size());
+        Assert.assertEquals(size, count[0]);
+    }
+
+    private void assertParity(String json) throws IOException {
+        ArrayList<LayerFeature> expected = GeoUtils.parseGeojson(GeoUtils.parseGeojsonFile(write(json)));
+        ArrayList<LayerFeature> actual = GeojsonStreamParser.parseLayerFeatures(stream(json));
+
+        Assert.assertEquals("feature count", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals("feature", expected.get(i), actual.get(i));
+        }
+    }
+
+    private File write(String json) throws IOException {
+        File file = mFolder.newFile();
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.database;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import edu.mit.ll.nics.android.database.entities.Vector2;
+
+/**
+ * Checks that the shared converters and their streaming adapters read and write the same JSON as
+ * the reflective Gson adapters that were used for the existing rows.
+ */
+public class ConvertersTest {
+
+    @Test
+    public void vectorList_matchesReflectiveJson() {
+        ArrayList<Vector2> vectors = new ArrayList<>(Arrays.asList(new Vector2(-71.5, 42.25), new Vector2(0, -1e-7)));
+        String legacy = new Gson().toJson(vectors);
+
+        Assert.assertEquals(legacy, Converters.fromVectorArrayList(vectors));
+
+        ArrayList<Vector2> read = Converters.fromStringToVectorArrayList(legacy);
+        Assert.assertEquals(2, read.size());
+        Assert.assertEquals(-71.5, read.get(0).x, 0);
+        Assert.assertEquals(-1e-7, read.get(1).y, 0);
+    }
+
+    @Test
+    public void latLngList_matchesReflectiveJson() {
+        ArrayList<LatLng> points = new ArrayList<>(Arrays.asList(new LatLng(42.1, -71.2), new LatLng(-33.5, 151.0)));
+        String json = Converters.fromLatLngArrayList(points);
+
+        Assert.assertEquals("[{\"latitude\":42.1,\"longitude\":-71.2},{\"latitude\":-33.5,\"longitude\":151.0}]", json);
+        Assert.assertEquals(points, Converters.fromLatLngArrayString(json));
+        Assert.assertEquals(points.get(0), Converters.toLatLng(Converters.fromLatLng(points.get(0))));
+    }
+
+    @Test
+    public void attributes_matchDefaultMapAdapter() {
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "Station 1");
+        map.put("count", 3);
+        map.put("visible", true);
+        map.put("missing", null);
+        map.put("nested", new LinkedHashMap<>(Collections.singletonMap("radius", 2.5)));
+        map.put("list", Arrays.asList(1, "two"));
+
+        String legacy = new GsonBuilder().serializeNulls().create().toJson(map);
+        Assert.assertEquals(legacy, Converters.fromStringObjectMap(map));
+
+        HashMap<String, Object> expected = new Gson().fromJson(legacy, new TypeToken<HashMap<String, Object>>() {}.getType());
+        HashMap<String, Object> read = Converters.fromStringObjectKeyHashMap(legacy);
+        Assert.assertEquals(expected, read);
+        Assert.assertEquals(3.0, read.get("count"));
+        Assert.assertTrue(read.containsKey("missing"));
+    }
+
+    @Test
+    public void nulls_roundTrip() {
+        Assert.assertNull(Converters.fromStringToVectorArrayList(null));
+        Assert.assertNull(Converters.fromStringObjectKey("null"));
+        Assert.assertEquals("null", Converters.fromLatLngArrayList(null));
+    }
+}
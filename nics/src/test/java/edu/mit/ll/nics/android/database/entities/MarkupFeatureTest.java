@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.database.entities;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import edu.mit.ll.nics.android.enums.SendStatus;
+
+/**
+ * Checks the memoized geometry accessors and the version based identity of markup features.
+ */
+public class MarkupFeatureTest {
+
+    private static MarkupFeature createFeature(String geometry) {
+        MarkupFeature feature = new MarkupFeature();
+        feature.setId(1L);
+        feature.setFeatureId("feature-1");
+        feature.setType("sketch");
+        feature.setGeometry(geometry);
+        return feature;
+    }
+
+    @Test
+    public void getGeometryVector2_decodedOnceUntilGeometryChanges() {
+        MarkupFeature feature = createFeature("LINESTRING(-71.1 42.3,-71.0 42.4)");
+
+        ArrayList<Vector2> points = feature.getGeometryVector2();
+        Assert.assertSame(points, feature.getGeometryVector2());
+        Assert.assertEquals(42.3, points.get(0).x, 0);
+        Assert.assertEquals(-71.1, points.get(0).y, 0);
+
+        feature.setGeometry("POINT(-70 41)");
+        Assert.assertNotSame(points, feature.getGeometryVector2());
+        Assert.assertEquals(41, feature.getGeometryVector2().get(0).x, 0);
+    }
+
+    @Test
+    public void typedAccessors() {
+        MarkupFeature feature = createFeature("POLYGON((-71.1 42.3,-71.0 42.3,-71.0 42.4,-71.1 42.3))");
+
+        ArrayList<LatLng> coordinates = feature.getLatLngs();
+        Assert.assertEquals(4, coordinates.size());
+        Assert.assertEquals(new LatLng(42.3, -71.1), coordinates.get(0));
+
+        Assert.assertNotNull(feature.getJtsGeometry());
+        Assert.assertSame(feature.getJtsGeometry(), feature.getJtsGeometry());
+        Assert.assertEquals("Polygon", feature.getJtsGeometry().getGeometryType());
+    }
+
+    @Test
+    public void equals_receivedFeaturesCompareByLastUpdate() {
+        MarkupFeature a = createFeature("POINT(-70 41)");
+        MarkupFeature b = createFeature("POINT(-70 41)");
+        a.setSendStatus(SendStatus.RECEIVED);
+        b.setSendStatus(SendStatus.RECEIVED);
+        a.setLastUpdate(100L);
+        b.setLastUpdate(100L);
+
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+
+        b.setLastUpdate(101L);
+        Assert.assertNotEquals(a, b);
+    }
+
+    @Test
+    public void equals_localFeaturesCompareByContent() {
+        MarkupFeature a = createFeature("POINT(-70 41)");
+        MarkupFeature b = createFeature("POINT(-70 41)");
+        a.setSendStatus(SendStatus.WAITING_TO_SEND);
+        b.setSendStatus(SendStatus.WAITING_TO_SEND);
+
+        Assert.assertEquals(a, b);
+
+        b.setGeometry("POINT(-70 42)");
+        Assert.assertNotEquals(a, b);
+    }
+}
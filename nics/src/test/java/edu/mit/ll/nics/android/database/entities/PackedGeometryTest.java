@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.database.entities;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Checks that packed geometries keep the coordinates and envelope of the text geometries.
+ */
+public class PackedGeometryTest {
+
+    private static final String POLYGON = "POLYGON((-71.1 42.3,-71.0 42.3,-71.0 42.4,-71.1 42.4,-71.1 42.3))";
+
+    @Test
+    public void fromWkt_polygon() throws Exception {
+        PackedGeometry packed = PackedGeometry.fromWkt(POLYGON);
+
+        Assert.assertNotNull(packed);
+        Assert.assertEquals(PackedGeometry.POLYGON, (int) packed.getType());
+        Assert.assertEquals(5 * 2 * 8, packed.getCoordinates().length);
+        Assert.assertEquals(-71.1, packed.getMinX(), 0);
+        Assert.assertEquals(42.3, packed.getMinY(), 0);
+        Assert.assertEquals(-71.0, packed.getMaxX(), 0);
+        Assert.assertEquals(42.4, packed.getMaxY(), 0);
+
+        Geometry expected = new WKTReader().read(POLYGON);
+        Assert.assertTrue(expected.equalsExact(packed.toGeometry()));
+    }
+
+    @Test
+    public void fromWkt_multiPolygonPacksEnvelope() {
+        PackedGeometry packed = PackedGeometry.fromWkt("MULTIPOLYGON(((-71.1 42.3,-71.0 42.3,-71.0 42.4,-71.1 42.3)),"
+                + "((-70.5 42.0,-70.4 42.0,-70.4 42.1,-70.5 42.0)))");
+
+        Assert.assertNotNull(packed);
+        Assert.assertEquals(PackedGeometry.ENVELOPE, (int) packed.getType());
+        Assert.assertFalse(packed.hasCoordinates());
+        Assert.assertNull(packed.toGeometry());
+        Assert.assertEquals(-71.1, packed.getMinX(), 0);
+        Assert.assertEquals(42.0, packed.getMinY(), 0);
+        Assert.assertEquals(-70.4, packed.getMaxX(), 0);
+        Assert.assertEquals(42.4, packed.getMaxY(), 0);
+    }
+
+    @Test
+    public void fromWkt_polygonWithHolePacksEnvelope() {
+        PackedGeometry packed = PackedGeometry.fromWkt("POLYGON((-71.1 42.3,-71.0 42.3,-71.0 42.4,-71.1 42.4,-71.1 42.3),"
+                + "(-71.06 42.34,-71.04 42.34,-71.04 42.36,-71.06 42.36,-71.06 42.34))");
+
+        Assert.assertEquals(PackedGeometry.ENVELOPE, (int) packed.getType());
+        Assert.assertNull(packed.toGeometry());
+        Assert.assertTrue(packed.intersects(-71.05, 42.35, -71.05, 42.35));
+    }
+
+    @Test
+    public void fromWkt_invalid() {
+        Assert.assertNull(PackedGeometry.fromWkt(null));
+        Assert.assertNull(PackedGeometry.fromWkt(""));
+        Assert.assertNull(PackedGeometry.fromWkt("POLYGON((-71.1 42.3"));
+    }
+
+    @Test
+    public void fromLatLngs_roundTrip() {
+        ArrayList<LatLng> points = new ArrayList<>(Arrays.asList(new LatLng(42.3, -71.1), new LatLng(42.4, -71.0)));
+        PackedGeometry packed = PackedGeometry.fromLatLngs(points);
+
+        Assert.assertEquals(PackedGeometry.LINE_STRING, (int) packed.getType());
+        Assert.assertEquals(points, packed.toLatLngs());
+        Assert.assertEquals(-71.1, packed.toVectors().get(0).x, 0);
+
+        Assert.assertEquals(PackedGeometry.POINT, (int) PackedGeometry.fromLatLngs(points.subList(0, 1)).getType());
+        Assert.assertNull(PackedGeometry.fromLatLngs(new ArrayList<>()));
+    }
+
+    @Test
+    public void intersects_envelope() {
+        PackedGeometry packed = PackedGeometry.fromWkt(POLYGON);
+
+        Assert.assertTrue(packed.intersects(-71.05, 42.35, -71.05, 42.35));
+        Assert.assertTrue(packed.intersects(-72, 42, -71.1, 42.3));
+        Assert.assertFalse(packed.intersects(-70.9, 42.3, -70.8, 42.4));
+    }
+}
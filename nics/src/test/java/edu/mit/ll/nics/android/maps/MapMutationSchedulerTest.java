@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the map mutation scheduler applies mutations in order and within its frame budget.
+ */
+public class MapMutationSchedulerTest {
+
+    private static final long BUDGET = TimeUnit.MILLISECONDS.toNanos(8);
+    private static final long MUTATION_COST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void drain_appliesMutationsInOrder() {
+        List<Runnable> frames = new ArrayList<>();
+        MapMutationScheduler scheduler = new MapMutationScheduler(frames::add, BUDGET);
+
+        List<Integer> applied = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int index = i;
+            scheduler.post(() -> applied.add(index));
+        }
+
+        // Only one frame is requested no matter how many mutations are queued.
+        Assert.assertEquals(1, frames.size());
+        Assert.assertEquals(100, scheduler.getQueueDepth());
+
+        Assert.assertEquals(100, scheduler.drain(BUDGET));
+        Assert.assertEquals(0, scheduler.getQueueDepth());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i, applied.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void drain_staysWithinFrameBudget() {
+        MapMutationScheduler scheduler = new MapMutationScheduler(frame -> { }, BUDGET);
+        for (int i = 0; i < 50; i++) {
+            scheduler.post(MapMutationSchedulerTest::spin);
+        }
+
+        int frames = 0;
+        while (scheduler.getQueueDepth() > 0) {
+            int count = scheduler.drain(BUDGET);
+            Assert.assertTrue(count >= 1);
+            Assert.assertTrue(count <= BUDGET / MUTATION_COST + 1);
+            frames++;
+        }
+
+        Assert.assertTrue(frames >= 50 / (BUDGET / MUTATION_COST + 1));
+        Assert.assertTrue(scheduler.getMaxFrameApplyTime() >= MUTATION_COST);
+    }
+
+    @Test
+    public void drain_continuesAfterFailedMutation() {
+        MapMutationScheduler scheduler = new MapMutationScheduler(frame -> { }, BUDGET);
+        List<Integer> applied = new ArrayList<>();
+
+        scheduler.post(() -> applied.add(1));
+        scheduler.post(() -> {
+            throw new NullPointerException();
+        });
+        scheduler.post(() -> applied.add(3));
+
+        Assert.assertEquals(3, scheduler.drain(BUDGET));
+        Assert.assertEquals(2, applied.size());
+    }
+
+    @Test
+    public void clear_dropsPendingMutations() {
+        MapMutationScheduler scheduler = new MapMutationScheduler(frame -> { }, BUDGET);
+        for (int i = 0; i < 10; i++) {
+            scheduler.post(Assert::fail);
+        }
+
+        scheduler.clear();
+        Assert.assertEquals(0, scheduler.getQueueDepth());
+        Assert.assertEquals(0, scheduler.drain(BUDGET));
+    }
+
+    private static void spin() {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < MUTATION_COST) {
+            // Busy wait to stand in for the cost of adding a shape to the map.
+        }
+    }
+}
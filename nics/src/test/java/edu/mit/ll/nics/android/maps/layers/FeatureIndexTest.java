@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.layers;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that the feature index culls features outside of the viewport and that clustering
+ * accounts for every visible point.
+ */
+public class FeatureIndexTest {
+
+    private static FeatureIndex<LatLng> buildGrid(int size) {
+        List<LatLng> points = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                points.add(new LatLng(34.0 + i * 0.001, -118.0 + j * 0.001));
+            }
+        }
+        return new FeatureIndex<>(points, Collections::singletonList, point -> true);
+    }
+
+    @Test
+    public void plan_clustersConserveCount() {
+        FeatureIndex<LatLng> index = buildGrid(100);
+
+        FeatureIndex.Plan<LatLng> plan = index.plan(33.9, -118.2, 34.2, -117.8, 10);
+        int count = plan.getItemCount();
+        for (FeatureIndex.Cluster cluster : plan.getClusters()) {
+            count += cluster.count;
+        }
+
+        Assert.assertEquals(index.size(), count);
+        Assert.assertTrue(plan.getClusters().size() < 100);
+    }
+
+    @Test
+    public void plan_noClustersWhenZoomedIn() {
+        FeatureIndex<LatLng> index = buildGrid(100);
+
+        FeatureIndex.Plan<LatLng> plan = index.plan(34.0, -118.0, 34.01, -117.99, FeatureIndex.CLUSTER_MAX_ZOOM);
+        Assert.assertTrue(plan.getClusters().isEmpty());
+        Assert.assertTrue(plan.getItemCount() > 0);
+        Assert.assertTrue(plan.getItemCount() < index.size());
+    }
+
+    @Test
+    public void plan_cullsFarFeatures() {
+        FeatureIndex<LatLng> index = buildGrid(10);
+
+        FeatureIndex.Plan<LatLng> plan = index.plan(40.0, -75.0, 41.0, -74.0, 10);
+        Assert.assertEquals(0, plan.getItemCount());
+        Assert.assertTrue(plan.getClusters().isEmpty());
+    }
+
+    @Test
+    public void getClusterLabel_buckets() {
+        Assert.assertEquals("7", ViewportRenderer.getClusterLabel(7));
+        Assert.assertEquals("10+", ViewportRenderer.getClusterLabel(42));
+        Assert.assertEquals("1000+", ViewportRenderer.getClusterLabel(4999));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.layers;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress tests for the {@link ShapeAssembler}, checking that no results are lost or reordered.
+ */
+public class ShapeAssemblerTest {
+
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    private static List<Integer> range(int size) {
+        List<Integer> inputs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            inputs.add(i);
+        }
+        return inputs;
+    }
+
+    @Test
+    public void assemble_keepsEveryResultInOrder() {
+        for (int size : new int[]{0, 1, 63, 64, 65, 1000, 100000}) {
+            List<Integer> inputs = range(size);
+            List<String> results = ShapeAssembler.assemble(mExecutor, inputs, String::valueOf, 8);
+
+            Assert.assertEquals(size, results.size());
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(String.valueOf(i), results.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void assemble_repeatedConcurrentBuilds() throws Exception {
+        int builds = 16;
+        List<Integer> inputs = range(20000);
+        AtomicInteger failures = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < builds; i++) {
+            Thread thread = new Thread(() -> {
+                List<Integer> results = ShapeAssembler.assemble(mExecutor, inputs, input -> input * 2);
+                for (int j = 0; j < inputs.size(); j++) {
+                    if (results.get(j) == null || results.get(j) != j * 2) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void assemble_completesWithoutExecutorThreads() {
+        List<Integer> inputs = range(5000);
+        List<Integer> results = ShapeAssembler.assemble(command -> { }, inputs, input -> input, 8);
+
+        Assert.assertEquals(inputs, results);
+    }
+
+    @Test
+    public void assemble_failedBuildsAreNull() {
+        List<Integer> inputs = range(1000);
+        List<Integer> results = ShapeAssembler.assemble(mExecutor, inputs, input -> {
+            if (input % 10 == 0) {
+                throw new IllegalStateException();
+            }
+            return input;
+        }, 4);
+
+        for (int i = 0; i < inputs.size(); i++) {
+            Assert.assertEquals(i % 10 == 0 ? null : i, results.get(i));
+        }
+    }
+}
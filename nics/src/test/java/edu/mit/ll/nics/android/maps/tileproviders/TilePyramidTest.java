@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.tileproviders;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static edu.mit.ll.nics.android.maps.tileproviders.BBOXTileProvider.MAXX;
+import static edu.mit.ll.nics.android.maps.tileproviders.BBOXTileProvider.MAXY;
+import static edu.mit.ll.nics.android.maps.tileproviders.BBOXTileProvider.MINX;
+import static edu.mit.ll.nics.android.maps.tileproviders.BBOXTileProvider.MINY;
+import static edu.mit.ll.nics.android.utils.WebMercator.projectX;
+import static edu.mit.ll.nics.android.utils.WebMercator.projectY;
+
+/**
+ * Checks that a tile pyramid enumerates exactly the tiles whose bounding boxes cover its area.
+ */
+public class TilePyramidTest {
+
+    @Test
+    public void getTileCount_wholeWorld() {
+        TilePyramid pyramid = new TilePyramid(-90, -180, 90, 180, 0, 2);
+        Assert.assertEquals(1 + 4 + 16, pyramid.getTileCount());
+    }
+
+    @Test
+    public void forEach_visitsTilesCoveringTheArea() {
+        double south = 34.0, west = -118.5, north = 34.3, east = -118.1;
+        TilePyramid pyramid = new TilePyramid(south, west, north, east, 8, 14);
+        BBOXTileProvider tiles = new BBOXTileProvider();
+
+        AtomicLong visited = new AtomicLong();
+        Assert.assertTrue(pyramid.forEach((x, y, zoom) -> {
+            double[] bbox = tiles.getBoundingBox(x, y, zoom);
+            Assert.assertTrue(bbox[MINX] <= projectX(east) && bbox[MAXX] >= projectX(west));
+            Assert.assertTrue(bbox[MINY] <= projectY(north) && bbox[MAXY] >= projectY(south));
+            visited.incrementAndGet();
+            return true;
+        }));
+
+        Assert.assertEquals(pyramid.getTileCount(), visited.get());
+        Assert.assertFalse(pyramid.forEach((x, y, zoom) -> false));
+    }
+
+    @Test
+    public void forEach_splitsAreaAcrossTheAntimeridian() {
+        double south = -18.0, west = 179.5, north = -17.5, east = -179.5;
+        TilePyramid pyramid = new TilePyramid(south, west, north, east, 6, 10);
+        BBOXTileProvider tiles = new BBOXTileProvider();
+
+        AtomicLong visited = new AtomicLong();
+        Assert.assertTrue(pyramid.forEach((x, y, zoom) -> {
+            double[] bbox = tiles.getBoundingBox(x, y, zoom);
+            Assert.assertTrue(bbox[MAXX] >= projectX(west) || bbox[MINX] <= projectX(east));
+            Assert.assertTrue(bbox[MINY] <= projectY(north) && bbox[MAXY] >= projectY(south));
+            visited.incrementAndGet();
+            return true;
+        }));
+
+        Assert.assertEquals(pyramid.getTileCount(), visited.get());
+
+        // One degree of longitude either side of the antimeridian, instead of the 359 degrees in between.
+        TilePyramid band = new TilePyramid(south, east, north, west, 6, 10);
+        Assert.assertTrue(pyramid.getTileCount() * 10 < band.getTileCount());
+    }
+}
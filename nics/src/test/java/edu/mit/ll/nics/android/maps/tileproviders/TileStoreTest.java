@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.maps.tileproviders;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.mit.ll.nics.android.api.DownloaderApiService;
+import okhttp3.Headers;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.mock.Calls;
+
+/**
+ * Checks the disk tile store's eviction, persistence and revalidation against a fake downloader.
+ */
+public class TileStoreTest {
+
+    private static final String LAYER = "layer";
+    private static final String URL = "https://localhost/wms";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void getTile_downloadsOnceThenServesFromDisk() throws Exception {
+        FakeDownloader downloader = new FakeDownloader();
+        downloader.respond(ok(new byte[]{1, 2, 3}, "\"a\"", "max-age=3600"));
+
+        TileStore store = new TileStore(mFolder.newFolder(), mFolder.newFolder(), 1024 * 1024, downloader, Runnable::run);
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, store.getTile(LAYER, URL, 1, 2, 3));
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, store.getTile(LAYER, URL, 1, 2, 3));
+        Assert.assertEquals(1, downloader.mRequests.size());
+    }
+
+    @Test
+    public void getTile_servesStaleTileAndRevalidatesWithETag() throws Exception {
+        FakeDownloader downloader = new FakeDownloader();
+        downloader.respond(ok(new byte[]{1}, "\"a\"", "max-age=0"));
+        downloader.respond(ok(new byte[]{2}, "\"b\"", "max-age=3600"));
+
+        TileStore store = new TileStore(mFolder.newFolder(), mFolder.newFolder(), 1024 * 1024, downloader, Runnable::run);
+        Assert.assertArrayEquals(new byte[]{1}, store.getTile(LAYER, URL, 0, 0, 0));
+
+        // The expired tile is still served, and the refreshed copy is served afterwards.
+        Assert.assertArrayEquals(new byte[]{1}, store.getTile(LAYER, URL, 0, 0, 0));
+        Assert.assertEquals("\"a\"", downloader.mRequests.get(1));
+        Assert.assertArrayEquals(new byte[]{2}, store.getTile(LAYER, URL, 0, 0, 0));
+        Assert.assertEquals(2, downloader.mRequests.size());
+    }
+
+    @Test
+    public void getTile_notModifiedKeepsTileData() throws Exception {
+        FakeDownloader downloader = new FakeDownloader();
+        downloader.respond(ok(new byte[]{7}, "\"a\"", "no-cache"));
+        downloader.respond(notModified("max-age=3600"));
+
+        TileStore store = new TileStore(mFolder.newFolder(), mFolder.newFolder(), 1024 * 1024, downloader, Runnable::run);
+        store.getTile(LAYER, URL, 0, 0, 0);
+        store.getTile(LAYER, URL, 0, 0, 0);
+
+        Assert.assertArrayEquals(new byte[]{7}, store.getTile(LAYER, URL, 0, 0, 0));
+        Assert.assertEquals(2, downloader.mRequests.size());
+    }
+
+    @Test
+    public void seed_servesTilesWithoutNetwork() throws Exception {
+        FakeDownloader downloader = new FakeDownloader();
+        downloader.respond(ok(new byte[]{4, 5}, "\"a\"", "max-age=3600"));
+
+        TileStore store = new TileStore(mFolder.newFolder(), mFolder.newFolder(), 1024, downloader, Runnable::run);
+        Assert.assertTrue(store.seed(LAYER, URL, 5, 6, 7));
+
+        // Seeding again is skipped, and the seeded tile is served even though nothing is cached.
+        Assert.assertTrue(store.seed(LAYER, URL, 5, 6, 7));
+        Assert.assertArrayEquals(new byte[]{4, 5}, store.getTile(LAYER, URL, 5, 6, 7));
+        Assert.assertEquals(1, downloader.mRequests.size());
+        Assert.assertEquals(0, store.getBytes());
+
+        // Without a network a tile that isn't seeded can't be seeded.
+        Assert.assertFalse(store.seed(LAYER, URL, 0, 0, 7));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedTiles() throws Exception {
+        File directory = mFolder.newFolder();
+        File offline = mFolder.newFolder();
+        TileStore store = new TileStore(directory, offline, 3000, new FakeDownloader(), Runnable::run);
+
+        for (int x = 0; x < 3; x++) {
+            store.put(TileStore.getKey(LAYER, x, 0, 0), new TileStore.Entry(new byte[900], null, Long.MAX_VALUE));
+        }
+
+        // Touch the first tile, so that the second one is the least recently used.
+        Assert.assertNotNull(store.get(TileStore.getKey(LAYER, 0, 0, 0)));
+        store.put(TileStore.getKey(LAYER, 3, 0, 0), new TileStore.Entry(new byte[900], null, Long.MAX_VALUE));
+
+        Assert.assertTrue(store.getBytes() <= 3000);
+        Assert.assertNotNull(store.get(TileStore.getKey(LAYER, 0, 0, 0)));
+        Assert.assertNull(store.get(TileStore.getKey(LAYER, 1, 0, 0)));
+        Assert.assertNotNull(store.get(TileStore.getKey(LAYER, 3, 0, 0)));
+
+        // A new store over the same directory picks the remaining tiles up from disk.
+        TileStore reopened = new TileStore(directory, offline, 3000, new FakeDownloader(), Runnable::run);
+        Assert.assertEquals(store.getBytes(), reopened.getBytes());
+        Assert.assertNotNull(reopened.get(TileStore.getKey(LAYER, 3, 0, 0)));
+
+        reopened.clear(LAYER);
+        Assert.assertEquals(0, reopened.getBytes());
+        Assert.assertNull(reopened.get(TileStore.getKey(LAYER, 3, 0, 0)));
+    }
+
+    private static Response<ResponseBody> ok(byte[] data, String etag, String cacheControl) {
+        return Response.success(ResponseBody.create(data, null), Headers.of("ETag", etag, "Cache-Control", cacheControl));
+    }
+
+    private static Response<ResponseBody> notModified(String cacheControl) {
+        okhttp3.Response raw = new okhttp3.Response.Builder()
+                .code(304)
+                .message("Not Modified")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url(URL).build())
+                .header("Cache-Control", cacheControl)
+                .build();
+        return Response.error(ResponseBody.create(new byte[0], null), raw);
+    }
+
+    private static class FakeDownloader implements DownloaderApiService {
+
+        private final ArrayDeque<Response<ResponseBody>> mResponses = new ArrayDeque<>();
+        private final List<String> mRequests = new ArrayList<>();
+
+        void respond(Response<ResponseBody> response) {
+            mResponses.add(response);
+        }
+
+        @Override
+        public Call<ResponseBody> download(String url) {
+            return download(url, null);
+        }
+
+        @Override
+        public Call<ResponseBody> download(String url, String etag) {
+            mRequests.add(etag);
+            return Calls.response(mResponses.remove());
+        }
+    }
+}
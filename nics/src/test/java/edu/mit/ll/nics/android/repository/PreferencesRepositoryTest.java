@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.repository;
+
+import android.content.SharedPreferences;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import edu.mit.ll.nics.android.data.User;
+import edu.mit.ll.nics.android.data.messages.UserMessage;
+import edu.mit.ll.nics.android.database.entities.Collabroom;
+
+import static edu.mit.ll.nics.android.utils.constants.Preferences.ALL_USER_DATA;
+import static edu.mit.ll.nics.android.utils.constants.Preferences.SELECTED_COLLABROOM;
+
+/**
+ * Checks that the preference snapshot serves decoded values until they change, and that the
+ * collabroom and nickname getters only decrypt their preference once. The fake preferences encrypt every
+ * value with AES256-GCM and count the reads of each key, like EncryptedSharedPreferences would decrypt them.
+ */
+public class PreferencesRepositoryTest {
+
+    private static final int READS = 1000;
+    private static final int USERS = 5000;
+
+    private FakePreferences mPreferences;
+    private PreferencesRepository mRepository;
+
+    @Before
+    public void setUp() throws Exception {
+        mPreferences = new FakePreferences();
+        mRepository = new PreferencesRepository(mPreferences);
+        mRepository.setSelectedCollabroom(collabroom(42L, "Operations"));
+    }
+
+    @Test
+    public void getSelectedCollabroom_decodesOnce() {
+        Collabroom collabroom = mRepository.getSelectedCollabroom();
+
+        Assert.assertEquals(42L, collabroom.getCollabRoomId());
+        Assert.assertSame(collabroom, mRepository.getSelectedCollabroom());
+        Assert.assertEquals(42L, mRepository.getSelectedCollabroomId());
+    }
+
+    @Test
+    public void setSelectedCollabroom_invalidatesSnapshot() {
+        Assert.assertEquals(42L, mRepository.getSelectedCollabroomId());
+
+        mRepository.setSelectedCollabroom(collabroom(7L, "Planning"));
+        Assert.assertEquals(7L, mRepository.getSelectedCollabroomId());
+
+        mRepository.setSelectedCollabroom(null);
+        Assert.assertEquals(-1L, mRepository.getSelectedCollabroomId());
+    }
+
+    @Test
+    public void externalWrite_invalidatesSnapshot() {
+        Assert.assertEquals(42L, mRepository.getSelectedCollabroomId());
+
+        mPreferences.edit().putString(SELECTED_COLLABROOM, collabroom(9L, "Logistics").toJson()).apply();
+        Assert.assertEquals(9L, mRepository.getSelectedCollabroomId());
+
+        mPreferences.edit().clear().apply();
+        Assert.assertEquals(-1L, mRepository.getSelectedCollabroomId());
+    }
+
+    @Test
+    public void getUserNickName_usesUserDirectory() {
+        mRepository.setAllUserData(users(USERS));
+
+        Assert.assertEquals("First0 Last0", mRepository.getUserNickName("user0@example.com"));
+        Assert.assertEquals("First4999 Last4999", mRepository.getUserNickName("user4999@example.com"));
+        Assert.assertEquals("Unknown User", mRepository.getUserNickName("missing@example.com"));
+        Assert.assertSame(mRepository.getUser("user42@example.com"), mRepository.getUser("user42@example.com"));
+
+        mRepository.setAllUserData(users(10));
+        Assert.assertEquals("Unknown User", mRepository.getUserNickName("user4999@example.com"));
+        Assert.assertNull(mRepository.getUser("user4999@example.com"));
+    }
+
+    @Test
+    public void getUserNickName_decodesUserDataOnce() {
+        mRepository.setAllUserData(users(USERS));
+        mRepository.getUserNickName("user0@example.com");
+
+        int reads = mPreferences.getReads(ALL_USER_DATA);
+        for (int i = 0; i < 100; i++) {
+            mRepository.getUserNickName("user" + (i * 37 % USERS) + "@example.com");
+        }
+
+        Assert.assertEquals(reads, mPreferences.getReads(ALL_USER_DATA));
+    }
+
+    @Test
+    public void getSelectedCollabroomId_decryptsOnce() {
+        mRepository.getSelectedCollabroomId();
+
+        int reads = mPreferences.getReads(SELECTED_COLLABROOM);
+        for (int i = 0; i < READS; i++) {
+            Assert.assertEquals(42L, mRepository.getSelectedCollabroomId());
+        }
+
+        Assert.assertEquals(reads, mPreferences.getReads(SELECTED_COLLABROOM));
+    }
+
+    private static Collabroom collabroom(long id, String name) {
+        Collabroom collabroom = new Collabroom();
+        collabroom.setCollabRoomId(id);
+        collabroom.setIncidentId(1L);
+        collabroom.setName(name);
+        collabroom.setAdminUsers(new long[]{1L, 2L});
+        collabroom.setReadWriteUsers(new long[]{3L, 4L, 5L});
+        collabroom.setReadOnlyUsers(new long[]{6L});
+        return collabroom;
+    }
+
+    private static UserMessage users(int count) {
+        ArrayList<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUserId(i);
+            user.setUserName("user" + i + "@example.com");
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            users.add(user);
+        }
+
+        UserMessage message = new UserMessage();
+        message.setUsers(users);
+        return message;
+    }
+
+    /**
+     * In-memory preferences that keep every value encrypted and notify their listeners
+     * synchronously when a change is applied.
+     */
+    private static class FakePreferences implements SharedPreferences {
+
+        private static final int IV_LENGTH = 12;
+
+        private final Map<String, byte[]> mValues = new HashMap<>();
+        private final Map<String, Integer> mReads = new HashMap<>();
+        private final List<OnSharedPreferenceChangeListener> mListeners = new ArrayList<>();
+        private final SecureRandom mRandom = new SecureRandom();
+        private final SecretKey mKey;
+
+        FakePreferences() throws GeneralSecurityException {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            mKey = generator.generateKey();
+        }
+
+        private synchronized String read(String key) {
+            Integer reads = mReads.get(key);
+            mReads.put(key, reads != null ? reads + 1 : 1);
+
+            byte[] value = mValues.get(key);
+            if (value == null) {
+                return null;
+            }
+
+            try {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, mKey, new GCMParameterSpec(128, value, 0, IV_LENGTH));
+                return new String(cipher.doFinal(value, IV_LENGTH, value.length - IV_LENGTH), StandardCharsets.UTF_8);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        synchronized int getReads(String key) {
+            Integer reads = mReads.get(key);
+            return reads != null ? reads : 0;
+        }
+
+        private byte[] encrypt(String value) {
+            try {
+                byte[] iv = new byte[IV_LENGTH];
+                mRandom.nextBytes(iv);
+
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, mKey, new GCMParameterSpec(128, iv));
+                byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+                return ByteBuffer.allocate(IV_LENGTH + encrypted.length).put(iv).put(encrypted).array();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Map<String, ?> getAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            String value = read(key);
+            return value != null ? value : defValue;
+        }
+
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            String value = read(key);
+            return value != null ? Integer.parseInt(value) : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            String value = read(key);
+            return value != null ? Long.parseLong(value) : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            String value = read(key);
+            return value != null ? Float.parseFloat(value) : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            String value = read(key);
+            return value != null ? Boolean.parseBoolean(value) : defValue;
+        }
+
+        @Override
+        public synchronized boolean contains(String key) {
+            return mValues.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new FakeEditor();
+        }
+
+        @Override
+        public synchronized void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            mListeners.add(listener);
+        }
+
+        @Override
+        public synchronized void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            mListeners.remove(listener);
+        }
+
+        private class FakeEditor implements Editor {
+
+            private final Map<String, String> mChanges = new HashMap<>();
+            private boolean mClear = false;
+
+            @Override
+            public Editor putString(String key, String value) {
+                mChanges.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                return putString(key, String.valueOf(value));
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                return putString(key, String.valueOf(value));
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                return putString(key, String.valueOf(value));
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                return putString(key, String.valueOf(value));
+            }
+
+            @Override
+            public Editor remove(String key) {
+                return putString(key, null);
+            }
+
+            @Override
+            public Editor clear() {
+                mClear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                List<OnSharedPreferenceChangeListener> listeners;
+                synchronized (FakePreferences.this) {
+                    if (mClear) {
+                        mValues.clear();
+                    }
+
+                    for (Map.Entry<String, String> change : mChanges.entrySet()) {
+                        if (change.getValue() == null) {
+                            mValues.remove(change.getKey());
+                        } else {
+                            mValues.put(change.getKey(), encrypt(change.getValue()));
+                        }
+                    }
+                    listeners = new ArrayList<>(mListeners);
+                }
+
+                for (OnSharedPreferenceChangeListener listener : listeners) {
+                    if (mClear) {
+                        listener.onSharedPreferenceChanged(FakePreferences.this, null);
+                    }
+                    for (String key : mChanges.keySet()) {
+                        listener.onSharedPreferenceChanged(FakePreferences.this, key);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
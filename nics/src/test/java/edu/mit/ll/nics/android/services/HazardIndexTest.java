@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.maps.android.PolyUtil;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import edu.mit.ll.nics.android.database.entities.Hazard;
+
+import static com.google.maps.android.SphericalUtil.computeDistanceBetween;
+import static edu.mit.ll.nics.android.utils.GeoUtils.findNearestPoint;
+
+/**
+ * Checks the {@link HazardIndex} against a brute force search over 10k hazards. The two are timed against each other by
+ * HazardIndexBenchmark.
+ */
+public class HazardIndexTest {
+
+    private static final int HAZARDS = 10000;
+    private static final int QUERIES = 1000;
+
+    private final Random mRandom = new Random(42);
+    private final ArrayList<Hazard> mHazards = new ArrayList<>();
+    private final HazardIndex mIndex = new HazardIndex();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < HAZARDS; i++) {
+            LatLng center = randomLocation();
+            double size = 0.001 + mRandom.nextDouble() * 0.005;
+
+            ArrayList<LatLng> coordinates = new ArrayList<>();
+            coordinates.add(new LatLng(center.latitude - size, center.longitude - size));
+            coordinates.add(new LatLng(center.latitude + size, center.longitude - size));
+            coordinates.add(new LatLng(center.latitude + size, center.longitude + size));
+            coordinates.add(new LatLng(center.latitude - size, center.longitude + size));
+            coordinates.add(new LatLng(center.latitude - size, center.longitude - size));
+
+            Hazard hazard = new Hazard("hazard" + i, "Hazard " + i, "Fire", 100, "meter", null, 1L, coordinates);
+            hazard.setId(i);
+            mHazards.add(hazard);
+        }
+
+        mIndex.update(mHazards);
+    }
+
+    @Test
+    public void getContainingHazards_matchesBruteForce() {
+        for (int i = 0; i < QUERIES; i++) {
+            LatLng location = randomLocation();
+            Assert.assertEquals(new HashSet<>(bruteForceContaining(location)), new HashSet<>(mIndex.getContainingHazards(location)));
+        }
+    }
+
+    @Test
+    public void getNearestHazards_matchesBruteForce() {
+        for (int i = 0; i < QUERIES; i++) {
+            LatLng location = randomLocation();
+            List<Hazard> nearest = mIndex.getNearestHazards(location, 1);
+
+            Assert.assertEquals(1, nearest.size());
+            Assert.assertEquals(bruteForceNearestDistance(location), nearest.get(0).getDistanceFromUser(), 1.0);
+        }
+    }
+
+    @Test
+    public void update_reusesUnchangedHazards() {
+        ArrayList<Hazard> hazards = new ArrayList<>(mHazards.subList(0, 10));
+        mIndex.update(hazards);
+        Assert.assertEquals(10, mIndex.size());
+
+        hazards = new ArrayList<>(hazards);
+        hazards.remove(0);
+        mIndex.update(hazards);
+        Assert.assertEquals(9, mIndex.size());
+
+        ArrayList<LatLng> coordinates = hazards.get(0).getCoordinates();
+        Assert.assertTrue(mIndex.getContainingHazards(midpoint(coordinates)).contains(hazards.get(0)));
+        Assert.assertFalse(mIndex.getContainingHazards(midpoint(mHazards.get(0).getCoordinates())).contains(mHazards.get(0)));
+    }
+
+    private ArrayList<Hazard> bruteForceContaining(LatLng location) {
+        ArrayList<Hazard> hazards = new ArrayList<>();
+        for (Hazard hazard : mHazards) {
+            if (PolyUtil.containsLocation(location, hazard.getCoordinates(), false)) {
+                hazards.add(hazard);
+            }
+        }
+        return hazards;
+    }
+
+    private double bruteForceNearestDistance(LatLng location) {
+        double distance = Double.MAX_VALUE;
+        for (Hazard hazard : mHazards) {
+            distance = Math.min(distance, computeDistanceBetween(location, findNearestPoint(location, hazard.getCoordinates())));
+        }
+        return distance;
+    }
+
+    private LatLng randomLocation() {
+        return new LatLng(39.0 + mRandom.nextDouble(), -105.0 + mRandom.nextDouble());
+    }
+
+    private static LatLng midpoint(ArrayList<LatLng> coordinates) {
+        return new LatLng((coordinates.get(0).latitude + coordinates.get(2).latitude) / 2,
+                (coordinates.get(0).longitude + coordinates.get(2).longitude) / 2);
+    }
+}
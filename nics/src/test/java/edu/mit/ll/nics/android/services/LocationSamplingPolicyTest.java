@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static com.google.maps.android.SphericalUtil.computeDistanceBetween;
+import static com.google.maps.android.SphericalUtil.interpolate;
+
+/**
+ * Replays a GPX track through the {@link LocationSamplingPolicy}, requesting each fix at the interval that the policy picked
+ * for the previous one. The track is stationary, walks, drives past a hazard and then stops again.
+ */
+public class LocationSamplingPolicyTest {
+
+    private static final int RATE = 30;
+    private static final LatLng HAZARD_CENTER = new LatLng(39.7625566, -104.9903);
+    private static final double HAZARD_RADIUS = 200.0;
+    private static final float ACCURACY = 10.0f;
+
+    private final ArrayList<Long> mTimes = new ArrayList<>();
+    private final ArrayList<LatLng> mPoints = new ArrayList<>();
+    private final ArrayList<Fix> mFixes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("gpx/hazard_approach.gpx")) {
+            NodeList points = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in).getElementsByTagName("trkpt");
+            for (int i = 0; i < points.getLength(); i++) {
+                Element point = (Element) points.item(i);
+                String time = point.getElementsByTagName("time").item(0).getTextContent();
+                mTimes.add(java.time.Instant.parse(time).toEpochMilli());
+                mPoints.add(new LatLng(Double.parseDouble(point.getAttribute("lat")), Double.parseDouble(point.getAttribute("lon"))));
+            }
+        }
+
+        replay();
+    }
+
+    @Test
+    public void nearHazard_fixesAreDense() {
+        for (int i = 0; i < mFixes.size() - 1; i++) {
+            Fix fix = mFixes.get(i);
+            if (fix.hazardDistance <= LocationSamplingPolicy.NEAR_HAZARD_DISTANCE) {
+                Assert.assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, fix.request.getPriority());
+                Assert.assertTrue(mFixes.get(i + 1).time - fix.time <= LocationSamplingPolicy.NEAR_HAZARD_INTERVAL);
+            }
+        }
+    }
+
+    @Test
+    public void moving_fixesAtMdtRate() {
+        for (Fix fix : mFixes) {
+            long elapsed = fix.time - mTimes.get(0);
+            if (elapsed > 660000L && elapsed < 1200000L) {
+                Assert.assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, fix.request.getPriority());
+                Assert.assertEquals(RATE * 1000L, fix.request.getInterval());
+            }
+        }
+    }
+
+    @Test
+    public void stationary_backsOff() {
+        for (Fix fix : mFixes) {
+            long elapsed = fix.time - mTimes.get(0);
+            if (elapsed >= LocationSamplingPolicy.STATIONARY_DELAY + RATE * 1000L && elapsed < 600000L) {
+                Assert.assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, fix.request.getPriority());
+                Assert.assertEquals(LocationSamplingPolicy.STATIONARY_INTERVAL, fix.request.getInterval());
+            }
+        }
+
+        Fix last = mFixes.get(mFixes.size() - 1);
+        Assert.assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, last.request.getPriority());
+    }
+
+    @Test
+    public void stopping_keepsPriorityUntilStationaryDelay() {
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(RATE);
+        LatLng location = new LatLng(39.70, -105.05);
+        policy.onMdtSent(location);
+
+        long stopped = RATE * 1000L;
+        Assert.assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, policy.update(location, 5.0f, ACCURACY, 0L).getPriority());
+
+        for (long time = stopped; time < stopped + LocationSamplingPolicy.STATIONARY_DELAY; time += RATE * 1000L) {
+            Assert.assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, policy.update(location, 0.0f, ACCURACY, time).getPriority());
+        }
+
+        LocationSamplingPolicy.Request request = policy.update(location, 0.0f, ACCURACY, stopped + LocationSamplingPolicy.STATIONARY_DELAY);
+        Assert.assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, request.getPriority());
+    }
+
+    @Test
+    public void jitterWithinAccuracy_isNotMovement() {
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(RATE);
+        LatLng location = new LatLng(39.70, -105.05);
+        LatLng jittered = new LatLng(39.7006, -105.05);
+        policy.onMdtSent(location);
+
+        // The fixes are about 67 meters apart, which would count as moving if their accuracy was ignored.
+        long time = 0L;
+        for (int i = 0; time <= LocationSamplingPolicy.STATIONARY_DELAY; i++, time += RATE * 1000L) {
+            policy.update(i % 2 == 0 ? location : jittered, Float.NaN, 100.0f, time);
+        }
+
+        Assert.assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, policy.getRequest().getPriority());
+    }
+
+    @Test
+    public void adaptive_usesFewerHighAccuracyFixes() {
+        long duration = mTimes.get(mTimes.size() - 1) - mTimes.get(0);
+        int fixed = (int) (duration / (RATE * 1000L)) + 1;
+
+        int highAccuracy = 0;
+        for (Fix fix : mFixes) {
+            if (fix.request.getPriority() == LocationRequest.PRIORITY_HIGH_ACCURACY) {
+                highAccuracy++;
+            }
+        }
+
+        Assert.assertTrue(highAccuracy < fixed);
+    }
+
+    private void replay() {
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(RATE);
+
+        long start = mTimes.get(0);
+        long end = mTimes.get(mTimes.size() - 1);
+        long lastMdt = Long.MIN_VALUE / 2;
+
+        long time = start;
+        while (time <= end) {
+            LatLng location = locationAt(time);
+            double distance = Math.max(0.0, computeDistanceBetween(location, HAZARD_CENTER) - HAZARD_RADIUS);
+            policy.setHazardDistance(distance);
+
+            // Same MDT gating as the LocationService.
+            if (time >= lastMdt + (RATE - 5) * 1000L) {
+                lastMdt = time;
+                policy.onMdtSent(location);
+            }
+
+            LocationSamplingPolicy.Request request = policy.update(location, Float.NaN, ACCURACY, time);
+            mFixes.add(new Fix(time, distance, request));
+            time += request.getInterval();
+        }
+    }
+
+    private LatLng locationAt(long time) {
+        for (int i = 1; i < mTimes.size(); i++) {
+            if (mTimes.get(i) >= time) {
+                long t0 = mTimes.get(i - 1);
+                double fraction = (double) (time - t0) / (mTimes.get(i) - t0);
+                return interpolate(mPoints.get(i - 1), mPoints.get(i), fraction);
+            }
+        }
+        return mPoints.get(mPoints.size() - 1);
+    }
+
+    private static class Fix {
+        private final long time;
+        private final double hazardDistance;
+        private final LocationSamplingPolicy.Request request;
+
+        private Fix(long time, double hazardDistance, LocationSamplingPolicy.Request request) {
+            this.time = time;
+            this.hazardDistance = hazardDistance;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.services;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Drives the {@link SyncSchedule} with a fake clock, jumping straight to each wake up that the schedule asks for.
+ */
+public class SyncScheduleTest {
+
+    private static final String MARKUP = "MAP_MARKUP";
+    private static final String CHAT = "CHAT_MESSAGES";
+    private static final String ALERTS = "ALERTS";
+    private static final String LAYERS = "COLLABROOM_LAYERS";
+
+    private FakeClock mClock;
+    private SyncSchedule mSchedule;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock();
+        mSchedule = new SyncSchedule(mClock);
+    }
+
+    @Test
+    public void runsImmediateSyncsTogether() {
+        mSchedule.schedule(MARKUP, 30000L, true);
+        mSchedule.schedule(CHAT, 30000L, true);
+        mSchedule.schedule(LAYERS, 60000L, false);
+
+        Assert.assertEquals(0L, mSchedule.getNextWakeup());
+        Assert.assertEquals(Arrays.asList(MARKUP, CHAT), mSchedule.pollDue());
+        Assert.assertEquals(30000L, mSchedule.getNextWakeup());
+        Assert.assertTrue(mSchedule.pollDue().isEmpty());
+    }
+
+    @Test
+    public void coalescesSyncsThatAreAlmostDue() {
+        mSchedule.schedule(MARKUP, 30000L, false);
+        mSchedule.schedule(ALERTS, 40000L, false);
+
+        // The alerts are due 10 seconds after the markup, so they are pulled into the same wake up.
+        mClock.set(mSchedule.getNextWakeup());
+        Assert.assertEquals(30000L, mClock.elapsedRealtime());
+        Assert.assertEquals(Arrays.asList(MARKUP, ALERTS), mSchedule.pollDue());
+        Assert.assertEquals(60000L, mSchedule.getNextWakeup());
+    }
+
+    @Test
+    public void coalescingReducesWakeups() {
+        mSchedule.schedule(MARKUP, 30000L, false);
+        mSchedule.schedule(CHAT, 30000L, false);
+        mSchedule.schedule(ALERTS, 40000L, false);
+        mSchedule.schedule(LAYERS, 60000L, false);
+
+        Simulation simulation = new Simulation();
+        simulation.run(3600000L);
+
+        // One alarm per sync would have woken the device 119 + 119 + 89 + 59 times in the hour.
+        Assert.assertEquals(119, simulation.mWakeups);
+        Assert.assertEquals(119, simulation.count(MARKUP));
+        Assert.assertEquals(119, simulation.count(CHAT));
+        Assert.assertEquals(59, simulation.count(LAYERS));
+
+        // Syncs that are pulled into an earlier wake up still keep their own rate.
+        Assert.assertEquals(89, simulation.count(ALERTS));
+    }
+
+    @Test
+    public void backsOffWhileNothingChanges() {
+        mSchedule.schedule(CHAT, 30000L, true);
+
+        long[] expected = {60000L, 120000L, 240000L, 240000L};
+        for (long interval : expected) {
+            mClock.set(mSchedule.getNextWakeup());
+            Assert.assertEquals(Arrays.asList(CHAT), mSchedule.pollDue());
+            mSchedule.onResult(CHAT, false);
+
+            Assert.assertEquals(interval, mSchedule.getInterval(CHAT));
+            Assert.assertEquals(mClock.elapsedRealtime() + interval, mSchedule.getNextWakeup());
+        }
+
+        // New data drops the interval straight back to the selected rate.
+        mClock.set(mSchedule.getNextWakeup());
+        mSchedule.pollDue();
+        mSchedule.onResult(CHAT, true);
+        Assert.assertEquals(30000L, mSchedule.getInterval(CHAT));
+        Assert.assertEquals(mClock.elapsedRealtime() + 30000L, mSchedule.getNextWakeup());
+    }
+
+    @Test
+    public void followsTheChangeRate() {
+        mSchedule.schedule(MARKUP, 30000L, true);
+
+        // Markup only changes during the first ten minutes of the hour.
+        Simulation simulation = new Simulation();
+        simulation.mChanges.put(MARKUP, new long[] {0L, 600000L});
+        simulation.run(3600000L);
+
+        // 20 polls with new data, then 1, 2 and 4 minutes of back off and a poll every 4 minutes for the rest of the hour.
+        Assert.assertEquals(34, simulation.count(MARKUP));
+        Assert.assertEquals(240000L, mSchedule.getInterval(MARKUP));
+    }
+
+    @Test
+    public void stretchesIntervalsInTheBackgroundAndWithTheScreenOff() {
+        mSchedule.schedule(MARKUP, 30000L, false);
+        mSchedule.schedule(LAYERS, 600000L, false);
+
+        mSchedule.setForeground(false);
+        Assert.assertEquals(60000L, mSchedule.getInterval(MARKUP));
+        Assert.assertEquals(60000L, mSchedule.getNextWakeup());
+
+        mSchedule.setScreenOn(false);
+        Assert.assertEquals(120000L, mSchedule.getInterval(MARKUP));
+
+        // Never stretched past the maximum interval, but never faster than the selected rate either.
+        Assert.assertEquals(SyncSchedule.MAX_INTERVAL, mSchedule.getInterval(LAYERS));
+        mSchedule.schedule(LAYERS, 1800000L, false);
+        Assert.assertEquals(1800000L, mSchedule.getInterval(LAYERS));
+
+        mSchedule.setScreenOn(true);
+        mSchedule.setForeground(true);
+        Assert.assertEquals(30000L, mSchedule.getInterval(MARKUP));
+        Assert.assertEquals(30000L, mSchedule.getNextWakeup());
+    }
+
+    @Test
+    public void fixedSyncsKeepTheSelectedRate() {
+        mSchedule.schedule(ALERTS, 30000L, true, false);
+        mSchedule.schedule(CHAT, 30000L, true);
+
+        mSchedule.pollDue();
+        mSchedule.onResult(ALERTS, false);
+        mSchedule.onResult(CHAT, false);
+        Assert.assertEquals(30000L, mSchedule.getInterval(ALERTS));
+        Assert.assertEquals(60000L, mSchedule.getInterval(CHAT));
+
+        // Neither the background nor the screen state slow down a sync that opted out of adapting.
+        mSchedule.setForeground(false);
+        mSchedule.setScreenOn(false);
+        Assert.assertEquals(30000L, mSchedule.getInterval(ALERTS));
+        Assert.assertEquals(30000L, mSchedule.getNextWakeup());
+        Assert.assertEquals(240000L, mSchedule.getInterval(CHAT));
+    }
+
+    @Test
+    public void cancelRemovesTheSync() {
+        mSchedule.schedule(MARKUP, 30000L, true);
+        mSchedule.schedule(CHAT, 30000L, true);
+
+        mSchedule.cancel(MARKUP);
+        mSchedule.onResult(MARKUP, false);
+        Assert.assertFalse(mSchedule.isScheduled(MARKUP));
+        Assert.assertEquals(-1L, mSchedule.getInterval(MARKUP));
+        Assert.assertEquals(Arrays.asList(CHAT), mSchedule.pollDue());
+
+        mSchedule.cancel(CHAT);
+        Assert.assertTrue(mSchedule.isEmpty());
+        Assert.assertEquals(-1L, mSchedule.getNextWakeup());
+    }
+
+    private static class FakeClock implements SyncSchedule.Clock {
+
+        private long mNow;
+
+        void set(long now) {
+            mNow = now;
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return mNow;
+        }
+    }
+
+    /**
+     * Jumps the clock from wake up to wake up, running the due syncs and reporting whether the fake server had new data.
+     */
+    private class Simulation {
+
+        private final HashMap<String, long[]> mChanges = new HashMap<>();
+        private final HashMap<String, List<Long>> mRuns = new HashMap<>();
+        private int mWakeups;
+
+        void run(long duration) {
+            while (mSchedule.getNextWakeup() >= 0 && mSchedule.getNextWakeup() < duration) {
+                mClock.set(mSchedule.getNextWakeup());
+                mWakeups++;
+
+                for (String key : mSchedule.pollDue()) {
+                    List<Long> runs = mRuns.get(key);
+                    if (runs == null) {
+                        runs = new ArrayList<>();
+                        mRuns.put(key, runs);
+                    }
+                    runs.add(mClock.elapsedRealtime());
+
+                    long[] changes = mChanges.get(key);
+                    if (changes != null) {
+                        long now = mClock.elapsedRealtime();
+                        mSchedule.onResult(key, now >= changes[0] && now < changes[1]);
+                    }
+                }
+            }
+        }
+
+        int count(String key) {
+            List<Long> runs = mRuns.get(key);
+            return runs != null ? runs.size() : 0;
+        }
+    }
+}
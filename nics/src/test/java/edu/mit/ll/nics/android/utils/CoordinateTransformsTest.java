@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.CoordinateTransformFactory;
+import org.locationtech.proj4j.ProjCoordinate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.mit.ll.nics.android.enums.EPSG;
+
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_27700;
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_3857;
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_4326;
+
+/**
+ * Checks that the cached transforms match freshly created Proj4j transforms. The throughput of creating a transform per
+ * call against the cached batch API is compared by CoordinateTransformsBenchmark.
+ */
+public class CoordinateTransformsTest {
+
+    private static final int POINTS = 20000;
+
+    @Test
+    public void transform_matchesUncachedTransform() {
+        assertMatches(EPSG_4326, EPSG_3857);
+        assertMatches(EPSG_3857, EPSG_4326);
+        assertMatches(EPSG_4326, EPSG_27700);
+        assertMatches(EPSG_27700, EPSG_4326);
+    }
+
+    @Test
+    public void transform_isThreadSafe() throws Exception {
+        double[] expected = points();
+        CoordinateTransforms.transform(EPSG_4326, EPSG_3857, expected);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    double[] points = points();
+                    CoordinateTransforms.transform(EPSG_4326, EPSG_3857, points);
+                    return points;
+                }));
+            }
+
+            for (Future<double[]> future : futures) {
+                Assert.assertArrayEquals(expected, future.get(), 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertMatches(EPSG source, EPSG destination) {
+        double[] points = points();
+        double[] expected = points.clone();
+
+        CoordinateTransform transform = create(source, destination);
+        ProjCoordinate result = new ProjCoordinate();
+        for (int i = 0; i < expected.length; i += 2) {
+            transform.transform(new ProjCoordinate(expected[i], expected[i + 1]), result);
+            expected[i] = result.x;
+            expected[i + 1] = result.y;
+        }
+
+        // Transforms between 4326 and 3857 go through WebMercator, so allow for floating point differences.
+        CoordinateTransforms.transform(source, destination, points);
+        Assert.assertArrayEquals(expected, points, 1.0e-6);
+    }
+
+    private static CoordinateTransform create(EPSG source, EPSG destination) {
+        CRSFactory factory = new CRSFactory();
+        CoordinateReferenceSystem srcCrs = factory.createFromParameters(source.getName(), source.getParams());
+        CoordinateReferenceSystem dstCrs = factory.createFromParameters(destination.getName(), destination.getParams());
+        return new CoordinateTransformFactory().createTransform(srcCrs, dstCrs);
+    }
+
+    private static double[] points() {
+        double[] points = new double[POINTS * 2];
+        for (int i = 0; i < POINTS; i++) {
+            points[i * 2] = -2.0 + (i % 200) * 0.01;
+            points[i * 2 + 1] = 51.0 + (i / 200) * 0.01;
+        }
+        return points;
+    }
+}
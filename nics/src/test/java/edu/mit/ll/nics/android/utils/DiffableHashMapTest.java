@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.mit.ll.nics.android.database.entities.MarkupFeature;
+import edu.mit.ll.nics.android.enums.SendStatus;
+
+/**
+ * Checks the change sets produced by {@link DiffableHashMap}, including 10k markup features with 1% churn, and that
+ * versions are only recorded once an add lands.
+ */
+public class DiffableHashMapTest {
+
+    private static final int FEATURES = 10000;
+    private static final int CHURN = FEATURES / 100;
+
+    @Test
+    public void diff_producesChangeSet() {
+        RecordingDiff diff = new RecordingDiff();
+        DiffableHashMap<Long, MarkupFeature, MarkupFeature> map =
+                new DiffableHashMap<>(diff, MarkupFeature::getId, MarkupFeature::getVersion);
+
+        ChangeSet<Long, MarkupFeature> changes = map.diff(features(5, 1L));
+        Assert.assertEquals(5, changes.getAdded().size());
+        Assert.assertEquals(1, diff.mApplied);
+
+        // An identical emission makes no changes and does not reach the callback.
+        changes = map.diff(features(5, 1L));
+        Assert.assertTrue(changes.isEmpty());
+        Assert.assertEquals(1, diff.mApplied);
+
+        List<MarkupFeature> features = features(4, 1L);
+        features.get(2).setLastUpdate(2L);
+        features.add(feature(10L, 1L));
+        changes = map.diff(features);
+        Assert.assertEquals(Arrays.asList(4L), changes.getRemoved());
+        Assert.assertEquals(Arrays.asList(2L), new ArrayList<>(changes.getReplaced().keySet()));
+        Assert.assertEquals(Arrays.asList(10L), new ArrayList<>(changes.getAdded().keySet()));
+
+        changes = map.diff(null);
+        Assert.assertTrue(changes.isRemoveAll());
+
+        changes = map.diff(features(2, 1L));
+        Assert.assertEquals(2, changes.getAdded().size());
+    }
+
+    @Test
+    public void diff_removesItemsFailingPreCondition() {
+        DiffableHashMap<Long, MarkupFeature, MarkupFeature> map = new DiffableHashMap<>(new RecordingDiff(),
+                MarkupFeature::getId, MarkupFeature::getVersion, feature -> !feature.isFailedToSend());
+
+        map.diff(features(3, 1L));
+
+        List<MarkupFeature> features = features(3, 1L);
+        features.get(1).setFailedToSend(true);
+        ChangeSet<Long, MarkupFeature> changes = map.diff(features);
+        Assert.assertEquals(Arrays.asList(1L), changes.getRemoved());
+        Assert.assertTrue(changes.getAdded().isEmpty());
+        Assert.assertTrue(changes.getReplaced().isEmpty());
+    }
+
+    @Test
+    public void diff_detectsLocalEdits() {
+        DiffableHashMap<Long, MarkupFeature, MarkupFeature> map =
+                new DiffableHashMap<>(new RecordingDiff(), MarkupFeature::getId, MarkupFeature::getVersion);
+
+        List<MarkupFeature> features = features(2, 1L);
+        features.get(0).setSendStatus(SendStatus.WAITING_TO_SEND);
+        map.diff(features);
+
+        // A local edit keeps the server's last update time, so the hash has to pick it up.
+        features = features(2, 1L);
+        features.get(0).setSendStatus(SendStatus.WAITING_TO_SEND);
+        features.get(0).setGeometry("POINT(1 1)");
+        ChangeSet<Long, MarkupFeature> changes = map.diff(features);
+        Assert.assertEquals(Arrays.asList(0L), new ArrayList<>(changes.getReplaced().keySet()));
+    }
+
+    @Test
+    public void diff_reportsChurn() {
+        DiffableHashMap<Long, MarkupFeature, MarkupFeature> map =
+                new DiffableHashMap<>(new RecordingDiff(), MarkupFeature::getId, MarkupFeature::getVersion);
+        map.diff(churn(0));
+
+        for (int i = 1; i <= 3; i++) {
+            ChangeSet<Long, MarkupFeature> changes = map.diff(churn(i));
+            Assert.assertEquals(CHURN, changes.getRemoved().size());
+            Assert.assertEquals(CHURN, changes.getReplaced().size());
+            Assert.assertEquals(CHURN, changes.getAdded().size());
+        }
+    }
+
+    @Test
+    public void discard_retriesFailedAdd() {
+        DiffableHashMap<Long, MarkupFeature, MarkupFeature> map =
+                new DiffableHashMap<>(new RecordingDiff(), MarkupFeature::getId, MarkupFeature::getVersion);
+        List<MarkupFeature> features = features(2, 1L);
+        map.diff(features);
+        map.put(1L, features.get(1));
+
+        // The add of feature 0 failed, so the next emission adds it again.
+        map.discard(0L);
+        ChangeSet<Long, MarkupFeature> changes = map.diff(features(2, 1L));
+        Assert.assertEquals(Arrays.asList(0L), new ArrayList<>(changes.getAdded().keySet()));
+        Assert.assertTrue(changes.getReplaced().isEmpty());
+    }
+
+    @Test
+    public void diff_removesPendingAdds() {
+        DiffableHashMap<Long, MarkupFeature, MarkupFeature> map =
+                new DiffableHashMap<>(new RecordingDiff(), MarkupFeature::getId, MarkupFeature::getVersion);
+        map.diff(features(2, 1L));
+
+        // Neither add has landed yet, but both are queued and have to be removed.
+        ChangeSet<Long, MarkupFeature> changes = map.diff(Arrays.asList(feature(5L, 1L)));
+        Assert.assertEquals(2, changes.getRemoved().size());
+        Assert.assertEquals(Arrays.asList(5L), new ArrayList<>(changes.getAdded().keySet()));
+    }
+
+    // Every emission updates CHURN features and replaces another CHURN features with new ones.
+    private static List<MarkupFeature> churn(int emission) {
+        List<MarkupFeature> features = new ArrayList<>(FEATURES);
+        for (int i = 0; i < FEATURES; i++) {
+            long id = i < CHURN ? FEATURES * (emission + 1L) + i : i;
+            long lastUpdate = i >= CHURN && i < CHURN * 2 ? emission + 1L : 1L;
+            features.add(feature(id, lastUpdate));
+        }
+        return features;
+    }
+
+    private static List<MarkupFeature> features(int count, long lastUpdate) {
+        List<MarkupFeature> features = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            features.add(feature(i, lastUpdate));
+        }
+        return features;
+    }
+
+    private static MarkupFeature feature(long id, long lastUpdate) {
+        MarkupFeature feature = new MarkupFeature();
+        feature.setId(id);
+        feature.setFeatureId("feature-" + id);
+        feature.setType("polygon");
+        feature.setStrokeColor("#FF0000");
+        feature.setStrokeWidth(3);
+        feature.setGeometry("POLYGON((" + id + " 0, " + id + " 1, " + (id + 1) + " 1, " + id + " 0))");
+        feature.setLastUpdate(lastUpdate);
+        feature.setSendStatus(SendStatus.RECEIVED);
+        return feature;
+    }
+
+    private static class RecordingDiff implements Diff<Long, MarkupFeature, MarkupFeature> {
+
+        private int mApplied = 0;
+
+        @Override
+        public void add(Long key, MarkupFeature item) {
+        }
+
+        @Override
+        public void replace(Long key, MarkupFeature item) {
+        }
+
+        @Override
+        public void remove(Long key) {
+        }
+
+        @Override
+        public void removeAll() {
+        }
+
+        @Override
+        public void apply(ChangeSet<Long, MarkupFeature> changes) {
+            mApplied++;
+        }
+    }
+}
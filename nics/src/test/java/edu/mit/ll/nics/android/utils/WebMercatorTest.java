@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008-2021, Massachusetts Institute of Technology (MIT)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.mit.ll.nics.android.utils;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.CoordinateTransformFactory;
+import org.locationtech.proj4j.ProjCoordinate;
+
+import java.util.ArrayList;
+
+import edu.mit.ll.nics.android.database.entities.Vector2;
+import edu.mit.ll.nics.android.enums.EPSG;
+
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_3857;
+import static edu.mit.ll.nics.android.enums.EPSG.EPSG_4326;
+
+/**
+ * Accuracy of the {@link WebMercator} fast path against Proj4j, and of the direct geometry buffering against the previous
+ * Proj4j and WKT based buffering. The speed of the two buffering paths is compared by WebMercatorBenchmark.
+ */
+public class WebMercatorTest {
+
+    private static final double METERS_TOLERANCE = 1.0e-6;
+    private static final double DEGREES_TOLERANCE = 1.0e-9;
+
+    @Test
+    public void project_matchesProj4j() {
+        CoordinateTransform transform = create(EPSG_4326, EPSG_3857);
+        ProjCoordinate expected = new ProjCoordinate();
+
+        for (double lat = -85.0; lat <= 85.0; lat += 2.5) {
+            for (double lon = -180.0; lon <= 180.0; lon += 7.5) {
+                transform.transform(new ProjCoordinate(lon, lat), expected);
+                Assert.assertEquals(expected.x, WebMercator.projectX(lon), METERS_TOLERANCE);
+                Assert.assertEquals(expected.y, WebMercator.projectY(lat), METERS_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void unproject_matchesProj4j() {
+        CoordinateTransform transform = create(EPSG_3857, EPSG_4326);
+        ProjCoordinate expected = new ProjCoordinate();
+
+        double max = WebMercator.projectX(180.0);
+        for (double y = -max; y <= max; y += max / 20) {
+            for (double x = -max; x <= max; x += max / 20) {
+                transform.transform(new ProjCoordinate(x, y), expected);
+                Assert.assertEquals(expected.x, WebMercator.unprojectX(x), DEGREES_TOLERANCE);
+                Assert.assertEquals(expected.y, WebMercator.unprojectY(y), DEGREES_TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void bufferGeometry_matchesProj4jBuffering() throws Exception {
+        ArrayList<LatLng> polygon = new ArrayList<>();
+        polygon.add(new LatLng(42.0, -71.0));
+        polygon.add(new LatLng(42.5, -71.0));
+        polygon.add(new LatLng(42.5, -70.5));
+        polygon.add(new LatLng(42.0, -71.0));
+        assertBuffer(polygon, "polygon");
+
+        ArrayList<LatLng> line = new ArrayList<>();
+        line.add(new LatLng(34.0, -118.5));
+        line.add(new LatLng(34.2, -118.3));
+        line.add(new LatLng(34.1, -118.0));
+        assertBuffer(line, "sketch");
+    }
+
+    private static void assertBuffer(ArrayList<LatLng> coordinates, String type) throws Exception {
+        ArrayList<LatLng> expected = legacyBuffer(coordinates, type, 250.0);
+        ArrayList<LatLng> actual = GeoUtils.bufferGeometry(coordinates, type, 250.0);
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).latitude, actual.get(i).latitude, DEGREES_TOLERANCE);
+            Assert.assertEquals(expected.get(i).longitude, actual.get(i).longitude, DEGREES_TOLERANCE);
+        }
+    }
+
+    // The buffering as it was done before the fast path, with new Proj4j transforms and a WKT round trip.
+    private static ArrayList<LatLng> legacyBuffer(ArrayList<LatLng> coordinates, String type, double buffer) throws Exception {
+        CoordinateTransform forward = create(EPSG_4326, EPSG_3857);
+        ArrayList<Vector2> points = new ArrayList<>();
+        for (LatLng coordinate : coordinates) {
+            ProjCoordinate result = forward.transform(new ProjCoordinate(coordinate.longitude, coordinate.latitude), new ProjCoordinate());
+            points.add(new Vector2(result.x, result.y));
+        }
+
+        Geometry geometry = new WKTReader().read(GeoUtils.convertPointsToGeometryString(points, type)).buffer(buffer);
+
+        CoordinateTransform inverse = create(EPSG_3857, EPSG_4326);
+        ArrayList<LatLng> buffered = new ArrayList<>();
+        for (Coordinate coordinate : geometry.getCoordinates()) {
+            ProjCoordinate result = inverse.transform(new ProjCoordinate(coordinate.x, coordinate.y), new ProjCoordinate());
+            buffered.add(new LatLng(result.y, result.x));
+        }
+        return buffered;
+    }
+
+    private static CoordinateTransform create(EPSG source, EPSG destination) {
+        CRSFactory factory = new CRSFactory();
+        CoordinateReferenceSystem srcCrs = factory.createFromParameters(source.getName(), source.getParams());
+        CoordinateReferenceSystem dstCrs = factory.createFromParameters(destination.getName(), destination.getParams());
+        return new CoordinateTransformFactory().createTransform(srcCrs, dstCrs);
+    }
+}